@@ -0,0 +1,54 @@
+package com.storemanagement.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache đọc catalog trong bộ nhớ (Caffeine), giới hạn theo kích thước và TTL.
+ * CacheManager được bọc TransactionAwareCacheManagerProxy: put/evict trong transaction chỉ được áp dụng
+ * sau khi commit, nên một request đọc song song không thể đưa dữ liệu cũ trở lại cache.
+ */
+@Configuration
+@EnableCaching
+@ConfigurationProperties(prefix = "catalog-cache")
+@Data
+public class CacheConfig {
+
+    public static final String PRODUCT_DETAILS = "productDetails";
+    public static final String PRODUCT_BRANDS = "productBrands";
+    public static final String CATEGORIES = "categories";
+    public static final String SUPPLIERS = "suppliers";
+    public static final String SHIPPING_FEE_QUOTES = "shippingFeeQuotes";
+    public static final String DELIVERY_TIME_QUOTES = "deliveryTimeQuotes";
+
+    private static final String DEFAULT_SPEC = "maximumSize=1000,expireAfterWrite=10m";
+
+    /**
+     * Caffeine spec cho từng cache, ví dụ "maximumSize=5000,expireAfterWrite=10m".
+     */
+    private Map<String, String> specs = new LinkedHashMap<>();
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setAllowNullValues(false);
+
+        for (String cacheName : new String[] { PRODUCT_DETAILS, PRODUCT_BRANDS, CATEGORIES, SUPPLIERS,
+                SHIPPING_FEE_QUOTES, DELIVERY_TIME_QUOTES }) {
+            String spec = specs.getOrDefault(cacheName, DEFAULT_SPEC);
+            cacheManager.registerCustomCache(cacheName, Caffeine.from(spec).recordStats().build());
+        }
+
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
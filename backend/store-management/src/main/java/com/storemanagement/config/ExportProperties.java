@@ -0,0 +1,17 @@
+package com.storemanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "export")
+@Data
+public class ExportProperties {
+
+    // Mỗi lượt xuất giữ một connection trong suốt thời gian tải về
+    private int maxConcurrentExports = 2;
+
+    // Đẩy dữ liệu đã ghi ra client sau mỗi chừng này dòng
+    private int flushEveryRows = 1000;
+}
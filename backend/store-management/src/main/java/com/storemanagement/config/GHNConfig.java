@@ -12,8 +12,8 @@ import org.springframework.web.client.RestTemplate;
 public class GHNConfig {
 
     @Bean(name = "ghnRestTemplate")
-    public RestTemplate ghnRestTemplate() {
-        return new RestTemplate();
+    public RestTemplate ghnRestTemplate(OutboundHttpClientFactory outboundHttpClientFactory) {
+        return outboundHttpClientFactory.createRestTemplate("ghn");
     }
 
     private String token;
@@ -23,4 +23,49 @@ public class GHNConfig {
     private String webhookUrl;
     private Boolean enabled = true;
     private String environment = "sandbox";
+    private Outbox outbox = new Outbox();
+    private MasterData masterData = new MasterData();
+    private QuoteCache quoteCache = new QuoteCache();
+    private TrackingSync trackingSync = new TrackingSync();
+
+    @Data
+    public static class Outbox {
+        private long pollIntervalMs = 5000;
+        private int batchSize = 20;
+        private int maxAttempts = 8;
+        private long baseBackoffSeconds = 30;
+        private long maxBackoffSeconds = 3600;
+        private long leaseSeconds = 120;
+    }
+
+    @Data
+    public static class MasterData {
+        // File snapshot tỉnh/quận/phường, được nạp khi khởi động để tra cứu không cần gọi GHN
+        private String snapshotPath = "data/ghn-master-data.json";
+        private long refreshIntervalMs = 86400000;
+        private long initialRefreshDelayMs = 60000;
+        // Nghỉ giữa các lời gọi khi làm mới nền để không dồn tải lên GHN
+        private long refreshCallDelayMs = 200;
+        private long snapshotWriteIntervalMs = 60000;
+    }
+
+    @Data
+    public static class QuoteCache {
+        private boolean enabled = true;
+        // Khối lượng/kích thước được làm tròn lên theo bậc trước khi báo giá để các giỏ hàng gần nhau dùng chung cache
+        private int weightBucketGrams = 500;
+        private int dimensionBucketCm = 5;
+    }
+
+    @Data
+    public static class TrackingSync {
+        private boolean enabled = true;
+        private long intervalMs = 300000;
+        private int pageSize = 100;
+        // Số lời gọi GHN song song tối đa và tốc độ gọi tối đa mỗi giây của job đồng bộ
+        private int parallelism = 4;
+        private double requestsPerSecond = 5;
+        // Bỏ qua vận đơn vừa được cập nhật (webhook/đồng bộ) trong khoảng này
+        private long minAgeSeconds = 600;
+    }
 }
@@ -0,0 +1,52 @@
+package com.storemanagement.config;
+
+import com.storemanagement.service.OutboundCallGuard;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Tạo RestTemplate dùng chung cho các tích hợp ra ngoài. Mỗi tích hợp có một JDK HttpClient riêng
+ * (giữ kết nối keep-alive, có connect/read timeout) và interceptor đi qua {@link OutboundCallGuard}
+ * để áp bulkhead, circuit breaker và đo độ trễ theo endpoint.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboundHttpClientFactory {
+
+    private final OutboundHttpProperties outboundHttpProperties;
+    private final OutboundCallGuard outboundCallGuard;
+
+    public RestTemplate createRestTemplate(String integration) {
+        OutboundHttpProperties.Integration config = outboundHttpProperties.getIntegration(integration);
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMs()))
+                .build();
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(config.getReadTimeoutMs()));
+
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add((request, body, execution) -> outboundCallGuard.execute(
+                integration,
+                request.getMethod() + " " + request.getURI().getPath(),
+                () -> execution.execute(request, body),
+                OutboundHttpClientFactory::isServerError));
+        return restTemplate;
+    }
+
+    private static boolean isServerError(ClientHttpResponse response) {
+        try {
+            return response.getStatusCode().is5xxServerError();
+        } catch (Exception e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.storemanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cấu hình cho từng tích hợp bên ngoài (ghn, recommender, payos): timeout, bulkhead và circuit breaker.
+ * Tích hợp không được khai báo dùng giá trị mặc định của {@link Integration}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "outbound-http")
+@Data
+public class OutboundHttpProperties {
+
+    private Map<String, Integration> integrations = new LinkedHashMap<>();
+
+    public Integration getIntegration(String name) {
+        return integrations.getOrDefault(name, new Integration());
+    }
+
+    @Data
+    public static class Integration {
+        private long connectTimeoutMs = 3000;
+        private long readTimeoutMs = 10000;
+
+        // Bulkhead: số lời gọi đồng thời tối đa và thời gian chờ chỗ trống trước khi từ chối
+        private int maxConcurrentCalls = 20;
+        private long maxWaitMs = 0;
+
+        // Circuit breaker: mở khi tỷ lệ lỗi trong slidingWindowSize lời gọi gần nhất >= failureRateThreshold (%)
+        private int slidingWindowSize = 20;
+        private int minimumCalls = 10;
+        private int failureRateThreshold = 50;
+        private long openStateDurationMs = 30000;
+        private int halfOpenPermittedCalls = 3;
+    }
+}
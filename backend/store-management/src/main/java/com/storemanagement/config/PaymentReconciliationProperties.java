@@ -0,0 +1,24 @@
+package com.storemanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment-reconciliation")
+@Data
+public class PaymentReconciliationProperties {
+
+    private boolean enabled = true;
+    private long intervalMs = 60000;
+    private int batchSize = 50;
+
+    // Chỉ đối soát đơn đã đặt quá khoảng này, để webhook có thời gian đến trước
+    private long minAgeSeconds = 120;
+
+    // Đơn chưa thanh toán sau khoảng này bị hủy, link PayOS bị hủy và tồn kho/mã giảm giá được trả lại
+    private long expireAfterMinutes = 30;
+
+    // Thời gian chờ tối đa của request long-poll trạng thái thanh toán
+    private long maxWaitSeconds = 30;
+}
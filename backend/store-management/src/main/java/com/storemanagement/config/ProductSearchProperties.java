@@ -0,0 +1,15 @@
+package com.storemanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "product-search")
+@Data
+public class ProductSearchProperties {
+    // Số kết quả tối đa (theo độ liên quan) của một lần tìm theo từ khóa, tính sau khi đã áp dụng các bộ lọc khác
+    private int maxResults = 2000;
+    // Dựng lại toàn bộ index định kỳ để bù các thay đổi không đi qua ProductService
+    private long rebuildIntervalMs = 600000;
+}
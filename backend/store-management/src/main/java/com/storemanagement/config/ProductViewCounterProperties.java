@@ -0,0 +1,19 @@
+package com.storemanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "product-view-counter")
+@Data
+public class ProductViewCounterProperties {
+    // Sau mỗi half-life, trọng số của một lượt xem giảm còn một nửa
+    private double halfLifeHours = 168;
+    // Số sản phẩm top toàn hệ thống giữ trong bộ nhớ và thời gian làm mới
+    private int globalTopSize = 200;
+    private long globalTopTtlMs = 60000;
+    // Dòng theo user có điểm (đã suy giảm) dưới ngưỡng này bị xóa bởi job dọn dẹp
+    private double pruneScoreThreshold = 0.01;
+    private String pruneCron = "0 30 3 * * *";
+}
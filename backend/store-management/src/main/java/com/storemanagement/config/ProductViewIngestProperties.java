@@ -0,0 +1,19 @@
+package com.storemanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "product-view-ingest")
+@Data
+public class ProductViewIngestProperties {
+    // Sức chứa hàng đợi lượt xem chưa ghi xuống DB; khi đầy lượt xem mới bị bỏ (được đếm vào dropped)
+    private int queueCapacity = 20000;
+    // Thời gian tối đa request chờ chỗ trống khi hàng đợi đầy, 0 = bỏ ngay không chờ
+    private long offerTimeoutMs = 0;
+    // Số dòng tối đa mỗi lần INSERT nhiều dòng
+    private int batchSize = 500;
+    // Chu kỳ writer nền xả hàng đợi
+    private long flushIntervalMs = 1000;
+}
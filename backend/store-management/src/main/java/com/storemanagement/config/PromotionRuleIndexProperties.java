@@ -0,0 +1,13 @@
+package com.storemanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "promotion-rule-index")
+@Data
+public class PromotionRuleIndexProperties {
+    // Nạp lại định kỳ để nhận các thay đổi không đi qua PromotionService (sửa trực tiếp DB)
+    private long refreshIntervalMs = 300000;
+}
@@ -13,7 +13,7 @@ public class RecommenderProperties {
     private String baseUrl = "http://localhost:5000";
 
     @Bean(name = "recommenderRestTemplate")
-    public RestTemplate recommenderRestTemplate() {
-        return new RestTemplate();
+    public RestTemplate recommenderRestTemplate(OutboundHttpClientFactory outboundHttpClientFactory) {
+        return outboundHttpClientFactory.createRestTemplate("recommender");
     }
 }
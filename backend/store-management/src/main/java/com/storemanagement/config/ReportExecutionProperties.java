@@ -0,0 +1,20 @@
+package com.storemanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "report-execution")
+@Data
+public class ReportExecutionProperties {
+
+    // false: các truy vấn con chạy tuần tự trên một connection/snapshot như trước;
+    // true: mỗi truy vấn con có snapshot riêng, tạo khi truy vấn bắt đầu chạy
+    private boolean parallel = true;
+
+    // Số truy vấn báo cáo chạy đồng thời tối đa (cũng là số connection tối đa báo cáo chiếm của pool)
+    private int maxConcurrency = 3;
+
+    private long timeoutMs = 30000;
+}
@@ -0,0 +1,24 @@
+package com.storemanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "sales-cube")
+@Data
+public class SalesCubeProperties {
+
+    private boolean enabled = true;
+
+    // Nạp lại toàn bộ định kỳ để cập nhật thuộc tính sản phẩm (danh mục, thương hiệu, tên) đã đổi
+    private long rebuildIntervalMs = 21600000;
+
+    // Số thread quét song song; 0 = số CPU
+    private int parallelism = 0;
+
+    // Số dòng mỗi tác vụ fork/join quét tuần tự
+    private int scanChunkSize = 65536;
+
+    private int maxResultRows = 1000;
+}
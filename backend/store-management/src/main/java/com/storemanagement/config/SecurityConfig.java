@@ -1,5 +1,6 @@
 package com.storemanagement.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -97,6 +98,8 @@ public class SecurityConfig {
                                                                 "/api/v1/payments/payos/webhook",
                                                                 "/api/v1/payos/register-webhook"))
                                 .authorizeHttpRequests(authz -> authz
+                                                // Kết quả long-poll (DeferredResult) được trả qua async dispatch; request gốc đã được xác thực
+                                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
 
                                                 .requestMatchers("/api/v1/payos/**").permitAll()
@@ -0,0 +1,22 @@
+package com.storemanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "webhook-journal")
+@Data
+public class WebhookJournalProperties {
+
+    private long pollIntervalMs = 500;
+    private int batchSize = 100;
+
+    // Số luồng xử lý; sự kiện cùng partition key (đơn hàng/vận đơn) luôn vào cùng một luồng nên được xử lý theo thứ tự
+    private int workerLanes = 4;
+
+    private int maxAttempts = 6;
+    private long baseBackoffSeconds = 10;
+    private long maxBackoffSeconds = 900;
+    private long leaseSeconds = 300;
+}
@@ -0,0 +1,30 @@
+package com.storemanagement.controller;
+
+import com.storemanagement.dto.ApiResponse;
+import com.storemanagement.dto.cache.CacheStatsDTO;
+import com.storemanagement.service.CatalogCacheService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/admin/cache")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+@Slf4j
+public class AdminCacheController {
+
+        private final CatalogCacheService catalogCacheService;
+
+        @GetMapping("/stats")
+        public ResponseEntity<ApiResponse<List<CacheStatsDTO>>> getCacheStatistics() {
+                log.info("GET /admin/cache/stats");
+
+                return ResponseEntity.ok(ApiResponse.success(
+                                "Lấy thống kê cache thành công", catalogCacheService.getStatistics()));
+        }
+}
@@ -0,0 +1,114 @@
+package com.storemanagement.controller;
+
+import com.storemanagement.model.Order;
+import com.storemanagement.service.ExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Xuất CSV. Dữ liệu được ghi thẳng vào response trong lúc đọc từ database (không dựng danh sách trong bộ nhớ).
+ */
+@RestController
+@RequestMapping("/api/v1/admin/exports")
+@RequiredArgsConstructor
+@PreAuthorize("hasAnyRole('ADMIN', 'EMPLOYEE')")
+@Slf4j
+public class AdminExportController {
+
+        private final ExportService exportService;
+
+        @GetMapping("/orders")
+        public void exportOrders(
+                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+                        @RequestParam(required = false) Order.OrderStatus status,
+                        HttpServletResponse response) throws IOException {
+
+                log.info("GET /admin/exports/orders from={} to={} status={}", fromDate, toDate, status);
+                validateDateRange(fromDate, toDate);
+
+                exportService.exportOrders(fromDate, toDate, status, fileName -> openCsv(response, fileName));
+        }
+
+        @GetMapping("/inventory-transactions")
+        public void exportInventoryTransactions(
+                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+                        @RequestParam(required = false) Integer productId,
+                        HttpServletResponse response) throws IOException {
+
+                log.info("GET /admin/exports/inventory-transactions from={} to={} productId={}",
+                                fromDate, toDate, productId);
+                validateDateRange(fromDate, toDate);
+
+                exportService.exportInventoryTransactions(fromDate, toDate, productId,
+                                fileName -> openCsv(response, fileName));
+        }
+
+        @GetMapping("/customers")
+        @PreAuthorize("hasRole('ADMIN')")
+        public void exportCustomers(HttpServletResponse response) throws IOException {
+                log.info("GET /admin/exports/customers");
+
+                exportService.exportCustomers(fileName -> openCsv(response, fileName));
+        }
+
+        @GetMapping("/reports/revenue-by-product")
+        public void exportRevenueByProduct(
+                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+                        HttpServletResponse response) throws IOException {
+
+                log.info("GET /admin/exports/reports/revenue-by-product from={} to={}", fromDate, toDate);
+                validateDateRange(fromDate, toDate);
+
+                exportService.exportRevenueByProduct(fromDate, toDate, fileName -> openCsv(response, fileName));
+        }
+
+        @GetMapping("/reports/revenue-by-time")
+        public void exportRevenueByTime(
+                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+                        @RequestParam(defaultValue = "MONTH") String groupBy,
+                        HttpServletResponse response) throws IOException {
+
+                log.info("GET /admin/exports/reports/revenue-by-time from={} to={} groupBy={}",
+                                fromDate, toDate, groupBy);
+                validateDateRange(fromDate, toDate);
+
+                String normalizedGroupBy = groupBy.toUpperCase();
+                if (!normalizedGroupBy.equals("DAY") && !normalizedGroupBy.equals("MONTH")
+                                && !normalizedGroupBy.equals("YEAR")) {
+                        throw new RuntimeException("Tham số groupBy không hợp lệ. Chấp nhận: DAY, MONTH, YEAR");
+                }
+
+                exportService.exportRevenueByTime(fromDate, toDate, normalizedGroupBy,
+                                fileName -> openCsv(response, fileName));
+        }
+
+        private void validateDateRange(LocalDate fromDate, LocalDate toDate) {
+                if (fromDate.isAfter(toDate)) {
+                        throw new RuntimeException("Ngày bắt đầu phải trước ngày kết thúc");
+                }
+        }
+
+        private OutputStream openCsv(HttpServletResponse response, String fileName) throws IOException {
+                response.setContentType("text/csv; charset=UTF-8");
+                response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                                .filename(fileName, StandardCharsets.UTF_8)
+                                .build()
+                                .toString());
+                return response.getOutputStream();
+        }
+}
@@ -0,0 +1,118 @@
+package com.storemanagement.controller;
+
+import com.storemanagement.dto.ApiResponse;
+import com.storemanagement.dto.ghn.GHNShipmentOutboxDTO;
+import com.storemanagement.dto.ghn.GHNTrackingSyncStatsDTO;
+import com.storemanagement.dto.integration.OutboundCallStatsDTO;
+import com.storemanagement.dto.payos.PaymentReconciliationStatsDTO;
+import com.storemanagement.dto.webhook.WebhookEventDTO;
+import com.storemanagement.model.ShipmentOutbox;
+import com.storemanagement.model.WebhookEvent;
+import com.storemanagement.service.GHNTrackingSyncService;
+import com.storemanagement.service.OutboundCallGuard;
+import com.storemanagement.service.PaymentReconciliationService;
+import com.storemanagement.service.ShipmentOutboxService;
+import com.storemanagement.service.WebhookJournalService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/admin/integrations")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+@Slf4j
+public class AdminIntegrationController {
+
+        private final OutboundCallGuard outboundCallGuard;
+        private final GHNTrackingSyncService ghnTrackingSyncService;
+        private final WebhookJournalService webhookJournalService;
+        private final PaymentReconciliationService paymentReconciliationService;
+        private final ShipmentOutboxService shipmentOutboxService;
+
+        @GetMapping("/stats")
+        public ResponseEntity<ApiResponse<List<OutboundCallStatsDTO>>> getIntegrationStatistics() {
+                log.info("GET /admin/integrations/stats");
+
+                return ResponseEntity.ok(ApiResponse.success(
+                                "Lấy thống kê tích hợp thành công", outboundCallGuard.getStatistics()));
+        }
+
+        @GetMapping("/ghn-tracking-sync/stats")
+        public ResponseEntity<ApiResponse<GHNTrackingSyncStatsDTO>> getGHNTrackingSyncStatistics() {
+                log.info("GET /admin/integrations/ghn-tracking-sync/stats");
+
+                return ResponseEntity.ok(ApiResponse.success(
+                                "Lấy thống kê đồng bộ vận đơn GHN thành công", ghnTrackingSyncService.getStatistics()));
+        }
+
+        @PostMapping("/ghn-tracking-sync/run")
+        public ResponseEntity<ApiResponse<GHNTrackingSyncStatsDTO>> runGHNTrackingSync() {
+                log.info("POST /admin/integrations/ghn-tracking-sync/run");
+
+                GHNTrackingSyncStatsDTO statistics = ghnTrackingSyncService.syncNow();
+                String message = Boolean.TRUE.equals(statistics.getRunning())
+                                ? "Đang có lượt đồng bộ vận đơn GHN khác chạy"
+                                : "Đồng bộ vận đơn GHN thành công";
+                return ResponseEntity.ok(ApiResponse.success(message, statistics));
+        }
+
+        @GetMapping("/ghn-outbox")
+        public ResponseEntity<ApiResponse<List<GHNShipmentOutboxDTO>>> getGHNOutboxEntries(
+                        @RequestParam(required = false) ShipmentOutbox.OutboxStatus status,
+                        @RequestParam(defaultValue = "50") Integer limit) {
+                log.info("GET /admin/integrations/ghn-outbox - status: {}, limit: {}", status, limit);
+
+                return ResponseEntity.ok(ApiResponse.success(
+                                "Lấy hàng đợi tạo vận đơn GHN thành công",
+                                shipmentOutboxService.getRecentEntries(status, limit)));
+        }
+
+        @PostMapping("/ghn-outbox/{outboxId}/replay")
+        public ResponseEntity<ApiResponse<GHNShipmentOutboxDTO>> replayGHNOutboxEntry(@PathVariable Integer outboxId) {
+                log.info("POST /admin/integrations/ghn-outbox/{}/replay", outboxId);
+
+                return ResponseEntity.ok(ApiResponse.success(
+                                "Đã đưa vận đơn GHN vào hàng đợi tạo lại", shipmentOutboxService.replay(outboxId)));
+        }
+
+        @GetMapping("/webhooks")
+        public ResponseEntity<ApiResponse<List<WebhookEventDTO>>> getWebhookEvents(
+                        @RequestParam(required = false) WebhookEvent.Source source,
+                        @RequestParam(required = false) WebhookEvent.EventStatus status,
+                        @RequestParam(defaultValue = "50") Integer limit) {
+                log.info("GET /admin/integrations/webhooks - source: {}, status: {}, limit: {}", source, status, limit);
+
+                return ResponseEntity.ok(ApiResponse.success(
+                                "Lấy nhật ký webhook thành công",
+                                webhookJournalService.getRecentEvents(source, status, limit)));
+        }
+
+        @PostMapping("/webhooks/{eventId}/replay")
+        public ResponseEntity<ApiResponse<WebhookEventDTO>> replayWebhookEvent(@PathVariable Long eventId) {
+                log.info("POST /admin/integrations/webhooks/{}/replay", eventId);
+
+                return ResponseEntity.ok(ApiResponse.success(
+                                "Đã đưa webhook vào hàng đợi xử lý lại", webhookJournalService.replay(eventId)));
+        }
+
+        @GetMapping("/payos-reconciliation/stats")
+        public ResponseEntity<ApiResponse<PaymentReconciliationStatsDTO>> getPaymentReconciliationStatistics() {
+                log.info("GET /admin/integrations/payos-reconciliation/stats");
+
+                return ResponseEntity.ok(ApiResponse.success(
+                                "Lấy thống kê đối soát PayOS thành công", paymentReconciliationService.getStatistics()));
+        }
+
+        @PostMapping("/payos-reconciliation/run")
+        public ResponseEntity<ApiResponse<PaymentReconciliationStatsDTO>> runPaymentReconciliation() {
+                log.info("POST /admin/integrations/payos-reconciliation/run");
+
+                return ResponseEntity.ok(ApiResponse.success(
+                                "Đối soát PayOS thành công", paymentReconciliationService.reconcileNow()));
+        }
+}
@@ -1,10 +1,15 @@
 package com.storemanagement.controller;
 
 import com.storemanagement.dto.ApiResponse;
+import com.storemanagement.dto.report.ReportSubqueryStatsDTO;
 import com.storemanagement.dto.report.RevenueByProductDTO;
 import com.storemanagement.dto.report.RevenueByTimeDTO;
 import com.storemanagement.dto.report.RevenueSummaryDTO;
+import com.storemanagement.dto.report.SalesCubeQueryDTO;
+import com.storemanagement.dto.report.SalesCubeResultDTO;
+import com.storemanagement.dto.report.SalesCubeStatsDTO;
 import com.storemanagement.service.ReportService;
+import com.storemanagement.service.SalesCubeService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -23,6 +28,7 @@ import java.util.List;
 public class AdminReportController {
 
         private final ReportService reportService;
+        private final SalesCubeService salesCubeService;
 
         @GetMapping("/revenue-summary")
         public ResponseEntity<ApiResponse<RevenueSummaryDTO>> getRevenueSummary(
@@ -89,4 +95,44 @@ public class AdminReportController {
                 return ResponseEntity.ok(ApiResponse.success(
                                 "Lấy dữ liệu doanh thu theo sản phẩm thành công", data));
         }
+
+        /**
+         * Thời gian thực thi từng truy vấn con của báo cáo (ms).
+         */
+        @GetMapping("/execution-stats")
+        @PreAuthorize("hasRole('ADMIN')")
+        public ResponseEntity<ApiResponse<List<ReportSubqueryStatsDTO>>> getExecutionStatistics() {
+                return ResponseEntity.ok(ApiResponse.success(
+                                "Lấy thống kê thực thi báo cáo thành công", reportService.getExecutionStatistics()));
+        }
+
+        @PostMapping("/sales-cube/query")
+        public ResponseEntity<ApiResponse<SalesCubeResultDTO>> querySalesCube(@RequestBody SalesCubeQueryDTO query) {
+                log.info("POST /admin/reports/sales-cube/query groupBy={}", query.getGroupBy());
+
+                if (query.getFromDate() != null && query.getToDate() != null
+                                && query.getFromDate().isAfter(query.getToDate())) {
+                        return ResponseEntity.badRequest()
+                                        .body(ApiResponse.error(400, "Ngày bắt đầu phải trước ngày kết thúc"));
+                }
+
+                return ResponseEntity.ok(ApiResponse.success(
+                                "Truy vấn sales cube thành công", salesCubeService.query(query)));
+        }
+
+        @GetMapping("/sales-cube/stats")
+        @PreAuthorize("hasRole('ADMIN')")
+        public ResponseEntity<ApiResponse<SalesCubeStatsDTO>> getSalesCubeStatistics() {
+                return ResponseEntity.ok(ApiResponse.success(
+                                "Lấy thống kê sales cube thành công", salesCubeService.getStatistics()));
+        }
+
+        @PostMapping("/sales-cube/rebuild")
+        @PreAuthorize("hasRole('ADMIN')")
+        public ResponseEntity<ApiResponse<SalesCubeStatsDTO>> rebuildSalesCube() {
+                log.info("POST /admin/reports/sales-cube/rebuild");
+                salesCubeService.rebuild();
+                return ResponseEntity.ok(ApiResponse.success(
+                                "Nạp lại sales cube thành công", salesCubeService.getStatistics()));
+        }
 }
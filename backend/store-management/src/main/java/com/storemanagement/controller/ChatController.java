@@ -7,6 +7,7 @@ import com.storemanagement.dto.chat.ChatMessageDTO;
 import com.storemanagement.model.Customer;
 import com.storemanagement.repository.CustomerRepository;
 import com.storemanagement.service.ChatService;
+import com.storemanagement.utils.PageUtils;
 import com.storemanagement.utils.SecurityUtils;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
@@ -96,10 +97,21 @@ public class ChatController {
     public ResponseEntity<ApiResponse<PageResponse<ChatMessageDTO>>> getConversationMessages(
             @PathVariable Integer id,
             @RequestParam(required = false, defaultValue = "1") Integer pageNo,
-            @RequestParam(required = false, defaultValue = "50") Integer pageSize) {
+            @RequestParam(required = false, defaultValue = "50") Integer pageSize,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean useCursor,
+            @RequestParam(defaultValue = "false") boolean withCount) {
 
         log.info("Getting messages for conversation ID: {}, page: {}, size: {}", id, pageNo, pageSize);
 
+        // Phân trang cursor (opt-in): nextCursor dùng để tải các tin nhắn cũ hơn
+        if (useCursor || cursor != null) {
+            PageUtils.validateCursorPageSize(pageSize);
+            PageResponse<ChatMessageDTO> response = chatService.getConversationMessagesByCursor(id, cursor,
+                    pageSize, withCount);
+            return ResponseEntity.ok(ApiResponse.success("Lấy lịch sử tin nhắn thành công", response));
+        }
+
         Pageable pageable = PageRequest.of(pageNo - 1, pageSize);
         Page<ChatMessageDTO> messages = chatService.getConversationMessages(id, pageable);
 
@@ -13,6 +13,7 @@ import com.storemanagement.dto.ghn.GHNServiceDTO;
 import com.storemanagement.dto.ghn.GHNTrackingDTO;
 import com.storemanagement.dto.ghn.GHNUpdateOrderRequestDTO;
 import com.storemanagement.dto.ghn.GHNWardDTO;
+import com.storemanagement.service.GHNMasterDataService;
 import com.storemanagement.service.GHNService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -32,12 +33,13 @@ import java.util.List;
 public class GHNController {
 
     private final GHNService ghnService;
+    private final GHNMasterDataService ghnMasterDataService;
 
     @GetMapping("/provinces")
     @PreAuthorize("hasAnyRole('ADMIN', 'EMPLOYEE', 'CUSTOMER')")
     public ResponseEntity<ApiResponse<List<GHNProvinceDTO>>> getProvinces() {
         log.info("Getting provinces from GHN");
-        List<GHNProvinceDTO> provinces = ghnService.getProvinces();
+        List<GHNProvinceDTO> provinces = ghnMasterDataService.getProvinces();
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách tỉnh/thành phố thành công", provinces));
     }
 
@@ -46,7 +48,7 @@ public class GHNController {
     public ResponseEntity<ApiResponse<List<GHNDistrictDTO>>> getDistricts(
             @RequestParam Integer provinceId) {
         log.info("Getting districts from GHN for province ID: {}", provinceId);
-        List<GHNDistrictDTO> districts = ghnService.getDistricts(provinceId);
+        List<GHNDistrictDTO> districts = ghnMasterDataService.getDistricts(provinceId);
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách quận/huyện thành công", districts));
     }
 
@@ -55,7 +57,7 @@ public class GHNController {
     public ResponseEntity<ApiResponse<List<GHNWardDTO>>> getWards(
             @RequestParam Integer districtId) {
         log.info("Getting wards from GHN for district ID: {}", districtId);
-        List<GHNWardDTO> wards = ghnService.getWards(districtId);
+        List<GHNWardDTO> wards = ghnMasterDataService.getWards(districtId);
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách phường/xã thành công", wards));
     }
 
@@ -4,6 +4,7 @@ import com.storemanagement.dto.ApiResponse;
 import com.storemanagement.dto.inventory.InventoryTransactionDTO;
 import com.storemanagement.dto.PageResponse;
 import com.storemanagement.service.InventoryTransactionService;
+import com.storemanagement.utils.PageUtils;
 import com.storemanagement.utils.ReferenceType;
 import com.storemanagement.utils.TransactionType;
 import lombok.RequiredArgsConstructor;
@@ -29,7 +30,19 @@ public class InventoryTransactionController {
                         @RequestParam(required = false, defaultValue = "1") Integer pageNo,
                         @RequestParam(required = false, defaultValue = "10") Integer pageSize,
                         @RequestParam(defaultValue = "transactionDate") String sortBy,
-                        @RequestParam(defaultValue = "DESC") String sortDirection) {
+                        @RequestParam(defaultValue = "DESC") String sortDirection,
+                        @RequestParam(required = false) String cursor,
+                        @RequestParam(defaultValue = "false") boolean useCursor,
+                        @RequestParam(defaultValue = "false") boolean withCount) {
+
+                // Phân trang cursor (opt-in): luôn sắp theo transactionDate giảm dần, bỏ qua pageNo/sortBy
+                if (useCursor || cursor != null) {
+                        PageUtils.validateCursorPageSize(pageSize);
+                        PageResponse<InventoryTransactionDTO> transactions = inventoryTransactionService
+                                        .getTransactionsByCursor(null, cursor, pageSize, withCount);
+                        return ResponseEntity.ok(
+                                        ApiResponse.success("Lấy lịch sử nhập/xuất kho thành công", transactions));
+                }
 
                 Sort.Direction direction = sortDirection.equalsIgnoreCase("ASC") ? Sort.Direction.ASC
                                 : Sort.Direction.DESC;
@@ -47,7 +60,18 @@ public class InventoryTransactionController {
                         @RequestParam(required = false, defaultValue = "1") Integer pageNo,
                         @RequestParam(required = false, defaultValue = "10") Integer pageSize,
                         @RequestParam(defaultValue = "transactionDate") String sortBy,
-                        @RequestParam(defaultValue = "DESC") String sortDirection) {
+                        @RequestParam(defaultValue = "DESC") String sortDirection,
+                        @RequestParam(required = false) String cursor,
+                        @RequestParam(defaultValue = "false") boolean useCursor,
+                        @RequestParam(defaultValue = "false") boolean withCount) {
+
+                if (useCursor || cursor != null) {
+                        PageUtils.validateCursorPageSize(pageSize);
+                        PageResponse<InventoryTransactionDTO> transactions = inventoryTransactionService
+                                        .getTransactionsByCursor(productId, cursor, pageSize, withCount);
+                        return ResponseEntity.ok(ApiResponse.success(
+                                        "Lấy lịch sử nhập/xuất kho của sản phẩm thành công", transactions));
+                }
 
                 Sort.Direction direction = sortDirection.equalsIgnoreCase("ASC") ? Sort.Direction.ASC
                                 : Sort.Direction.DESC;
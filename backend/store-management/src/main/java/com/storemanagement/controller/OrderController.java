@@ -7,6 +7,7 @@ import com.storemanagement.model.Order;
 import com.storemanagement.service.CustomerService;
 import com.storemanagement.service.EmployeeService;
 import com.storemanagement.service.OrderService;
+import com.storemanagement.utils.PageUtils;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
@@ -164,7 +165,10 @@ public class OrderController {
             @RequestParam(defaultValue = "DESC") String sortDirection,
             @RequestParam(required = false) String status,
             @RequestParam(required = false) Integer customerId,
-            @RequestParam(required = false) String keyword) {
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean useCursor,
+            @RequestParam(defaultValue = "false") boolean withCount) {
 
         Sort.Direction direction = sortDirection.equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC;
         Pageable pageable = PageRequest.of(pageNo - 1, pageSize, Sort.by(direction, sortBy));
@@ -179,6 +183,17 @@ public class OrderController {
             }
         }
 
+        // Phân trang cursor (opt-in): luôn sắp theo orderDate giảm dần, bỏ qua pageNo/sortBy
+        if (useCursor || cursor != null) {
+            if (keyword != null && !keyword.trim().isEmpty()) {
+                throw new IllegalArgumentException("Phân trang cursor không hỗ trợ tìm kiếm theo từ khóa");
+            }
+            PageUtils.validateCursorPageSize(pageSize);
+            PageResponse<OrderDTO> orders = orderService.getAllOrdersByCursor(orderStatus, customerId, cursor,
+                    pageSize, withCount);
+            return ResponseEntity.ok(ApiResponse.success("Lấy danh sách đơn hàng thành công", orders));
+        }
+
         PageResponse<OrderDTO> orders = orderService.getAllOrders(orderStatus, customerId, keyword, pageable);
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách đơn hàng thành công", orders));
     }
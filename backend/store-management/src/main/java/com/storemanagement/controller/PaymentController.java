@@ -1,33 +1,33 @@
 package com.storemanagement.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.storemanagement.config.PaymentReconciliationProperties;
 import com.storemanagement.dto.ApiResponse;
 import com.storemanagement.dto.payos.PayOSPaymentResponseDTO;
 import com.storemanagement.dto.payos.PayOSWebhookDTO;
 import com.storemanagement.model.Order;
+import com.storemanagement.model.WebhookEvent;
 import com.storemanagement.repository.OrderRepository;
-import com.storemanagement.model.InventoryTransaction;
-import com.storemanagement.model.Product;
-import com.storemanagement.repository.InventoryTransactionRepository;
-import com.storemanagement.repository.ProductRepository;
 import com.storemanagement.service.PayOSService;
-import com.storemanagement.service.SystemSettingService;
-import com.storemanagement.utils.ProductStatus;
-import com.storemanagement.utils.ReferenceType;
-import com.storemanagement.utils.TransactionType;
+import com.storemanagement.service.PaymentSettlementService;
+import com.storemanagement.service.WebhookJournalService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/v1/payments/payos")
@@ -37,10 +37,10 @@ public class PaymentController {
 
     private final PayOSService payOSService;
     private final OrderRepository orderRepository;
-    private final InventoryTransactionRepository inventoryTransactionRepository;
-    private final ProductRepository productRepository;
     private final ObjectMapper objectMapper;
-    private final SystemSettingService systemSettingService;
+    private final WebhookJournalService webhookJournalService;
+    private final PaymentSettlementService paymentSettlementService;
+    private final PaymentReconciliationProperties paymentReconciliationProperties;
 
     @PostMapping("/create/{orderId}")
     @PreAuthorize("hasRole('CUSTOMER')")
@@ -65,40 +65,8 @@ public class PaymentController {
                     "Order ID {} có finalAmount = 0 (giảm 100%). Đánh dấu COMPLETED và bỏ qua gọi PayOS, redirect thẳng về payment/success.",
                     orderId);
 
-            if (order.getStatus() == Order.OrderStatus.PENDING) {
-                java.time.LocalDateTime now = java.time.LocalDateTime.now();
-                order.setStatus(Order.OrderStatus.COMPLETED);
-                order.setDeliveredAt(now);
-                order.setCompletedAt(now);
-
-                int returnWindowDays = systemSettingService.getReturnWindowDays();
-                order.setReturnWindowDays(returnWindowDays);
-                log.info("Order COMPLETED: completedAt={}, returnWindowDays={} for order: {}", now, returnWindowDays, orderId);
-                orderRepository.save(order);
-            }
-
-            if (order.getOrderDetails() != null) {
-                order.getOrderDetails().forEach(orderDetail -> {
-                    Product product = orderDetail.getProduct();
-                    Integer newStockQuantity = product.getStockQuantity() - orderDetail.getQuantity();
-                    product.setStockQuantity(newStockQuantity);
-                    if (newStockQuantity == 0) {
-                        product.setStatus(ProductStatus.OUT_OF_STOCK);
-                    }
-                    productRepository.save(product);
-
-                    InventoryTransaction transaction = InventoryTransaction.builder()
-                            .product(product)
-                            .transactionType(TransactionType.OUT)
-                            .quantity(orderDetail.getQuantity())
-                            .referenceType(ReferenceType.SALE_ORDER)
-                            .referenceId(order.getIdOrder())
-                            .notes("Đơn hàng 0đ - tự động xác nhận thanh toán (không qua PayOS)")
-                            .build();
-
-                    inventoryTransactionRepository.save(transaction);
-                });
-            }
+            paymentSettlementService.settlePaid(orderId,
+                    "Đơn hàng 0đ - tự động xác nhận thanh toán (không qua PayOS)");
 
             Map<String, Object> zeroAmountData = new HashMap<>();
             zeroAmountData.put("paymentLinkUrl", "http://localhost:3003/payment/success?orderId=" + orderId);
@@ -133,13 +101,18 @@ public class PaymentController {
         return ResponseEntity.ok(ApiResponse.success("Tạo payment link thành công", data));
     }
 
+    /**
+     * Kiểm tra chữ ký rồi ghi webhook vào journal và trả lời ngay; cập nhật đơn hàng/tồn kho do
+     * PayOSWebhookHandler xử lý nền. Bản tin trùng (cùng paymentLinkId và code) chỉ được ghi nhận một lần.
+     * Không ghi được vào journal thì trả 5xx để PayOS gửi lại.
+     */
     @PostMapping("/webhook")
-    @Transactional
     public ResponseEntity<Map<String, String>> webhook(@RequestBody String requestBody) {
         log.info("Received PayOS webhook. Request body length: {}", requestBody != null ? requestBody.length() : 0);
 
+        PayOSWebhookDTO webhookDto;
         try {
-            PayOSWebhookDTO webhookDto = objectMapper.readValue(requestBody, PayOSWebhookDTO.class);
+            webhookDto = objectMapper.readValue(requestBody, PayOSWebhookDTO.class);
 
             log.info("Webhook data: code={}, desc={}, paymentLinkId={}",
                     webhookDto.getCode(),
@@ -155,86 +128,38 @@ public class PaymentController {
                 return ResponseEntity.ok(Map.of("status", "error", "message", "Invalid signature"));
             }
 
-            String paymentLinkId = webhookDto.getData().getPaymentLinkId();
-            Order order = orderRepository.findByPaymentLinkId(paymentLinkId)
-                    .orElseThrow(() -> new EntityNotFoundException(
-                            "Order không tồn tại với paymentLinkId: " + paymentLinkId));
-
-            log.info("Found order ID: {} for paymentLinkId: {}", order.getIdOrder(), paymentLinkId);
-
-            if (order.getStatus() != Order.OrderStatus.PENDING) {
-                log.warn("Order ID: {} đã được xử lý rồi (status: {}). Ignoring duplicate webhook.",
-                        order.getIdOrder(), order.getStatus());
-                return ResponseEntity.ok(Map.of("status", "success", "message", "Order already processed"));
+            if (webhookDto.getData() == null || webhookDto.getData().getPaymentLinkId() == null) {
+                return ResponseEntity.ok(Map.of("status", "error", "message", "Missing paymentLinkId"));
             }
+        } catch (Exception e) {
+            log.error("Error verifying PayOS webhook", e);
 
-            String webhookCode = webhookDto.getCode();
-            if ("00".equals(webhookCode)) {
-                log.info("Payment SUCCESS for order ID: {}. Updating order status to COMPLETED.", order.getIdOrder());
-
-                java.time.LocalDateTime now = java.time.LocalDateTime.now();
-                order.setStatus(Order.OrderStatus.COMPLETED);
-                order.setDeliveredAt(now);
-                order.setCompletedAt(now);
-
-                int returnWindowDays = systemSettingService.getReturnWindowDays();
-                order.setReturnWindowDays(returnWindowDays);
-                log.info("Order COMPLETED: completedAt={}, returnWindowDays={} for order: {}", now, returnWindowDays, order.getIdOrder());
-                orderRepository.save(order);
-
-                if (order.getOrderDetails() != null) {
-                    order.getOrderDetails().forEach(orderDetail -> {
-                        Product product = orderDetail.getProduct();
-
-                        Integer newStockQuantity = product.getStockQuantity() - orderDetail.getQuantity();
-                        product.setStockQuantity(newStockQuantity);
-
-                        if (newStockQuantity == 0) {
-                            product.setStatus(ProductStatus.OUT_OF_STOCK);
-                        }
-
-                        productRepository.save(product);
-
-                        InventoryTransaction transaction = InventoryTransaction.builder()
-                                .product(product)
-                                .transactionType(TransactionType.OUT)
-                                .quantity(orderDetail.getQuantity())
-                                .referenceType(ReferenceType.SALE_ORDER)
-                                .referenceId(order.getIdOrder())
-                                .notes("Thanh toán PayOS thành công - Order #" + order.getIdOrder())
-                                .build();
-
-                        inventoryTransactionRepository.save(transaction);
-
-                        log.debug("Stock deducted for product ID: {}. New stock: {}",
-                                product.getIdProduct(), newStockQuantity);
-                    });
-                }
-
-                log.info("Order ID: {} updated to CONFIRMED. Stock deducted and inventory transactions created.",
-                        order.getIdOrder());
-
-            } else {
-
-                log.info(
-                        "Payment FAILED/CANCELLED for order ID: {}. Code: {}, Desc: {}. Updating order status to CANCELED.",
-                        order.getIdOrder(), webhookCode, webhookDto.getDesc());
-
-                order.setStatus(Order.OrderStatus.CANCELED);
-                orderRepository.save(order);
+            return ResponseEntity.ok(Map.of("status", "error", "message", "Invalid webhook: " + e.getMessage()));
+        }
 
-                log.info("Order ID: {} updated to CANCELED. Stock NOT deducted.", order.getIdOrder());
-            }
+        String paymentLinkId = webhookDto.getData().getPaymentLinkId();
+        try {
+            boolean recorded = webhookJournalService.record(WebhookEvent.Source.PAYOS, dedupKey(webhookDto),
+                    paymentLinkId, requestBody);
 
-            return ResponseEntity.ok(Map.of("status", "success", "message", "Webhook processed"));
+            return ResponseEntity.ok(Map.of("status", "success",
+                    "message", recorded ? "Webhook accepted" : "Duplicate webhook"));
 
         } catch (Exception e) {
-            log.error("Error processing PayOS webhook", e);
+            log.error("Error recording PayOS webhook for paymentLinkId: {}", paymentLinkId, e);
 
-            return ResponseEntity.ok(Map.of("status", "error", "message", "Internal error: " + e.getMessage()));
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("status", "error", "message", "Cannot record webhook, please retry"));
         }
     }
 
+    /**
+     * Cùng link thanh toán và cùng mã kết quả là cùng một sự kiện PayOS gửi lại.
+     */
+    static String dedupKey(PayOSWebhookDTO webhookDto) {
+        return webhookDto.getData().getPaymentLinkId() + ":" + webhookDto.getCode();
+    }
+
     @GetMapping("/return")
     public ResponseEntity<String> returnUrl(
             @RequestParam(required = false) Long orderCode,
@@ -279,78 +204,50 @@ public class PaymentController {
                 .body("Redirecting to payment cancel page...");
     }
 
+    /**
+     * Trả trạng thái thanh toán từ DB (PayOS được đối soát bởi webhook và PaymentReconciliationService).
+     * waitSeconds > 0: long-poll, request được giữ tới khi thanh toán của đơn được chốt hoặc hết thời gian chờ.
+     */
     @GetMapping("/status/{orderId}")
     @PreAuthorize("hasRole('CUSTOMER')")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> getPaymentStatus(@PathVariable Integer orderId) {
-        log.info("Getting payment status for order ID: {}", orderId);
+    public DeferredResult<ResponseEntity<ApiResponse<Map<String, Object>>>> getPaymentStatus(
+            @PathVariable Integer orderId,
+            @RequestParam(defaultValue = "0") Integer waitSeconds) {
+        log.info("Getting payment status for order ID: {} (waitSeconds: {})", orderId, waitSeconds);
+
+        long waitMs = TimeUnit.SECONDS.toMillis(
+                Math.min(Math.max(waitSeconds, 0), paymentReconciliationProperties.getMaxWaitSeconds()));
+
+        // Đăng ký chờ trước khi đọc trạng thái: đơn được chốt ngay sau lần đọc vẫn đánh thức request này.
+        // Đơn đã chốt từ trước thì waiter không dùng tới và tự hết hạn.
+        CompletableFuture<Void> settlement = waitMs > 0 ? paymentSettlementService.awaitSettlement(orderId) : null;
 
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new EntityNotFoundException("Order không tồn tại với ID: " + orderId));
 
-        if (order.getPaymentMethod() == Order.PaymentMethod.PAYOS
-                && order.getStatus() == Order.OrderStatus.PENDING
-                && order.getPaymentLinkId() != null) {
-            try {
-                PayOSPaymentResponseDTO payOSInfo = payOSService.getPaymentLinkInfo(order.getPaymentLinkId());
-
-                if (payOSInfo != null && payOSInfo.getData() != null) {
-                    String payOSStatus = payOSInfo.getData().getStatus();
-                    log.info("PayOS payment link info for order ID {}: status={} (paymentLinkId={})",
-                            orderId, payOSStatus, order.getPaymentLinkId());
-
-                    if (payOSStatus != null) {
-                        String normalized = payOSStatus.toUpperCase();
-
-                        if (normalized.contains("PAID") || normalized.contains("SUCCESS")) {
-                            if (order.getStatus() == Order.OrderStatus.PENDING) {
-                                java.time.LocalDateTime now = java.time.LocalDateTime.now();
-                                order.setStatus(Order.OrderStatus.COMPLETED);
-                                order.setDeliveredAt(now);
-                                order.setCompletedAt(now);
-
-                                int returnWindowDays = systemSettingService.getReturnWindowDays();
-                                order.setReturnWindowDays(returnWindowDays);
-                                log.info("Order COMPLETED: completedAt={}, returnWindowDays={} for order: {}", now, returnWindowDays, order.getIdOrder());
-                                orderRepository.save(order);
-
-                                if (order.getOrderDetails() != null) {
-                                    order.getOrderDetails().forEach(orderDetail -> {
-                                        Product product = orderDetail.getProduct();
-                                        Integer newStockQuantity = product.getStockQuantity() - orderDetail.getQuantity();
-                                        product.setStockQuantity(newStockQuantity);
-                                        if (newStockQuantity == 0) {
-                                            product.setStatus(ProductStatus.OUT_OF_STOCK);
-                                        }
-                                        productRepository.save(product);
-
-                                        InventoryTransaction transaction = InventoryTransaction.builder()
-                                                .product(product)
-                                                .transactionType(TransactionType.OUT)
-                                                .quantity(orderDetail.getQuantity())
-                                                .referenceType(ReferenceType.SALE_ORDER)
-                                                .referenceId(order.getIdOrder())
-                                                .notes("Thanh toán PayOS thành công (sync từ getPaymentStatus) - Order #" + order.getIdOrder())
-                                                .build();
-
-                                        inventoryTransactionRepository.save(transaction);
-                                    });
-                                }
-                            }
-                        } else if (normalized.contains("CANCEL")) {
-                            if (order.getStatus() == Order.OrderStatus.PENDING) {
-                                order.setStatus(Order.OrderStatus.CANCELED);
-                                orderRepository.save(order);
-                            }
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                log.error("Error syncing PayOS status for order ID: {}", orderId, e);
-            }
+        if (settlement == null || order.getStatus() != Order.OrderStatus.PENDING) {
+            DeferredResult<ResponseEntity<ApiResponse<Map<String, Object>>>> result = new DeferredResult<>();
+            result.setResult(paymentStatusResponse(order));
+            return result;
         }
 
+        DeferredResult<ResponseEntity<ApiResponse<Map<String, Object>>>> result = new DeferredResult<>(waitMs);
+        Runnable complete = () -> result.setResult(paymentStatusResponse(orderRepository.findById(orderId)
+                .orElseThrow(() -> new EntityNotFoundException("Order không tồn tại với ID: " + orderId))));
+        result.onTimeout(complete);
+        // Async: nếu đơn được chốt ngay sau lần đọc ở trên, không đọc lại trên thread request (entity cũ trong
+        // persistence context của open-in-view)
+        settlement.whenCompleteAsync((ignored, error) -> {
+            if (error == null) {
+                complete.run();
+            }
+        });
+        return result;
+    }
+
+    private ResponseEntity<ApiResponse<Map<String, Object>>> paymentStatusResponse(Order order) {
         Map<String, Object> data = new HashMap<>();
-        data.put("orderId", orderId);
+        data.put("orderId", order.getIdOrder());
         data.put("status", order.getStatus().name());
         data.put("paymentMethod", order.getPaymentMethod() != null ? order.getPaymentMethod().name() : null);
         data.put("paymentLinkId", order.getPaymentLinkId());
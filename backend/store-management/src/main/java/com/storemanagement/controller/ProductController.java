@@ -5,6 +5,7 @@ import com.storemanagement.dto.PageResponse;
 import com.storemanagement.dto.product.ProductDTO;
 import com.storemanagement.dto.product.ProductImageDTO;
 import com.storemanagement.dto.product.ProductOnSaleDTO;
+import com.storemanagement.dto.product.ProductViewIngestStatsDTO;
 import com.storemanagement.service.ProductImageService;
 import com.storemanagement.service.ProductService;
 import com.storemanagement.service.ProductViewService;
@@ -40,7 +41,7 @@ public class ProductController {
     public ResponseEntity<ApiResponse<PageResponse<ProductDTO>>> getAllProducts(
             @RequestParam(required = false, defaultValue = "1") Integer pageNo,
             @RequestParam(required = false, defaultValue = "10") Integer pageSize,
-            @RequestParam(defaultValue = "idProduct") String sortBy,
+            @RequestParam(required = false) String sortBy,
             @RequestParam(defaultValue = "ASC") String sortDirection,
             @RequestParam(required = false) String keyword,
             @RequestParam(required = false) Integer categoryId,
@@ -50,12 +51,18 @@ public class ProductController {
             @RequestParam(required = false) String inventoryStatus,
             @RequestParam(required = false, defaultValue = "false") Boolean showDeleted) {
 
+        String normalizedKeyword = (keyword != null && !keyword.trim().isEmpty()) ? keyword.trim() : null;
+
         Sort.Direction direction = sortDirection.equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC;
-        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, Sort.by(direction, sortBy));
+        Pageable pageable;
+        if (sortBy == null && normalizedKeyword != null) {
+            // Tìm theo từ khóa mà không chọn sort: sắp xếp theo độ liên quan
+            pageable = PageRequest.of(pageNo - 1, pageSize);
+        } else {
+            pageable = PageRequest.of(pageNo - 1, pageSize, Sort.by(direction, sortBy != null ? sortBy : "idProduct"));
+        }
 
         PageResponse<ProductDTO> productPage;
-
-        String normalizedKeyword = (keyword != null && !keyword.trim().isEmpty()) ? keyword.trim() : null;
         String normalizedBrand = (brand != null && !brand.trim().isEmpty()) ? brand.trim() : null;
 
         if (normalizedKeyword != null || categoryId != null || normalizedBrand != null || minPrice != null
@@ -80,7 +87,7 @@ public class ProductController {
         try {
             Integer userId = SecurityUtils.getCurrentUserId().orElse(null);
             String sessionId = request.getSession().getId();
-            log.info("Attempting to log product view: userId={}, sessionId={}, productId={}", userId, sessionId, id);
+            // Chỉ đưa vào hàng đợi, ghi xuống DB theo lô ở nền
             productViewService.logView(userId, sessionId, id);
         } catch (Exception e) {
             log.error("Failed to log product view for productId: {}, userId: {}, error: {}",
@@ -90,6 +97,13 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success("Lấy thông tin sản phẩm thành công", product));
     }
 
+    @GetMapping("/views/ingest-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<ProductViewIngestStatsDTO>> getProductViewIngestStats() {
+        return ResponseEntity.ok(ApiResponse.success("Lấy thống kê ghi nhận lượt xem thành công",
+                productViewService.getIngestStats()));
+    }
+
     @GetMapping("/code/{code}")
     @PreAuthorize("hasAnyRole('ADMIN', 'EMPLOYEE')")
     public ResponseEntity<ApiResponse<ProductDTO>> getProductByCode(
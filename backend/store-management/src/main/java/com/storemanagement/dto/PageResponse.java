@@ -24,4 +24,6 @@ public class PageResponse<T> {
     private Boolean hasNext;
     private Boolean hasPrevious;
     private Boolean isEmpty;
+    // Chỉ có ở chế độ phân trang cursor: truyền lại để lấy trang kế tiếp
+    private String nextCursor;
 }
@@ -0,0 +1,28 @@
+package com.storemanagement.dto.ghn;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Nội dung file snapshot dữ liệu hành chính GHN: quận theo tỉnh và phường theo quận.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GHNMasterDataSnapshotDTO {
+
+    private LocalDateTime refreshedAt;
+
+    private List<GHNProvinceDTO> provinces;
+
+    private Map<Integer, List<GHNDistrictDTO>> districtsByProvince;
+
+    private Map<Integer, List<GHNWardDTO>> wardsByDistrict;
+}
@@ -0,0 +1,33 @@
+package com.storemanagement.dto.ghn;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GHNShipmentOutboxDTO {
+
+    private Integer idOutbox;
+
+    private Integer orderId;
+
+    private String status;
+
+    private Integer attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    private String ghnOrderCode;
+
+    private String lastError;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+}
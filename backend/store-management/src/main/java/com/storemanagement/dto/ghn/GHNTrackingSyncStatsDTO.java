@@ -0,0 +1,41 @@
+package com.storemanagement.dto.ghn;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GHNTrackingSyncStatsDTO {
+
+    // true khi đang có một lượt đồng bộ chạy (lượt gọi syncNow chồng lên sẽ bị bỏ qua)
+    private Boolean running;
+
+    private Long runs;
+
+    private LocalDateTime lastRunStartedAt;
+
+    private Long lastRunDurationMs;
+
+    private Integer lastPolled;
+
+    private Integer lastChanged;
+
+    private Integer lastFailures;
+
+    // Độ trễ đồng bộ: khoảng cách từ lần cập nhật GHN gần nhất của vận đơn đến lúc job tra cứu lại
+    private Long lastMaxLagSeconds;
+
+    private Double lastAverageLagSeconds;
+
+    private Long totalPolled;
+
+    private Long totalChanged;
+
+    private Long totalFailures;
+}
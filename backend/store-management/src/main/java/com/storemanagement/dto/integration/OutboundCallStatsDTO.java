@@ -0,0 +1,34 @@
+package com.storemanagement.dto.integration;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboundCallStatsDTO {
+
+    private String integration;
+
+    private String endpoint;
+
+    private String circuitState;
+
+    private Long calls;
+
+    private Long errors;
+
+    private Long rejected;
+
+    private Double averageLatencyMs;
+
+    private Long maxLatencyMs;
+
+    // Số lời gọi theo ngưỡng độ trễ, ví dụ "<=250ms" -> 12
+    private Map<String, Long> latencyHistogram;
+}
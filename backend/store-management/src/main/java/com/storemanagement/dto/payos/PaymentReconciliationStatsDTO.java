@@ -0,0 +1,37 @@
+package com.storemanagement.dto.payos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentReconciliationStatsDTO {
+
+    private Long runs;
+
+    private LocalDateTime lastRunStartedAt;
+
+    private Long lastRunDurationMs;
+
+    private Integer lastChecked;
+
+    private Integer lastPaid;
+
+    private Integer lastCanceled;
+
+    private Integer lastExpired;
+
+    private Integer lastFailures;
+
+    private Long totalPaid;
+
+    private Long totalCanceled;
+
+    private Long totalExpired;
+}
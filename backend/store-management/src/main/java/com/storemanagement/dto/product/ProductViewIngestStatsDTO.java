@@ -0,0 +1,27 @@
+package com.storemanagement.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductViewIngestStatsDTO {
+
+    private Integer queueSize;
+
+    private Integer queueCapacity;
+
+    private Long accepted;
+
+    private Long dropped;
+
+    private Long written;
+
+    private Long failed;
+
+    private Long batches;
+}
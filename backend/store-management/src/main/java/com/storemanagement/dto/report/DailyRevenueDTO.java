@@ -0,0 +1,24 @@
+package com.storemanagement.dto.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DailyRevenueDTO {
+
+    private LocalDate salesDate;
+
+    private BigDecimal productRevenue;
+
+    private BigDecimal totalDiscount;
+
+    private Long orderCount;
+}
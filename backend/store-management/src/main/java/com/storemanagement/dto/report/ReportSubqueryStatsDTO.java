@@ -0,0 +1,28 @@
+package com.storemanagement.dto.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReportSubqueryStatsDTO {
+
+    private String report;
+
+    // "total" là thời gian thực của cả báo cáo (tất cả truy vấn con)
+    private String subquery;
+
+    private Long executions;
+
+    private Long failures;
+
+    private Double averageMs;
+
+    private Long maxMs;
+
+    private Long lastMs;
+}
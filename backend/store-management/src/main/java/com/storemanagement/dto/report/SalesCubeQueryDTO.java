@@ -0,0 +1,35 @@
+package com.storemanagement.dto.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesCubeQueryDTO {
+
+    // Bỏ trống = từ ngày có dữ liệu đầu tiên / tới ngày cuối cùng
+    private LocalDate fromDate;
+
+    private LocalDate toDate;
+
+    // Tổ hợp bất kỳ của DAY, MONTH, YEAR, PRODUCT, CATEGORY, BRAND, CUSTOMER_TYPE
+    private List<String> groupBy;
+
+    private List<Integer> productIds;
+
+    private List<Integer> categoryIds;
+
+    private List<String> brands;
+
+    // VIP, REGULAR hoặc GUEST (đơn không gắn khách hàng)
+    private List<String> customerTypes;
+
+    private Integer limit;
+}
@@ -0,0 +1,26 @@
+package com.storemanagement.dto.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesCubeResultDTO {
+
+    private List<String> groupBy;
+
+    // Sắp xếp giảm dần theo doanh thu
+    private List<SalesCubeRowDTO> rows;
+
+    private Integer totalGroups;
+
+    private Long scannedLines;
+
+    private Double elapsedMs;
+}
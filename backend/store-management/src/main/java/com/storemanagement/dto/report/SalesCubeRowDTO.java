@@ -0,0 +1,25 @@
+package com.storemanagement.dto.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesCubeRowDTO {
+
+    // Tên chiều -> nhãn, theo thứ tự groupBy
+    private Map<String, String> dimensions;
+
+    private Long quantity;
+
+    private BigDecimal revenue;
+
+    private Long lines;
+}
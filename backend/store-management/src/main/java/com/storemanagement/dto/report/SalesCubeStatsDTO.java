@@ -0,0 +1,30 @@
+package com.storemanagement.dto.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesCubeStatsDTO {
+
+    private Long lines;
+
+    // Dòng của đơn đã rời trạng thái COMPLETED, được loại khi quét và dọn ở lần nạp lại
+    private Long deletedLines;
+
+    private Integer products;
+
+    private Integer categories;
+
+    private Integer brands;
+
+    private LocalDateTime lastRebuildAt;
+
+    private Long lastRebuildMs;
+}
@@ -0,0 +1,37 @@
+package com.storemanagement.dto.webhook;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WebhookEventDTO {
+
+    private Long idEvent;
+
+    private String source;
+
+    private String dedupKey;
+
+    private String partitionKey;
+
+    private String status;
+
+    private Integer attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime processedAt;
+
+    private String lastError;
+
+    private LocalDateTime createdAt;
+
+    private String payload;
+}
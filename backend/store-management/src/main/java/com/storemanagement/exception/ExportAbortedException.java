@@ -0,0 +1,15 @@
+package com.storemanagement.exception;
+
+import java.io.IOException;
+
+/**
+ * File xuất bị lỗi sau khi đã bắt đầu ghi response. Là IOException (không phải RuntimeException) để không bị
+ * GlobalExceptionHandler ghi body JSON nối vào file đang tải: ngoại lệ lên tới servlet container, container
+ * đóng kết nối không gửi phần kết thúc, client nhận được lượt tải lỗi thay vì một file CSV cụt.
+ */
+public class ExportAbortedException extends IOException {
+
+    public ExportAbortedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,12 @@
+package com.storemanagement.exception;
+
+/**
+ * Lời gọi tới dịch vụ bên ngoài bị từ chối ngay (circuit breaker đang mở hoặc bulkhead đã đầy),
+ * không có request nào được gửi đi.
+ */
+public class OutboundCallRejectedException extends RuntimeException {
+
+    public OutboundCallRejectedException(String message) {
+        super(message);
+    }
+}
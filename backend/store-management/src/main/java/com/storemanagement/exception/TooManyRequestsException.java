@@ -0,0 +1,11 @@
+package com.storemanagement.exception;
+
+/**
+ * Yêu cầu bị từ chối vì đã đạt giới hạn xử lý đồng thời, client nên thử lại sau.
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Integer> {
@@ -20,6 +21,21 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Intege
         Page<ChatMessage> findByConversation_IdConversationOrderByCreatedAtDesc(Integer conversationId,
                         Pageable pageable);
 
+        /**
+         * Phân trang keyset: các tin nhắn cũ hơn (cursorDate, cursorId), mới nhất trước.
+         * cursorDate = null là trang đầu. Không chạy COUNT; pageable chỉ dùng để giới hạn số dòng.
+         */
+        @Query("SELECT m FROM ChatMessage m " +
+                        "WHERE m.conversation.idConversation = :conversationId " +
+                        "AND (:cursorDate IS NULL OR m.createdAt < :cursorDate " +
+                        "OR (m.createdAt = :cursorDate AND m.idMessage < :cursorId)) " +
+                        "ORDER BY m.createdAt DESC, m.idMessage DESC")
+        List<ChatMessage> findByConversationBeforeCursor(
+                        @Param("conversationId") Integer conversationId,
+                        @Param("cursorDate") LocalDateTime cursorDate,
+                        @Param("cursorId") Integer cursorId,
+                        Pageable pageable);
+
         @Query("SELECT m FROM ChatMessage m WHERE m.conversation.idConversation = :conversationId ORDER BY m.createdAt DESC LIMIT 1")
         ChatMessage findLatestMessageByConversationId(@Param("conversationId") Integer conversationId);
 
@@ -0,0 +1,130 @@
+package com.storemanagement.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Truy vấn cho xuất CSV, đọc theo kiểu stream: câu lệnh forward-only/read-only với fetch size Integer.MIN_VALUE
+ * khiến MySQL Connector/J trả từng dòng thay vì nạp cả kết quả vào bộ nhớ.
+ * Connection bị chiếm cho tới khi đọc hết nên số lượt xuất đồng thời được giới hạn ở ExportService.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExportRepository {
+
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private static final String ORDERS = """
+            SELECT o.id_order, o.order_date, c.customer_name, c.phone_number, e.employee_name,
+                   o.status, o.payment_method, o.total_amount, o.discount, o.shipping_fee, o.final_amount,
+                   o.promotion_code, o.completed_at
+            FROM orders o
+            LEFT JOIN customers c ON c.id_customer = o.id_customer
+            LEFT JOIN employees e ON e.id_employee = o.id_employee
+            WHERE o.order_date BETWEEN ? AND ?
+            """;
+
+    private static final String INVENTORY_TRANSACTIONS = """
+            SELECT t.id_transaction, t.transaction_date, p.product_code, p.product_name,
+                   t.transaction_type, t.quantity, t.reference_type, t.reference_id, e.employee_name, t.notes
+            FROM inventory_transactions t
+            JOIN products p ON p.id_product = t.id_product
+            LEFT JOIN employees e ON e.id_employee = t.id_employee
+            WHERE t.transaction_date BETWEEN ? AND ?
+            """;
+
+    private static final String CUSTOMERS = """
+            SELECT c.id_customer, c.customer_name, c.phone_number, u.email, c.address, c.customer_type
+            FROM customers c
+            LEFT JOIN users u ON u.id_user = c.id_user
+            ORDER BY c.id_customer
+            """;
+
+    private static final String REVENUE_TOTALS = """
+            SELECT COALESCE(SUM(od.quantity * od.price), 0),
+                   (SELECT COALESCE(SUM(o2.discount), 0)
+                    FROM orders o2
+                    WHERE o2.status = 'COMPLETED'
+                      AND o2.order_date BETWEEN ? AND ?)
+            FROM orders o
+            JOIN order_details od ON od.id_order = o.id_order
+            WHERE o.status = 'COMPLETED'
+              AND o.order_date BETWEEN ? AND ?
+            """;
+
+    private static final String REVENUE_BY_PRODUCT = """
+            SELECT p.id_product, p.product_code, p.product_name, c.category_name,
+                   SUM(od.quantity) AS quantity_sold,
+                   SUM(od.quantity * od.price) AS product_revenue
+            FROM orders o
+            JOIN order_details od ON od.id_order = o.id_order
+            JOIN products p ON p.id_product = od.id_product
+            LEFT JOIN categories c ON c.id_category = p.id_category
+            WHERE o.status = 'COMPLETED'
+              AND o.order_date BETWEEN ? AND ?
+            GROUP BY p.id_product, p.product_code, p.product_name, c.category_name
+            ORDER BY product_revenue DESC
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void streamOrders(LocalDateTime startDate, LocalDateTime endDate, String status,
+                             RowCallbackHandler handler) {
+        List<Object> args = new ArrayList<>(List.of(startDate, endDate));
+        String sql = ORDERS;
+        if (status != null) {
+            sql += " AND o.status = ?";
+            args.add(status);
+        }
+        stream(sql + " ORDER BY o.id_order", args, handler);
+    }
+
+    public void streamInventoryTransactions(LocalDateTime startDate, LocalDateTime endDate, Integer productId,
+                                            RowCallbackHandler handler) {
+        List<Object> args = new ArrayList<>(List.of(startDate, endDate));
+        String sql = INVENTORY_TRANSACTIONS;
+        if (productId != null) {
+            sql += " AND t.id_product = ?";
+            args.add(productId);
+        }
+        stream(sql + " ORDER BY t.id_transaction", args, handler);
+    }
+
+    public void streamCustomers(RowCallbackHandler handler) {
+        stream(CUSTOMERS, List.of(), handler);
+    }
+
+    /**
+     * [tổng doanh thu sản phẩm, tổng giảm giá] của các đơn COMPLETED trong kỳ.
+     */
+    public BigDecimal[] getRevenueTotals(LocalDateTime startDate, LocalDateTime endDate) {
+        return jdbcTemplate.queryForObject(REVENUE_TOTALS,
+                (rs, rowNum) -> new BigDecimal[] { rs.getBigDecimal(1), rs.getBigDecimal(2) },
+                startDate, endDate, startDate, endDate);
+    }
+
+    public void streamRevenueByProduct(LocalDateTime startDate, LocalDateTime endDate, RowCallbackHandler handler) {
+        stream(REVENUE_BY_PRODUCT, List.of(startDate, endDate), handler);
+    }
+
+    private void stream(String sql, List<Object> args, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAMING_FETCH_SIZE);
+            for (int i = 0; i < args.size(); i++) {
+                statement.setObject(i + 1, args.get(i));
+            }
+            return statement;
+        }, handler);
+    }
+}
@@ -11,12 +11,31 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Repository
 public interface InventoryTransactionRepository extends JpaRepository<InventoryTransaction, Integer>, JpaSpecificationExecutor<InventoryTransaction> {
 
     Page<InventoryTransaction> findByProduct_IdProduct(Integer productId, Pageable pageable);
 
+    /**
+     * Phân trang keyset theo (transactionDate, idTransaction) giảm dần, productId = null là tất cả sản phẩm.
+     * cursorDate = null là trang đầu. Không chạy COUNT; pageable chỉ dùng để giới hạn số dòng.
+     */
+    @Query("SELECT it FROM InventoryTransaction it " +
+           "WHERE (:productId IS NULL OR it.product.idProduct = :productId) " +
+           "AND (:cursorDate IS NULL OR it.transactionDate < :cursorDate " +
+           "OR (it.transactionDate = :cursorDate AND it.idTransaction < :cursorId)) " +
+           "ORDER BY it.transactionDate DESC, it.idTransaction DESC")
+    List<InventoryTransaction> findAfterCursor(
+            @Param("productId") Integer productId,
+            @Param("cursorDate") LocalDateTime cursorDate,
+            @Param("cursorId") Integer cursorId,
+            Pageable pageable
+    );
+
+    long countByProduct_IdProduct(Integer productId);
+
     Page<InventoryTransaction> findByReferenceTypeAndReferenceId(
             com.storemanagement.utils.ReferenceType referenceType,
             Integer referenceId,
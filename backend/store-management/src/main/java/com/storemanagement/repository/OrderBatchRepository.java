@@ -0,0 +1,222 @@
+package com.storemanagement.repository;
+
+import com.storemanagement.model.InventoryTransaction;
+import com.storemanagement.model.OrderDetail;
+import com.storemanagement.model.StockReservation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ghi theo lô (JDBC batch) cho luồng tạo/hủy đơn hàng.
+ * Các bảng dùng AUTO_INCREMENT nên Hibernate không batch INSERT được; kết hợp với
+ * rewriteBatchedStatements=true, mỗi phương thức ở đây chỉ tốn một round trip tới MySQL.
+ * Chạy chung connection/transaction với JPA (JpaTransactionManager expose connection cho JdbcTemplate).
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderBatchRepository {
+
+    private static final String INSERT_ORDER_DETAIL = """
+            INSERT INTO order_details (id_order, id_product, quantity, price,
+                product_name_snapshot, product_code_snapshot, product_image_snapshot)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String INSERT_INVENTORY_TRANSACTION = """
+            INSERT INTO inventory_transactions (id_product, transaction_type, quantity, reference_type,
+                reference_id, transaction_date, id_employee, notes)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String INSERT_STOCK_RESERVATION = """
+            INSERT INTO stock_reservations (id_order, id_product, quantity, status)
+            VALUES (?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insert toàn bộ order details của một đơn và gán lại id sinh tự động vào từng entity.
+     */
+    public void insertOrderDetails(List<OrderDetail> details) {
+        if (details.isEmpty()) {
+            return;
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_ORDER_DETAIL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        OrderDetail detail = details.get(i);
+                        ps.setInt(1, detail.getOrder().getIdOrder());
+                        ps.setInt(2, detail.getProduct().getIdProduct());
+                        ps.setInt(3, detail.getQuantity());
+                        ps.setBigDecimal(4, detail.getPrice());
+                        ps.setString(5, detail.getProductNameSnapshot());
+                        ps.setString(6, detail.getProductCodeSnapshot());
+                        ps.setString(7, detail.getProductImageSnapshot());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return details.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != details.size()) {
+            // Không gán được id cho mọi dòng: dừng lại để transaction rollback thay vì để detail có id null
+            throw new IncorrectResultSizeDataAccessException(
+                    "Số khóa sinh ra không khớp số order detail đã insert", details.size(), keys.size());
+        }
+        for (int i = 0; i < details.size(); i++) {
+            Object key = keys.get(i).values().iterator().next();
+            details.get(i).setIdOrderDetail(((Number) key).intValue());
+        }
+    }
+
+    public void insertInventoryTransactions(List<InventoryTransaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_INVENTORY_TRANSACTION, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                InventoryTransaction tx = transactions.get(i);
+                LocalDateTime transactionDate = tx.getTransactionDate() != null
+                        ? tx.getTransactionDate()
+                        : LocalDateTime.now();
+
+                ps.setInt(1, tx.getProduct().getIdProduct());
+                ps.setString(2, tx.getTransactionType().name());
+                ps.setInt(3, tx.getQuantity());
+                ps.setString(4, tx.getReferenceType().name());
+                if (tx.getReferenceId() != null) {
+                    ps.setInt(5, tx.getReferenceId());
+                } else {
+                    ps.setNull(5, Types.INTEGER);
+                }
+                ps.setTimestamp(6, Timestamp.valueOf(transactionDate));
+                if (tx.getEmployee() != null) {
+                    ps.setInt(7, tx.getEmployee().getIdEmployee());
+                } else {
+                    ps.setNull(7, Types.INTEGER);
+                }
+                ps.setString(8, tx.getNotes());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return transactions.size();
+            }
+        });
+    }
+
+    public void insertStockReservations(List<StockReservation> reservations) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_STOCK_RESERVATION, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                StockReservation reservation = reservations.get(i);
+                ps.setInt(1, reservation.getOrder().getIdOrder());
+                ps.setInt(2, reservation.getProduct().getIdProduct());
+                ps.setInt(3, reservation.getQuantity());
+                ps.setString(4, reservation.getStatus().name());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return reservations.size();
+            }
+        });
+    }
+
+    /**
+     * Trừ tồn kho cho nhiều sản phẩm trong một câu UPDATE. Mỗi dòng chỉ bị trừ khi còn đủ hàng;
+     * caller so sánh số dòng bị ảnh hưởng với số sản phẩm để phát hiện thiếu hàng và rollback.
+     *
+     * @param quantities productId -> số lượng cần trừ
+     * @return số dòng products đã được cập nhật
+     */
+    public int decrementStock(Map<Integer, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return 0;
+        }
+
+        String quantityCase = quantityCase(quantities.size());
+        String sql = "UPDATE products"
+                + " SET status = CASE WHEN stock_quantity = " + quantityCase
+                + " THEN 'OUT_OF_STOCK' ELSE status END,"
+                + " stock_quantity = stock_quantity - " + quantityCase
+                + " WHERE id_product IN (" + placeholders(quantities.size()) + ")"
+                + " AND stock_quantity >= " + quantityCase;
+
+        List<Object> args = new ArrayList<>();
+        addCaseArgs(args, quantities);
+        addCaseArgs(args, quantities);
+        args.addAll(quantities.keySet());
+        addCaseArgs(args, quantities);
+
+        return jdbcTemplate.update(sql, args.toArray());
+    }
+
+    /**
+     * Cộng tồn kho cho nhiều sản phẩm trong một câu UPDATE và mở bán lại sản phẩm OUT_OF_STOCK.
+     *
+     * @param quantities productId -> số lượng cần cộng
+     */
+    public int incrementStock(Map<Integer, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return 0;
+        }
+
+        String sql = "UPDATE products"
+                + " SET status = CASE WHEN status = 'OUT_OF_STOCK' THEN 'IN_STOCK' ELSE status END,"
+                + " stock_quantity = COALESCE(stock_quantity, 0) + " + quantityCase(quantities.size())
+                + " WHERE id_product IN (" + placeholders(quantities.size()) + ")";
+
+        List<Object> args = new ArrayList<>();
+        addCaseArgs(args, quantities);
+        args.addAll(quantities.keySet());
+
+        return jdbcTemplate.update(sql, args.toArray());
+    }
+
+    private static String quantityCase(int size) {
+        return "CASE id_product" + " WHEN ? THEN ?".repeat(size) + " END";
+    }
+
+    private static String placeholders(int size) {
+        return String.join(", ", Collections.nCopies(size, "?"));
+    }
+
+    private static void addCaseArgs(List<Object> args, Map<Integer, Integer> quantities) {
+        quantities.forEach((productId, quantity) -> {
+            args.add(productId);
+            args.add(quantity);
+        });
+    }
+}
@@ -1,9 +1,11 @@
 package com.storemanagement.repository;
 
 import com.storemanagement.model.Order;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -30,11 +32,53 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
 
        Optional<Order> findByPaymentLinkId(String paymentLinkId);
 
+       /**
+        * Khóa dòng đơn hàng khi chốt thanh toán, để webhook và job đối soát không cùng xử lý một đơn.
+        */
+       @Lock(LockModeType.PESSIMISTIC_WRITE)
+       @Query("SELECT o FROM Order o WHERE o.idOrder = :id")
+       Optional<Order> findByIdForUpdate(@Param("id") Integer id);
+
+       /**
+        * Đơn PayOS còn PENDING đặt trước placedBefore, phân trang keyset theo id.
+        * Trả về [id_order, payment_link_id, order_date].
+        */
+       @Query("SELECT o.idOrder, o.paymentLinkId, o.orderDate FROM Order o WHERE " +
+                     "o.status = com.storemanagement.model.Order.OrderStatus.PENDING AND " +
+                     "o.paymentMethod = com.storemanagement.model.Order.PaymentMethod.PAYOS AND " +
+                     "o.idOrder > :afterId AND o.orderDate <= :placedBefore " +
+                     "ORDER BY o.idOrder ASC")
+       List<Object[]> findPendingPayOSOrders(@Param("afterId") Integer afterId,
+                     @Param("placedBefore") LocalDateTime placedBefore,
+                     Pageable pageable);
+
        @Query("SELECT o FROM Order o ORDER BY o.orderDate DESC")
        Page<Order> findAllOrdersByOrderDateDesc(Pageable pageable);
 
        Page<Order> findByStatusOrderByOrderDateDesc(Order.OrderStatus status, Pageable pageable);
 
+       /**
+        * Phân trang keyset: các đơn đứng sau (cursorDate, cursorId) theo thứ tự (orderDate, idOrder) giảm dần.
+        * cursorDate = null là trang đầu. Không chạy COUNT; pageable chỉ dùng để giới hạn số dòng.
+        */
+       @Query("SELECT o FROM Order o WHERE " +
+                     "(:customerId IS NULL OR o.customer.idCustomer = :customerId) AND " +
+                     "(:status IS NULL OR o.status = :status) AND " +
+                     "(:cursorDate IS NULL OR o.orderDate < :cursorDate OR " +
+                     "(o.orderDate = :cursorDate AND o.idOrder < :cursorId)) " +
+                     "ORDER BY o.orderDate DESC, o.idOrder DESC")
+       List<Order> findByFiltersAfterCursor(@Param("customerId") Integer customerId,
+                     @Param("status") Order.OrderStatus status,
+                     @Param("cursorDate") LocalDateTime cursorDate,
+                     @Param("cursorId") Integer cursorId,
+                     Pageable pageable);
+
+       @Query("SELECT COUNT(o) FROM Order o WHERE " +
+                     "(:customerId IS NULL OR o.customer.idCustomer = :customerId) AND " +
+                     "(:status IS NULL OR o.status = :status)")
+       long countByFilters(@Param("customerId") Integer customerId,
+                     @Param("status") Order.OrderStatus status);
+
        @Query("SELECT o FROM Order o WHERE " +
                      "(:customerId IS NULL OR o.customer.idCustomer = :customerId) AND " +
                      "(:status IS NULL OR o.status = :status) " +
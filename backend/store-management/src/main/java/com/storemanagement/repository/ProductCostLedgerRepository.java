@@ -0,0 +1,95 @@
+package com.storemanagement.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cập nhật tăng dần product_cost_ledger.
+ * Trong ON DUPLICATE KEY UPDATE / UPDATE, MySQL gán các cột từ trái sang phải và biểu thức sau thấy giá trị
+ * vừa gán, nên on_hand_value luôn được tính từ số lượng và giá bình quân mới.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductCostLedgerRepository {
+
+    // Dòng mới: stock_quantity đã gồm lần nhập này; tồn kho cũ (chưa rõ giá vốn) được định giá theo giá nhập
+    private static final String APPLY_RECEIPT = """
+            INSERT INTO product_cost_ledger (id_product, avg_unit_cost, on_hand_quantity, on_hand_value)
+            SELECT * FROM (
+                SELECT p.id_product AS d_product,
+                       ? AS d_cost,
+                       GREATEST(COALESCE(p.stock_quantity, 0), 0) AS d_quantity,
+                       GREATEST(COALESCE(p.stock_quantity, 0), 0) * ? AS d_value
+                FROM products p
+                WHERE p.id_product = ?
+            ) AS delta
+            ON DUPLICATE KEY UPDATE
+                avg_unit_cost = (GREATEST(on_hand_quantity, 0) * avg_unit_cost + ? * ?)
+                                / (GREATEST(on_hand_quantity, 0) + ?),
+                on_hand_quantity = GREATEST(on_hand_quantity, 0) + ?,
+                on_hand_value = on_hand_quantity * avg_unit_cost
+            """;
+
+    private static final String APPLY_MOVEMENT = """
+            UPDATE product_cost_ledger
+            SET on_hand_quantity = on_hand_quantity + ?,
+                on_hand_value = on_hand_quantity * avg_unit_cost
+            WHERE id_product = ?
+            """;
+
+    // Chốt giá vốn bình quân hiện tại vào các dòng của đơn; báo cáo lợi nhuận cộng quantity * unit_cost
+    private static final String RECORD_SALE_COSTS = """
+            UPDATE order_details od
+            JOIN product_cost_ledger l ON l.id_product = od.id_product
+            SET od.unit_cost = l.avg_unit_cost
+            WHERE od.id_order = ?
+              AND od.unit_cost IS NULL
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Nhập hàng: tính lại giá vốn bình quân = (giá trị tồn + quantity * unitCost) / (tồn + quantity).
+     * Phải gọi sau khi cộng stock_quantity của sản phẩm (khóa dòng products trước, sổ giá vốn sau,
+     * cùng thứ tự với trừ kho và hoàn kho).
+     * quantity <= 0 được bỏ qua: không có hàng nhập thì giá vốn không đổi, và khi tồn kho đang bằng 0
+     * mẫu số (tồn + quantity) sẽ bằng 0.
+     */
+    public void applyReceipt(Integer productId, int quantity, BigDecimal unitCost) {
+        if (quantity <= 0) {
+            return;
+        }
+
+        jdbcTemplate.update(APPLY_RECEIPT,
+                unitCost, unitCost, productId,
+                quantity, unitCost, quantity, quantity);
+    }
+
+    /**
+     * Xuất/nhập lại kho không phải nhập hàng (bán, hủy đơn, trả hàng): delta âm hoặc dương theo sản phẩm,
+     * định giá theo giá bình quân hiện tại. Sản phẩm chưa có dòng (chưa từng nhập hàng) được bỏ qua.
+     */
+    public void applyMovements(Map<Integer, Integer> quantityDeltas) {
+        if (quantityDeltas.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> args = new ArrayList<>(quantityDeltas.size());
+        quantityDeltas.forEach((productId, delta) -> args.add(new Object[] { delta, productId }));
+        jdbcTemplate.batchUpdate(APPLY_MOVEMENT, args);
+    }
+
+    /**
+     * Ghi giá vốn tại thời điểm bán cho các dòng của đơn, gọi ngay sau khi trừ kho trong cùng transaction.
+     * Sản phẩm chưa có giá vốn giữ unit_cost NULL và không được tính vào giá vốn hàng bán.
+     */
+    public void recordSaleCosts(Integer orderId) {
+        jdbcTemplate.update(RECORD_SALE_COSTS, orderId);
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +22,13 @@ public interface ProductImageRepository extends JpaRepository<ProductImage, Inte
     @Query("SELECT pi FROM ProductImage pi WHERE pi.product.idProduct = :productId ORDER BY pi.displayOrder ASC LIMIT 1")
     Optional<ProductImage> findFirstByProductId(@Param("productId") Integer productId);
 
+    /**
+     * Ảnh của nhiều sản phẩm trong một truy vấn: [idProduct, imageUrl, isPrimary], theo displayOrder.
+     */
+    @Query("SELECT pi.product.idProduct, pi.imageUrl, pi.isPrimary FROM ProductImage pi " +
+            "WHERE pi.product.idProduct IN :productIds ORDER BY pi.displayOrder ASC, pi.idProductImage ASC")
+    List<Object[]> findImageUrlsByProductIds(@Param("productIds") Collection<Integer> productIds);
+
     void deleteByProduct_IdProduct(Integer productId);
 }
 
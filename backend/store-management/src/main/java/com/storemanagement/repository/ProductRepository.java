@@ -4,9 +4,12 @@ import com.storemanagement.model.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,7 +19,12 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
 
         List<Product> findByIdProductIn(List<Integer> ids);
 
-        List<Product> findAllByIsDeleteFalse();
+        /**
+         * Sản phẩm còn hàng, chưa xóa, có giá từ minPrice trở lên; pageable chỉ dùng để giới hạn số dòng.
+         */
+        @Query("SELECT p FROM Product p WHERE p.isDelete = false AND p.stockQuantity > 0 " +
+                        "AND p.price >= :minPrice ORDER BY p.idProduct")
+        List<Product> findOnSaleCandidates(@Param("minPrice") BigDecimal minPrice, Pageable pageable);
 
         Optional<Product> findByProductCodeAndIsDeleteFalse(String productCode);
 
@@ -73,6 +81,84 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
                         @Param("maxPrice") Double maxPrice, @Param("inventoryStatus") String inventoryStatus,
                         @Param("showDeleted") Boolean showDeleted, Pageable pageable);
 
+        /**
+         * Áp dụng các bộ lọc của searchProducts lên tập id do ProductSearchService trả về (giữ thứ tự ở phía gọi).
+         */
+        @Query("""
+                        SELECT p.idProduct FROM Product p
+                        WHERE p.idProduct IN :ids
+                        AND (:idCategory IS NULL OR p.category.idCategory = :idCategory)
+                        AND (:idSupplier IS NULL OR p.supplier.idSupplier = :idSupplier)
+                        AND (:brand IS NULL OR LOWER(p.brand) LIKE LOWER(CONCAT('%', :brand, '%')))
+                        AND (:minPrice IS NULL OR p.price >= :minPrice)
+                        AND (:maxPrice IS NULL OR p.price <= :maxPrice)
+                        AND (
+                            :inventoryStatus IS NULL OR
+                            (:inventoryStatus = 'COMING_SOON' AND (p.stockQuantity = 0 OR p.stockQuantity IS NULL) AND p.status != 'DISCONTINUED') OR
+                            (:inventoryStatus = 'IN_STOCK' AND p.stockQuantity >= 10) OR
+                            (:inventoryStatus = 'LOW_STOCK' AND p.stockQuantity > 0 AND p.stockQuantity < 10) OR
+                            (:inventoryStatus = 'OUT_OF_STOCK' AND (p.stockQuantity = 0 OR p.stockQuantity IS NULL) AND p.status = 'OUT_OF_STOCK')
+                        )
+                        AND (p.isDelete = :showDeleted)
+                        """)
+        List<Integer> filterProductIds(@Param("ids") Collection<Integer> ids, @Param("idCategory") Integer idCategory,
+                        @Param("idSupplier") Integer idSupplier, @Param("brand") String brand,
+                        @Param("minPrice") Double minPrice,
+                        @Param("maxPrice") Double maxPrice, @Param("inventoryStatus") String inventoryStatus,
+                        @Param("showDeleted") Boolean showDeleted);
+
+        @Query(value = """
+                        SELECT p FROM Product p
+                        LEFT JOIN FETCH p.category
+                        LEFT JOIN FETCH p.supplier
+                        WHERE p.idProduct IN :ids
+                        AND (:idCategory IS NULL OR p.category.idCategory = :idCategory)
+                        AND (:idSupplier IS NULL OR p.supplier.idSupplier = :idSupplier)
+                        AND (:brand IS NULL OR LOWER(p.brand) LIKE LOWER(CONCAT('%', :brand, '%')))
+                        AND (:minPrice IS NULL OR p.price >= :minPrice)
+                        AND (:maxPrice IS NULL OR p.price <= :maxPrice)
+                        AND (
+                            :inventoryStatus IS NULL OR
+                            (:inventoryStatus = 'COMING_SOON' AND (p.stockQuantity = 0 OR p.stockQuantity IS NULL) AND p.status != 'DISCONTINUED') OR
+                            (:inventoryStatus = 'IN_STOCK' AND p.stockQuantity >= 10) OR
+                            (:inventoryStatus = 'LOW_STOCK' AND p.stockQuantity > 0 AND p.stockQuantity < 10) OR
+                            (:inventoryStatus = 'OUT_OF_STOCK' AND (p.stockQuantity = 0 OR p.stockQuantity IS NULL) AND p.status = 'OUT_OF_STOCK')
+                        )
+                        AND (p.isDelete = :showDeleted)
+                        """, countQuery = """
+                        SELECT COUNT(p) FROM Product p
+                        WHERE p.idProduct IN :ids
+                        AND (:idCategory IS NULL OR p.category.idCategory = :idCategory)
+                        AND (:idSupplier IS NULL OR p.supplier.idSupplier = :idSupplier)
+                        AND (:brand IS NULL OR LOWER(p.brand) LIKE LOWER(CONCAT('%', :brand, '%')))
+                        AND (:minPrice IS NULL OR p.price >= :minPrice)
+                        AND (:maxPrice IS NULL OR p.price <= :maxPrice)
+                        AND (
+                            :inventoryStatus IS NULL OR
+                            (:inventoryStatus = 'COMING_SOON' AND (p.stockQuantity = 0 OR p.stockQuantity IS NULL) AND p.status != 'DISCONTINUED') OR
+                            (:inventoryStatus = 'IN_STOCK' AND p.stockQuantity >= 10) OR
+                            (:inventoryStatus = 'LOW_STOCK' AND p.stockQuantity > 0 AND p.stockQuantity < 10) OR
+                            (:inventoryStatus = 'OUT_OF_STOCK' AND (p.stockQuantity = 0 OR p.stockQuantity IS NULL) AND p.status = 'OUT_OF_STOCK')
+                        )
+                        AND (p.isDelete = :showDeleted)
+                        """)
+        Page<Product> searchProductsByIds(@Param("ids") Collection<Integer> ids, @Param("idCategory") Integer idCategory,
+                        @Param("idSupplier") Integer idSupplier, @Param("brand") String brand,
+                        @Param("minPrice") Double minPrice,
+                        @Param("maxPrice") Double maxPrice, @Param("inventoryStatus") String inventoryStatus,
+                        @Param("showDeleted") Boolean showDeleted, Pageable pageable);
+
+        @Query("""
+                        SELECT p FROM Product p
+                        LEFT JOIN FETCH p.category
+                        LEFT JOIN FETCH p.supplier
+                        WHERE p.idProduct IN :ids
+                        """)
+        List<Product> findAllWithDetailsByIdIn(@Param("ids") Collection<Integer> ids);
+
+        @Query("SELECT p.idProduct, p.productCode, p.productName, p.sku FROM Product p")
+        List<Object[]> findAllSearchFields();
+
         @Query(value = """
                         SELECT od.id_product, SUM(od.quantity) as total_sold
                         FROM order_details od
@@ -138,4 +224,27 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
                         WHERE p.idProduct = :id
                         """)
         Optional<Product> findByIdWithDetailsIncludeDeleted(@Param("id") Integer id);
+
+        /**
+         * Trừ tồn kho có điều kiện (atomic), chỉ trừ khi còn đủ hàng.
+         * status đứng trước stock_quantity vì MySQL đánh giá SET từ trái sang phải.
+         */
+        @Modifying
+        @Query(value = """
+                        UPDATE products
+                        SET status = CASE WHEN stock_quantity = :quantity THEN 'OUT_OF_STOCK' ELSE status END,
+                            stock_quantity = stock_quantity - :quantity
+                        WHERE id_product = :productId
+                        AND stock_quantity >= :quantity
+                        """, nativeQuery = true)
+        int decrementStock(@Param("productId") Integer productId, @Param("quantity") int quantity);
+
+        @Modifying
+        @Query(value = """
+                        UPDATE products
+                        SET status = CASE WHEN status = 'OUT_OF_STOCK' THEN 'IN_STOCK' ELSE status END,
+                            stock_quantity = COALESCE(stock_quantity, 0) + :quantity
+                        WHERE id_product = :productId
+                        """, nativeQuery = true)
+        int incrementStock(@Param("productId") Integer productId, @Param("quantity") int quantity);
 }
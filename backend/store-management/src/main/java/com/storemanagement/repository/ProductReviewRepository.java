@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -38,5 +39,14 @@ public interface ProductReviewRepository extends JpaRepository<ProductReview, In
     Double getAverageRatingByProductId(@Param("productId") Integer productId);
 
     long countByProductIdProduct(Integer productId);
+
+    /**
+     * Điểm trung bình và số lượt đánh giá của nhiều sản phẩm trong một truy vấn GROUP BY.
+     * Mỗi dòng: [productId, averageRating, reviewCount]; sản phẩm chưa có đánh giá không có dòng.
+     */
+    @Query("SELECT r.product.idProduct, AVG(r.rating), COUNT(r) FROM ProductReview r " +
+           "WHERE r.product.idProduct IN :productIds " +
+           "GROUP BY r.product.idProduct")
+    List<Object[]> getRatingSummariesByProductIds(@Param("productIds") Collection<Integer> productIds);
 }
 
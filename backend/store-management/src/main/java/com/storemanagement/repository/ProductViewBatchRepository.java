@@ -0,0 +1,58 @@
+package com.storemanagement.repository;
+
+import com.storemanagement.model.ProductView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Ghi lượt xem sản phẩm theo lô. Với rewriteBatchedStatements=true, cả lô được gửi thành
+ * INSERT nhiều dòng trong một round trip thay vì một INSERT + một transaction cho mỗi lượt xem.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductViewBatchRepository {
+
+    private static final String INSERT_PRODUCT_VIEW = """
+            INSERT INTO product_view (user_id, session_id, product_id, action_type, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertViews(List<ProductView> views) {
+        if (views.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_PRODUCT_VIEW, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ProductView view = views.get(i);
+                if (view.getUserId() != null) {
+                    ps.setInt(1, view.getUserId());
+                } else {
+                    ps.setNull(1, Types.INTEGER);
+                }
+                ps.setString(2, view.getSessionId());
+                ps.setInt(3, view.getProductId());
+                ps.setString(4, view.getActionType());
+                Timestamp viewedAt = Timestamp.valueOf(view.getCreatedAt());
+                ps.setTimestamp(5, viewedAt);
+                ps.setTimestamp(6, viewedAt);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return views.size();
+            }
+        });
+    }
+}
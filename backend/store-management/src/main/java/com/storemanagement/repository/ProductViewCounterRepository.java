@@ -0,0 +1,111 @@
+package com.storemanagement.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Truy cập product_view_stats / user_product_view_stats.
+ * Cộng dồn: điểm cũ được suy giảm từ score_updated_at tới thời điểm của delta rồi mới cộng delta,
+ * nên các lần ghi không cần đọc trước và không ghi đè lẫn nhau.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductViewCounterRepository {
+
+    private static final String UPSERT_PRODUCT = """
+            INSERT INTO product_view_stats (id_product, view_count, score, score_updated_at)
+            SELECT * FROM (SELECT ? AS d_product, ? AS d_count, ? AS d_score, ? AS d_at) AS delta
+            ON DUPLICATE KEY UPDATE
+                score = score * POW(0.5, GREATEST(TIMESTAMPDIFF(SECOND, score_updated_at, d_at), 0) / ?) + d_score,
+                view_count = view_count + d_count,
+                score_updated_at = GREATEST(score_updated_at, d_at)
+            """;
+
+    private static final String UPSERT_USER_PRODUCT = """
+            INSERT INTO user_product_view_stats (user_id, id_product, view_count, score, score_updated_at)
+            SELECT * FROM (SELECT ? AS d_user, ? AS d_product, ? AS d_count, ? AS d_score, ? AS d_at) AS delta
+            ON DUPLICATE KEY UPDATE
+                score = score * POW(0.5, GREATEST(TIMESTAMPDIFF(SECOND, score_updated_at, d_at), 0) / ?) + d_score,
+                view_count = view_count + d_count,
+                score_updated_at = GREATEST(score_updated_at, d_at)
+            """;
+
+    private static final String DECAYED_SCORE =
+            "score * POW(0.5, GREATEST(TIMESTAMPDIFF(SECOND, score_updated_at, ?), 0) / ?)";
+
+    private static final String TOP_PRODUCTS =
+            "SELECT id_product, " + DECAYED_SCORE + " AS decayed_score " +
+            "FROM product_view_stats " +
+            "ORDER BY decayed_score DESC, id_product DESC " +
+            "LIMIT ?";
+
+    private static final String TOP_PRODUCTS_BY_USER =
+            "SELECT id_product, " + DECAYED_SCORE + " AS decayed_score " +
+            "FROM user_product_view_stats " +
+            "WHERE user_id = ? " +
+            "ORDER BY decayed_score DESC, id_product DESC " +
+            "LIMIT ?";
+
+    private static final String PRUNE_USER_ROWS =
+            "DELETE FROM user_product_view_stats WHERE " + DECAYED_SCORE + " < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record ProductDelta(Integer productId, long count, double score, LocalDateTime at) {
+    }
+
+    public record UserProductDelta(Integer userId, Integer productId, long count, double score, LocalDateTime at) {
+    }
+
+    public void applyProductDeltas(List<ProductDelta> deltas, double halfLifeSeconds) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        for (ProductDelta delta : deltas) {
+            args.add(new Object[] { delta.productId(), delta.count(), delta.score(),
+                    Timestamp.valueOf(delta.at()), halfLifeSeconds });
+        }
+        jdbcTemplate.batchUpdate(UPSERT_PRODUCT, args);
+    }
+
+    public void applyUserProductDeltas(List<UserProductDelta> deltas, double halfLifeSeconds) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        for (UserProductDelta delta : deltas) {
+            args.add(new Object[] { delta.userId(), delta.productId(), delta.count(), delta.score(),
+                    Timestamp.valueOf(delta.at()), halfLifeSeconds });
+        }
+        jdbcTemplate.batchUpdate(UPSERT_USER_PRODUCT, args);
+    }
+
+    /**
+     * @return các dòng [id_product, điểm đã suy giảm tới asOf], điểm giảm dần
+     */
+    public List<Object[]> findTopProducts(LocalDateTime asOf, double halfLifeSeconds, int limit) {
+        return jdbcTemplate.query(TOP_PRODUCTS,
+                (rs, rowNum) -> new Object[] { rs.getInt(1), rs.getDouble(2) },
+                Timestamp.valueOf(asOf), halfLifeSeconds, limit);
+    }
+
+    public List<Object[]> findTopProductsByUser(Integer userId, LocalDateTime asOf, double halfLifeSeconds,
+                                                int limit) {
+        return jdbcTemplate.query(TOP_PRODUCTS_BY_USER,
+                (rs, rowNum) -> new Object[] { rs.getInt(1), rs.getDouble(2) },
+                Timestamp.valueOf(asOf), halfLifeSeconds, userId, limit);
+    }
+
+    public int pruneUserRows(LocalDateTime asOf, double halfLifeSeconds, double threshold) {
+        return jdbcTemplate.update(PRUNE_USER_ROWS, Timestamp.valueOf(asOf), halfLifeSeconds, threshold);
+    }
+}
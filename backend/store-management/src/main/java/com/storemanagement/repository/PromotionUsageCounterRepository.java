@@ -0,0 +1,67 @@
+package com.storemanagement.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Đếm lượt dùng mã giảm giá bằng câu UPDATE có điều kiện: tăng usage_count chỉ khi còn lượt,
+ * nên không có hai đơn nào cùng lấy được lượt cuối cùng dù chạy song song.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PromotionUsageCounterRepository {
+
+    private static final String TRY_ACQUIRE = """
+            UPDATE promotions
+            SET usage_count = COALESCE(usage_count, 0) + 1
+            WHERE id_promotion = ?
+              AND (usage_limit IS NULL OR COALESCE(usage_count, 0) < usage_limit)
+            """;
+
+    private static final String RELEASE = """
+            UPDATE promotions
+            SET usage_count = usage_count - 1
+            WHERE id_promotion = ?
+              AND usage_count > 0
+            """;
+
+    private static final String INSERT_USAGE = """
+            INSERT INTO promotion_usage (id_promotion, id_order, id_customer, used_at)
+            VALUES (?, ?, ?, NOW())
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record UsageRow(Integer idUsage, Integer idPromotion) {
+    }
+
+    /**
+     * @return true nếu còn lượt và đã tăng usage_count
+     */
+    public boolean tryAcquire(Integer promotionId) {
+        return jdbcTemplate.update(TRY_ACQUIRE, promotionId) == 1;
+    }
+
+    public void release(Integer promotionId) {
+        jdbcTemplate.update(RELEASE, promotionId);
+    }
+
+    public void insertUsage(Integer promotionId, Integer orderId, Integer customerId) {
+        jdbcTemplate.update(INSERT_USAGE, promotionId, orderId, customerId);
+    }
+
+    public List<UsageRow> findUsagesByOrder(Integer orderId) {
+        return jdbcTemplate.query("SELECT id_usage, id_promotion FROM promotion_usage WHERE id_order = ?",
+                (rs, rowNum) -> new UsageRow(rs.getInt(1), rs.getInt(2)), orderId);
+    }
+
+    /**
+     * @return true nếu dòng còn tồn tại và đã bị xóa bởi lời gọi này (tránh hoàn lượt hai lần)
+     */
+    public boolean deleteUsage(Integer usageId) {
+        return jdbcTemplate.update("DELETE FROM promotion_usage WHERE id_usage = ?", usageId) == 1;
+    }
+}
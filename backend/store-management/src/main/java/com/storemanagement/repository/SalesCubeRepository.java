@@ -0,0 +1,42 @@
+package com.storemanagement.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Đọc toàn bộ dòng đơn COMPLETED để nạp sales cube, theo kiểu stream (fetch size Integer.MIN_VALUE của
+ * MySQL Connector/J) nên bộ nhớ không phụ thuộc số dòng.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SalesCubeRepository {
+
+    private static final String COMPLETED_LINES = """
+            SELECT o.id_order, o.order_date, od.id_product, p.product_code, p.product_name,
+                   p.id_category, c.category_name, p.brand, cu.customer_type, od.quantity, od.price
+            FROM orders o
+            JOIN order_details od ON od.id_order = o.id_order
+            LEFT JOIN products p ON p.id_product = od.id_product
+            LEFT JOIN categories c ON c.id_category = p.id_category
+            LEFT JOIN customers cu ON cu.id_customer = o.id_customer
+            WHERE o.status = 'COMPLETED'
+              AND o.order_date IS NOT NULL
+            ORDER BY o.id_order
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void streamCompletedLines(RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(COMPLETED_LINES,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(Integer.MIN_VALUE);
+            return statement;
+        }, handler);
+    }
+}
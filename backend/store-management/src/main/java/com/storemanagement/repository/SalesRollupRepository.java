@@ -0,0 +1,70 @@
+package com.storemanagement.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Cập nhật tăng dần daily_sales_rollup / daily_product_sales_rollup.
+ * Mỗi thao tác là một INSERT ... SELECT ... ON DUPLICATE KEY UPDATE cộng dồn delta (sign = +1 hoặc -1)
+ * của một đơn hàng vào ngày đặt hàng của nó, nên các cập nhật song song không ghi đè lẫn nhau.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SalesRollupRepository {
+
+    private static final String APPLY_ORDER = """
+            INSERT INTO daily_sales_rollup (sales_date, status, order_count, gross_revenue, discount)
+            SELECT * FROM (
+                SELECT DATE(o.order_date) AS d_date,
+                       ? AS d_status,
+                       ? AS d_count,
+                       ? * COALESCE((SELECT SUM(od.quantity * od.price)
+                                     FROM order_details od
+                                     WHERE od.id_order = o.id_order), 0) AS d_gross,
+                       ? * COALESCE(o.discount, 0) AS d_discount
+                FROM orders o
+                WHERE o.id_order = ?
+                  AND o.order_date IS NOT NULL
+            ) AS delta
+            ON DUPLICATE KEY UPDATE
+                order_count = order_count + d_count,
+                gross_revenue = gross_revenue + d_gross,
+                discount = discount + d_discount
+            """;
+
+    private static final String APPLY_ORDER_PRODUCTS = """
+            INSERT INTO daily_product_sales_rollup (sales_date, id_product, units_sold, revenue)
+            SELECT * FROM (
+                SELECT DATE(o.order_date) AS d_date,
+                       od.id_product AS d_product,
+                       ? * SUM(od.quantity) AS d_units,
+                       ? * SUM(od.quantity * od.price) AS d_revenue
+                FROM orders o
+                JOIN order_details od ON od.id_order = o.id_order
+                WHERE o.id_order = ?
+                  AND o.order_date IS NOT NULL
+                  AND od.id_product IS NOT NULL
+                GROUP BY DATE(o.order_date), od.id_product
+            ) AS delta
+            ON DUPLICATE KEY UPDATE
+                units_sold = units_sold + d_units,
+                revenue = revenue + d_revenue
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Cộng (sign = 1) hoặc trừ (sign = -1) một đơn hàng vào dòng (ngày đặt, status) tương ứng.
+     */
+    public void applyOrder(Integer orderId, String status, int sign) {
+        jdbcTemplate.update(APPLY_ORDER, status, sign, sign, sign, orderId);
+    }
+
+    /**
+     * Cộng/trừ số lượng bán và doanh thu theo từng sản phẩm của đơn vào ngày đặt hàng.
+     */
+    public void applyOrderProducts(Integer orderId, int sign) {
+        jdbcTemplate.update(APPLY_ORDER_PRODUCTS, sign, sign, orderId);
+    }
+}
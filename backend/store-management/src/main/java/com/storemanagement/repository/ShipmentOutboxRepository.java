@@ -0,0 +1,54 @@
+package com.storemanagement.repository;
+
+import com.storemanagement.model.ShipmentOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ShipmentOutboxRepository extends JpaRepository<ShipmentOutbox, Integer> {
+
+    boolean existsByOrder_IdOrder(Integer orderId);
+
+    @Query("""
+            SELECT o FROM ShipmentOutbox o
+            WHERE (:status IS NULL OR o.status = :status)
+            ORDER BY o.idOutbox DESC
+            """)
+    List<ShipmentOutbox> findRecent(@Param("status") ShipmentOutbox.OutboxStatus status, Pageable pageable);
+
+    @Query("""
+            SELECT o.idOutbox FROM ShipmentOutbox o
+            WHERE o.status IN :statuses
+            AND o.nextAttemptAt <= :now
+            ORDER BY o.nextAttemptAt ASC
+            """)
+    List<Integer> findDueIds(@Param("statuses") Collection<ShipmentOutbox.OutboxStatus> statuses,
+            @Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Nhận xử lý một bản ghi (claim): chỉ một worker cập nhật được, bản ghi bị "thuê" tới leaseUntil.
+     * Nếu worker chết giữa chừng, bản ghi PROCESSING hết hạn thuê sẽ được nhận lại.
+     */
+    @Modifying
+    @Query("""
+            UPDATE ShipmentOutbox o
+            SET o.status = com.storemanagement.model.ShipmentOutbox.OutboxStatus.PROCESSING,
+                o.attempts = o.attempts + 1,
+                o.nextAttemptAt = :leaseUntil
+            WHERE o.idOutbox = :id
+            AND o.status IN :statuses
+            AND o.nextAttemptAt <= :now
+            """)
+    int claim(@Param("id") Integer id,
+            @Param("statuses") Collection<ShipmentOutbox.OutboxStatus> statuses,
+            @Param("now") LocalDateTime now,
+            @Param("leaseUntil") LocalDateTime leaseUntil);
+}
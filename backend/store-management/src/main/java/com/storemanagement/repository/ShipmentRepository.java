@@ -1,9 +1,15 @@
 package com.storemanagement.repository;
 
 import com.storemanagement.model.Shipment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +17,27 @@ public interface ShipmentRepository extends JpaRepository<Shipment, Integer> {
     Optional<Shipment> findByOrder_IdOrder(Integer orderId);
 
     Optional<Shipment> findByGhnOrderCode(String ghnOrderCode);
+
+    /**
+     * Vận đơn GHN chưa kết thúc cần đồng bộ trạng thái, phân trang keyset theo id.
+     * Trả về [id_shipment, ghn_order_code, ghn_updated_at].
+     */
+    @Query("""
+            SELECT s.idShipment, s.ghnOrderCode, s.ghnUpdatedAt FROM Shipment s
+            WHERE s.idShipment > :afterId
+              AND s.shippingStatus IN :statuses
+              AND s.shippingMethod = com.storemanagement.model.Shipment.ShippingMethod.GHN
+              AND s.ghnOrderCode IS NOT NULL
+              AND (s.ghnStatus IS NULL OR s.ghnStatus NOT IN :terminalGhnStatuses)
+              AND (s.ghnUpdatedAt IS NULL OR s.ghnUpdatedAt < :updatedBefore)
+            ORDER BY s.idShipment ASC
+            """)
+    List<Object[]> findTrackingSyncCandidates(@Param("afterId") Integer afterId,
+                                              @Param("statuses") Collection<Shipment.ShippingStatus> statuses,
+                                              @Param("terminalGhnStatuses") Collection<String> terminalGhnStatuses,
+                                              @Param("updatedBefore") LocalDateTime updatedBefore,
+                                              Pageable pageable);
+
+    @Query("SELECT s FROM Shipment s LEFT JOIN FETCH s.order WHERE s.idShipment IN :ids")
+    List<Shipment> findAllWithOrderByIdIn(@Param("ids") Collection<Integer> ids);
 }
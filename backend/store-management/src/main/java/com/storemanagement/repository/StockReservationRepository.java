@@ -0,0 +1,32 @@
+package com.storemanagement.repository;
+
+import com.storemanagement.model.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Integer> {
+
+    @Query("""
+            SELECT r FROM StockReservation r
+            JOIN FETCH r.product
+            WHERE r.order.idOrder = :orderId
+            """)
+    List<StockReservation> findByOrderIdWithProduct(@Param("orderId") Integer orderId);
+
+    boolean existsByOrder_IdOrder(Integer orderId);
+
+    @Modifying
+    @Query("""
+            UPDATE StockReservation r SET r.status = :to
+            WHERE r.order.idOrder = :orderId AND r.status = :from
+            """)
+    int transitionOrderStatus(@Param("orderId") Integer orderId,
+            @Param("from") StockReservation.ReservationStatus from,
+            @Param("to") StockReservation.ReservationStatus to);
+}
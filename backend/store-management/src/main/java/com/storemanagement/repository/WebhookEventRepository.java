@@ -0,0 +1,78 @@
+package com.storemanagement.repository;
+
+import com.storemanagement.model.WebhookEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WebhookEventRepository extends JpaRepository<WebhookEvent, Long> {
+
+    /**
+     * Ghi nhận webhook; bản tin trùng (cùng source, dedup_key) bị bỏ qua và trả về 0.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT IGNORE INTO webhook_events
+                (source, dedup_key, partition_key, payload, status, attempts, next_attempt_at, created_at, updated_at)
+            VALUES (:source, :dedupKey, :partitionKey, :payload, 'PENDING', 0, :now, :now, :now)
+            """, nativeQuery = true)
+    int insertIgnore(@Param("source") String source,
+            @Param("dedupKey") String dedupKey,
+            @Param("partitionKey") String partitionKey,
+            @Param("payload") String payload,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Sự kiện đến hạn mà không còn sự kiện nào trước nó (id nhỏ hơn) cùng partition key đang chờ hoặc đang xử lý,
+     * để sự kiện sau không vượt sự kiện trước đang chờ retry.
+     */
+    @Query("""
+            SELECT e.idEvent FROM WebhookEvent e
+            WHERE e.status IN :statuses
+            AND e.nextAttemptAt <= :now
+            AND NOT EXISTS (
+                SELECT 1 FROM WebhookEvent earlier
+                WHERE earlier.partitionKey = e.partitionKey
+                AND earlier.idEvent < e.idEvent
+                AND earlier.status IN :statuses
+            )
+            ORDER BY e.idEvent ASC
+            """)
+    List<Long> findDueIds(@Param("statuses") Collection<WebhookEvent.EventStatus> statuses,
+            @Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Nhận xử lý một sự kiện (claim) với thời hạn thuê leaseUntil, giống ghn_shipment_outbox.
+     */
+    @Modifying
+    @Query("""
+            UPDATE WebhookEvent e
+            SET e.status = com.storemanagement.model.WebhookEvent.EventStatus.PROCESSING,
+                e.attempts = e.attempts + 1,
+                e.nextAttemptAt = :leaseUntil
+            WHERE e.idEvent = :id
+            AND e.status IN :statuses
+            AND e.nextAttemptAt <= :now
+            """)
+    int claim(@Param("id") Long id,
+            @Param("statuses") Collection<WebhookEvent.EventStatus> statuses,
+            @Param("now") LocalDateTime now,
+            @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Query("""
+            SELECT e FROM WebhookEvent e
+            WHERE (:source IS NULL OR e.source = :source)
+            AND (:status IS NULL OR e.status = :status)
+            ORDER BY e.idEvent DESC
+            """)
+    List<WebhookEvent> findRecent(@Param("source") WebhookEvent.Source source,
+            @Param("status") WebhookEvent.EventStatus status, Pageable pageable);
+}
@@ -0,0 +1,17 @@
+package com.storemanagement.service;
+
+import com.storemanagement.dto.cache.CacheStatsDTO;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface CatalogCacheService {
+
+    void evictProduct(Integer productId);
+
+    void evictProducts(Collection<Integer> productIds);
+
+    void evictAllProducts();
+
+    List<CacheStatsDTO> getStatistics();
+}
@@ -3,6 +3,7 @@ package com.storemanagement.service;
 import com.storemanagement.dto.chat.ChatMessageRequest;
 import com.storemanagement.dto.chat.ChatConversationDTO;
 import com.storemanagement.dto.chat.ChatMessageDTO;
+import com.storemanagement.dto.PageResponse;
 
 import java.security.Principal;
 
@@ -15,6 +16,9 @@ public interface ChatService {
 
     Page<ChatMessageDTO> getConversationMessages(Integer conversationId, Pageable pageable);
 
+    PageResponse<ChatMessageDTO> getConversationMessagesByCursor(Integer conversationId, String cursor, int pageSize,
+                                                                 boolean withCount);
+
     ChatConversationDTO getOrCreateCustomerConversation(Integer customerId);
 
     Page<ChatConversationDTO> getAllConversations(Pageable pageable);
@@ -0,0 +1,36 @@
+package com.storemanagement.service;
+
+import com.storemanagement.model.Order;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+/**
+ * Xuất dữ liệu ra CSV theo kiểu stream: dữ liệu được đọc từng dòng từ database và ghi thẳng ra response,
+ * bộ nhớ dùng không phụ thuộc số dòng. Quá số lượt xuất đồng thời thì ném TooManyRequestsException (429);
+ * lỗi sau khi đã ghi response thì ném ExportAbortedException để kết nối bị hủy thay vì trả file cụt.
+ */
+public interface ExportService {
+
+    /**
+     * Nơi ghi file xuất. Chỉ được mở sau khi đã nhận được lượt xuất, nên lỗi trước đó vẫn trả về như response thường.
+     */
+    @FunctionalInterface
+    interface ExportTarget {
+        OutputStream open(String fileName) throws IOException;
+    }
+
+    void exportOrders(LocalDate fromDate, LocalDate toDate, Order.OrderStatus status, ExportTarget target)
+            throws IOException;
+
+    void exportInventoryTransactions(LocalDate fromDate, LocalDate toDate, Integer productId, ExportTarget target)
+            throws IOException;
+
+    void exportCustomers(ExportTarget target) throws IOException;
+
+    void exportRevenueByProduct(LocalDate fromDate, LocalDate toDate, ExportTarget target) throws IOException;
+
+    void exportRevenueByTime(LocalDate fromDate, LocalDate toDate, String groupBy, ExportTarget target)
+            throws IOException;
+}
@@ -0,0 +1,22 @@
+package com.storemanagement.service;
+
+import com.storemanagement.dto.ghn.GHNDistrictDTO;
+import com.storemanagement.dto.ghn.GHNProvinceDTO;
+import com.storemanagement.dto.ghn.GHNWardDTO;
+
+import java.util.List;
+
+/**
+ * Tra cứu tỉnh/quận/phường của GHN từ bộ nhớ. Lần đầu thiếu dữ liệu mới gọi GHN (read-through);
+ * dữ liệu được lưu ra file snapshot và làm mới định kỳ ở nền.
+ */
+public interface GHNMasterDataService {
+
+    List<GHNProvinceDTO> getProvinces();
+
+    List<GHNDistrictDTO> getDistricts(Integer provinceId);
+
+    List<GHNWardDTO> getWards(Integer districtId);
+
+    void refresh();
+}
@@ -19,6 +19,11 @@ public interface GHNService {
     String createGHNOrder(com.storemanagement.model.Order order,
             com.storemanagement.model.ShippingAddress shippingAddress);
 
+    /**
+     * Tìm vận đơn GHN đã tạo cho đơn hàng theo client_order_code; null nếu GHN chưa có vận đơn nào.
+     */
+    String findGHNOrderCode(com.storemanagement.model.Order order);
+
     GHNOrderInfoDTO getOrderInfo(String ghnOrderCode);
 
     void cancelOrder(String ghnOrderCode, String reason);
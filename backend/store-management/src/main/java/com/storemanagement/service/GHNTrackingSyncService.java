@@ -0,0 +1,14 @@
+package com.storemanagement.service;
+
+import com.storemanagement.dto.ghn.GHNTrackingSyncStatsDTO;
+
+public interface GHNTrackingSyncService {
+
+    /**
+     * Đồng bộ ngay toàn bộ vận đơn GHN chưa kết thúc, trả về thống kê sau lần chạy.
+     * Nếu đang có lượt khác chạy thì trả về ngay thống kê hiện tại (running = true), không xếp hàng chờ.
+     */
+    GHNTrackingSyncStatsDTO syncNow();
+
+    GHNTrackingSyncStatsDTO getStatistics();
+}
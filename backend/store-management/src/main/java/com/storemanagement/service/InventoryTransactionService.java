@@ -13,6 +13,9 @@ public interface InventoryTransactionService {
 
     PageResponse<InventoryTransactionDTO> getTransactionsByProduct(Integer productId, Pageable pageable);
 
+    PageResponse<InventoryTransactionDTO> getTransactionsByCursor(Integer productId, String cursor, int pageSize,
+                                                                  boolean withCount);
+
     PageResponse<InventoryTransactionDTO> getTransactionsByReference(
             com.storemanagement.utils.ReferenceType referenceType,
             Integer referenceId,
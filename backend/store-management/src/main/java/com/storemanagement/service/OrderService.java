@@ -27,5 +27,8 @@ public interface OrderService {
 
     PageResponse<OrderDTO> getAllOrders(Order.OrderStatus status, Integer customerId, String keyword, Pageable pageable);
 
+    PageResponse<OrderDTO> getAllOrdersByCursor(Order.OrderStatus status, Integer customerId, String cursor,
+                                                int pageSize, boolean withCount);
+
     OrderDTO updateOrderStatus(Integer orderId, Order.OrderStatus newStatus);
 }
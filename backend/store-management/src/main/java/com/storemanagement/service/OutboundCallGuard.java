@@ -0,0 +1,31 @@
+package com.storemanagement.service;
+
+import com.storemanagement.dto.integration.OutboundCallStatsDTO;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Bọc mọi lời gọi ra dịch vụ bên ngoài: bulkhead giới hạn số lời gọi đồng thời, circuit breaker theo tỷ lệ lỗi
+ * và thống kê độ trễ/lỗi theo từng endpoint. Khi bị từ chối sẽ ném OutboundCallRejectedException.
+ */
+public interface OutboundCallGuard {
+
+    @FunctionalInterface
+    interface GuardedCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /**
+     * @param failureResult kết quả trả về nhưng vẫn tính là lỗi (ví dụ HTTP 5xx)
+     */
+    <T, E extends Exception> T execute(String integration, String endpoint, GuardedCall<T, E> call,
+                                       Predicate<T> failureResult) throws E;
+
+    default <T, E extends Exception> T execute(String integration, String endpoint, GuardedCall<T, E> call)
+            throws E {
+        return execute(integration, endpoint, call, result -> false);
+    }
+
+    List<OutboundCallStatsDTO> getStatistics();
+}
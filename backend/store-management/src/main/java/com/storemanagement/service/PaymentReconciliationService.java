@@ -0,0 +1,13 @@
+package com.storemanagement.service;
+
+import com.storemanagement.dto.payos.PaymentReconciliationStatsDTO;
+
+public interface PaymentReconciliationService {
+
+    /**
+     * Đối soát ngay các đơn PayOS còn PENDING với trạng thái link trên PayOS, hủy các đơn quá hạn thanh toán.
+     */
+    PaymentReconciliationStatsDTO reconcileNow();
+
+    PaymentReconciliationStatsDTO getStatistics();
+}
@@ -0,0 +1,26 @@
+package com.storemanagement.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Chốt kết quả thanh toán PayOS của một đơn PENDING (từ webhook, job đối soát hoặc đơn 0đ).
+ * Đơn được khóa dòng và chỉ chuyển trạng thái khi còn PENDING, nên gọi lặp lại không trừ kho hai lần.
+ */
+public interface PaymentSettlementService {
+
+    /**
+     * @return true nếu đơn được chuyển sang COMPLETED ở lần gọi này
+     */
+    boolean settlePaid(Integer orderId, String note);
+
+    /**
+     * Hủy đơn, trả lại tồn kho giữ chỗ và lượt dùng mã giảm giá.
+     * @return true nếu đơn được chuyển sang CANCELED ở lần gọi này
+     */
+    boolean settleCanceled(Integer orderId, String reason);
+
+    /**
+     * Future hoàn thành sau khi thanh toán của đơn được chốt (commit) trên instance này.
+     */
+    CompletableFuture<Void> awaitSettlement(Integer orderId);
+}
@@ -0,0 +1,14 @@
+package com.storemanagement.service;
+
+import com.storemanagement.model.Product;
+
+import java.util.List;
+
+public interface ProductSearchService {
+
+    List<Integer> search(String keyword);
+
+    void index(Product product);
+
+    void rebuild();
+}
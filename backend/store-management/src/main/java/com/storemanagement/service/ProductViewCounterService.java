@@ -0,0 +1,18 @@
+package com.storemanagement.service;
+
+import com.storemanagement.model.ProductView;
+
+import java.util.List;
+
+public interface ProductViewCounterService {
+
+    void recordViews(List<ProductView> views);
+
+    /**
+     * Top sản phẩm xem nhiều theo điểm suy giảm theo thời gian; userId = null là toàn hệ thống.
+     * Mỗi dòng: [productId (Integer), score (Double)].
+     */
+    List<Object[]> getTopViewedProducts(Integer userId, int limit);
+
+    void pruneUserCounters();
+}
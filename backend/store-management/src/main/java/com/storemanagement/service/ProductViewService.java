@@ -1,6 +1,11 @@
 package com.storemanagement.service;
 
+import com.storemanagement.dto.product.ProductViewIngestStatsDTO;
+
 public interface ProductViewService {
     void logView(Integer userId, String sessionId, Integer productId);
-}
 
+    void flush();
+
+    ProductViewIngestStatsDTO getIngestStats();
+}
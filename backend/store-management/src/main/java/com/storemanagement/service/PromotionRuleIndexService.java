@@ -0,0 +1,38 @@
+package com.storemanagement.service;
+
+import com.storemanagement.model.PromotionRule;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface PromotionRuleIndexService {
+
+    /**
+     * Bản sao bất biến của một PromotionRule đang active, dùng cho việc tính giảm giá tự động.
+     */
+    record ActiveRule(Integer idRule,
+                      String ruleName,
+                      PromotionRule.DiscountType discountType,
+                      BigDecimal discountValue,
+                      BigDecimal minOrderAmount,
+                      String customerType,
+                      LocalDateTime startDate,
+                      LocalDateTime endDate,
+                      int priority) {
+    }
+
+    /**
+     * Rule ưu tiên cao nhất thuộc scope, áp dụng cho customerType (hoặc ALL), có minOrderAmount <= totalAmount
+     * và đang trong thời gian hiệu lực tại thời điểm now.
+     */
+    Optional<ActiveRule> findBestRule(PromotionRule.PromotionScope scope, BigDecimal totalAmount,
+                                      String customerType, LocalDateTime now);
+
+    void reload();
+
+    /**
+     * Nạp lại index sau khi transaction hiện tại commit (hoặc ngay nếu không có transaction).
+     */
+    void reloadAfterCommit();
+}
@@ -46,5 +46,7 @@ public interface PromotionService {
 
     void recordPromotionUsage(Integer promotionId, Integer orderId, Integer customerId);
 
+    void releasePromotionUsage(Integer orderId);
+
     List<ProductOnSaleDTO> getProductsOnSale();
 }
@@ -3,6 +3,7 @@ package com.storemanagement.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.storemanagement.config.RecommenderProperties;
+import com.storemanagement.exception.OutboundCallRejectedException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -57,6 +58,8 @@ public class RecommenderClient {
 
             log.warn("Failed to get recommendations for userId: {}", userId);
             return new ArrayList<>();
+        } catch (OutboundCallRejectedException e) {
+            throw e;
         } catch (org.springframework.web.client.ResourceAccessException e) {
             log.error("Cannot connect to Python recommender service at {}. Is the service running? Error: {}", url, e.getMessage());
             return new ArrayList<>();
@@ -94,6 +97,8 @@ public class RecommenderClient {
 
             log.warn("Failed to get similar products for productId: {}", productId);
             return new ArrayList<>();
+        } catch (OutboundCallRejectedException e) {
+            throw e;
         } catch (org.springframework.web.client.ResourceAccessException e) {
             log.error("Cannot connect to Python recommender service at {}. Is the service running? Error: {}", url, e.getMessage());
             return new ArrayList<>();
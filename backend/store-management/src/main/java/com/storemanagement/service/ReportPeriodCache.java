@@ -0,0 +1,24 @@
+package com.storemanagement.service;
+
+import com.storemanagement.dto.report.DailyRevenueDTO;
+import com.storemanagement.model.Order;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Tổng hợp doanh thu theo ngày cho báo cáo theo thời gian. Ngày đã qua (trước hôm nay) được giữ trong bộ nhớ
+ * cho tới khi có đơn hàng của ngày đó đổi trạng thái; hôm nay và các ngày sau luôn được tính lại.
+ */
+public interface ReportPeriodCache {
+
+    /**
+     * Các ngày có đơn COMPLETED trong [fromDate, toDate], sắp xếp tăng dần.
+     */
+    List<DailyRevenueDTO> getDailyRevenue(LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * Bỏ tổng hợp của ngày đặt hàng của đơn sau khi transaction hiện tại commit.
+     */
+    void invalidate(Order order);
+}
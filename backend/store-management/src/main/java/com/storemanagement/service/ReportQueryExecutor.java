@@ -0,0 +1,29 @@
+package com.storemanagement.service;
+
+import com.storemanagement.dto.report.ReportSubqueryStatsDTO;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Chạy các truy vấn con độc lập của một báo cáo. Ở chế độ song song mỗi truy vấn chạy trên một thread
+ * của pool giới hạn, trong transaction read-only riêng (connection riêng); ở chế độ tuần tự tất cả dùng
+ * chung một transaction read-only.
+ */
+public interface ReportQueryExecutor {
+
+    Batch newBatch(String report);
+
+    List<ReportSubqueryStatsDTO> getStatistics();
+
+    interface Batch {
+
+        /**
+         * Đăng ký truy vấn con; future hoàn thành sau khi execute() trả về.
+         */
+        <T> CompletableFuture<T> add(String subquery, Supplier<T> query);
+
+        void execute();
+    }
+}
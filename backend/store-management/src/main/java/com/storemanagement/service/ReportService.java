@@ -1,5 +1,6 @@
 package com.storemanagement.service;
 
+import com.storemanagement.dto.report.ReportSubqueryStatsDTO;
 import com.storemanagement.dto.report.RevenueByProductDTO;
 import com.storemanagement.dto.report.RevenueByTimeDTO;
 import com.storemanagement.dto.report.RevenueSummaryDTO;
@@ -14,4 +15,6 @@ public interface ReportService {
     List<RevenueByTimeDTO> getRevenueByTime(LocalDate fromDate, LocalDate toDate, String groupBy);
 
     List<RevenueByProductDTO> getRevenueByProduct(LocalDate fromDate, LocalDate toDate, Integer limit);
+
+    List<ReportSubqueryStatsDTO> getExecutionStatistics();
 }
@@ -0,0 +1,21 @@
+package com.storemanagement.service;
+
+import com.storemanagement.dto.report.SalesCubeQueryDTO;
+import com.storemanagement.dto.report.SalesCubeResultDTO;
+import com.storemanagement.dto.report.SalesCubeStatsDTO;
+import com.storemanagement.model.Order;
+
+public interface SalesCubeService {
+
+    void rebuild();
+
+    /**
+     * Đồng bộ các dòng của đơn vào cube sau khi transaction hiện tại commit:
+     * đơn COMPLETED được thêm (hoặc thay), đơn rời COMPLETED bị loại.
+     */
+    void index(Order order);
+
+    SalesCubeResultDTO query(SalesCubeQueryDTO query);
+
+    SalesCubeStatsDTO getStatistics();
+}
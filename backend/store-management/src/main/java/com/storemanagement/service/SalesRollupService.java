@@ -0,0 +1,10 @@
+package com.storemanagement.service;
+
+import com.storemanagement.model.Order;
+
+public interface SalesRollupService {
+
+    void recordOrderCreated(Order order);
+
+    void recordStatusChange(Order order, Order.OrderStatus previousStatus);
+}
@@ -0,0 +1,21 @@
+package com.storemanagement.service;
+
+import com.storemanagement.dto.ghn.GHNShipmentOutboxDTO;
+import com.storemanagement.model.Order;
+import com.storemanagement.model.ShipmentOutbox;
+
+import java.util.List;
+
+public interface ShipmentOutboxService {
+
+    void enqueue(Order order);
+
+    void dispatchDue();
+
+    List<GHNShipmentOutboxDTO> getRecentEntries(ShipmentOutbox.OutboxStatus status, int limit);
+
+    /**
+     * Đưa một dòng outbox (thường là FAILED) về PENDING để dispatcher gọi lại GHN ngay.
+     */
+    GHNShipmentOutboxDTO replay(Integer outboxId);
+}
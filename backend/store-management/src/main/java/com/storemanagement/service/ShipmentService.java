@@ -1,8 +1,11 @@
 package com.storemanagement.service;
 
+import com.storemanagement.dto.ghn.GHNOrderInfoDTO;
 import com.storemanagement.dto.ghn.GHNTrackingDTO;
 import com.storemanagement.dto.shipment.ShipmentDTO;
 
+import java.util.Map;
+
 public interface ShipmentService {
 
     ShipmentDTO getShipmentById(Integer shipmentId);
@@ -14,4 +17,10 @@ public interface ShipmentService {
     GHNTrackingDTO getShipmentTracking(Integer shipmentId);
 
     ShipmentDTO createGHNShipmentForOrder(Integer orderId);
+
+    /**
+     * Áp dụng kết quả tra cứu GHN cho nhiều vận đơn trong một transaction (dùng bởi job đồng bộ nền).
+     * Trả về số vận đơn có trạng thái GHN thay đổi.
+     */
+    int applyGHNOrderInfos(Map<Integer, GHNOrderInfoDTO> orderInfosByShipmentId);
 }
@@ -0,0 +1,30 @@
+package com.storemanagement.service;
+
+import com.storemanagement.model.Order;
+import com.storemanagement.model.Product;
+
+import java.math.BigDecimal;
+
+public interface StockReservationService {
+
+    void deductStock(Order order);
+
+    void deductStock(Product product, int quantity);
+
+    void addStock(Product product, int quantity);
+
+    void receiveStock(Product product, int quantity, BigDecimal unitCost);
+
+    void addStock(Order order, String note);
+
+    void reserveStock(Order order);
+
+    void commitReservation(Order order, String note);
+
+    void releaseReservation(Order order);
+
+    /**
+     * Trả hàng của đơn bị hủy về kho: đơn PAYOS chỉ nhả phần giữ chỗ, đơn khác ghi phiếu nhập lại kho.
+     */
+    void restoreCanceledOrder(Order order, String note);
+}
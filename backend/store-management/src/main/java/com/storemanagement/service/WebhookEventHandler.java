@@ -0,0 +1,14 @@
+package com.storemanagement.service;
+
+import com.storemanagement.model.WebhookEvent;
+
+/**
+ * Xử lý nghiệp vụ cho webhook của một nguồn. Có thể được gọi lại với cùng payload (retry, replay)
+ * nên phải idempotent: kiểm tra trạng thái hiện tại trước khi thay đổi.
+ */
+public interface WebhookEventHandler {
+
+    WebhookEvent.Source source();
+
+    void handle(String payload) throws Exception;
+}
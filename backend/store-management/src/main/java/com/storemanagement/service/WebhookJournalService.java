@@ -0,0 +1,23 @@
+package com.storemanagement.service;
+
+import com.storemanagement.dto.webhook.WebhookEventDTO;
+import com.storemanagement.model.WebhookEvent;
+
+import java.util.List;
+
+public interface WebhookJournalService {
+
+    /**
+     * Lưu webhook vào journal để xử lý nền. Trả về false nếu là bản tin trùng đã được ghi nhận trước đó.
+     */
+    boolean record(WebhookEvent.Source source, String dedupKey, String partitionKey, String payload);
+
+    void dispatchDue();
+
+    /**
+     * Đưa sự kiện về PENDING để xử lý lại (thao tác của admin).
+     */
+    WebhookEventDTO replay(Long eventId);
+
+    List<WebhookEventDTO> getRecentEvents(WebhookEvent.Source source, WebhookEvent.EventStatus status, int limit);
+}
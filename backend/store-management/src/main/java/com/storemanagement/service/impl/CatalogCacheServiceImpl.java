@@ -0,0 +1,79 @@
+package com.storemanagement.service.impl;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.storemanagement.config.CacheConfig;
+import com.storemanagement.dto.cache.CacheStatsDTO;
+import com.storemanagement.service.CatalogCacheService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Invalidate cache catalog theo id sản phẩm cho các luồng ghi không dùng được @CacheEvict
+ * (thay đổi tồn kho, ảnh, đánh giá) và cung cấp thống kê hit/miss/eviction để điều chỉnh kích thước cache.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogCacheServiceImpl implements CatalogCacheService {
+
+    private final CacheManager cacheManager;
+
+    @Override
+    public void evictProduct(Integer productId) {
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCT_DETAILS);
+        if (cache != null && productId != null) {
+            cache.evict(productId);
+        }
+    }
+
+    @Override
+    public void evictProducts(Collection<Integer> productIds) {
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCT_DETAILS);
+        if (cache == null || productIds == null) {
+            return;
+        }
+        for (Integer productId : productIds) {
+            cache.evict(productId);
+        }
+    }
+
+    @Override
+    public void evictAllProducts() {
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCT_DETAILS);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    @Override
+    public List<CacheStatsDTO> getStatistics() {
+        List<CacheStatsDTO> statistics = new ArrayList<>();
+
+        for (String cacheName : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache == null || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache)) {
+                continue;
+            }
+
+            CacheStats stats = nativeCache.stats();
+            statistics.add(CacheStatsDTO.builder()
+                    .cacheName(cacheName)
+                    .size(nativeCache.estimatedSize())
+                    .hitCount(stats.hitCount())
+                    .missCount(stats.missCount())
+                    .hitRate(stats.hitRate())
+                    .evictionCount(stats.evictionCount())
+                    .loadCount(stats.loadCount())
+                    .build());
+        }
+
+        return statistics;
+    }
+}
@@ -1,5 +1,6 @@
 package com.storemanagement.service.impl;
 
+import com.storemanagement.config.CacheConfig;
 import com.storemanagement.dto.category.CategoryDTO;
 import com.storemanagement.dto.PageResponse;
 import com.storemanagement.mapper.CategoryMapper;
@@ -10,6 +11,9 @@ import com.storemanagement.utils.PageUtils;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -28,6 +32,7 @@ public class CategoryServiceImpl implements CategoryService {
     private final CategoryMapper categoryMapper;
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true)
     public CategoryDTO createCategory(CategoryDTO categoryDTO) {
         log.info("Creating category: {}", categoryDTO.getCategoryName());
 
@@ -45,6 +50,11 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true),
+            // ProductDTO chứa tên danh mục
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_DETAILS, allEntries = true)
+    })
     public CategoryDTO updateCategory(Integer id, CategoryDTO categoryDTO) {
         log.info("Updating category ID: {}", id);
 
@@ -70,6 +80,11 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true),
+            // ProductDTO chứa tên danh mục
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_DETAILS, allEntries = true)
+    })
     public void deleteCategory(Integer id) {
         log.info("Deleting category ID: {}", id);
 
@@ -81,6 +96,7 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.CATEGORIES, key = "#id")
     public CategoryDTO getCategoryById(Integer id) {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Danh mục không tồn tại với ID: " + id));
@@ -88,6 +104,7 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.CATEGORIES, key = "'all'")
     public List<CategoryDTO> getAllCategories() {
         List<Category> categories = categoryRepository.findAll();
         return categoryMapper.toDTOList(categories);
@@ -8,16 +8,20 @@ import java.security.Principal;
 import com.storemanagement.dto.chat.ChatMessageRequest;
 import com.storemanagement.dto.chat.ChatConversationDTO;
 import com.storemanagement.dto.chat.ChatMessageDTO;
+import com.storemanagement.dto.PageResponse;
 import com.storemanagement.model.*;
 import com.storemanagement.repository.*;
 import com.storemanagement.service.ChatService;
 import com.storemanagement.utils.ConversationStatus;
+import com.storemanagement.utils.CursorUtils;
+import com.storemanagement.utils.PageUtils;
 import com.storemanagement.utils.SecurityUtils;
 import com.storemanagement.utils.SenderType;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
@@ -102,14 +106,7 @@ public class ChatServiceImpl implements ChatService {
     public Page<ChatMessageDTO> getConversationMessages(Integer conversationId, Pageable pageable) {
         log.info("Getting messages for conversation ID: {}", conversationId);
 
-        ChatConversation conversation = conversationRepository.findById(conversationId)
-                .orElseThrow(
-                        () -> new EntityNotFoundException("Cuộc hội thoại không tồn tại với ID: " + conversationId));
-
-        Optional<String> currentRole = SecurityUtils.getCurrentRole();
-        if (currentRole.isPresent() && "ROLE_CUSTOMER".equals(currentRole.get())) {
-            validateConversationAccess(conversationId);
-        }
+        checkConversationReadable(conversationId);
 
         Page<ChatMessage> messages = messageRepository
                 .findByConversation_IdConversationOrderByCreatedAtDesc(conversationId, pageable);
@@ -122,6 +119,43 @@ public class ChatServiceImpl implements ChatService {
         return new org.springframework.data.domain.PageImpl<>(dtoList, pageable, messages.getTotalElements());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public PageResponse<ChatMessageDTO> getConversationMessagesByCursor(Integer conversationId, String cursor,
+            int pageSize, boolean withCount) {
+        log.info("Getting messages by cursor for conversation ID: {}", conversationId);
+
+        checkConversationReadable(conversationId);
+
+        CursorUtils.Cursor position = CursorUtils.decode(cursor);
+        java.util.List<ChatMessage> rows = messageRepository.findByConversationBeforeCursor(conversationId,
+                position != null ? position.date() : null,
+                position != null ? position.id() : null,
+                PageRequest.of(0, pageSize + 1));
+
+        Long totalElements = withCount ? messageRepository.countByConversation_IdConversation(conversationId) : null;
+
+        // Truy vấn mới nhất trước; trả về theo thứ tự thời gian, nextCursor trỏ tới tin cũ nhất của trang
+        return PageUtils.toCursorPageResponse(rows, pageSize, pageRows -> {
+            java.util.List<ChatMessageDTO> dtoList = pageRows.stream()
+                    .map(this::toMessageDto)
+                    .collect(java.util.stream.Collectors.toList());
+            java.util.Collections.reverse(dtoList);
+            return dtoList;
+        }, message -> CursorUtils.encode(message.getCreatedAt(), message.getIdMessage()), totalElements);
+    }
+
+    private void checkConversationReadable(Integer conversationId) {
+        if (!conversationRepository.existsById(conversationId)) {
+            throw new EntityNotFoundException("Cuộc hội thoại không tồn tại với ID: " + conversationId);
+        }
+
+        Optional<String> currentRole = SecurityUtils.getCurrentRole();
+        if (currentRole.isPresent() && "ROLE_CUSTOMER".equals(currentRole.get())) {
+            validateConversationAccess(conversationId);
+        }
+    }
+
     @Override
     public ChatConversationDTO getOrCreateCustomerConversation(Integer customerId) {
         log.info("Getting or creating conversation for customer ID: {}", customerId);
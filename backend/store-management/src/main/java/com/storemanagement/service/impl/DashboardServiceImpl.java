@@ -19,7 +19,10 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 @RequiredArgsConstructor
@@ -38,37 +41,46 @@ public class DashboardServiceImpl implements DashboardService {
                 topProductsLimit, recentOrdersLimit, chartDays);
 
         LocalDate today = LocalDate.now();
-        LocalDateTime startOfToday = today.atStartOfDay();
-        LocalDateTime endOfToday = today.atTime(23, 59, 59);
-
         LocalDate firstDayOfMonth = today.withDayOfMonth(1);
-        LocalDateTime startOfMonth = firstDayOfMonth.atStartOfDay();
-
-        BigDecimal todayRevenue = getNetRevenue(startOfToday, endOfToday);
-
-        Long ordersToday = getOrderCount(startOfToday, endOfToday, null);
-        Long completedOrdersToday = getOrderCount(startOfToday, endOfToday, Order.OrderStatus.COMPLETED);
-
-        BigDecimal monthRevenue = getNetRevenue(startOfMonth, endOfToday);
-
-        Long ordersThisMonth = getOrderCount(startOfMonth, endOfToday, null);
-        Long completedOrdersThisMonth = getOrderCount(startOfMonth, endOfToday, Order.OrderStatus.COMPLETED);
+        LocalDate chartStartDate = today.minusDays(chartDays - 1);
+
+        // Các ngày trước hôm nay đọc từ daily_sales_rollup, riêng hôm nay tính trực tiếp từ orders
+        DaySummary todaySummary = getLiveDaySummary(today);
+        Map<LocalDate, Map<String, DaySummary>> rollup = getRollup(
+                firstDayOfMonth.isBefore(chartStartDate) ? firstDayOfMonth : chartStartDate, today);
+
+        DaySummary monthSummary = new DaySummary();
+        DaySummary monthCompleted = new DaySummary();
+        rollup.forEach((date, byStatus) -> {
+            if (date.isBefore(firstDayOfMonth)) {
+                return;
+            }
+            byStatus.values().forEach(monthSummary::add);
+            DaySummary completed = byStatus.get(Order.OrderStatus.COMPLETED.name());
+            if (completed != null) {
+                monthCompleted.add(completed);
+            }
+        });
+        monthSummary.orderCount += todaySummary.orderCount;
+        monthCompleted.orderCount += todaySummary.completedCount;
+        monthCompleted.grossRevenue = monthCompleted.grossRevenue.add(todaySummary.grossRevenue);
+        monthCompleted.discount = monthCompleted.discount.add(todaySummary.discount);
 
         Long activeReturnRequests = getActiveReturnRequests();
 
-        List<TopProductDTO> topProducts = getTopProducts(startOfMonth, endOfToday, topProductsLimit);
+        List<TopProductDTO> topProducts = getTopProducts(firstDayOfMonth, today, topProductsLimit);
 
         List<RecentOrderDTO> recentOrders = getRecentOrders(recentOrdersLimit);
 
-        List<DailyRevenueDTO> revenueChart = getDailyRevenue(chartDays);
+        List<DailyRevenueDTO> revenueChart = getDailyRevenue(rollup, todaySummary, chartStartDate, today);
 
         return DashboardOverviewDTO.builder()
-                .todayRevenue(todayRevenue.setScale(2, RoundingMode.HALF_UP))
-                .ordersToday(ordersToday)
-                .completedOrdersToday(completedOrdersToday)
-                .monthRevenue(monthRevenue.setScale(2, RoundingMode.HALF_UP))
-                .ordersThisMonth(ordersThisMonth)
-                .completedOrdersThisMonth(completedOrdersThisMonth)
+                .todayRevenue(todaySummary.netRevenue().setScale(2, RoundingMode.HALF_UP))
+                .ordersToday(todaySummary.orderCount)
+                .completedOrdersToday(todaySummary.completedCount)
+                .monthRevenue(monthCompleted.netRevenue().setScale(2, RoundingMode.HALF_UP))
+                .ordersThisMonth(monthSummary.orderCount)
+                .completedOrdersThisMonth(monthCompleted.orderCount)
                 .activeReturnRequests(activeReturnRequests)
                 .topProducts(topProducts)
                 .recentOrders(recentOrders)
@@ -76,76 +88,67 @@ public class DashboardServiceImpl implements DashboardService {
                 .build();
     }
 
-    private BigDecimal getNetRevenue(LocalDateTime startDate, LocalDateTime endDate) {
-
-        String productRevenueQuery = """
-                SELECT COALESCE(SUM(od.quantity * od.price), 0)
-                FROM Order o
-                JOIN o.orderDetails od
-                WHERE o.status = :completedStatus
-                  AND o.orderDate BETWEEN :startDate AND :endDate
+    /**
+     * Số đơn, số đơn COMPLETED và doanh thu (chỉ đơn COMPLETED) của một ngày, tính trực tiếp từ orders
+     * trong một truy vấn theo khoảng order_date (dùng được index).
+     */
+    private DaySummary getLiveDaySummary(LocalDate date) {
+        String query = """
+                SELECT COUNT(o.id_order),
+                       COALESCE(SUM(CASE WHEN o.status = 'COMPLETED' THEN 1 ELSE 0 END), 0),
+                       COALESCE(SUM(CASE WHEN o.status = 'COMPLETED' THEN
+                           (SELECT SUM(od.quantity * od.price) FROM order_details od WHERE od.id_order = o.id_order)
+                       END), 0),
+                       COALESCE(SUM(CASE WHEN o.status = 'COMPLETED' THEN o.discount END), 0)
+                FROM orders o
+                WHERE o.order_date >= :startDate
+                  AND o.order_date < :endDate
                 """;
 
-        Query prodQuery = entityManager.createQuery(productRevenueQuery);
-        prodQuery.setParameter("completedStatus", Order.OrderStatus.COMPLETED);
-        prodQuery.setParameter("startDate", startDate);
-        prodQuery.setParameter("endDate", endDate);
-
-        BigDecimal productRevenue = (BigDecimal) prodQuery.getSingleResult();
-        if (productRevenue == null) {
-            productRevenue = BigDecimal.ZERO;
-        }
+        Query queryObj = entityManager.createNativeQuery(query);
+        queryObj.setParameter("startDate", date.atStartOfDay());
+        queryObj.setParameter("endDate", date.plusDays(1).atStartOfDay());
 
-        String discountQuery = """
-                SELECT COALESCE(SUM(o.discount), 0)
-                FROM Order o
-                WHERE o.status = :completedStatus
-                  AND o.orderDate BETWEEN :startDate AND :endDate
-                """;
+        Object[] row = (Object[]) queryObj.getSingleResult();
 
-        Query discQuery = entityManager.createQuery(discountQuery);
-        discQuery.setParameter("completedStatus", Order.OrderStatus.COMPLETED);
-        discQuery.setParameter("startDate", startDate);
-        discQuery.setParameter("endDate", endDate);
+        DaySummary summary = new DaySummary();
+        summary.orderCount = toLong(row[0]);
+        summary.completedCount = toLong(row[1]);
+        summary.grossRevenue = toBigDecimal(row[2]);
+        summary.discount = toBigDecimal(row[3]);
+        return summary;
+    }
 
-        BigDecimal totalDiscount = (BigDecimal) discQuery.getSingleResult();
-        if (totalDiscount == null) {
-            totalDiscount = BigDecimal.ZERO;
-        }
+    /**
+     * Đọc daily_sales_rollup cho các ngày trong [fromDate, toDate), gom theo ngày rồi theo status.
+     */
+    private Map<LocalDate, Map<String, DaySummary>> getRollup(LocalDate fromDate, LocalDate toDate) {
+        String query = """
+                SELECT r.sales_date, r.status, r.order_count, r.gross_revenue, r.discount
+                FROM daily_sales_rollup r
+                WHERE r.sales_date >= :fromDate
+                  AND r.sales_date < :toDate
+                """;
 
-        BigDecimal netRevenue = productRevenue.subtract(totalDiscount);
-        if (netRevenue.compareTo(BigDecimal.ZERO) < 0) {
-            netRevenue = BigDecimal.ZERO;
-        }
+        Query queryObj = entityManager.createNativeQuery(query);
+        queryObj.setParameter("fromDate", fromDate);
+        queryObj.setParameter("toDate", toDate);
 
-        return netRevenue;
-    }
+        @SuppressWarnings("unchecked")
+        List<Object[]> results = queryObj.getResultList();
 
-    private Long getOrderCount(LocalDateTime startDate, LocalDateTime endDate, Order.OrderStatus status) {
-        String query;
-        if (status != null) {
-            query = """
-                    SELECT COUNT(o)
-                    FROM Order o
-                    WHERE o.status = :status
-                      AND o.orderDate BETWEEN :startDate AND :endDate
-                    """;
-        } else {
-            query = """
-                    SELECT COUNT(o)
-                    FROM Order o
-                    WHERE o.orderDate BETWEEN :startDate AND :endDate
-                    """;
-        }
+        Map<LocalDate, Map<String, DaySummary>> rollup = new TreeMap<>();
+        for (Object[] row : results) {
+            DaySummary summary = new DaySummary();
+            summary.orderCount = toLong(row[2]);
+            summary.grossRevenue = toBigDecimal(row[3]);
+            summary.discount = toBigDecimal(row[4]);
 
-        Query queryObj = entityManager.createQuery(query);
-        if (status != null) {
-            queryObj.setParameter("status", status);
+            rollup.computeIfAbsent(toLocalDate(row[0]), d -> new HashMap<>())
+                    .put(row[1].toString(), summary);
         }
-        queryObj.setParameter("startDate", startDate);
-        queryObj.setParameter("endDate", endDate);
 
-        return (Long) queryObj.getSingleResult();
+        return rollup;
     }
 
     private Long getActiveReturnRequests() {
@@ -161,24 +164,35 @@ public class DashboardServiceImpl implements DashboardService {
         return (Long) queryObj.getSingleResult();
     }
 
-    private List<TopProductDTO> getTopProducts(LocalDateTime startDate, LocalDateTime endDate, int limit) {
+    private List<TopProductDTO> getTopProducts(LocalDate fromDate, LocalDate today, int limit) {
         String query = """
-                SELECT p.idProduct, p.productCode, p.productName, p.imageUrl,
-                       SUM(od.quantity) as quantitySold,
-                       SUM(od.quantity * od.price) as revenue
-                FROM Order o
-                JOIN o.orderDetails od
-                JOIN od.product p
-                WHERE o.status = :completedStatus
-                  AND o.orderDate BETWEEN :startDate AND :endDate
-                GROUP BY p.idProduct, p.productCode, p.productName, p.imageUrl
-                ORDER BY SUM(od.quantity) DESC
+                SELECT p.id_product, p.product_code, p.product_name, p.image_url,
+                       SUM(t.units) AS quantity_sold,
+                       SUM(t.revenue) AS revenue
+                FROM (
+                    SELECT r.id_product, r.units_sold AS units, r.revenue
+                    FROM daily_product_sales_rollup r
+                    WHERE r.sales_date >= :fromDate
+                      AND r.sales_date < :today
+                    UNION ALL
+                    SELECT od.id_product, od.quantity, od.quantity * od.price
+                    FROM orders o
+                    JOIN order_details od ON od.id_order = o.id_order
+                    WHERE o.status = 'COMPLETED'
+                      AND o.order_date >= :startOfToday
+                      AND o.order_date < :startOfTomorrow
+                ) t
+                JOIN products p ON p.id_product = t.id_product
+                GROUP BY p.id_product, p.product_code, p.product_name, p.image_url
+                HAVING SUM(t.units) > 0
+                ORDER BY quantity_sold DESC
                 """;
 
-        Query queryObj = entityManager.createQuery(query);
-        queryObj.setParameter("completedStatus", Order.OrderStatus.COMPLETED);
-        queryObj.setParameter("startDate", startDate);
-        queryObj.setParameter("endDate", endDate);
+        Query queryObj = entityManager.createNativeQuery(query);
+        queryObj.setParameter("fromDate", fromDate);
+        queryObj.setParameter("today", today);
+        queryObj.setParameter("startOfToday", today.atStartOfDay());
+        queryObj.setParameter("startOfTomorrow", today.plusDays(1).atStartOfDay());
         queryObj.setMaxResults(limit);
 
         @SuppressWarnings("unchecked")
@@ -187,12 +201,12 @@ public class DashboardServiceImpl implements DashboardService {
         List<TopProductDTO> topProducts = new ArrayList<>();
         for (Object[] row : results) {
             topProducts.add(TopProductDTO.builder()
-                    .productId((Integer) row[0])
+                    .productId(((Number) row[0]).intValue())
                     .productCode((String) row[1])
                     .productName((String) row[2])
                     .imageUrl((String) row[3])
-                    .quantitySold((Long) row[4])
-                    .netRevenue(((BigDecimal) row[5]).setScale(2, RoundingMode.HALF_UP))
+                    .quantitySold(toLong(row[4]))
+                    .netRevenue(toBigDecimal(row[5]).setScale(2, RoundingMode.HALF_UP))
                     .build());
         }
 
@@ -231,79 +245,68 @@ public class DashboardServiceImpl implements DashboardService {
         return recentOrders;
     }
 
-    private List<DailyRevenueDTO> getDailyRevenue(int days) {
-        LocalDate today = LocalDate.now();
-        LocalDate startDate = today.minusDays(days - 1);
-
-        String productRevenueQuery = """
-                SELECT DATE(o.order_date) as order_day,
-                       COALESCE(SUM(od.quantity * od.price), 0) as product_revenue
-                FROM orders o
-                JOIN order_details od ON o.id_order = od.id_order
-                WHERE o.status = 'COMPLETED'
-                  AND DATE(o.order_date) >= :startDate
-                GROUP BY DATE(o.order_date)
-                ORDER BY order_day ASC
-                """;
-
-        Query prodQuery = entityManager.createNativeQuery(productRevenueQuery);
-        prodQuery.setParameter("startDate", startDate);
-
-        @SuppressWarnings("unchecked")
-        List<Object[]> prodResults = prodQuery.getResultList();
-
-        String discountQuery = """
-                SELECT DATE(o.order_date) as order_day,
-                       COALESCE(SUM(o.discount), 0) as total_discount,
-                       COUNT(o.id_order) as order_count
-                FROM orders o
-                WHERE o.status = 'COMPLETED'
-                  AND DATE(o.order_date) >= :startDate
-                GROUP BY DATE(o.order_date)
-                ORDER BY order_day ASC
-                """;
-
-        Query discQuery = entityManager.createNativeQuery(discountQuery);
-        discQuery.setParameter("startDate", startDate);
-
-        @SuppressWarnings("unchecked")
-        List<Object[]> discResults = discQuery.getResultList();
-
-        java.util.Map<LocalDate, Object[]> discountMap = new java.util.HashMap<>();
-        for (Object[] row : discResults) {
-            java.sql.Date sqlDate = (java.sql.Date) row[0];
-            LocalDate date = sqlDate.toLocalDate();
-            discountMap.put(date, row);
-        }
-
+    private List<DailyRevenueDTO> getDailyRevenue(Map<LocalDate, Map<String, DaySummary>> rollup,
+            DaySummary todaySummary, LocalDate startDate, LocalDate today) {
         List<DailyRevenueDTO> dailyRevenue = new ArrayList<>();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM");
 
-        for (Object[] row : prodResults) {
-            java.sql.Date sqlDate = (java.sql.Date) row[0];
-            LocalDate date = sqlDate.toLocalDate();
-            BigDecimal productRevenue = row[1] != null ? new BigDecimal(row[1].toString()) : BigDecimal.ZERO;
-
-            BigDecimal discount = BigDecimal.ZERO;
-            Long orderCount = 0L;
-            if (discountMap.containsKey(date)) {
-                Object[] discRow = discountMap.get(date);
-                discount = discRow[1] != null ? new BigDecimal(discRow[1].toString()) : BigDecimal.ZERO;
-                orderCount = discRow[2] != null ? ((Number) discRow[2]).longValue() : 0L;
-            }
-
-            BigDecimal netRevenue = productRevenue.subtract(discount);
-            if (netRevenue.compareTo(BigDecimal.ZERO) < 0) {
-                netRevenue = BigDecimal.ZERO;
+        rollup.forEach((date, byStatus) -> {
+            DaySummary completed = byStatus.get(Order.OrderStatus.COMPLETED.name());
+            if (date.isBefore(startDate) || completed == null || completed.orderCount <= 0) {
+                return;
             }
 
             dailyRevenue.add(DailyRevenueDTO.builder()
                     .date(date.format(formatter))
-                    .netRevenue(netRevenue.setScale(2, RoundingMode.HALF_UP))
-                    .orderCount(orderCount)
+                    .netRevenue(completed.netRevenue().setScale(2, RoundingMode.HALF_UP))
+                    .orderCount(completed.orderCount)
+                    .build());
+        });
+
+        if (todaySummary.completedCount > 0 && !today.isBefore(startDate)) {
+            dailyRevenue.add(DailyRevenueDTO.builder()
+                    .date(today.format(formatter))
+                    .netRevenue(todaySummary.netRevenue().setScale(2, RoundingMode.HALF_UP))
+                    .orderCount(todaySummary.completedCount)
                     .build());
         }
 
         return dailyRevenue;
     }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof LocalDate localDate) {
+            return localDate;
+        }
+        return ((java.sql.Date) value).toLocalDate();
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        return value != null ? new BigDecimal(value.toString()) : BigDecimal.ZERO;
+    }
+
+    /**
+     * Tổng hợp của một ngày (hoặc một khoảng ngày): doanh thu thuần = tiền hàng - giảm giá, không âm.
+     */
+    private static class DaySummary {
+        private long orderCount;
+        private long completedCount;
+        private BigDecimal grossRevenue = BigDecimal.ZERO;
+        private BigDecimal discount = BigDecimal.ZERO;
+
+        void add(DaySummary other) {
+            orderCount += other.orderCount;
+            grossRevenue = grossRevenue.add(other.grossRevenue);
+            discount = discount.add(other.discount);
+        }
+
+        BigDecimal netRevenue() {
+            BigDecimal netRevenue = grossRevenue.subtract(discount);
+            return netRevenue.compareTo(BigDecimal.ZERO) < 0 ? BigDecimal.ZERO : netRevenue;
+        }
+    }
 }
@@ -0,0 +1,223 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.config.ExportProperties;
+import com.storemanagement.dto.report.RevenueByTimeDTO;
+import com.storemanagement.exception.ExportAbortedException;
+import com.storemanagement.exception.TooManyRequestsException;
+import com.storemanagement.model.Order;
+import com.storemanagement.repository.ExportRepository;
+import com.storemanagement.service.ExportService;
+import com.storemanagement.service.ReportService;
+import com.storemanagement.utils.CsvWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExportServiceImpl implements ExportService {
+
+    private final ExportRepository exportRepository;
+    private final ReportService reportService;
+    private final ExportProperties exportProperties;
+
+    private volatile Semaphore permits;
+
+    @Override
+    public void exportOrders(LocalDate fromDate, LocalDate toDate, Order.OrderStatus status, ExportTarget target)
+            throws IOException {
+        export("orders_" + fromDate + "_" + toDate + ".csv", target, csv -> {
+            csv.writeRow("Mã đơn", "Ngày đặt", "Khách hàng", "Số điện thoại", "Nhân viên", "Trạng thái",
+                    "Thanh toán", "Tổng tiền hàng", "Giảm giá", "Phí vận chuyển", "Thành tiền", "Mã khuyến mãi",
+                    "Hoàn thành lúc");
+            RowCounter counter = new RowCounter(csv);
+            exportRepository.streamOrders(fromDate.atStartOfDay(), toDate.atTime(23, 59, 59),
+                    status != null ? status.name() : null, rs -> {
+                        csv.writeRow(rs.getInt(1), dateTime(rs, 2), rs.getString(3), rs.getString(4),
+                                rs.getString(5), rs.getString(6), rs.getString(7), rs.getBigDecimal(8),
+                                rs.getBigDecimal(9), rs.getBigDecimal(10), rs.getBigDecimal(11), rs.getString(12),
+                                dateTime(rs, 13));
+                        counter.increment();
+                    });
+            return counter.rows();
+        });
+    }
+
+    @Override
+    public void exportInventoryTransactions(LocalDate fromDate, LocalDate toDate, Integer productId,
+                                            ExportTarget target) throws IOException {
+        export("inventory_transactions_" + fromDate + "_" + toDate + ".csv", target, csv -> {
+            csv.writeRow("Mã giao dịch", "Thời gian", "Mã sản phẩm", "Tên sản phẩm", "Loại", "Số lượng",
+                    "Loại chứng từ", "Mã chứng từ", "Nhân viên", "Ghi chú");
+            RowCounter counter = new RowCounter(csv);
+            exportRepository.streamInventoryTransactions(fromDate.atStartOfDay(), toDate.atTime(23, 59, 59),
+                    productId, rs -> {
+                        csv.writeRow(rs.getInt(1), dateTime(rs, 2), rs.getString(3), rs.getString(4),
+                                rs.getString(5), rs.getInt(6), rs.getString(7), rs.getObject(8),
+                                rs.getString(9), rs.getString(10));
+                        counter.increment();
+                    });
+            return counter.rows();
+        });
+    }
+
+    @Override
+    public void exportCustomers(ExportTarget target) throws IOException {
+        export("customers.csv", target, csv -> {
+            csv.writeRow("Mã khách hàng", "Tên khách hàng", "Số điện thoại", "Email", "Địa chỉ", "Loại khách hàng");
+            RowCounter counter = new RowCounter(csv);
+            exportRepository.streamCustomers(rs -> {
+                csv.writeRow(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5),
+                        rs.getString(6));
+                counter.increment();
+            });
+            return counter.rows();
+        });
+    }
+
+    @Override
+    public void exportRevenueByProduct(LocalDate fromDate, LocalDate toDate, ExportTarget target)
+            throws IOException {
+        LocalDateTime startDateTime = fromDate.atStartOfDay();
+        LocalDateTime endDateTime = toDate.atTime(23, 59, 59);
+
+        export("revenue_by_product_" + fromDate + "_" + toDate + ".csv", target, csv -> {
+            csv.writeRow("Mã sản phẩm", "Mã hàng", "Tên sản phẩm", "Danh mục", "Số lượng bán", "Doanh thu",
+                    "Giảm giá phân bổ", "Doanh thu thuần", "Giá bán trung bình");
+
+            // Giảm giá của kỳ được phân bổ theo tỷ trọng doanh thu như báo cáo doanh thu theo sản phẩm
+            BigDecimal[] totals = exportRepository.getRevenueTotals(startDateTime, endDateTime);
+            BigDecimal totalProductRevenue = totals[0];
+            BigDecimal totalDiscount = totals[1];
+
+            RowCounter counter = new RowCounter(csv);
+            exportRepository.streamRevenueByProduct(startDateTime, endDateTime, rs -> {
+                long quantitySold = rs.getLong(5);
+                BigDecimal productRevenue = rs.getBigDecimal(6);
+
+                BigDecimal discount = BigDecimal.ZERO;
+                if (totalProductRevenue.compareTo(BigDecimal.ZERO) > 0) {
+                    BigDecimal revenueShare = productRevenue.divide(totalProductRevenue, 10, RoundingMode.HALF_UP);
+                    discount = totalDiscount.multiply(revenueShare);
+                }
+
+                BigDecimal netRevenue = productRevenue.subtract(discount).max(BigDecimal.ZERO);
+                BigDecimal avgSellingPrice = quantitySold > 0
+                        ? productRevenue.divide(BigDecimal.valueOf(quantitySold), 2, RoundingMode.HALF_UP)
+                        : BigDecimal.ZERO;
+
+                csv.writeRow(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4), quantitySold,
+                        productRevenue.setScale(2, RoundingMode.HALF_UP),
+                        discount.setScale(2, RoundingMode.HALF_UP),
+                        netRevenue.setScale(2, RoundingMode.HALF_UP),
+                        avgSellingPrice);
+                counter.increment();
+            });
+            return counter.rows();
+        });
+    }
+
+    @Override
+    public void exportRevenueByTime(LocalDate fromDate, LocalDate toDate, String groupBy, ExportTarget target)
+            throws IOException {
+        export("revenue_by_time_" + fromDate + "_" + toDate + ".csv", target, csv -> {
+            csv.writeRow("Kỳ", "Doanh thu sản phẩm", "Giảm giá", "Doanh thu thuần", "Số đơn");
+            // Số kỳ nhỏ (tối đa số ngày trong khoảng) nên dùng lại kết quả của báo cáo
+            long rows = 0;
+            for (RevenueByTimeDTO period : reportService.getRevenueByTime(fromDate, toDate, groupBy)) {
+                csv.writeRow(period.getTime(), period.getProductRevenue(), period.getTotalDiscount(),
+                        period.getNetRevenue(), period.getOrderCount());
+                rows++;
+            }
+            return rows;
+        });
+    }
+
+    /**
+     * Dòng tiêu đề đã được flush trước khi truy vấn chạy, nên lỗi đọc dữ liệu giữa chừng không thể đổi status
+     * response được nữa: khi đó không đóng stream (đóng là kết thúc file bình thường với 200) mà ném
+     * ExportAbortedException để container hủy kết nối.
+     */
+    private void export(String fileName, ExportTarget target, ExportWriter exportWriter) throws IOException {
+        Semaphore semaphore = permits();
+        if (!semaphore.tryAcquire()) {
+            throw new TooManyRequestsException("Đang có quá nhiều yêu cầu xuất dữ liệu, vui lòng thử lại sau");
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            OutputStream outputStream = target.open(fileName);
+            CsvWriter csv = new CsvWriter(outputStream);
+            long rows = exportWriter.write(csv);
+            csv.flush();
+            outputStream.close();
+            log.info("Exported {}: {} rows in {} ms", fileName, rows, System.currentTimeMillis() - start);
+        } catch (IOException | UncheckedIOException e) {
+            // Thường do client ngắt kết nối giữa chừng
+            log.warn("Export {} aborted after {} ms: {}", fileName, System.currentTimeMillis() - start,
+                    e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Export {} failed after {} ms, aborting response", fileName,
+                    System.currentTimeMillis() - start, e);
+            throw new ExportAbortedException("Xuất dữ liệu " + fileName + " bị lỗi giữa chừng", e);
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    private Semaphore permits() {
+        if (permits == null) {
+            synchronized (this) {
+                if (permits == null) {
+                    permits = new Semaphore(Math.max(exportProperties.getMaxConcurrentExports(), 1));
+                }
+            }
+        }
+        return permits;
+    }
+
+    private static LocalDateTime dateTime(ResultSet rs, int column) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp(column);
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    @FunctionalInterface
+    private interface ExportWriter {
+        long write(CsvWriter csv);
+    }
+
+    private class RowCounter {
+        private final CsvWriter csv;
+        private final AtomicLong rows = new AtomicLong();
+
+        RowCounter(CsvWriter csv) {
+            this.csv = csv;
+            // Gửi ngay dòng tiêu đề để client nhận byte đầu tiên trước khi truy vấn trả dòng nào
+            csv.flush();
+        }
+
+        void increment() {
+            if (rows.incrementAndGet() % Math.max(exportProperties.getFlushEveryRows(), 1) == 0) {
+                csv.flush();
+            }
+        }
+
+        long rows() {
+            return rows.get();
+        }
+    }
+}
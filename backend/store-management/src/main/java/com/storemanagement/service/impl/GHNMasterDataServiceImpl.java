@@ -0,0 +1,269 @@
+package com.storemanagement.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.storemanagement.config.GHNConfig;
+import com.storemanagement.dto.ghn.GHNDistrictDTO;
+import com.storemanagement.dto.ghn.GHNMasterDataSnapshotDTO;
+import com.storemanagement.dto.ghn.GHNProvinceDTO;
+import com.storemanagement.dto.ghn.GHNWardDTO;
+import com.storemanagement.service.GHNMasterDataService;
+import com.storemanagement.service.GHNService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cache read-through cho dữ liệu hành chính GHN (thay đổi vài lần mỗi năm).
+ * Khi khởi động nạp file snapshot vào bộ nhớ; tra cứu trúng cache không gọi GHN, kể cả khi GHN đang lỗi.
+ * Thiếu dữ liệu thì gọi GHN một lần rồi ghi lại snapshot. Job nền làm mới các mục đã có; mục nào gọi lỗi
+ * thì giữ dữ liệu cũ. Lần làm mới kéo dài nhiều phút nên chạy trên thread riêng, không giữ thread của scheduler
+ * dùng chung với các job polling.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GHNMasterDataServiceImpl implements GHNMasterDataService {
+
+    private final GHNService ghnService;
+    private final GHNConfig ghnConfig;
+    private final ObjectMapper objectMapper;
+
+    private volatile List<GHNProvinceDTO> provinces;
+    private final Map<Integer, List<GHNDistrictDTO>> districtsByProvince = new ConcurrentHashMap<>();
+    private final Map<Integer, List<GHNWardDTO>> wardsByDistrict = new ConcurrentHashMap<>();
+
+    private volatile LocalDateTime refreshedAt;
+    private volatile boolean dirty;
+
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ghn-master-data-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        loadSnapshot();
+    }
+
+    @Override
+    public List<GHNProvinceDTO> getProvinces() {
+        List<GHNProvinceDTO> cached = provinces;
+        if (cached != null) {
+            return cached;
+        }
+
+        List<GHNProvinceDTO> fetched = immutable(ghnService.getProvinces());
+        provinces = fetched;
+        dirty = true;
+        return fetched;
+    }
+
+    @Override
+    public List<GHNDistrictDTO> getDistricts(Integer provinceId) {
+        List<GHNDistrictDTO> cached = districtsByProvince.get(provinceId);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<GHNDistrictDTO> fetched = immutable(ghnService.getDistricts(provinceId));
+        districtsByProvince.put(provinceId, fetched);
+        dirty = true;
+        return fetched;
+    }
+
+    @Override
+    public List<GHNWardDTO> getWards(Integer districtId) {
+        List<GHNWardDTO> cached = wardsByDistrict.get(districtId);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<GHNWardDTO> fetched = immutable(ghnService.getWards(districtId));
+        wardsByDistrict.put(districtId, fetched);
+        dirty = true;
+        return fetched;
+    }
+
+    @Scheduled(fixedDelayString = "${ghn.master-data.refresh-interval-ms:86400000}",
+            initialDelayString = "${ghn.master-data.initial-refresh-delay-ms:60000}")
+    public void scheduledRefresh() {
+        LocalDateTime lastRefresh = refreshedAt;
+        long intervalMs = ghnConfig.getMasterData().getRefreshIntervalMs();
+        if (lastRefresh != null && lastRefresh.plus(Duration.ofMillis(intervalMs)).isAfter(LocalDateTime.now())) {
+            return;
+        }
+        if (!refreshQueued.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refresh();
+                } catch (Exception e) {
+                    log.error("GHN master data refresh failed", e);
+                } finally {
+                    refreshQueued.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshQueued.set(false);
+            log.debug("GHN master data refresh executor is shut down, skipping refresh");
+        }
+    }
+
+    /**
+     * Làm mới tuần tự các tỉnh, quận và phường đang có trong cache, nghỉ refreshCallDelayMs giữa các lời gọi.
+     */
+    @Override
+    public synchronized void refresh() {
+        if (!ghnService.isEnabled()) {
+            log.debug("GHN integration is disabled, skipping master data refresh");
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        int failures = 0;
+
+        try {
+            provinces = immutable(ghnService.getProvinces());
+        } catch (Exception e) {
+            failures++;
+            log.warn("Cannot refresh GHN provinces, keeping cached data: {}", e.getMessage());
+        }
+
+        for (Integer provinceId : new ArrayList<>(districtsByProvince.keySet())) {
+            pause();
+            try {
+                districtsByProvince.put(provinceId, immutable(ghnService.getDistricts(provinceId)));
+            } catch (Exception e) {
+                failures++;
+                log.warn("Cannot refresh GHN districts of province {}, keeping cached data: {}",
+                        provinceId, e.getMessage());
+            }
+        }
+
+        for (Integer districtId : new ArrayList<>(wardsByDistrict.keySet())) {
+            pause();
+            try {
+                wardsByDistrict.put(districtId, immutable(ghnService.getWards(districtId)));
+            } catch (Exception e) {
+                failures++;
+                log.warn("Cannot refresh GHN wards of district {}, keeping cached data: {}",
+                        districtId, e.getMessage());
+            }
+        }
+
+        refreshedAt = LocalDateTime.now();
+        dirty = true;
+        writeSnapshotIfDirty();
+
+        log.info("GHN master data refreshed: {} provinces, {} district lists, {} ward lists, {} failures in {} ms",
+                provinces != null ? provinces.size() : 0, districtsByProvince.size(), wardsByDistrict.size(),
+                failures, System.currentTimeMillis() - start);
+    }
+
+    @Scheduled(fixedDelayString = "${ghn.master-data.snapshot-write-interval-ms:60000}")
+    public void writeSnapshotIfDirty() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+
+        GHNMasterDataSnapshotDTO snapshot = GHNMasterDataSnapshotDTO.builder()
+                .refreshedAt(refreshedAt)
+                .provinces(provinces)
+                .districtsByProvince(Map.copyOf(districtsByProvince))
+                .wardsByDistrict(Map.copyOf(wardsByDistrict))
+                .build();
+
+        Path path = snapshotPath();
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            objectMapper.writeValue(tempPath.toFile(), snapshot);
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            log.error("Cannot write GHN master data snapshot to {}", path, e);
+        }
+    }
+
+    @PreDestroy
+    public void onShutdown() {
+        refreshExecutor.shutdownNow();
+        writeSnapshotIfDirty();
+    }
+
+    private void loadSnapshot() {
+        Path path = snapshotPath();
+        if (!Files.isRegularFile(path)) {
+            log.info("No GHN master data snapshot at {}, data will be fetched on first use", path);
+            return;
+        }
+
+        try {
+            GHNMasterDataSnapshotDTO snapshot = objectMapper.readValue(path.toFile(), GHNMasterDataSnapshotDTO.class);
+
+            if (snapshot.getProvinces() != null) {
+                provinces = immutable(snapshot.getProvinces());
+            }
+            if (snapshot.getDistrictsByProvince() != null) {
+                snapshot.getDistrictsByProvince().forEach((id, list) -> districtsByProvince.put(id, immutable(list)));
+            }
+            if (snapshot.getWardsByDistrict() != null) {
+                snapshot.getWardsByDistrict().forEach((id, list) -> wardsByDistrict.put(id, immutable(list)));
+            }
+            refreshedAt = snapshot.getRefreshedAt();
+
+            log.info("GHN master data snapshot loaded from {}: {} district lists, {} ward lists (refreshed at {})",
+                    path, districtsByProvince.size(), wardsByDistrict.size(), refreshedAt);
+        } catch (IOException e) {
+            log.error("Cannot read GHN master data snapshot from {}, data will be fetched on first use", path, e);
+        }
+    }
+
+    private Path snapshotPath() {
+        return Paths.get(ghnConfig.getMasterData().getSnapshotPath());
+    }
+
+    private void pause() {
+        long delayMs = ghnConfig.getMasterData().getRefreshCallDelayMs();
+        if (delayMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static <T> List<T> immutable(List<T> list) {
+        return list != null ? List.copyOf(list) : List.of();
+    }
+}
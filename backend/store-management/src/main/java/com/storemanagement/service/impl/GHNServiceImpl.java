@@ -1,18 +1,26 @@
 package com.storemanagement.service.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.storemanagement.config.CacheConfig;
 import com.storemanagement.config.GHNConfig;
 import com.storemanagement.dto.ghn.*;
 import com.storemanagement.dto.ghn.GHNExpectedDeliveryTimeResponseDTO;
+import com.storemanagement.exception.OutboundCallRejectedException;
 import com.storemanagement.service.GHNService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
 
 @Service
 @Slf4j
@@ -21,13 +29,28 @@ public class GHNServiceImpl implements GHNService {
     private final GHNConfig ghnConfig;
     private final RestTemplate ghnRestTemplate;
     private final ObjectMapper objectMapper;
+    private final CacheManager cacheManager;
 
     public GHNServiceImpl(GHNConfig ghnConfig,
             @Qualifier("ghnRestTemplate") RestTemplate ghnRestTemplate,
-            ObjectMapper objectMapper) {
+            ObjectMapper objectMapper,
+            CacheManager cacheManager) {
         this.ghnConfig = ghnConfig;
         this.ghnRestTemplate = ghnRestTemplate;
         this.objectMapper = objectMapper;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Khóa báo giá phí ship: cùng điểm đến, dịch vụ, bậc khối lượng/kích thước và giá trị bảo hiểm/COD.
+     */
+    private record FeeQuoteKey(Integer fromDistrictId, Integer toDistrictId, String toWardCode,
+            Integer serviceId, Integer serviceTypeId, Integer weight, Integer length, Integer width, Integer height,
+            Integer insuranceValue, Integer codAmount) {
+    }
+
+    private record DeliveryTimeQuoteKey(Integer fromDistrictId, Integer toDistrictId, String toWardCode,
+            Integer serviceId) {
     }
 
     private HttpHeaders buildHeaders() {
@@ -79,6 +102,8 @@ public class GHNServiceImpl implements GHNService {
 
             return responseBody.getData();
 
+        } catch (OutboundCallRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error calling GHN API to get provinces", e);
             throw new RuntimeException("Failed to get provinces from GHN: " + e.getMessage(), e);
@@ -121,6 +146,8 @@ public class GHNServiceImpl implements GHNService {
 
             return responseBody.getData();
 
+        } catch (OutboundCallRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error calling GHN API to get districts", e);
             throw new RuntimeException("Failed to get districts from GHN: " + e.getMessage(), e);
@@ -163,14 +190,83 @@ public class GHNServiceImpl implements GHNService {
 
             return responseBody.getData();
 
+        } catch (OutboundCallRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error calling GHN API to get wards", e);
             throw new RuntimeException("Failed to get wards from GHN: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Báo giá qua cache: khối lượng/kích thước được làm tròn lên theo bậc rồi mới gọi GHN, nên giá trả về
+     * không thấp hơn giá thực. Các request cùng khóa đồng thời chỉ tạo một lời gọi GHN (Caffeine compute),
+     * lỗi không được cache.
+     */
     @Override
     public GHNCalculateFeeResponseDTO calculateShippingFee(GHNCalculateFeeRequestDTO request) {
+        if (!isEnabled() || !ghnConfig.getQuoteCache().isEnabled()) {
+            return fetchShippingFee(request);
+        }
+
+        GHNCalculateFeeRequestDTO bucketed = bucketize(request);
+        FeeQuoteKey key = new FeeQuoteKey(bucketed.getFromDistrictId(), bucketed.getToDistrictId(),
+                bucketed.getToWardCode(), bucketed.getServiceId(), bucketed.getServiceTypeId(),
+                bucketed.getWeight(), bucketed.getLength(), bucketed.getWidth(), bucketed.getHeight(),
+                bucketed.getInsuranceValue(), bucketed.getCodAmount());
+
+        return getQuote(CacheConfig.SHIPPING_FEE_QUOTES, key, () -> fetchShippingFee(bucketed));
+    }
+
+    private GHNCalculateFeeRequestDTO bucketize(GHNCalculateFeeRequestDTO request) {
+        int weightBucket = ghnConfig.getQuoteCache().getWeightBucketGrams();
+        int dimensionBucket = ghnConfig.getQuoteCache().getDimensionBucketCm();
+
+        return GHNCalculateFeeRequestDTO.builder()
+                .fromDistrictId(request.getFromDistrictId())
+                .toDistrictId(request.getToDistrictId())
+                .toWardCode(request.getToWardCode())
+                .weight(roundUp(request.getWeight(), weightBucket))
+                .length(roundUp(request.getLength(), dimensionBucket))
+                .width(roundUp(request.getWidth(), dimensionBucket))
+                .height(roundUp(request.getHeight(), dimensionBucket))
+                .serviceTypeId(request.getServiceTypeId())
+                .serviceId(request.getServiceId())
+                .insuranceValue(request.getInsuranceValue())
+                .codAmount(request.getCodAmount())
+                .build();
+    }
+
+    private static Integer roundUp(Integer value, int bucket) {
+        if (value == null || bucket <= 1 || value <= 0) {
+            return value;
+        }
+        return ((value + bucket - 1) / bucket) * bucket;
+    }
+
+    private <T> T getQuote(String cacheName, Object key, Callable<T> loader) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            try {
+                return loader.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+
+        try {
+            return cache.get(key, loader);
+        } catch (Cache.ValueRetrievalException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private GHNCalculateFeeResponseDTO fetchShippingFee(GHNCalculateFeeRequestDTO request) {
         log.info("Calculating shipping fee from GHN API: fromDistrictId={}, toDistrictId={}, toWardCode={}",
                 request.getFromDistrictId(), request.getToDistrictId(), request.getToWardCode());
 
@@ -218,6 +314,8 @@ public class GHNServiceImpl implements GHNService {
                     } else {
                         log.warn("Cannot auto-select GHN service because fromDistrictId or toDistrictId is null");
                     }
+                } catch (OutboundCallRejectedException e) {
+                    throw e;
                 } catch (Exception e) {
                     log.error("Error fetching GHN shipping services for fee calculation", e);
                 }
@@ -256,6 +354,8 @@ public class GHNServiceImpl implements GHNService {
 
             return responseBody.getData();
 
+        } catch (OutboundCallRejectedException e) {
+            throw e;
         } catch (Exception e) {
 
             if (e instanceof org.springframework.web.client.HttpClientErrorException) {
@@ -318,6 +418,8 @@ public class GHNServiceImpl implements GHNService {
 
             return responseBody.getData();
 
+        } catch (OutboundCallRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error calling GHN API to create order", e);
             throw new RuntimeException("Failed to create GHN order: " + e.getMessage(), e);
@@ -358,6 +460,8 @@ public class GHNServiceImpl implements GHNService {
 
             return responseBody.getData();
 
+        } catch (OutboundCallRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error calling GHN API to get order info", e);
             throw new RuntimeException("Failed to get GHN order info: " + e.getMessage(), e);
@@ -405,6 +509,8 @@ public class GHNServiceImpl implements GHNService {
 
             log.info("Successfully cancelled GHN order: orderCode={}", ghnOrderCode);
 
+        } catch (OutboundCallRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error calling GHN API to cancel order", e);
             throw new RuntimeException("Failed to cancel GHN order: " + e.getMessage(), e);
@@ -452,6 +558,8 @@ public class GHNServiceImpl implements GHNService {
 
             return responseBody.getData();
 
+        } catch (OutboundCallRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error calling GHN API to get shipping services", e);
             throw new RuntimeException("Failed to get shipping services from GHN: " + e.getMessage(), e);
@@ -460,6 +568,20 @@ public class GHNServiceImpl implements GHNService {
 
     @Override
     public String getExpectedDeliveryTime(GHNExpectedDeliveryTimeRequestDTO request) {
+        if (!isEnabled() || !ghnConfig.getQuoteCache().isEnabled()) {
+            return fetchExpectedDeliveryTime(request);
+        }
+
+        DeliveryTimeQuoteKey key = new DeliveryTimeQuoteKey(request.getFromDistrictId(), request.getToDistrictId(),
+                request.getToWardCode(), request.getServiceId());
+
+        // Optional để cache được cả trường hợp GHN không trả leadtime (cache không nhận giá trị null)
+        Optional<String> leadtime = getQuote(CacheConfig.DELIVERY_TIME_QUOTES, key,
+                () -> Optional.ofNullable(fetchExpectedDeliveryTime(request)));
+        return leadtime.orElse(null);
+    }
+
+    private String fetchExpectedDeliveryTime(GHNExpectedDeliveryTimeRequestDTO request) {
         log.info("Getting expected delivery time from GHN: fromDistrictId={}, toDistrictId={}",
                 request.getFromDistrictId(), request.getToDistrictId());
 
@@ -493,6 +615,8 @@ public class GHNServiceImpl implements GHNService {
 
             return responseBody.getData() != null ? responseBody.getData().getLeadtime() : null;
 
+        } catch (OutboundCallRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error calling GHN API to get expected delivery time", e);
             throw new RuntimeException("Failed to get expected delivery time from GHN: " + e.getMessage(), e);
@@ -533,6 +657,8 @@ public class GHNServiceImpl implements GHNService {
 
             return responseBody.getData();
 
+        } catch (OutboundCallRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error calling GHN API to track order", e);
             throw new RuntimeException("Failed to track GHN order: " + e.getMessage(), e);
@@ -571,6 +697,8 @@ public class GHNServiceImpl implements GHNService {
 
             return response.getBody();
 
+        } catch (OutboundCallRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error calling GHN API to print order", e);
             throw new RuntimeException("Failed to print GHN order: " + e.getMessage(), e);
@@ -611,6 +739,8 @@ public class GHNServiceImpl implements GHNService {
 
             log.info("Successfully updated GHN order: orderCode={}", request.getOrderCode());
 
+        } catch (OutboundCallRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error calling GHN API to update order", e);
             throw new RuntimeException("Failed to update GHN order: " + e.getMessage(), e);
@@ -649,10 +779,58 @@ public class GHNServiceImpl implements GHNService {
                         : 0)
                 .note(order.getNotes())
                 .items(ghnItems)
-                .clientOrderCode("ORDER_" + order.getIdOrder())
+                .clientOrderCode(clientOrderCode(order))
                 .build();
 
         GHNCreateOrderResponseDTO response = createOrder(request);
         return response != null ? response.getOrderCode() : null;
     }
+
+    @Override
+    public String findGHNOrderCode(com.storemanagement.model.Order order) {
+        String clientOrderCode = clientOrderCode(order);
+        log.info("Finding GHN order by client code: {}", clientOrderCode);
+
+        if (!isEnabled()) {
+            log.warn("GHN integration is disabled");
+            throw new RuntimeException("GHN integration is disabled");
+        }
+
+        try {
+            String url = ghnConfig.getBaseUrl() + "/shiip/public-api/v2/shipping-order/detail-by-client-code";
+            HttpEntity<Map<String, String>> requestEntity = new HttpEntity<>(
+                    Map.of("client_order_code", clientOrderCode), buildHeaders());
+
+            log.debug("Calling GHN API: POST {}", url);
+
+            ResponseEntity<GHNBaseResponseDTO<GHNOrderInfoDTO>> response = ghnRestTemplate.exchange(
+                    url,
+                    HttpMethod.POST,
+                    requestEntity,
+                    new org.springframework.core.ParameterizedTypeReference<GHNBaseResponseDTO<GHNOrderInfoDTO>>() {
+                    });
+
+            GHNBaseResponseDTO<GHNOrderInfoDTO> responseBody = response.getBody();
+            if (responseBody == null || responseBody.getCode() == null || responseBody.getCode() != 200
+                    || responseBody.getData() == null) {
+                return null;
+            }
+
+            return responseBody.getData().getOrderCode();
+
+        } catch (HttpClientErrorException e) {
+            // GHN trả 4xx khi shop chưa có vận đơn với client_order_code này
+            log.debug("GHN has no order with client code {}: {}", clientOrderCode, e.getMessage());
+            return null;
+        } catch (OutboundCallRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error calling GHN API to find order by client code", e);
+            throw new RuntimeException("Failed to find GHN order by client code: " + e.getMessage(), e);
+        }
+    }
+
+    private static String clientOrderCode(com.storemanagement.model.Order order) {
+        return "ORDER_" + order.getIdOrder();
+    }
 }
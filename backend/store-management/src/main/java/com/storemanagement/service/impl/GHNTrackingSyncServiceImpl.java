@@ -0,0 +1,258 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.config.GHNConfig;
+import com.storemanagement.dto.ghn.GHNOrderInfoDTO;
+import com.storemanagement.dto.ghn.GHNTrackingSyncStatsDTO;
+import com.storemanagement.model.Shipment;
+import com.storemanagement.repository.ShipmentRepository;
+import com.storemanagement.service.GHNService;
+import com.storemanagement.service.GHNTrackingSyncService;
+import com.storemanagement.service.ShipmentService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Đồng bộ nền trạng thái vận đơn GHN để bù các webhook bị lỡ.
+ * Duyệt các vận đơn chưa kết thúc theo trang (keyset id), tra cứu GHN song song có giới hạn
+ * (parallelism + requestsPerSecond), rồi áp dụng kết quả của cả trang trong một transaction.
+ * Mỗi thời điểm chỉ một lượt chạy; lượt gọi chồng lên trả về ngay thống kê hiện tại với running = true.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GHNTrackingSyncServiceImpl implements GHNTrackingSyncService {
+
+    private static final List<Shipment.ShippingStatus> OPEN_STATUSES = List.of(
+            Shipment.ShippingStatus.PREPARING,
+            Shipment.ShippingStatus.PICKING_UP,
+            Shipment.ShippingStatus.SHIPPED);
+
+    private static final List<String> TERMINAL_GHN_STATUSES = List.of(
+            "delivered", "cancel", "returned", "lost", "damage");
+
+    private final ShipmentRepository shipmentRepository;
+    private final ShipmentService shipmentService;
+    private final GHNService ghnService;
+    private final GHNConfig ghnConfig;
+
+    private final AtomicInteger threadCounter = new AtomicInteger();
+    private volatile ExecutorService executor;
+    private RateLimiter rateLimiter;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    // Chỉ được thay thế khi đang giữ syncLock; getStatistics đọc không cần khóa
+    private volatile RunTotals totals = new RunTotals(0, 0, 0, 0, null);
+
+    @Scheduled(fixedDelayString = "${ghn.tracking-sync.interval-ms:300000}",
+            initialDelayString = "${ghn.tracking-sync.interval-ms:300000}")
+    public void scheduledSync() {
+        if (!ghnConfig.getTrackingSync().isEnabled() || !ghnService.isEnabled()) {
+            return;
+        }
+        syncNow();
+    }
+
+    @Override
+    public GHNTrackingSyncStatsDTO syncNow() {
+        if (!ghnService.isEnabled()) {
+            throw new RuntimeException("GHN integration is disabled");
+        }
+        if (!syncLock.tryLock()) {
+            log.info("GHN tracking sync is already running, skipping overlapping run");
+            return getStatistics();
+        }
+        try {
+            runSync();
+        } finally {
+            syncLock.unlock();
+        }
+        return getStatistics();
+    }
+
+    private void runSync() {
+        GHNConfig.TrackingSync config = ghnConfig.getTrackingSync();
+        ensureExecutor(config);
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        LocalDateTime updatedBefore = startedAt.minusSeconds(config.getMinAgeSeconds());
+        long start = System.currentTimeMillis();
+
+        int polled = 0;
+        int changed = 0;
+        int failures = 0;
+        long maxLagSeconds = 0;
+        long totalLagSeconds = 0;
+        int lagSamples = 0;
+
+        Integer afterId = 0;
+        while (true) {
+            List<Object[]> page = shipmentRepository.findTrackingSyncCandidates(afterId, OPEN_STATUSES,
+                    TERMINAL_GHN_STATUSES, updatedBefore, PageRequest.of(0, config.getPageSize()));
+            if (page.isEmpty()) {
+                break;
+            }
+
+            List<Future<GHNOrderInfoDTO>> futures = new ArrayList<>(page.size());
+            for (Object[] row : page) {
+                String ghnOrderCode = (String) row[1];
+                futures.add(executor.submit(() -> {
+                    rateLimiter.acquire();
+                    return ghnService.getOrderInfo(ghnOrderCode);
+                }));
+            }
+
+            Map<Integer, GHNOrderInfoDTO> orderInfos = new HashMap<>();
+            for (int i = 0; i < page.size(); i++) {
+                Object[] row = page.get(i);
+                Integer shipmentId = (Integer) row[0];
+                try {
+                    GHNOrderInfoDTO orderInfo = futures.get(i).get();
+                    if (orderInfo != null && orderInfo.getStatus() != null) {
+                        orderInfos.put(shipmentId, orderInfo);
+                    }
+                } catch (ExecutionException e) {
+                    failures++;
+                    log.warn("Cannot fetch GHN order info for shipment ID: {}: {}", shipmentId,
+                            e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    futures.forEach(future -> future.cancel(true));
+                    throw new RuntimeException("Đồng bộ trạng thái GHN bị gián đoạn", e);
+                }
+
+                LocalDateTime lastUpdate = (LocalDateTime) row[2];
+                if (lastUpdate != null) {
+                    long lagSeconds = Math.max(Duration.between(lastUpdate, LocalDateTime.now()).getSeconds(), 0);
+                    maxLagSeconds = Math.max(maxLagSeconds, lagSeconds);
+                    totalLagSeconds += lagSeconds;
+                    lagSamples++;
+                }
+            }
+
+            polled += page.size();
+            try {
+                changed += shipmentService.applyGHNOrderInfos(orderInfos);
+            } catch (Exception e) {
+                failures += orderInfos.size();
+                log.error("Cannot apply GHN tracking updates for shipments after ID: {}", afterId, e);
+            }
+
+            afterId = (Integer) page.get(page.size() - 1)[0];
+            if (page.size() < config.getPageSize()) {
+                break;
+            }
+        }
+
+        long durationMs = System.currentTimeMillis() - start;
+        GHNTrackingSyncStatsDTO lastRun = GHNTrackingSyncStatsDTO.builder()
+                .lastRunStartedAt(startedAt)
+                .lastRunDurationMs(durationMs)
+                .lastPolled(polled)
+                .lastChanged(changed)
+                .lastFailures(failures)
+                .lastMaxLagSeconds(maxLagSeconds)
+                .lastAverageLagSeconds(lagSamples > 0 ? (double) totalLagSeconds / lagSamples : 0.0)
+                .build();
+
+        RunTotals previous = totals;
+        totals = new RunTotals(previous.runs() + 1, previous.totalPolled() + polled,
+                previous.totalChanged() + changed, previous.totalFailures() + failures, lastRun);
+
+        if (polled > 0) {
+            log.info("GHN tracking sync: polled {} shipments, {} changed, {} failures, max lag {} s in {} ms",
+                    polled, changed, failures, maxLagSeconds, durationMs);
+        }
+    }
+
+    @Override
+    public GHNTrackingSyncStatsDTO getStatistics() {
+        RunTotals snapshot = totals;
+        GHNTrackingSyncStatsDTO last = snapshot.lastRun();
+        GHNTrackingSyncStatsDTO.GHNTrackingSyncStatsDTOBuilder builder = GHNTrackingSyncStatsDTO.builder()
+                .running(syncLock.isLocked())
+                .runs(snapshot.runs())
+                .totalPolled(snapshot.totalPolled())
+                .totalChanged(snapshot.totalChanged())
+                .totalFailures(snapshot.totalFailures());
+
+        if (last != null) {
+            builder.lastRunStartedAt(last.getLastRunStartedAt())
+                    .lastRunDurationMs(last.getLastRunDurationMs())
+                    .lastPolled(last.getLastPolled())
+                    .lastChanged(last.getLastChanged())
+                    .lastFailures(last.getLastFailures())
+                    .lastMaxLagSeconds(last.getLastMaxLagSeconds())
+                    .lastAverageLagSeconds(last.getLastAverageLagSeconds());
+        }
+        return builder.build();
+    }
+
+    @PreDestroy
+    public void onShutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void ensureExecutor(GHNConfig.TrackingSync config) {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.max(config.getParallelism(), 1), runnable -> {
+                Thread thread = new Thread(runnable, "ghn-tracking-sync-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            rateLimiter = new RateLimiter(config.getRequestsPerSecond());
+        }
+    }
+
+    private record RunTotals(long runs, long totalPolled, long totalChanged, long totalFailures,
+                             GHNTrackingSyncStatsDTO lastRun) {
+    }
+
+    /**
+     * Giãn đều các lời gọi: mỗi lần acquire nhận một khe thời gian cách khe trước 1/requestsPerSecond giây.
+     */
+    private static class RateLimiter {
+        private final long intervalNanos;
+        private long nextSlot = System.nanoTime();
+
+        RateLimiter(double requestsPerSecond) {
+            this.intervalNanos = requestsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond) : 0;
+        }
+
+        void acquire() throws InterruptedException {
+            if (intervalNanos == 0) {
+                return;
+            }
+
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long slot = Math.max(nextSlot, now);
+                nextSlot = slot + intervalNanos;
+                waitNanos = slot - now;
+            }
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+    }
+}
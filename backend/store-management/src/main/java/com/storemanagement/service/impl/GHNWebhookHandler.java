@@ -0,0 +1,188 @@
+package com.storemanagement.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.storemanagement.dto.ghn.GHNWebhookDTO;
+import com.storemanagement.model.Order;
+import com.storemanagement.model.Shipment;
+import com.storemanagement.model.WebhookEvent;
+import com.storemanagement.repository.OrderRepository;
+import com.storemanagement.repository.ShipmentRepository;
+import com.storemanagement.service.PaymentSettlementService;
+import com.storemanagement.service.PromotionService;
+import com.storemanagement.service.SalesRollupService;
+import com.storemanagement.service.StockReservationService;
+import com.storemanagement.service.SystemSettingService;
+import com.storemanagement.service.WebhookEventHandler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Xử lý webhook GHN đã được journal: cập nhật trạng thái vận đơn và đơn hàng.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GHNWebhookHandler implements WebhookEventHandler {
+
+    private final ObjectMapper objectMapper;
+    private final ShipmentRepository shipmentRepository;
+    private final OrderRepository orderRepository;
+    private final SystemSettingService systemSettingService;
+    private final SalesRollupService salesRollupService;
+    private final PromotionService promotionService;
+    private final StockReservationService stockReservationService;
+    private final PaymentSettlementService paymentSettlementService;
+
+    @Override
+    public WebhookEvent.Source source() {
+        return WebhookEvent.Source.GHN;
+    }
+
+    @Override
+    @Transactional
+    public void handle(String payload) throws Exception {
+        GHNWebhookDTO webhookDto = objectMapper.readValue(payload, GHNWebhookDTO.class);
+
+        Shipment shipment = shipmentRepository.findByGhnOrderCode(webhookDto.getOrderCode())
+                .orElse(null);
+
+        if (shipment == null) {
+            log.warn("Shipment not found for GHN order code: {}. Ignoring webhook.",
+                    webhookDto.getOrderCode());
+            return;
+        }
+
+        log.info("Found shipment ID: {} for GHN order code: {}",
+                shipment.getIdShipment(), webhookDto.getOrderCode());
+
+        shipment.setGhnStatus(webhookDto.getStatus());
+
+        if (webhookDto.getUpdatedAt() != null && !webhookDto.getUpdatedAt().isEmpty()) {
+            try {
+
+                LocalDateTime updatedAt = LocalDateTime.parse(
+                        webhookDto.getUpdatedAt(),
+                        DateTimeFormatter.ISO_DATE_TIME);
+                shipment.setGhnUpdatedAt(updatedAt);
+            } catch (Exception e) {
+                log.warn("Failed to parse updatedAt: {}. Using current time.",
+                        webhookDto.getUpdatedAt());
+                shipment.setGhnUpdatedAt(LocalDateTime.now());
+            }
+        } else {
+            shipment.setGhnUpdatedAt(LocalDateTime.now());
+        }
+
+        if (webhookDto.getNote() != null && !webhookDto.getNote().isEmpty()) {
+            shipment.setGhnNote(webhookDto.getNote());
+        }
+
+        syncShippingStatus(shipment, webhookDto.getStatus());
+
+        shipmentRepository.save(shipment);
+
+        syncOrderStatus(shipment.getOrder(), webhookDto.getStatus());
+
+        log.info("Successfully processed GHN webhook for order code: {}. New status: {}",
+                webhookDto.getOrderCode(), webhookDto.getStatus());
+    }
+
+    private void syncShippingStatus(Shipment shipment, String ghnStatus) {
+        if (ghnStatus == null || ghnStatus.isEmpty()) {
+            return;
+        }
+
+        Shipment.ShippingStatus newStatus = null;
+
+        switch (ghnStatus) {
+            case "ready_to_pick":
+            case "picking":
+                newStatus = Shipment.ShippingStatus.PREPARING;
+                break;
+
+            case "picked":
+            case "storing":
+            case "transporting":
+            case "sorting":
+            case "delivering":
+            case "money_collect_delivering":
+                newStatus = Shipment.ShippingStatus.SHIPPED;
+                break;
+
+            case "delivered":
+                newStatus = Shipment.ShippingStatus.DELIVERED;
+                break;
+
+            case "cancel":
+            case "delivery_fail":
+            case "return_fail":
+            case "exception":
+            case "damage":
+            case "lost":
+
+                log.warn("GHN order has error status: {}. Shipment ID: {}",
+                        ghnStatus, shipment.getIdShipment());
+                break;
+
+            default:
+                log.warn("Unknown GHN status: {}. Shipment ID: {}",
+                        ghnStatus, shipment.getIdShipment());
+                break;
+        }
+
+        if (newStatus != null && shipment.getShippingStatus() != newStatus) {
+            log.info("Updating shipment shipping status: {} -> {}. Shipment ID: {}",
+                    shipment.getShippingStatus(), newStatus, shipment.getIdShipment());
+            shipment.setShippingStatus(newStatus);
+        }
+    }
+
+    private void syncOrderStatus(Order order, String ghnStatus) {
+        if (order == null || ghnStatus == null || ghnStatus.isEmpty()) {
+            return;
+        }
+
+        if ("delivered".equals(ghnStatus)) {
+            if (order.getStatus() != Order.OrderStatus.COMPLETED) {
+                Order.OrderStatus previousStatus = order.getStatus();
+                LocalDateTime now = LocalDateTime.now();
+                log.info("Updating order status to COMPLETED. Order ID: {}", order.getIdOrder());
+                order.setStatus(Order.OrderStatus.COMPLETED);
+                order.setDeliveredAt(now);
+                order.setCompletedAt(now);
+
+                int returnWindowDays = systemSettingService.getReturnWindowDays();
+                order.setReturnWindowDays(returnWindowDays);
+                log.info("Order COMPLETED: completedAt={}, returnWindowDays={} for order: {}", now, returnWindowDays,
+                        order.getIdOrder());
+                orderRepository.save(order);
+                salesRollupService.recordStatusChange(order, previousStatus);
+
+                if (order.getPaymentMethod() == Order.PaymentMethod.PAYOS) {
+                    // Đơn PAYOS chưa chốt thanh toán đã được giao: chốt phần giữ chỗ thành phiếu xuất kho
+                    stockReservationService.commitReservation(order, "GHN giao hàng thành công");
+                }
+            }
+        } else if ("cancel".equals(ghnStatus)) {
+            if (order.getPaymentMethod() == Order.PaymentMethod.PAYOS
+                    && order.getStatus() == Order.OrderStatus.PENDING) {
+                // Như thanh toán thất bại: khóa đơn, nhả giữ chỗ và lượt dùng mã giảm giá
+                paymentSettlementService.settleCanceled(order.getIdOrder(), "GHN hủy vận đơn");
+            } else if (order.getStatus() == Order.OrderStatus.PENDING ||
+                    order.getStatus() == Order.OrderStatus.CONFIRMED) {
+                Order.OrderStatus previousStatus = order.getStatus();
+                log.info("Updating order status to CANCELED. Order ID: {}", order.getIdOrder());
+                order.setStatus(Order.OrderStatus.CANCELED);
+                orderRepository.save(order);
+                salesRollupService.recordStatusChange(order, previousStatus);
+                promotionService.releasePromotionUsage(order.getIdOrder());
+                stockReservationService.restoreCanceledOrder(order, "GHN hủy vận đơn - hoàn trả hàng vào kho");
+            }
+        }
+    }
+}
@@ -8,8 +8,8 @@ import com.storemanagement.model.*;
 import com.storemanagement.repository.*;
 import com.storemanagement.service.ImportOrderService;
 import com.storemanagement.service.PdfService;
+import com.storemanagement.service.StockReservationService;
 import com.storemanagement.utils.PageUtils;
-import com.storemanagement.utils.ProductStatus;
 import com.storemanagement.utils.ReferenceType;
 import com.storemanagement.utils.TransactionType;
 import jakarta.persistence.EntityNotFoundException;
@@ -39,6 +39,7 @@ public class ImportOrderServiceImpl implements ImportOrderService {
     private final EmployeeRepository employeeRepository;
     private final InventoryTransactionRepository inventoryTransactionRepository;
     private final PdfService pdfService;
+    private final StockReservationService stockReservationService;
 
     /**
      * Tính toán lại totalAmount từ danh sách details.
@@ -165,24 +166,10 @@ public class ImportOrderServiceImpl implements ImportOrderService {
         for (ImportOrderDetail detail : savedOrder.getImportOrderDetails()) {
             Product product = detail.getProduct();
             
-            // Lấy stock quantity hiện tại (nếu null thì = 0)
-            Integer oldStockQuantity = product.getStockQuantity() == null ? 0 : product.getStockQuantity();
-            // Tính stock quantity mới: cũ + số lượng nhập
-            Integer newStockQuantity = oldStockQuantity + detail.getQuantity();
-            
-            // Cập nhật stock quantity
-            product.setStockQuantity(newStockQuantity);
-            
-            // Cập nhật product status nếu cần:
-            // Nếu trước đó là OUT_OF_STOCK và bây giờ có hàng (> 0) -> chuyển sang IN_STOCK
-            if (newStockQuantity > 0 && product.getStatus() == ProductStatus.OUT_OF_STOCK) {
-                product.setStatus(ProductStatus.IN_STOCK);
-            }
-            
-            // Lưu product với stock quantity mới
-            productRepository.save(product);
-            log.info("Updated stock for product {}: {} -> {}", 
-                    product.getIdProduct(), oldStockQuantity, newStockQuantity);
+            // Cộng stock quantity bằng UPDATE atomic (không ghi đè số lượng do checkout song song vừa trừ),
+            // chuyển OUT_OF_STOCK -> IN_STOCK nếu cần và cập nhật giá vốn bình quân của sản phẩm
+            stockReservationService.receiveStock(product, detail.getQuantity(), detail.getImportPrice());
+            log.info("Updated stock for product {}: +{}", product.getIdProduct(), detail.getQuantity());
 
             // Bước 7: Tạo inventory_transaction để track lịch sử nhập/xuất kho
             // Transaction này giúp:
@@ -7,17 +7,20 @@ import com.storemanagement.model.InventoryTransaction;
 import com.storemanagement.repository.InventoryTransactionRepository;
 import com.storemanagement.repository.specification.InventoryTransactionSpecification;
 import com.storemanagement.service.InventoryTransactionService;
+import com.storemanagement.utils.CursorUtils;
 import com.storemanagement.utils.PageUtils;
 import com.storemanagement.utils.TransactionType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -51,6 +54,29 @@ public class InventoryTransactionServiceImpl implements InventoryTransactionServ
                 inventoryTransactionMapper.toDTOList(transactionPage.getContent()));
     }
 
+    @Override
+    public PageResponse<InventoryTransactionDTO> getTransactionsByCursor(Integer productId, String cursor,
+                                                                         int pageSize, boolean withCount) {
+        log.info("Getting inventory transactions by cursor, product ID: {}, size: {}", productId, pageSize);
+
+        CursorUtils.Cursor position = CursorUtils.decode(cursor);
+        List<InventoryTransaction> rows = inventoryTransactionRepository.findAfterCursor(productId,
+                position != null ? position.date() : null,
+                position != null ? position.id() : null,
+                PageRequest.of(0, pageSize + 1));
+
+        Long totalElements = null;
+        if (withCount) {
+            totalElements = productId != null
+                    ? inventoryTransactionRepository.countByProduct_IdProduct(productId)
+                    : inventoryTransactionRepository.count();
+        }
+
+        return PageUtils.toCursorPageResponse(rows, pageSize, inventoryTransactionMapper::toDTOList,
+                transaction -> CursorUtils.encode(transaction.getTransactionDate(), transaction.getIdTransaction()),
+                totalElements);
+    }
+
     @Override
     public PageResponse<InventoryTransactionDTO> getTransactionsByReference(
             com.storemanagement.utils.ReferenceType referenceType,
@@ -7,8 +7,8 @@ import com.storemanagement.mapper.OrderReturnMapper;
 import com.storemanagement.model.*;
 import com.storemanagement.repository.*;
 import com.storemanagement.service.OrderReturnService;
+import com.storemanagement.service.StockReservationService;
 import com.storemanagement.utils.PageUtils;
-import com.storemanagement.utils.ProductStatus;
 import com.storemanagement.utils.ReferenceType;
 import com.storemanagement.utils.TransactionType;
 import jakarta.persistence.EntityNotFoundException;
@@ -38,6 +38,7 @@ public class OrderReturnServiceImpl implements OrderReturnService {
     private final CustomerRepository customerRepository;
     private final EmployeeRepository employeeRepository;
     private final OrderReturnMapper orderReturnMapper;
+    private final StockReservationService stockReservationService;
     // Note: SystemSettingService removed - now using order.returnWindowDays snapshot
 
     @Override
@@ -263,14 +264,7 @@ public class OrderReturnServiceImpl implements OrderReturnService {
         for (OrderReturnItem item : orderReturn.getItems()) {
             Product product = item.getOrderDetail().getProduct();
 
-            int newStock = product.getStockQuantity() + item.getQuantity();
-            product.setStockQuantity(newStock);
-
-            if (product.getStatus() == ProductStatus.OUT_OF_STOCK && newStock > 0) {
-                product.setStatus(ProductStatus.IN_STOCK);
-            }
-
-            productRepository.save(product);
+            stockReservationService.addStock(product, item.getQuantity());
 
             InventoryTransaction tx = InventoryTransaction.builder()
                     .product(product)
@@ -292,12 +286,7 @@ public class OrderReturnServiceImpl implements OrderReturnService {
         for (OrderReturnItem item : orderReturn.getItems()) {
 
             Product oldProduct = item.getOrderDetail().getProduct();
-            int newOldStock = oldProduct.getStockQuantity() + item.getQuantity();
-            oldProduct.setStockQuantity(newOldStock);
-            if (oldProduct.getStatus() == ProductStatus.OUT_OF_STOCK && newOldStock > 0) {
-                oldProduct.setStatus(ProductStatus.IN_STOCK);
-            }
-            productRepository.save(oldProduct);
+            stockReservationService.addStock(oldProduct, item.getQuantity());
 
             InventoryTransaction inTx = InventoryTransaction.builder()
                     .product(oldProduct)
@@ -316,16 +305,7 @@ public class OrderReturnServiceImpl implements OrderReturnService {
                         ? item.getExchangeQuantity()
                         : item.getQuantity();
 
-                if (newProduct.getStockQuantity() < qtyToOut) {
-                    throw new RuntimeException("Sản phẩm đổi không đủ tồn kho");
-                }
-
-                int newNewStock = newProduct.getStockQuantity() - qtyToOut;
-                newProduct.setStockQuantity(newNewStock);
-                if (newNewStock == 0) {
-                    newProduct.setStatus(ProductStatus.OUT_OF_STOCK);
-                }
-                productRepository.save(newProduct);
+                stockReservationService.deductStock(newProduct, qtyToOut);
 
                 InventoryTransaction outTx = InventoryTransaction.builder()
                         .product(newProduct)
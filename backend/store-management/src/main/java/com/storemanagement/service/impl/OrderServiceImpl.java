@@ -10,10 +10,15 @@ import com.storemanagement.repository.*;
 import com.storemanagement.service.CartService;
 import com.storemanagement.service.CustomerService;
 import com.storemanagement.service.GHNService;
+import com.storemanagement.service.ShipmentOutboxService;
 import com.storemanagement.service.OrderService;
 import com.storemanagement.service.PdfService;
 import com.storemanagement.service.PromotionService;
+import com.storemanagement.service.PromotionRuleIndexService;
+import com.storemanagement.service.SalesRollupService;
+import com.storemanagement.service.StockReservationService;
 import com.storemanagement.service.SystemSettingService;
+import com.storemanagement.utils.CursorUtils;
 import com.storemanagement.utils.PageUtils;
 import com.storemanagement.utils.ProductStatus;
 import com.storemanagement.utils.ReferenceType;
@@ -23,6 +28,7 @@ import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -48,14 +54,18 @@ public class OrderServiceImpl implements OrderService {
     private final EmployeeRepository employeeRepository;
     private final ProductRepository productRepository;
     private final ShippingAddressRepository shippingAddressRepository;
-    private final InventoryTransactionRepository inventoryTransactionRepository;
+    private final OrderBatchRepository orderBatchRepository;
     private final ShipmentRepository shipmentRepository;
     private final EntityManager entityManager;
     private final GHNService ghnService;
     private final PromotionService promotionService;
     private final PromotionRepository promotionRepository;
     private final PromotionRuleRepository promotionRuleRepository;
+    private final PromotionRuleIndexService promotionRuleIndexService;
     private final SystemSettingService systemSettingService;
+    private final StockReservationService stockReservationService;
+    private final ShipmentOutboxService shipmentOutboxService;
+    private final SalesRollupService salesRollupService;
 
     @Override
     @Transactional(readOnly = true)
@@ -140,11 +150,11 @@ public class OrderServiceImpl implements OrderService {
         if (promotionCode != null && !promotionCode.trim().isEmpty()) {
             promotion = promotionRepository.findByCodeAndIsActiveTrue(promotionCode.trim()).orElse(null);
         } else {
-            LocalDateTime now = LocalDateTime.now();
-            List<PromotionRule> rules = promotionRuleRepository.findApplicableRules(now, totalAmount, customerType);
-            if (!rules.isEmpty()) {
-                promotionRule = rules.get(0);
-            }
+            // Cùng rule mà calculateDiscountForOrder vừa chọn từ index; chỉ cần reference để gắn vào đơn
+            promotionRule = promotionRuleIndexService.findBestRule(PromotionRule.PromotionScope.ORDER, totalAmount,
+                    customerType, LocalDateTime.now())
+                    .map(rule -> promotionRuleRepository.getReferenceById(rule.idRule()))
+                    .orElse(null);
         }
 
         Order order = Order.builder()
@@ -183,47 +193,19 @@ public class OrderServiceImpl implements OrderService {
                     .build();
 
             order.getOrderDetails().add(orderDetail);
-
-            if (request.getPaymentMethod() != Order.PaymentMethod.PAYOS) {
-                product.setStockQuantity(product.getStockQuantity() - cartItem.getQuantity());
-
-                if (product.getStockQuantity() == 0) {
-                    product.setStatus(ProductStatus.OUT_OF_STOCK);
-                }
-
-                productRepository.save(product);
-            } else {
-                log.info("Payment method is PAYOS. Stock will be deducted when payment is confirmed via webhook.");
-            }
         }
 
-        Order savedOrder = orderRepository.save(order);
+        Order savedOrder = saveOrderWithDetails(order);
 
-        entityManager.refresh(savedOrder);
+        reserveOrDeductStock(savedOrder);
 
         if (promotion != null && savedOrder.getIdOrder() != null) {
-            try {
-                promotionService.recordPromotionUsage(promotion.getIdPromotion(), savedOrder.getIdOrder(), customerId);
-                log.info("Promotion usage recorded for order ID: {}, promotion ID: {}", savedOrder.getIdOrder(),
-                        promotion.getIdPromotion());
-            } catch (Exception e) {
-                log.error("Error recording promotion usage for order ID: {}", savedOrder.getIdOrder(), e);
-            }
+            // Hết lượt dùng mã sẽ làm rollback cả đơn hàng
+            promotionService.recordPromotionUsage(promotion.getIdPromotion(), savedOrder.getIdOrder(), customerId);
         }
 
         if (request.getPaymentMethod() != Order.PaymentMethod.PAYOS) {
-            for (OrderDetail orderDetail : savedOrder.getOrderDetails()) {
-                InventoryTransaction transaction = InventoryTransaction.builder()
-                        .product(orderDetail.getProduct())
-                        .transactionType(TransactionType.OUT)
-                        .quantity(orderDetail.getQuantity())
-                        .referenceType(ReferenceType.SALE_ORDER)
-                        .referenceId(savedOrder.getIdOrder())
-                        .notes("Đơn hàng từ khách hàng")
-                        .transactionDate(LocalDateTime.now())
-                        .build();
-                inventoryTransactionRepository.save(transaction);
-            }
+            saveSaleTransactions(savedOrder, "Đơn hàng từ khách hàng");
         } else {
             log.info(
                     "Payment method is PAYOS. Inventory transactions will be created when payment is confirmed via webhook.");
@@ -305,11 +287,11 @@ public class OrderServiceImpl implements OrderService {
         if (promotionCode != null && !promotionCode.trim().isEmpty()) {
             promotion = promotionRepository.findByCodeAndIsActiveTrue(promotionCode.trim()).orElse(null);
         } else {
-            LocalDateTime now = LocalDateTime.now();
-            List<PromotionRule> rules = promotionRuleRepository.findApplicableRules(now, totalAmount, customerType);
-            if (!rules.isEmpty()) {
-                promotionRule = rules.get(0);
-            }
+            // Cùng rule mà calculateDiscountForOrder vừa chọn từ index; chỉ cần reference để gắn vào đơn
+            promotionRule = promotionRuleIndexService.findBestRule(PromotionRule.PromotionScope.ORDER, totalAmount,
+                    customerType, LocalDateTime.now())
+                    .map(rule -> promotionRuleRepository.getReferenceById(rule.idRule()))
+                    .orElse(null);
         }
 
         Order order = Order.builder()
@@ -346,41 +328,17 @@ public class OrderServiceImpl implements OrderService {
 
         order.getOrderDetails().add(orderDetail);
 
-        if (request.getPaymentMethod() != Order.PaymentMethod.PAYOS) {
-            product.setStockQuantity(product.getStockQuantity() - request.getQuantity());
-            if (product.getStockQuantity() == 0) {
-                product.setStatus(ProductStatus.OUT_OF_STOCK);
-            }
-            productRepository.save(product);
-        } else {
-            log.info("Payment method is PAYOS. Stock will be deducted when payment is confirmed via webhook.");
-        }
-
-        Order savedOrder = orderRepository.save(order);
+        Order savedOrder = saveOrderWithDetails(order);
 
-        entityManager.refresh(savedOrder);
+        reserveOrDeductStock(savedOrder);
 
         if (promotion != null && savedOrder.getIdOrder() != null) {
-            try {
-                promotionService.recordPromotionUsage(promotion.getIdPromotion(), savedOrder.getIdOrder(), customerId);
-                log.info("Promotion usage recorded for order ID: {}, promotion ID: {}", savedOrder.getIdOrder(),
-                        promotion.getIdPromotion());
-            } catch (Exception e) {
-                log.error("Error recording promotion usage for order ID: {}", savedOrder.getIdOrder(), e);
-            }
+            // Hết lượt dùng mã sẽ làm rollback cả đơn hàng
+            promotionService.recordPromotionUsage(promotion.getIdPromotion(), savedOrder.getIdOrder(), customerId);
         }
 
         if (request.getPaymentMethod() != Order.PaymentMethod.PAYOS) {
-            InventoryTransaction transaction = InventoryTransaction.builder()
-                    .product(product)
-                    .transactionType(TransactionType.OUT)
-                    .quantity(request.getQuantity())
-                    .referenceType(ReferenceType.SALE_ORDER)
-                    .referenceId(savedOrder.getIdOrder())
-                    .notes("Đơn hàng từ khách hàng (Buy Now)")
-                    .transactionDate(LocalDateTime.now())
-                    .build();
-            inventoryTransactionRepository.save(transaction);
+            saveSaleTransactions(savedOrder, "Đơn hàng từ khách hàng (Buy Now)");
         } else {
             log.info(
                     "Payment method is PAYOS. Inventory transactions will be created when payment is confirmed via webhook.");
@@ -441,31 +399,11 @@ public class OrderServiceImpl implements OrderService {
             throw new RuntimeException("Chỉ có thể hủy đơn hàng ở trạng thái PENDING");
         }
 
-        for (OrderDetail detail : order.getOrderDetails()) {
-            Product product = detail.getProduct();
-
-            product.setStockQuantity(product.getStockQuantity() + detail.getQuantity());
-
-            if (product.getStatus() == ProductStatus.OUT_OF_STOCK && product.getStockQuantity() > 0) {
-                product.setStatus(ProductStatus.IN_STOCK);
-            }
-
-            productRepository.save(product);
-
-            InventoryTransaction transaction = InventoryTransaction.builder()
-                    .product(product)
-                    .transactionType(TransactionType.IN)
-                    .quantity(detail.getQuantity())
-                    .referenceType(ReferenceType.SALE_ORDER)
-                    .referenceId(order.getIdOrder())
-                    .notes("Hủy đơn hàng - hoàn trả hàng vào kho")
-                    .transactionDate(LocalDateTime.now())
-                    .build();
-            inventoryTransactionRepository.save(transaction);
-        }
+        restoreStockForCanceledOrder(order, "Hủy đơn hàng - hoàn trả hàng vào kho");
 
         order.setStatus(Order.OrderStatus.CANCELED);
         Order savedOrder = orderRepository.save(order);
+        salesRollupService.recordStatusChange(savedOrder, Order.OrderStatus.PENDING);
 
         log.info("Order cancelled successfully: {}", orderId);
 
@@ -589,42 +527,82 @@ public class OrderServiceImpl implements OrderService {
                     .build();
 
             order.getOrderDetails().add(orderDetail);
+        }
 
-            product.setStockQuantity(product.getStockQuantity() - item.getQuantity());
-            if (product.getStockQuantity() == 0) {
-                product.setStatus(ProductStatus.OUT_OF_STOCK);
-            }
-            productRepository.save(product);
+        Order savedOrder = saveOrderWithDetails(order);
+
+        stockReservationService.deductStock(savedOrder);
+
+        String transactionNote = employee != null
+                ? "Đơn hàng từ nhân viên cho khách hàng"
+                : "Đơn hàng từ admin cho khách hàng";
+        saveSaleTransactions(savedOrder, transactionNote);
+
+        if (savedOrder.getShippingAddress() != null) {
+            createShipmentAndIntegrateGHN(savedOrder, savedOrder.getShippingAddress(), totalAmount);
+        }
+
+        log.info("Order created successfully for customer by employee: {}", savedOrder.getIdOrder());
+
+        return orderMapper.toDTO(savedOrder);
+    }
+
+    private void reserveOrDeductStock(Order order) {
+        if (order.getPaymentMethod() == Order.PaymentMethod.PAYOS) {
+            log.info("Payment method is PAYOS. Stock is reserved until payment is confirmed via webhook.");
+            stockReservationService.reserveStock(order);
+        } else {
+            stockReservationService.deductStock(order);
         }
+    }
+
+    private void restoreStockForCanceledOrder(Order order, String note) {
+        promotionService.releasePromotionUsage(order.getIdOrder());
+        stockReservationService.restoreCanceledOrder(order, note);
+    }
+
+    /**
+     * Lưu đơn hàng: INSERT orders qua JPA (cần id sinh tự động), order_details qua một JDBC batch.
+     * final_amount là cột generated nên được tính sẵn trong bộ nhớ thay vì refresh lại cả đơn.
+     * Đơn được detach khỏi persistence context để Hibernate không cascade persist lại các details.
+     */
+    private Order saveOrderWithDetails(Order order) {
+        List<OrderDetail> orderDetails = order.getOrderDetails();
+        order.setOrderDetails(new ArrayList<>());
+        order.setFinalAmount(calculateFinalAmount(order));
 
         Order savedOrder = orderRepository.save(order);
+        entityManager.flush();
+        entityManager.detach(savedOrder);
 
-        entityManager.refresh(savedOrder);
+        orderBatchRepository.insertOrderDetails(orderDetails);
+        savedOrder.setOrderDetails(orderDetails);
+        salesRollupService.recordOrderCreated(savedOrder);
+        return savedOrder;
+    }
 
-        for (OrderDetail orderDetail : savedOrder.getOrderDetails()) {
-            String transactionNote = employee != null
-                    ? "Đơn hàng từ nhân viên cho khách hàng"
-                    : "Đơn hàng từ admin cho khách hàng";
+    // Khớp với công thức cột generated orders.final_amount (V29)
+    private BigDecimal calculateFinalAmount(Order order) {
+        BigDecimal total = order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO;
+        BigDecimal shippingFee = order.getShippingFee() != null ? order.getShippingFee() : BigDecimal.ZERO;
+        BigDecimal discount = order.getDiscount() != null ? order.getDiscount() : BigDecimal.ZERO;
+        return total.add(shippingFee).subtract(discount).max(BigDecimal.ZERO);
+    }
 
-            InventoryTransaction transaction = InventoryTransaction.builder()
+    private void saveSaleTransactions(Order order, String note) {
+        List<InventoryTransaction> transactions = new ArrayList<>();
+        for (OrderDetail orderDetail : order.getOrderDetails()) {
+            transactions.add(InventoryTransaction.builder()
                     .product(orderDetail.getProduct())
                     .transactionType(TransactionType.OUT)
                     .quantity(orderDetail.getQuantity())
                     .referenceType(ReferenceType.SALE_ORDER)
-                    .referenceId(savedOrder.getIdOrder())
-                    .notes(transactionNote)
+                    .referenceId(order.getIdOrder())
+                    .notes(note)
                     .transactionDate(LocalDateTime.now())
-                    .build();
-            inventoryTransactionRepository.save(transaction);
-        }
-
-        if (savedOrder.getShippingAddress() != null) {
-            createShipmentAndIntegrateGHN(savedOrder, savedOrder.getShippingAddress(), totalAmount);
+                    .build());
         }
-
-        log.info("Order created successfully for customer by employee: {}", savedOrder.getIdOrder());
-
-        return orderMapper.toDTO(savedOrder);
+        orderBatchRepository.insertInventoryTransactions(transactions);
     }
 
     private String buildAddressSnapshot(ShippingAddress address) {
@@ -668,6 +646,7 @@ public class OrderServiceImpl implements OrderService {
 
         Order savedOrder = orderRepository.save(order);
         shipmentRepository.save(shipment);
+        salesRollupService.recordStatusChange(savedOrder, Order.OrderStatus.CONFIRMED);
 
         log.info("Delivery confirmed successfully for order: {}", orderId);
 
@@ -694,6 +673,24 @@ public class OrderServiceImpl implements OrderService {
         return PageUtils.toPageResponse(orderPage, orderMapper.toDTOList(orderPage.getContent()));
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public PageResponse<OrderDTO> getAllOrdersByCursor(Order.OrderStatus status, Integer customerId, String cursor,
+            int pageSize, boolean withCount) {
+        log.info("Getting orders by cursor - status: {}, customerId: {}, pageSize: {}", status, customerId, pageSize);
+
+        CursorUtils.Cursor position = CursorUtils.decode(cursor);
+        List<Order> rows = orderRepository.findByFiltersAfterCursor(customerId, status,
+                position != null ? position.date() : null,
+                position != null ? position.id() : null,
+                PageRequest.of(0, pageSize + 1));
+
+        Long totalElements = withCount ? orderRepository.countByFilters(customerId, status) : null;
+
+        return PageUtils.toCursorPageResponse(rows, pageSize, orderMapper::toDTOList,
+                order -> CursorUtils.encode(order.getOrderDate(), order.getIdOrder()), totalElements);
+    }
+
     @Override
     public OrderDTO updateOrderStatus(Integer orderId, Order.OrderStatus newStatus) {
         log.info("Updating order status: orderId={}, newStatus={}", orderId, newStatus);
@@ -721,28 +718,7 @@ public class OrderServiceImpl implements OrderService {
         }
 
         if (newStatus == Order.OrderStatus.CANCELED) {
-            for (OrderDetail detail : order.getOrderDetails()) {
-                Product product = detail.getProduct();
-
-                product.setStockQuantity(product.getStockQuantity() + detail.getQuantity());
-
-                if (product.getStatus() == ProductStatus.OUT_OF_STOCK && product.getStockQuantity() > 0) {
-                    product.setStatus(ProductStatus.IN_STOCK);
-                }
-
-                productRepository.save(product);
-
-                InventoryTransaction transaction = InventoryTransaction.builder()
-                        .product(product)
-                        .transactionType(TransactionType.IN)
-                        .quantity(detail.getQuantity())
-                        .referenceType(ReferenceType.SALE_ORDER)
-                        .referenceId(order.getIdOrder())
-                        .notes("Hủy đơn hàng bởi Admin/Employee - hoàn trả hàng vào kho")
-                        .transactionDate(LocalDateTime.now())
-                        .build();
-                inventoryTransactionRepository.save(transaction);
-            }
+            restoreStockForCanceledOrder(order, "Hủy đơn hàng bởi Admin/Employee - hoàn trả hàng vào kho");
         }
 
         order.setStatus(newStatus);
@@ -758,6 +734,7 @@ public class OrderServiceImpl implements OrderService {
         }
 
         Order savedOrder = orderRepository.save(order);
+        salesRollupService.recordStatusChange(savedOrder, currentStatus);
 
         log.info("Order status updated successfully: orderId={}, oldStatus={}, newStatus={}",
                 orderId, currentStatus, newStatus);
@@ -780,17 +757,11 @@ public class OrderServiceImpl implements OrderService {
                 .shippingMethod(Shipment.ShippingMethod.GHN)
                 .build();
 
+        shipmentRepository.save(shipment);
+
+        // Vận đơn GHN được tạo bất đồng bộ bởi outbox dispatcher sau khi transaction checkout commit
         if (ghnService.isEnabled() && shippingAddress != null) {
-            try {
-                String ghnOrderCode = ghnService.createGHNOrder(order, shippingAddress);
-                shipment.setTrackingNumber(ghnOrderCode);
-                shipment.setShippingStatus(Shipment.ShippingStatus.PICKING_UP);
-                log.info("GHN order created successfully: {}", ghnOrderCode);
-            } catch (Exception e) {
-                log.error("Failed to create GHN order for order ID: {}", order.getIdOrder(), e);
-            }
+            shipmentOutboxService.enqueue(order);
         }
-
-        shipmentRepository.save(shipment);
     }
 }
@@ -0,0 +1,281 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.config.OutboundHttpProperties;
+import com.storemanagement.dto.integration.OutboundCallStatsDTO;
+import com.storemanagement.exception.OutboundCallRejectedException;
+import com.storemanagement.service.OutboundCallGuard;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboundCallGuardImpl implements OutboundCallGuard {
+
+    private static final long[] LATENCY_BUCKETS_MS = { 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+    private final OutboundHttpProperties outboundHttpProperties;
+
+    private final Map<String, IntegrationGuard> guards = new ConcurrentHashMap<>();
+    private final Map<String, EndpointMetrics> metrics = new ConcurrentHashMap<>();
+
+    @Override
+    public <T, E extends Exception> T execute(String integration, String endpoint, GuardedCall<T, E> call,
+                                              Predicate<T> failureResult) throws E {
+        IntegrationGuard guard = guards.computeIfAbsent(integration,
+                name -> new IntegrationGuard(name, outboundHttpProperties.getIntegration(name)));
+        EndpointMetrics endpointMetrics = metrics.computeIfAbsent(integration + " " + endpoint,
+                key -> new EndpointMetrics(integration, endpoint));
+
+        long generation = guard.circuitBreaker.tryAcquire(System.currentTimeMillis());
+        if (generation < 0) {
+            endpointMetrics.rejected.increment();
+            throw new OutboundCallRejectedException(
+                    "Dịch vụ " + integration + " tạm thời không khả dụng, vui lòng thử lại sau");
+        }
+
+        if (!guard.tryEnterBulkhead()) {
+            guard.circuitBreaker.onRejected(generation);
+            endpointMetrics.rejected.increment();
+            throw new OutboundCallRejectedException(
+                    "Dịch vụ " + integration + " đang quá tải, vui lòng thử lại sau");
+        }
+
+        long start = System.nanoTime();
+        boolean failure = true;
+        try {
+            T result = call.call();
+            failure = failureResult.test(result);
+            return result;
+        } finally {
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            guard.bulkhead.release();
+            guard.circuitBreaker.onResult(generation, failure, System.currentTimeMillis());
+            endpointMetrics.record(elapsedMs, failure);
+        }
+    }
+
+    @Override
+    public List<OutboundCallStatsDTO> getStatistics() {
+        List<OutboundCallStatsDTO> statistics = new ArrayList<>();
+        for (EndpointMetrics endpointMetrics : metrics.values()) {
+            IntegrationGuard guard = guards.get(endpointMetrics.integration);
+            statistics.add(endpointMetrics.toDTO(guard != null ? guard.circuitBreaker.state().name() : null));
+        }
+        statistics.sort(Comparator.comparing(OutboundCallStatsDTO::getIntegration)
+                .thenComparing(OutboundCallStatsDTO::getEndpoint));
+        return statistics;
+    }
+
+    private static class IntegrationGuard {
+        private final OutboundHttpProperties.Integration config;
+        private final Semaphore bulkhead;
+        private final CircuitBreaker circuitBreaker;
+
+        IntegrationGuard(String name, OutboundHttpProperties.Integration config) {
+            this.config = config;
+            this.bulkhead = new Semaphore(config.getMaxConcurrentCalls());
+            this.circuitBreaker = new CircuitBreaker(name, config);
+        }
+
+        boolean tryEnterBulkhead() {
+            try {
+                return config.getMaxWaitMs() <= 0
+                        ? bulkhead.tryAcquire()
+                        : bulkhead.tryAcquire(config.getMaxWaitMs(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Circuit breaker đếm theo cửa sổ N lời gọi gần nhất.
+     * CLOSED -> OPEN khi tỷ lệ lỗi vượt ngưỡng; OPEN -> HALF_OPEN sau openStateDuration;
+     * HALF_OPEN cho qua một số lời gọi thử: tất cả thành công thì đóng lại, một lỗi thì mở lại.
+     * Mỗi lần chuyển trạng thái tăng generation; kết quả của lời gọi được cho qua ở generation trước
+     * (vd. gọi lúc CLOSED nhưng xong khi đã HALF_OPEN) bị bỏ qua, không tính là lời gọi thử.
+     */
+    private static class CircuitBreaker {
+
+        enum State { CLOSED, OPEN, HALF_OPEN }
+
+        private final String name;
+        private final OutboundHttpProperties.Integration config;
+        private final boolean[] window;
+
+        private State state = State.CLOSED;
+        private long generation;
+        private int windowIndex;
+        private int recorded;
+        private int failures;
+        private long openedAt;
+        private int halfOpenCalls;
+        private int halfOpenSuccesses;
+
+        CircuitBreaker(String name, OutboundHttpProperties.Integration config) {
+            this.name = name;
+            this.config = config;
+            this.window = new boolean[Math.max(config.getSlidingWindowSize(), 1)];
+        }
+
+        synchronized State state() {
+            return state;
+        }
+
+        /**
+         * @return generation hiện tại nếu lời gọi được phép, -1 nếu bị từ chối
+         */
+        synchronized long tryAcquire(long now) {
+            if (state == State.OPEN) {
+                if (now - openedAt < config.getOpenStateDurationMs()) {
+                    return -1;
+                }
+                state = State.HALF_OPEN;
+                generation++;
+                halfOpenCalls = 0;
+                halfOpenSuccesses = 0;
+                log.info("Circuit breaker {} is HALF_OPEN", name);
+            }
+
+            if (state == State.HALF_OPEN) {
+                if (halfOpenCalls >= config.getHalfOpenPermittedCalls()) {
+                    return -1;
+                }
+                halfOpenCalls++;
+            }
+            return generation;
+        }
+
+        synchronized void onRejected(long callGeneration) {
+            // Lời gọi thử bị bulkhead chặn thì trả lại suất thử
+            if (callGeneration == generation && state == State.HALF_OPEN && halfOpenCalls > 0) {
+                halfOpenCalls--;
+            }
+        }
+
+        synchronized void onResult(long callGeneration, boolean failure, long now) {
+            if (callGeneration != generation) {
+                return;
+            }
+
+            if (state == State.HALF_OPEN) {
+                if (failure) {
+                    open(now);
+                } else if (++halfOpenSuccesses >= config.getHalfOpenPermittedCalls()) {
+                    close();
+                }
+                return;
+            }
+
+            if (state == State.OPEN) {
+                return;
+            }
+
+            if (recorded == window.length) {
+                if (window[windowIndex]) {
+                    failures--;
+                }
+            } else {
+                recorded++;
+            }
+            window[windowIndex] = failure;
+            if (failure) {
+                failures++;
+            }
+            windowIndex = (windowIndex + 1) % window.length;
+
+            if (recorded >= config.getMinimumCalls()
+                    && failures * 100L >= (long) config.getFailureRateThreshold() * recorded) {
+                open(now);
+            }
+        }
+
+        private void open(long now) {
+            state = State.OPEN;
+            generation++;
+            openedAt = now;
+            log.warn("Circuit breaker {} is OPEN ({} failures in last {} calls)", name, failures, recorded);
+        }
+
+        private void close() {
+            state = State.CLOSED;
+            generation++;
+            windowIndex = 0;
+            recorded = 0;
+            failures = 0;
+            log.info("Circuit breaker {} is CLOSED", name);
+        }
+    }
+
+    private static class EndpointMetrics {
+        private final String integration;
+        private final String endpoint;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder totalLatencyMs = new LongAdder();
+        private final LongAccumulator maxLatencyMs = new LongAccumulator(Math::max, 0);
+        private final LongAdder[] buckets = new LongAdder[LATENCY_BUCKETS_MS.length + 1];
+
+        EndpointMetrics(String integration, String endpoint) {
+            this.integration = integration;
+            this.endpoint = endpoint;
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long elapsedMs, boolean failure) {
+            calls.increment();
+            if (failure) {
+                errors.increment();
+            }
+            totalLatencyMs.add(elapsedMs);
+            maxLatencyMs.accumulate(elapsedMs);
+
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKETS_MS.length && elapsedMs > LATENCY_BUCKETS_MS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+        }
+
+        OutboundCallStatsDTO toDTO(String circuitState) {
+            long callCount = calls.sum();
+
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < LATENCY_BUCKETS_MS.length; i++) {
+                histogram.put("<=" + LATENCY_BUCKETS_MS[i] + "ms", buckets[i].sum());
+            }
+            histogram.put(">" + LATENCY_BUCKETS_MS[LATENCY_BUCKETS_MS.length - 1] + "ms",
+                    buckets[LATENCY_BUCKETS_MS.length].sum());
+
+            return OutboundCallStatsDTO.builder()
+                    .integration(integration)
+                    .endpoint(endpoint)
+                    .circuitState(circuitState)
+                    .calls(callCount)
+                    .errors(errors.sum())
+                    .rejected(rejected.sum())
+                    .averageLatencyMs(callCount > 0 ? (double) totalLatencyMs.sum() / callCount : 0.0)
+                    .maxLatencyMs(maxLatencyMs.get())
+                    .latencyHistogram(histogram)
+                    .build();
+        }
+    }
+}
@@ -2,8 +2,12 @@ package com.storemanagement.service.impl;
 
 import com.storemanagement.config.PayOSConfig;
 import com.storemanagement.dto.payos.*;
+import com.storemanagement.exception.OutboundCallRejectedException;
 import com.storemanagement.model.Order;
+import com.storemanagement.model.OrderDetail;
+import com.storemanagement.service.OutboundCallGuard;
 import com.storemanagement.service.PayOSService;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -15,7 +19,6 @@ import vn.payos.model.v2.paymentRequests.PaymentLink;
 import vn.payos.model.v2.paymentRequests.PaymentLinkItem;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -23,8 +26,11 @@ import java.util.List;
 @Slf4j
 public class PayOSServiceImpl implements PayOSService {
 
+    private static final String PAYOS_INTEGRATION = "payos";
+
     private final PayOSConfig payOSConfig;
     private final PayOS payOS;
+    private final OutboundCallGuard outboundCallGuard;
 
     @Override
     public PayOSPaymentResponseDTO createPaymentLink(Order order) {
@@ -48,50 +54,13 @@ public class PayOSServiceImpl implements PayOSService {
             String returnUrl = baseReturnUrl + "?orderId=" + order.getIdOrder();
             String cancelUrl = baseCancelUrl + "?orderId=" + order.getIdOrder();
 
-            CreatePaymentLinkRequest.CreatePaymentLinkRequestBuilder builder =
-                    CreatePaymentLinkRequest.builder()
-                            .orderCode(orderCode)
-                            .amount(amount)
-                            .description(description)
-                            .cancelUrl(cancelUrl)
-                            .returnUrl(returnUrl);
-
-            if (order.getOrderDetails() != null && !order.getOrderDetails().isEmpty()) {
-                boolean hasDiscount = order.getDiscount() != null
-                        && order.getDiscount().compareTo(BigDecimal.ZERO) > 0;
-
-                if (hasDiscount) {
-                    String itemName = "Đơn hàng #" + order.getIdOrder();
-                    PaymentLinkItem item = PaymentLinkItem.builder()
-                            .name(itemName)
-                            .price(amount)
-                            .quantity(1)
-                            .build();
-                    builder.item(item);
-                } else {
-                    order.getOrderDetails().forEach(orderDetail -> {
-                        String productName = orderDetail.getProductNameSnapshot() != null ?
-                                orderDetail.getProductNameSnapshot() :
-                                (orderDetail.getProduct() != null ? orderDetail.getProduct().getProductName()
-                                        : "Product");
-                        Long itemPrice = orderDetail.getPrice().longValue();
-                        int quantity = orderDetail.getQuantity();
-
-                        PaymentLinkItem item = PaymentLinkItem.builder()
-                                .name(productName)
-                                .price(itemPrice)
-                                .quantity(quantity)
-                                .build();
-                        builder.item(item);
-                    });
-                }
-            }
-
-            CreatePaymentLinkRequest paymentRequest = builder.build();
+            CreatePaymentLinkRequest paymentRequest = buildPaymentLinkRequest(order, orderCode, amount, description,
+                    returnUrl, cancelUrl);
 
             log.debug("Calling PayOS SDK paymentRequests().create for orderCode: {}", orderCode);
 
-            CreatePaymentLinkResponse response = payOS.paymentRequests().create(paymentRequest);
+            CreatePaymentLinkResponse response = outboundCallGuard.execute(PAYOS_INTEGRATION, "paymentRequests.create",
+                    () -> payOS.paymentRequests().create(paymentRequest));
 
             PayOSPaymentDataDTO dataDto = PayOSPaymentDataDTO.builder()
                     .paymentLinkId(response.getPaymentLinkId())
@@ -116,145 +85,75 @@ public class PayOSServiceImpl implements PayOSService {
 
             return responseDto;
 
+        } catch (OutboundCallRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error creating PayOS payment link for order ID: {} using SDK", order.getIdOrder(), e);
             throw new RuntimeException("Failed to create PayOS payment link: " + e.getMessage(), e);
         }
     }
 
-    private Object buildPaymentData(Order order) {
-
-        Long orderCode = Long.valueOf(order.getIdOrder());
-
-        Long amount = order.getFinalAmount().longValue();
-
-        String description = "Thanh toan don hang #" + order.getIdOrder();
-
-        List<Object> items = new ArrayList<>();
-        if (order.getOrderDetails() != null && !order.getOrderDetails().isEmpty()) {
-            for (var orderDetail : order.getOrderDetails()) {
-
-                String productName = orderDetail.getProductNameSnapshot() != null ?
-                    orderDetail.getProductNameSnapshot() :
-                    (orderDetail.getProduct() != null ? orderDetail.getProduct().getProductName() : "Product");
-
-                Long itemPrice = orderDetail.getPrice().longValue();
-
-                try {
-                    Class<?> itemDataClass = Class.forName("vn.payos.type.ItemData");
-                    Object item = itemDataClass.getDeclaredConstructor().newInstance();
-                    itemDataClass.getMethod("setName", String.class).invoke(item, productName);
-                    itemDataClass.getMethod("setQuantity", Integer.class).invoke(item, orderDetail.getQuantity());
-                    itemDataClass.getMethod("setPrice", Long.class).invoke(item, itemPrice);
-                    items.add(item);
-                } catch (Exception e) {
-                    log.error("Error creating ItemData using reflection. Please verify PayOS SDK imports.", e);
-                    throw new RuntimeException("PayOS SDK classes not found. Please run 'mvn clean install' to download dependencies.", e);
-                }
-            }
-        }
-
+    /**
+     * Kiểm tra lúc khởi động rằng SDK PayOS trên classpath tương thích với các builder/model đang dùng.
+     * Nếu jar khác phiên bản (thiếu class/method) ứng dụng dừng ngay thay vì lỗi ở lần thanh toán đầu tiên.
+     */
+    @PostConstruct
+    void verifySdkCompatibility() {
         try {
-            Class<?> paymentDataClass = Class.forName("vn.payos.type.PaymentData");
-            Object paymentData = paymentDataClass.getDeclaredConstructor().newInstance();
-            paymentDataClass.getMethod("setOrderCode", Long.class).invoke(paymentData, orderCode);
-            paymentDataClass.getMethod("setAmount", Long.class).invoke(paymentData, amount);
-            paymentDataClass.getMethod("setDescription", String.class).invoke(paymentData, description);
-            paymentDataClass.getMethod("setItems", List.class).invoke(paymentData, items);
-            paymentDataClass.getMethod("setReturnUrl", String.class).invoke(paymentData, payOSConfig.getReturnUrl());
-            paymentDataClass.getMethod("setCancelUrl", String.class).invoke(paymentData, payOSConfig.getCancelUrl());
-            return paymentData;
-        } catch (Exception e) {
-            log.error("Error creating PaymentData using reflection. Please verify PayOS SDK imports.", e);
-            throw new RuntimeException("PayOS SDK classes not found. Please run 'mvn clean install' to download dependencies.", e);
+            CreatePaymentLinkRequest.builder()
+                    .orderCode(0L)
+                    .amount(0L)
+                    .description("probe")
+                    .cancelUrl("")
+                    .returnUrl("")
+                    .item(PaymentLinkItem.builder().name("probe").price(0L).quantity(1).build())
+                    .build();
+            Class.forName(CreatePaymentLinkResponse.class.getName());
+            Class.forName(PaymentLink.class.getName());
+            payOS.getClass().getMethod("paymentRequests");
+        } catch (LinkageError | ReflectiveOperationException e) {
+            throw new IllegalStateException("SDK PayOS không tương thích (yêu cầu payos-java 2.x): " + e.getMessage(), e);
         }
+        log.info("PayOS SDK compatibility check passed");
     }
 
-    private PayOSPaymentResponseDTO convertToResponseDTO(Object checkoutResponse) {
-        try {
-
-            Class<?> responseClass = checkoutResponse.getClass();
-            String paymentLinkId = (String) responseClass.getMethod("getPaymentLinkId").invoke(checkoutResponse);
-            String checkoutUrl = (String) responseClass.getMethod("getCheckoutUrl").invoke(checkoutResponse);
-            String qrCode = (String) responseClass.getMethod("getQrCode").invoke(checkoutResponse);
-
-            Long orderCode = null;
-            try {
-                Object orderCodeObj = responseClass.getMethod("getOrderCode").invoke(checkoutResponse);
-                if (orderCodeObj instanceof Long) {
-                    orderCode = (Long) orderCodeObj;
-                } else if (orderCodeObj instanceof Integer) {
-                    orderCode = ((Integer) orderCodeObj).longValue();
-                }
-            } catch (NoSuchMethodException ignored) {
-            }
-
-            java.math.BigDecimal amount = null;
-            try {
-                Object amountObj = responseClass.getMethod("getAmount").invoke(checkoutResponse);
-                if (amountObj instanceof Long) {
-                    amount = java.math.BigDecimal.valueOf((Long) amountObj);
-                } else if (amountObj instanceof Integer) {
-                    amount = java.math.BigDecimal.valueOf(((Integer) amountObj).longValue());
-                } else if (amountObj instanceof java.math.BigDecimal) {
-                    amount = (java.math.BigDecimal) amountObj;
-                }
-            } catch (NoSuchMethodException ignored) {
-            }
-
-            String description = null;
-            try {
-                description = (String) responseClass.getMethod("getDescription").invoke(checkoutResponse);
-            } catch (NoSuchMethodException ignored) {
-            }
-
-            String status = null;
-            try {
-                Object statusObj = responseClass.getMethod("getStatus").invoke(checkoutResponse);
-                if (statusObj != null) {
-                    status = statusObj.toString();
-                }
-            } catch (NoSuchMethodException ignored) {
-            }
-
-            PayOSPaymentDataDTO dataDto = PayOSPaymentDataDTO.builder()
-                    .paymentLinkId(paymentLinkId)
-                    .checkoutUrl(checkoutUrl)
-                    .qrCode(qrCode)
-                    .orderCode(orderCode)
-                    .amount(amount)
-                    .description(description)
-                    .status(status)
-                    .build();
-
-            return PayOSPaymentResponseDTO.builder()
-                    .code("00")
-                    .desc("success")
-                    .data(dataDto)
-                    .build();
-        } catch (Exception e) {
-            log.error("Error converting PayOS SDK response to DTO", e);
-            throw new RuntimeException("Failed to convert PayOS SDK response: " + e.getMessage(), e);
+    static CreatePaymentLinkRequest buildPaymentLinkRequest(Order order, Long orderCode, Long amount,
+                                                            String description, String returnUrl, String cancelUrl) {
+        CreatePaymentLinkRequest.CreatePaymentLinkRequestBuilder builder = CreatePaymentLinkRequest.builder()
+                .orderCode(orderCode)
+                .amount(amount)
+                .description(description)
+                .cancelUrl(cancelUrl)
+                .returnUrl(returnUrl);
+
+        List<OrderDetail> orderDetails = order.getOrderDetails();
+        if (orderDetails == null || orderDetails.isEmpty()) {
+            return builder.build();
         }
-    }
 
-    private Long getOrderCodeFromPaymentData(Object paymentData) {
-        try {
-            return (Long) paymentData.getClass().getMethod("getOrderCode").invoke(paymentData);
-        } catch (Exception e) {
-            log.warn("Error getting orderCode from PaymentData", e);
-            return 0L;
+        boolean hasDiscount = order.getDiscount() != null && order.getDiscount().compareTo(BigDecimal.ZERO) > 0;
+        if (hasDiscount) {
+            // Có giảm giá: gộp thành một dòng để tổng tiền các item khớp amount
+            return builder.item(PaymentLinkItem.builder()
+                            .name("Đơn hàng #" + order.getIdOrder())
+                            .price(amount)
+                            .quantity(1)
+                            .build())
+                    .build();
         }
-    }
 
-    private Object callPayOSCreatePaymentLink(Object paymentData) {
-        try {
+        for (OrderDetail orderDetail : orderDetails) {
+            String productName = orderDetail.getProductNameSnapshot() != null
+                    ? orderDetail.getProductNameSnapshot()
+                    : (orderDetail.getProduct() != null ? orderDetail.getProduct().getProductName() : "Product");
 
-            return payOS.getClass().getMethod("createPaymentLink", paymentData.getClass()).invoke(payOS, paymentData);
-        } catch (Exception e) {
-            log.error("Error calling PayOS SDK createPaymentLink. Please verify method name.", e);
-            throw new RuntimeException("PayOS SDK method not found. Please verify PayOS SDK API documentation.", e);
+            builder.item(PaymentLinkItem.builder()
+                    .name(productName)
+                    .price(orderDetail.getPrice().longValue())
+                    .quantity(orderDetail.getQuantity())
+                    .build());
         }
+        return builder.build();
     }
 
     @Override
@@ -268,7 +167,8 @@ public class PayOSServiceImpl implements PayOSService {
 
         try {
 
-            PaymentLink paymentLink = payOS.paymentRequests().get(paymentLinkId);
+            PaymentLink paymentLink = outboundCallGuard.execute(PAYOS_INTEGRATION, "paymentRequests.get",
+                    () -> payOS.paymentRequests().get(paymentLinkId));
 
             PayOSPaymentDataDTO dataDto = PayOSPaymentDataDTO.builder()
                     .paymentLinkId(paymentLink.getId())
@@ -295,6 +195,8 @@ public class PayOSServiceImpl implements PayOSService {
 
             return responseDto;
 
+        } catch (OutboundCallRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error getting PayOS payment link info using SDK v2. PaymentLinkId: {}", paymentLinkId, e);
             throw new RuntimeException("Failed to get payment link info: " + e.getMessage(), e);
@@ -307,10 +209,15 @@ public class PayOSServiceImpl implements PayOSService {
 
         try {
 
-            payOS.paymentRequests().cancel(paymentLinkId);
+            outboundCallGuard.execute(PAYOS_INTEGRATION, "paymentRequests.cancel", () -> {
+                payOS.paymentRequests().cancel(paymentLinkId);
+                return null;
+            });
 
             log.info("PayOS payment link cancelled successfully using SDK v2. PaymentLinkId: {}", paymentLinkId);
 
+        } catch (OutboundCallRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error cancelling PayOS payment link using SDK v2. PaymentLinkId: {}", paymentLinkId, e);
             throw new RuntimeException("Failed to cancel payment link: " + e.getMessage(), e);
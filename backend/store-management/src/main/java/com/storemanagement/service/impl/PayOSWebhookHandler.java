@@ -0,0 +1,58 @@
+package com.storemanagement.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.storemanagement.dto.payos.PayOSWebhookDTO;
+import com.storemanagement.model.Order;
+import com.storemanagement.model.WebhookEvent;
+import com.storemanagement.repository.OrderRepository;
+import com.storemanagement.service.PaymentSettlementService;
+import com.storemanagement.service.WebhookEventHandler;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Xử lý webhook PayOS đã được journal (chữ ký đã kiểm tra lúc nhận).
+ * Việc chốt đơn do PaymentSettlementService thực hiện: chỉ đơn còn PENDING mới được chuyển trạng thái,
+ * nên bản tin lặp lại hoặc replay không trừ kho lần hai.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PayOSWebhookHandler implements WebhookEventHandler {
+
+    private final ObjectMapper objectMapper;
+    private final OrderRepository orderRepository;
+    private final PaymentSettlementService paymentSettlementService;
+
+    @Override
+    public WebhookEvent.Source source() {
+        return WebhookEvent.Source.PAYOS;
+    }
+
+    // Không mở transaction ở đây: PaymentSettlementService đọc lại đơn với khóa dòng trong transaction riêng
+    @Override
+    public void handle(String payload) throws Exception {
+        PayOSWebhookDTO webhookDto = objectMapper.readValue(payload, PayOSWebhookDTO.class);
+
+        String paymentLinkId = webhookDto.getData().getPaymentLinkId();
+        Order order = orderRepository.findByPaymentLinkId(paymentLinkId)
+                .orElseThrow(() -> new EntityNotFoundException(
+                        "Order không tồn tại với paymentLinkId: " + paymentLinkId));
+
+        log.info("Found order ID: {} for paymentLinkId: {}", order.getIdOrder(), paymentLinkId);
+
+        String webhookCode = webhookDto.getCode();
+        if ("00".equals(webhookCode)) {
+            log.info("Payment SUCCESS for order ID: {}", order.getIdOrder());
+            paymentSettlementService.settlePaid(order.getIdOrder(),
+                    "Thanh toán PayOS thành công - Order #" + order.getIdOrder());
+        } else {
+            log.info("Payment FAILED/CANCELLED for order ID: {}. Code: {}, Desc: {}",
+                    order.getIdOrder(), webhookCode, webhookDto.getDesc());
+            paymentSettlementService.settleCanceled(order.getIdOrder(),
+                    "PayOS webhook code " + webhookCode);
+        }
+    }
+}
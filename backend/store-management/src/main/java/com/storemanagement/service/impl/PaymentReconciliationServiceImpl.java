@@ -0,0 +1,179 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.config.PaymentReconciliationProperties;
+import com.storemanagement.dto.payos.PayOSPaymentResponseDTO;
+import com.storemanagement.dto.payos.PaymentReconciliationStatsDTO;
+import com.storemanagement.repository.OrderRepository;
+import com.storemanagement.service.PayOSService;
+import com.storemanagement.service.PaymentReconciliationService;
+import com.storemanagement.service.PaymentSettlementService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Đối soát thanh toán PayOS theo lô thay cho việc client hỏi PayOS mỗi lần poll trạng thái.
+ * Duyệt các đơn PayOS còn PENDING (keyset theo id), tra trạng thái link: PAID thì chốt đơn,
+ * CANCELLED/EXPIRED/FAILED thì hủy; đơn quá expireAfterMinutes bị hủy link trên PayOS rồi hủy đơn,
+ * trả lại tồn kho giữ chỗ và lượt dùng mã giảm giá.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentReconciliationServiceImpl implements PaymentReconciliationService {
+
+    private final OrderRepository orderRepository;
+    private final PayOSService payOSService;
+    private final PaymentSettlementService paymentSettlementService;
+    private final PaymentReconciliationProperties paymentReconciliationProperties;
+
+    private long runs;
+    private long totalPaid;
+    private long totalCanceled;
+    private long totalExpired;
+    private PaymentReconciliationStatsDTO lastRun;
+
+    @Scheduled(fixedDelayString = "${payment-reconciliation.interval-ms:60000}",
+            initialDelayString = "${payment-reconciliation.interval-ms:60000}")
+    public void scheduledReconcile() {
+        if (!paymentReconciliationProperties.isEnabled()) {
+            return;
+        }
+        reconcileNow();
+    }
+
+    @Override
+    public synchronized PaymentReconciliationStatsDTO reconcileNow() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        LocalDateTime placedBefore = startedAt.minusSeconds(paymentReconciliationProperties.getMinAgeSeconds());
+        LocalDateTime expireBefore = startedAt.minusMinutes(paymentReconciliationProperties.getExpireAfterMinutes());
+        int batchSize = paymentReconciliationProperties.getBatchSize();
+        long start = System.currentTimeMillis();
+
+        int checked = 0;
+        int paid = 0;
+        int canceled = 0;
+        int expired = 0;
+        int failures = 0;
+
+        Integer afterId = 0;
+        while (true) {
+            List<Object[]> page = orderRepository.findPendingPayOSOrders(afterId, placedBefore,
+                    PageRequest.of(0, batchSize));
+            if (page.isEmpty()) {
+                break;
+            }
+
+            for (Object[] row : page) {
+                Integer orderId = (Integer) row[0];
+                String paymentLinkId = (String) row[1];
+                LocalDateTime orderDate = (LocalDateTime) row[2];
+                boolean overdue = orderDate != null && orderDate.isBefore(expireBefore);
+                checked++;
+
+                try {
+                    switch (reconcile(orderId, paymentLinkId, overdue)) {
+                        case PAID -> paid++;
+                        case CANCELED -> canceled++;
+                        case EXPIRED -> expired++;
+                        default -> {
+                        }
+                    }
+                } catch (Exception e) {
+                    failures++;
+                    log.warn("Cannot reconcile PayOS payment for order ID: {}: {}", orderId, e.getMessage());
+                }
+            }
+
+            afterId = (Integer) page.get(page.size() - 1)[0];
+            if (page.size() < batchSize) {
+                break;
+            }
+        }
+
+        runs++;
+        totalPaid += paid;
+        totalCanceled += canceled;
+        totalExpired += expired;
+
+        long durationMs = System.currentTimeMillis() - start;
+        lastRun = PaymentReconciliationStatsDTO.builder()
+                .lastRunStartedAt(startedAt)
+                .lastRunDurationMs(durationMs)
+                .lastChecked(checked)
+                .lastPaid(paid)
+                .lastCanceled(canceled)
+                .lastExpired(expired)
+                .lastFailures(failures)
+                .build();
+
+        if (checked > 0) {
+            log.info("PayOS reconciliation: checked {} orders, {} paid, {} canceled, {} expired, {} failures in {} ms",
+                    checked, paid, canceled, expired, failures, durationMs);
+        }
+        return getStatistics();
+    }
+
+    private Outcome reconcile(Integer orderId, String paymentLinkId, boolean overdue) {
+        if (paymentLinkId == null) {
+            // Chưa tạo được link thanh toán: chỉ hủy khi quá hạn
+            if (overdue && paymentSettlementService.settleCanceled(orderId, "Quá hạn thanh toán, chưa tạo link PayOS")) {
+                return Outcome.EXPIRED;
+            }
+            return Outcome.UNCHANGED;
+        }
+
+        PayOSPaymentResponseDTO info = payOSService.getPaymentLinkInfo(paymentLinkId);
+        String status = info != null && info.getData() != null && info.getData().getStatus() != null
+                ? info.getData().getStatus().toUpperCase()
+                : "";
+
+        if (status.contains("PAID") && !status.contains("UNDERPAID")) {
+            return paymentSettlementService.settlePaid(orderId,
+                    "Thanh toán PayOS thành công (đối soát) - Order #" + orderId) ? Outcome.PAID : Outcome.UNCHANGED;
+        }
+
+        if (status.contains("CANCEL") || status.contains("EXPIRED") || status.contains("FAILED")) {
+            return paymentSettlementService.settleCanceled(orderId, "PayOS link status " + status)
+                    ? Outcome.CANCELED : Outcome.UNCHANGED;
+        }
+
+        if (overdue) {
+            // Hủy link trước để khách không thể thanh toán sau khi tồn kho đã được trả lại
+            payOSService.cancelPaymentLink(paymentLinkId);
+            return paymentSettlementService.settleCanceled(orderId, "Quá hạn thanh toán PayOS")
+                    ? Outcome.EXPIRED : Outcome.UNCHANGED;
+        }
+
+        return Outcome.UNCHANGED;
+    }
+
+    @Override
+    public synchronized PaymentReconciliationStatsDTO getStatistics() {
+        PaymentReconciliationStatsDTO.PaymentReconciliationStatsDTOBuilder builder = PaymentReconciliationStatsDTO.builder()
+                .runs(runs)
+                .totalPaid(totalPaid)
+                .totalCanceled(totalCanceled)
+                .totalExpired(totalExpired);
+
+        if (lastRun != null) {
+            builder.lastRunStartedAt(lastRun.getLastRunStartedAt())
+                    .lastRunDurationMs(lastRun.getLastRunDurationMs())
+                    .lastChecked(lastRun.getLastChecked())
+                    .lastPaid(lastRun.getLastPaid())
+                    .lastCanceled(lastRun.getLastCanceled())
+                    .lastExpired(lastRun.getLastExpired())
+                    .lastFailures(lastRun.getLastFailures());
+        }
+        return builder.build();
+    }
+
+    private enum Outcome {
+        PAID, CANCELED, EXPIRED, UNCHANGED
+    }
+}
@@ -0,0 +1,126 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.config.PaymentReconciliationProperties;
+import com.storemanagement.model.Order;
+import com.storemanagement.repository.OrderRepository;
+import com.storemanagement.service.PaymentSettlementService;
+import com.storemanagement.service.PromotionService;
+import com.storemanagement.service.SalesRollupService;
+import com.storemanagement.service.StockReservationService;
+import com.storemanagement.service.SystemSettingService;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentSettlementServiceImpl implements PaymentSettlementService {
+
+    private final OrderRepository orderRepository;
+    private final SystemSettingService systemSettingService;
+    private final StockReservationService stockReservationService;
+    private final SalesRollupService salesRollupService;
+    private final PromotionService promotionService;
+    private final PaymentReconciliationProperties paymentReconciliationProperties;
+
+    // Các request long-poll đang chờ kết quả thanh toán, theo id đơn
+    private final Map<Integer, CompletableFuture<Void>> waiters = new ConcurrentHashMap<>();
+
+    @Override
+    @Transactional
+    public boolean settlePaid(Integer orderId, String note) {
+        Order order = lockPendingOrder(orderId);
+        if (order == null) {
+            return false;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        order.setStatus(Order.OrderStatus.COMPLETED);
+        order.setDeliveredAt(now);
+        order.setCompletedAt(now);
+
+        int returnWindowDays = systemSettingService.getReturnWindowDays();
+        order.setReturnWindowDays(returnWindowDays);
+        log.info("Order COMPLETED: completedAt={}, returnWindowDays={} for order: {}", now, returnWindowDays, orderId);
+        orderRepository.save(order);
+        salesRollupService.recordStatusChange(order, Order.OrderStatus.PENDING);
+
+        stockReservationService.commitReservation(order, note);
+
+        notifyAfterCommit(orderId);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean settleCanceled(Integer orderId, String reason) {
+        Order order = lockPendingOrder(orderId);
+        if (order == null) {
+            return false;
+        }
+
+        log.info("Canceling PayOS order ID: {}. Reason: {}", orderId, reason);
+        order.setStatus(Order.OrderStatus.CANCELED);
+        orderRepository.save(order);
+        salesRollupService.recordStatusChange(order, Order.OrderStatus.PENDING);
+
+        stockReservationService.releaseReservation(order);
+        promotionService.releasePromotionUsage(orderId);
+
+        notifyAfterCommit(orderId);
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Void> awaitSettlement(Integer orderId) {
+        return waiters.computeIfAbsent(orderId, id -> {
+            // Tự hết hạn để không giữ mãi các đơn được chốt ở instance khác
+            CompletableFuture<Void> waiter = new CompletableFuture<Void>()
+                    .orTimeout(paymentReconciliationProperties.getMaxWaitSeconds() + 5, TimeUnit.SECONDS);
+            waiter.whenComplete((result, error) -> waiters.remove(id, waiter));
+            return waiter;
+        });
+    }
+
+    private Order lockPendingOrder(Integer orderId) {
+        Order order = orderRepository.findByIdForUpdate(orderId)
+                .orElseThrow(() -> new EntityNotFoundException("Order không tồn tại với ID: " + orderId));
+
+        if (order.getStatus() != Order.OrderStatus.PENDING) {
+            log.info("Order ID: {} đã được xử lý rồi (status: {}). Skipping settlement.", orderId, order.getStatus());
+            return null;
+        }
+        return order;
+    }
+
+    private void notifyAfterCommit(Integer orderId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    notifyWaiters(orderId);
+                }
+            });
+        } else {
+            notifyWaiters(orderId);
+        }
+    }
+
+    private void notifyWaiters(Integer orderId) {
+        CompletableFuture<Void> waiter = waiters.remove(orderId);
+        if (waiter != null) {
+            waiter.complete(null);
+        }
+    }
+}
@@ -1,16 +1,19 @@
 package com.storemanagement.service.impl;
 
+import com.storemanagement.config.CacheConfig;
 import com.storemanagement.dto.product.ProductImageDTO;
 import com.storemanagement.mapper.ProductImageMapper;
 import com.storemanagement.model.Product;
 import com.storemanagement.model.ProductImage;
 import com.storemanagement.repository.ProductImageRepository;
 import com.storemanagement.repository.ProductRepository;
+import com.storemanagement.service.CatalogCacheService;
 import com.storemanagement.service.FileStorageService;
 import com.storemanagement.service.ProductImageService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -28,10 +31,12 @@ public class ProductImageServiceImpl implements ProductImageService {
     private final ProductRepository productRepository;
     private final FileStorageService fileStorageService;
     private final ProductImageMapper productImageMapper;
+    private final CatalogCacheService catalogCacheService;
 
     private static final int MAX_IMAGES_PER_PRODUCT = 5;
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.PRODUCT_DETAILS, key = "#productId")
     public List<ProductImageDTO> uploadProductImages(Integer productId, List<MultipartFile> images) {
         log.info("Uploading {} images for product ID: {}", images.size(), productId);
 
@@ -88,6 +93,7 @@ public class ProductImageServiceImpl implements ProductImageService {
     }
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.PRODUCT_DETAILS, key = "#productId")
     public ProductImageDTO addProductImage(Integer productId, MultipartFile image) {
         log.info("Adding single image for product ID: {}", productId);
 
@@ -164,6 +170,7 @@ public class ProductImageServiceImpl implements ProductImageService {
                     });
         }
 
+        catalogCacheService.evictProduct(productId);
         log.info("Product image deleted successfully");
     }
 
@@ -192,6 +199,7 @@ public class ProductImageServiceImpl implements ProductImageService {
             productRepository.save(product);
         }
 
+        catalogCacheService.evictProduct(productId);
         log.info("Image set as primary successfully");
         return productImageMapper.toDTO(saved);
     }
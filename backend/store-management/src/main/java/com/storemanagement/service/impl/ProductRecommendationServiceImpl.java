@@ -2,12 +2,13 @@ package com.storemanagement.service.impl;
 
 import com.storemanagement.dto.product.ProductDTO;
 import com.storemanagement.dto.product.ProductRecommendationResponseDTO;
+import com.storemanagement.exception.OutboundCallRejectedException;
 import com.storemanagement.model.Customer;
 import com.storemanagement.repository.CartRepository;
 import com.storemanagement.repository.CustomerRepository;
 import com.storemanagement.repository.OrderRepository;
-import com.storemanagement.repository.ProductViewRepository;
 import com.storemanagement.service.ProductRecommendationService;
+import com.storemanagement.service.ProductViewCounterService;
 import com.storemanagement.service.ProductService;
 import com.storemanagement.service.RecommenderClient;
 import lombok.RequiredArgsConstructor;
@@ -24,7 +25,7 @@ public class ProductRecommendationServiceImpl implements ProductRecommendationSe
 
     private final RecommenderClient recommenderClient;
     private final ProductService productService;
-    private final ProductViewRepository productViewRepository;
+    private final ProductViewCounterService productViewCounterService;
     private final CustomerRepository customerRepository;
     private final OrderRepository orderRepository;
     private final CartRepository cartRepository;
@@ -74,7 +75,7 @@ public class ProductRecommendationServiceImpl implements ProductRecommendationSe
         log.info("Excluded product IDs (purchased/in cart): {}", excludedProductIds);
 
         log.info("=== PYTHON SERVICE RECOMMENDATIONS ===");
-        List<Long> recommendedIds = recommenderClient.getUserRecommendations(userId);
+        List<Long> recommendedIds = userRecommendations(userId);
         log.info("Python service returned {} recommendations: {}", recommendedIds.size(), recommendedIds);
         List<Integer> recommendedProductIds = recommendedIds.stream()
                 .map(Long::intValue)
@@ -157,7 +158,7 @@ public class ProductRecommendationServiceImpl implements ProductRecommendationSe
         Integer userIdInt = userId != null ? userId.intValue() : null;
         List<Integer> mostViewedProductIds = getTopMostViewedProducts(userIdInt, 4, excludedProductIds);
 
-        List<Long> recommendedIds = recommenderClient.getUserRecommendations(userId);
+        List<Long> recommendedIds = userRecommendations(userId);
         List<Integer> recommendedProductIds = recommendedIds.stream()
                 .map(Long::intValue)
                 .filter(id -> !excludedProductIds.contains(id))
@@ -196,12 +197,12 @@ public class ProductRecommendationServiceImpl implements ProductRecommendationSe
 
                 log.info("Getting top {} most viewed products for userId: {} (query limit: {})", limit, userId,
                         queryLimit);
-                results = productViewRepository.findTopMostViewedProductsByUserNative(userId, queryLimit);
+                results = productViewCounterService.getTopViewedProducts(userId, queryLimit);
             } else {
 
                 log.info("No userId provided, getting top {} most viewed products from all users (query limit: {})",
                         limit, queryLimit);
-                results = productViewRepository.findTopMostViewedProductsNative(queryLimit);
+                results = productViewCounterService.getTopViewedProducts(null, queryLimit);
             }
 
             List<Integer> productIds = new ArrayList<>();
@@ -216,7 +217,8 @@ public class ProductRecommendationServiceImpl implements ProductRecommendationSe
 
             for (Object[] result : results) {
                 Integer productId = ((Number) result[0]).intValue();
-                Long viewCount = ((Number) result[1]).longValue();
+                // Điểm lượt xem đã suy giảm theo thời gian (xem ProductViewCounterService)
+                Double viewCount = ((Number) result[1]).doubleValue();
 
                 if (!excludedProductIds.contains(productId)) {
                     productIds.add(productId);
@@ -254,7 +256,7 @@ public class ProductRecommendationServiceImpl implements ProductRecommendationSe
     public List<ProductDTO> similarProducts(Long productId) {
         log.info("Getting similar products for productId: {}", productId);
 
-        List<Long> similarIds = recommenderClient.getSimilarProducts(productId);
+        List<Long> similarIds = similarProductIds(productId);
 
         if (similarIds.isEmpty()) {
             log.warn("No similar products found for productId: {}", productId);
@@ -263,4 +265,26 @@ public class ProductRecommendationServiceImpl implements ProductRecommendationSe
 
         return productService.getProductsByIds(similarIds);
     }
+
+    /**
+     * Circuit breaker/bulkhead từ chối lời gọi tới recommender: dùng danh sách rỗng để các nguồn dự phòng
+     * (xem nhiều, bán chạy) vẫn lấp đầy kết quả thay vì trả lỗi cho cả trang.
+     */
+    private List<Long> userRecommendations(Long userId) {
+        try {
+            return recommenderClient.getUserRecommendations(userId);
+        } catch (OutboundCallRejectedException e) {
+            log.warn("Recommender call rejected for userId {}: {}", userId, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private List<Long> similarProductIds(Long productId) {
+        try {
+            return recommenderClient.getSimilarProducts(productId);
+        } catch (OutboundCallRejectedException e) {
+            log.warn("Recommender call rejected for productId {}: {}", productId, e.getMessage());
+            return List.of();
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.storemanagement.service.impl;
 
+import com.storemanagement.config.CacheConfig;
 import com.storemanagement.dto.PageResponse;
 import com.storemanagement.dto.review.CreateReviewRequestDTO;
 import com.storemanagement.dto.review.ProductReviewDTO;
@@ -7,6 +8,7 @@ import com.storemanagement.dto.review.UpdateReviewRequestDTO;
 import com.storemanagement.mapper.ProductReviewMapper;
 import com.storemanagement.model.*;
 import com.storemanagement.repository.*;
+import com.storemanagement.service.CatalogCacheService;
 import com.storemanagement.service.ProductReviewService;
 import com.storemanagement.service.SystemSettingService;
 import com.storemanagement.utils.PageUtils;
@@ -15,6 +17,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -33,8 +36,10 @@ public class ProductReviewServiceImpl implements ProductReviewService {
     private final OrderDetailRepository orderDetailRepository;
     private final ProductReviewMapper productReviewMapper;
     private final SystemSettingService systemSettingService;
+    private final CatalogCacheService catalogCacheService;
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.PRODUCT_DETAILS, key = "#productId")
     public ProductReviewDTO createReview(Integer customerId, Integer productId, CreateReviewRequestDTO request) {
         log.info("Creating review for product ID: {} by customer ID: {}", productId, customerId);
 
@@ -150,6 +155,7 @@ public class ProductReviewServiceImpl implements ProductReviewService {
         review.setComment(request.getComment().trim());
         review.setEditCount(review.getEditCount() + 1);
         review = productReviewRepository.save(review);
+        catalogCacheService.evictProduct(review.getProduct().getIdProduct());
 
         log.info("Review updated successfully with ID: {}", review.getIdReview());
         return productReviewMapper.toDTO(review);
@@ -175,6 +181,7 @@ public class ProductReviewServiceImpl implements ProductReviewService {
         }
 
         productReviewRepository.delete(review);
+        catalogCacheService.evictProduct(review.getProduct().getIdProduct());
         log.info("Review deleted successfully with ID: {}", reviewId);
     }
 
@@ -206,6 +213,7 @@ public class ProductReviewServiceImpl implements ProductReviewService {
                 .orElseThrow(() -> new EntityNotFoundException("Không tìm thấy đánh giá"));
 
         productReviewRepository.delete(review);
+        catalogCacheService.evictProduct(review.getProduct().getIdProduct());
         log.info("Review deleted successfully by admin/employee with ID: {}", reviewId);
     }
 
@@ -0,0 +1,306 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.model.Product;
+import com.storemanagement.repository.ProductRepository;
+import com.storemanagement.service.ProductSearchService;
+import com.storemanagement.utils.VietnameseTextNormalizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Inverted index trong bộ nhớ cho tìm kiếm sản phẩm theo mã, tên và SKU (thay cho LIKE '%kw%').
+ * Văn bản được bỏ dấu tiếng Việt rồi tách token. Mỗi token của từ khóa phải khớp (AND) theo một trong ba cách,
+ * xếp hạng giảm dần: trùng token, tiền tố của token (term dictionary có thứ tự) hoặc chuỗi con của token
+ * (lọc ứng viên bằng trigram rồi kiểm tra lại; từ khóa 1-2 ký tự tra thẳng posting của gram cùng độ dài).
+ * Index trả về toàn bộ id đã xếp hạng; các bộ lọc khác và giới hạn số kết quả do ProductServiceImpl áp dụng.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchServiceImpl implements ProductSearchService {
+
+    private static final int GRAM_SIZE = 3;
+
+    private static final int SCORE_EXACT = 4;
+    private static final int SCORE_PREFIX = 2;
+    private static final int SCORE_INFIX = 1;
+    private static final int SCORE_CODE_MATCH = 20;
+    private static final int SCORE_NAME_PREFIX = 5;
+
+    private final ProductRepository productRepository;
+
+    private volatile SearchIndex searchIndex = new SearchIndex();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${product-search.rebuild-interval-ms:600000}",
+            initialDelayString = "${product-search.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    @Override
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+
+        SearchIndex freshIndex = new SearchIndex();
+        for (Object[] row : productRepository.findAllSearchFields()) {
+            freshIndex.put((Integer) row[0], (String) row[1], (String) row[2], (String) row[3]);
+        }
+        searchIndex = freshIndex;
+
+        log.info("Product search index rebuilt: {} products in {} ms", freshIndex.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public void index(Product product) {
+        if (product == null || product.getIdProduct() == null) {
+            return;
+        }
+
+        Integer productId = product.getIdProduct();
+        String productCode = product.getProductCode();
+        String productName = product.getProductName();
+        String sku = product.getSku();
+
+        // Chỉ cập nhật index sau khi transaction ghi sản phẩm commit
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(productId, productCode, productName, sku);
+                }
+            });
+        } else {
+            put(productId, productCode, productName, sku);
+        }
+    }
+
+    private synchronized void put(Integer productId, String productCode, String productName, String sku) {
+        searchIndex.put(productId, productCode, productName, sku);
+    }
+
+    @Override
+    public List<Integer> search(String keyword) {
+        String foldedKeyword = VietnameseTextNormalizer.fold(keyword).trim();
+        List<String> queryTokens = VietnameseTextNormalizer.tokenize(foldedKeyword);
+        if (queryTokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        SearchIndex index = searchIndex;
+        Map<Integer, Integer> scores = null;
+
+        for (String queryToken : new LinkedHashSet<>(queryTokens)) {
+            Map<Integer, Integer> tokenScores = index.match(queryToken);
+            if (tokenScores.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                Map<Integer, Integer> merged = new HashMap<>();
+                for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+                    Integer tokenScore = tokenScores.get(entry.getKey());
+                    if (tokenScore != null) {
+                        merged.put(entry.getKey(), entry.getValue() + tokenScore);
+                    }
+                }
+                if (merged.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                scores = merged;
+            }
+        }
+
+        List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(scores.size());
+        for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+            Document document = index.get(entry.getKey());
+            if (document != null) {
+                ranked.add(Map.entry(entry.getKey(), entry.getValue() + document.bonus(foldedKeyword)));
+            }
+        }
+        ranked.sort(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.<Integer, Integer>comparingByKey(Comparator.reverseOrder())));
+
+        // Không cắt ở đây: giới hạn max-results được áp sau khi MySQL lọc, nếu không các kết quả khớp bộ lọc
+        // nhưng xếp hạng thấp sẽ bị mất
+        List<Integer> productIds = new ArrayList<>(ranked.size());
+        for (Map.Entry<Integer, Integer> entry : ranked) {
+            productIds.add(entry.getKey());
+        }
+        return productIds;
+    }
+
+    private record Document(String code, String name, String sku, Set<String> tokens) {
+
+        boolean containsInfix(String queryToken) {
+            for (String token : tokens) {
+                if (token.contains(queryToken)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int bonus(String foldedKeyword) {
+            if (foldedKeyword.equals(code) || foldedKeyword.equals(sku)) {
+                return SCORE_CODE_MATCH;
+            }
+            return name.startsWith(foldedKeyword) ? SCORE_NAME_PREFIX : 0;
+        }
+    }
+
+    /**
+     * Đọc không khóa (cấu trúc concurrent); ghi được tuần tự hóa bởi các phương thức synchronized của service.
+     */
+    private static class SearchIndex {
+        private final Map<Integer, Document> documents = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListMap<String, Set<Integer>> terms = new ConcurrentSkipListMap<>();
+        private final Map<String, Set<Integer>> grams = new ConcurrentHashMap<>();
+
+        int size() {
+            return documents.size();
+        }
+
+        Document get(Integer productId) {
+            return documents.get(productId);
+        }
+
+        void put(Integer productId, String productCode, String productName, String sku) {
+            remove(productId);
+
+            String code = VietnameseTextNormalizer.fold(productCode);
+            String name = VietnameseTextNormalizer.fold(productName);
+            String foldedSku = VietnameseTextNormalizer.fold(sku);
+
+            Set<String> tokens = new HashSet<>();
+            tokens.addAll(VietnameseTextNormalizer.tokenize(code));
+            tokens.addAll(VietnameseTextNormalizer.tokenize(name));
+            tokens.addAll(VietnameseTextNormalizer.tokenize(foldedSku));
+
+            for (String token : tokens) {
+                terms.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet()).add(productId);
+                for (String gram : grams(token)) {
+                    grams.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(productId);
+                }
+            }
+            documents.put(productId, new Document(code, name, foldedSku, tokens));
+        }
+
+        void remove(Integer productId) {
+            Document previous = documents.remove(productId);
+            if (previous == null) {
+                return;
+            }
+
+            for (String token : previous.tokens()) {
+                removePosting(terms, token, productId);
+                for (String gram : grams(token)) {
+                    removePosting(grams, gram, productId);
+                }
+            }
+        }
+
+        Map<Integer, Integer> match(String queryToken) {
+            Map<Integer, Integer> scores = new HashMap<>();
+
+            // Trùng token hoặc tiền tố: duyệt các term nằm trong [queryToken, queryToken + MAX_VALUE)
+            for (Map.Entry<String, Set<Integer>> entry
+                    : terms.subMap(queryToken, true, queryToken + Character.MAX_VALUE, false).entrySet()) {
+                int score = entry.getKey().length() == queryToken.length() ? SCORE_EXACT : SCORE_PREFIX;
+                for (Integer productId : entry.getValue()) {
+                    scores.merge(productId, score, Math::max);
+                }
+            }
+
+            // Chuỗi con giữa token (vd. "00123" trong "sp00123"): giao các posting trigram rồi kiểm tra lại
+            if (queryToken.length() >= GRAM_SIZE) {
+                for (Integer productId : gramCandidates(queryToken)) {
+                    if (!scores.containsKey(productId)) {
+                        Document document = documents.get(productId);
+                        if (document != null && document.containsInfix(queryToken)) {
+                            scores.put(productId, SCORE_INFIX);
+                        }
+                    }
+                }
+            } else {
+                // Từ khóa 1-2 ký tự: gram cùng độ dài được index sẵn nên posting chính là tập khớp, không cần
+                // quét tuần tự toàn bộ tài liệu
+                for (Integer productId : grams.getOrDefault(queryToken, Collections.emptySet())) {
+                    scores.putIfAbsent(productId, SCORE_INFIX);
+                }
+            }
+
+            return scores;
+        }
+
+        private Set<Integer> gramCandidates(String queryToken) {
+            List<Set<Integer>> postings = new ArrayList<>();
+            for (String gram : substrings(queryToken, GRAM_SIZE)) {
+                Set<Integer> posting = grams.get(gram);
+                if (posting == null) {
+                    return Collections.emptySet();
+                }
+                postings.add(posting);
+            }
+            postings.sort(Comparator.comparingInt(Set::size));
+
+            Set<Integer> candidates = new HashSet<>(postings.get(0));
+            for (int i = 1; i < postings.size() && !candidates.isEmpty(); i++) {
+                candidates.retainAll(postings.get(i));
+            }
+            return candidates;
+        }
+
+        /**
+         * Mọi chuỗi con dài 1, 2 và GRAM_SIZE ký tự của token: trigram để lọc ứng viên cho từ khóa dài,
+         * gram ngắn để từ khóa 1-2 ký tự khớp giữa token bằng một lần tra posting.
+         */
+        private static Set<String> grams(String token) {
+            Set<String> result = new HashSet<>();
+            for (int size = 1; size <= GRAM_SIZE; size++) {
+                result.addAll(substrings(token, size));
+            }
+            return result;
+        }
+
+        private static Set<String> substrings(String token, int size) {
+            Set<String> result = new HashSet<>();
+            for (int i = 0; i + size <= token.length(); i++) {
+                result.add(token.substring(i, i + size));
+            }
+            return result;
+        }
+
+        private static void removePosting(Map<String, Set<Integer>> postings, String key, Integer productId) {
+            postings.computeIfPresent(key, (k, ids) -> {
+                ids.remove(productId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.storemanagement.service.impl;
 
+import com.storemanagement.config.CacheConfig;
+import com.storemanagement.config.ProductSearchProperties;
 import com.storemanagement.dto.PageResponse;
 import com.storemanagement.dto.product.ProductDTO;
 import com.storemanagement.mapper.ProductMapper;
@@ -11,19 +13,31 @@ import com.storemanagement.repository.ProductRepository;
 import com.storemanagement.repository.SupplierRepository;
 import com.storemanagement.repository.ProductReviewRepository;
 import com.storemanagement.service.FileStorageService;
+import com.storemanagement.service.ProductSearchService;
 import com.storemanagement.service.ProductService;
 import com.storemanagement.utils.*;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -31,19 +45,26 @@ import java.util.Optional;
 @Slf4j
 public class ProductServiceImpl implements ProductService {
 
+    // Số id ứng viên tối đa trong một mệnh đề IN khi lọc kết quả tìm kiếm
+    private static final int SEARCH_FILTER_CHUNK_SIZE = 1000;
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final SupplierRepository supplierRepository;
     private final ProductMapper productMapper;
     private final FileStorageService fileStorageService;
     private final ProductReviewRepository productReviewRepository;
+    private final ProductSearchService productSearchService;
+    private final ProductSearchProperties productSearchProperties;
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.PRODUCT_BRANDS, allEntries = true)
     public ProductDTO createProduct(ProductDTO productDto) {
         return createProduct(productDto, null);
     }
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.PRODUCT_BRANDS, allEntries = true)
     public ProductDTO createProduct(ProductDTO productDto, MultipartFile image) {
         log.info("Creating product: {}", productDto.getProductName());
 
@@ -124,6 +145,7 @@ public class ProductServiceImpl implements ProductService {
                 "Use ImportOrder to add stock and update price.");
 
         Product savedProduct = productRepository.save(product);
+        productSearchService.index(savedProduct);
         log.info("Product created successfully with ID: {}, Stock: {}, Status: {}",
                 savedProduct.getIdProduct(), savedProduct.getStockQuantity(), savedProduct.getStatus());
 
@@ -134,6 +156,10 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_DETAILS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_BRANDS, allEntries = true)
+    })
     public ProductDTO updateProduct(Integer id, ProductDTO productDto, MultipartFile image) {
         log.info("Updating product ID: {}", id);
 
@@ -217,6 +243,7 @@ public class ProductServiceImpl implements ProductService {
         }
 
         Product updatedProduct = productRepository.save(product);
+        productSearchService.index(updatedProduct);
         log.info("Product updated successfully: ID={}, Stock={}, Status={}",
                 updatedProduct.getIdProduct(), updatedProduct.getStockQuantity(), updatedProduct.getStatus());
 
@@ -227,11 +254,19 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_DETAILS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_BRANDS, allEntries = true)
+    })
     public ProductDTO updateProduct(Integer id, ProductDTO productDto) {
         return updateProduct(id, productDto, null);
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_DETAILS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_BRANDS, allEntries = true)
+    })
     public void deleteProduct(Integer id) {
         log.info("Soft deleting product ID: {}", id);
         Product product = productRepository.findById(id)
@@ -242,6 +277,10 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_DETAILS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_BRANDS, allEntries = true)
+    })
     public void restoreProduct(Integer id) {
         log.info("Restoring product ID: {}", id);
         Product product = productRepository.findByIdProductAndIsDeleteTrue(id)
@@ -253,6 +292,7 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.PRODUCT_DETAILS, key = "#id", condition = "#showDeleted == null || !#showDeleted")
     public ProductDTO getProductById(Integer id, Boolean showDeleted) {
         log.info("Fetching product by ID: {}, showDeleted: {}", id, showDeleted);
         Boolean effectiveShowDeleted = showDeleted != null ? showDeleted : false;
@@ -367,9 +407,14 @@ public class ProductServiceImpl implements ProductService {
             }
         }
 
-        Page<Product> productPage = productRepository.searchProducts(normalizedKeyword, idCategory, idSupplier,
-                normalizedBrand,
-                minPrice, maxPrice, normalizedInventoryStatus, effectiveShowDeleted, pageable);
+        Page<Product> productPage;
+        if (normalizedKeyword != null) {
+            productPage = searchProductsByKeyword(normalizedKeyword, idCategory, idSupplier, normalizedBrand,
+                    minPrice, maxPrice, normalizedInventoryStatus, effectiveShowDeleted, pageable);
+        } else {
+            productPage = productRepository.searchProducts(null, idCategory, idSupplier, normalizedBrand,
+                    minPrice, maxPrice, normalizedInventoryStatus, effectiveShowDeleted, pageable);
+        }
         List<ProductDTO> productDtos = productMapper.toDTOList(productPage.getContent());
         enrichProductDtoListWithRating(productDtos);
         for (int i = 0; i < productDtos.size(); i++) {
@@ -378,6 +423,71 @@ public class ProductServiceImpl implements ProductService {
         return PageUtils.toPageResponse(productPage, productDtos);
     }
 
+    /**
+     * Từ khóa được tra trong ProductSearchService (đã xếp hạng), MySQL chỉ áp các bộ lọc còn lại trên tập id đó.
+     * Toàn bộ ứng viên được lọc theo từng lô; giới hạn max-results chỉ áp lên các id đã qua bộ lọc.
+     * Không chỉ định sort thì giữ thứ tự theo độ liên quan; có sort thì để MySQL sắp xếp và phân trang.
+     */
+    private Page<Product> searchProductsByKeyword(String keyword, Integer idCategory, Integer idSupplier, String brand,
+            Double minPrice, Double maxPrice, String inventoryStatus, Boolean showDeleted, Pageable pageable) {
+        List<Integer> rankedIds = productSearchService.search(keyword);
+        if (rankedIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        List<Integer> orderedIds = filterRankedIds(rankedIds, idCategory, idSupplier, brand, minPrice, maxPrice,
+                inventoryStatus, showDeleted);
+        if (orderedIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        if (pageable.getSort().isSorted()) {
+            // Các bộ lọc đã áp dụng ở trên, chỉ còn sắp xếp và phân trang
+            return productRepository.searchProductsByIds(orderedIds, null, null, null,
+                    null, null, null, showDeleted, pageable);
+        }
+
+        int fromIndex = (int) Math.min(pageable.getOffset(), orderedIds.size());
+        int toIndex = Math.min(fromIndex + pageable.getPageSize(), orderedIds.size());
+        List<Integer> pageIds = orderedIds.subList(fromIndex, toIndex);
+        if (pageIds.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, orderedIds.size());
+        }
+
+        Map<Integer, Product> productsById = productRepository.findAllWithDetailsByIdIn(pageIds).stream()
+                .collect(Collectors.toMap(Product::getIdProduct, product -> product));
+        List<Product> products = pageIds.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(products, pageable, orderedIds.size());
+    }
+
+    /**
+     * Lọc các id theo thứ tự xếp hạng, từng lô SEARCH_FILTER_CHUNK_SIZE id, dừng khi đủ max-results id khớp bộ lọc.
+     */
+    private List<Integer> filterRankedIds(List<Integer> rankedIds, Integer idCategory, Integer idSupplier,
+            String brand, Double minPrice, Double maxPrice, String inventoryStatus, Boolean showDeleted) {
+        int maxResults = productSearchProperties.getMaxResults();
+        List<Integer> orderedIds = new ArrayList<>();
+
+        for (int from = 0; from < rankedIds.size() && orderedIds.size() < maxResults;
+                from += SEARCH_FILTER_CHUNK_SIZE) {
+            List<Integer> chunk = rankedIds.subList(from, Math.min(from + SEARCH_FILTER_CHUNK_SIZE, rankedIds.size()));
+            Set<Integer> matchedIds = new HashSet<>(productRepository.filterProductIds(chunk, idCategory, idSupplier,
+                    brand, minPrice, maxPrice, inventoryStatus, showDeleted));
+            for (Integer productId : chunk) {
+                if (matchedIds.contains(productId)) {
+                    orderedIds.add(productId);
+                    if (orderedIds.size() == maxResults) {
+                        break;
+                    }
+                }
+            }
+        }
+        return orderedIds;
+    }
+
     @Override
     public PageResponse<ProductDTO> getProductsByPriceRange(Double minPrice, Double maxPrice, Pageable pageable,
             Boolean showDeleted) {
@@ -478,6 +588,7 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.PRODUCT_BRANDS, key = "#showDeleted != null && #showDeleted")
     public List<String> getAllBrands(Boolean showDeleted) {
         Boolean effectiveShowDeleted = showDeleted != null ? showDeleted : false;
         if (effectiveShowDeleted) {
@@ -516,7 +627,28 @@ public class ProductServiceImpl implements ProductService {
     }
 
     private void enrichProductDtoListWithRating(List<ProductDTO> dtos) {
-        if (dtos != null)
-            dtos.forEach(this::enrichProductDtoWithRating);
+        if (dtos == null || dtos.isEmpty())
+            return;
+
+        // Một truy vấn GROUP BY cho cả trang thay vì 2 truy vấn cho mỗi sản phẩm
+        Set<Integer> productIds = dtos.stream()
+                .map(ProductDTO::getIdProduct)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (productIds.isEmpty())
+            return;
+
+        Map<Integer, Object[]> summaries = new HashMap<>();
+        for (Object[] row : productReviewRepository.getRatingSummariesByProductIds(productIds)) {
+            summaries.put((Integer) row[0], row);
+        }
+
+        for (ProductDTO dto : dtos) {
+            if (dto == null || dto.getIdProduct() == null)
+                continue;
+            Object[] summary = summaries.get(dto.getIdProduct());
+            dto.setAverageRating(summary != null && summary[1] != null ? ((Number) summary[1]).doubleValue() : 0.0);
+            dto.setReviewCount(summary != null ? ((Number) summary[2]).intValue() : 0);
+        }
     }
 }
@@ -0,0 +1,127 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.config.ProductViewCounterProperties;
+import com.storemanagement.model.ProductView;
+import com.storemanagement.repository.ProductViewCounterRepository;
+import com.storemanagement.repository.ProductViewCounterRepository.ProductDelta;
+import com.storemanagement.repository.ProductViewCounterRepository.UserProductDelta;
+import com.storemanagement.service.ProductViewCounterService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bộ đếm lượt xem tổng hợp sẵn (theo sản phẩm và theo user + sản phẩm) với điểm suy giảm theo thời gian.
+ * Được cập nhật theo từng lô lượt xem mà ProductViewService ghi xuống; phần gợi ý đọc top-K từ đây
+ * thay vì GROUP BY trên toàn bộ product_view. Top toàn hệ thống được giữ thêm trong bộ nhớ một khoảng ngắn.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductViewCounterServiceImpl implements ProductViewCounterService {
+
+    private final ProductViewCounterRepository productViewCounterRepository;
+    private final ProductViewCounterProperties counterProperties;
+
+    private volatile GlobalTop globalTop;
+
+    private record GlobalTop(List<Object[]> rows, long loadedAt) {
+    }
+
+    private record UserProductKey(Integer userId, Integer productId) {
+    }
+
+    @Override
+    public void recordViews(List<ProductView> views) {
+        if (views.isEmpty()) {
+            return;
+        }
+
+        // Gộp cả lô về cùng một mốc thời gian: mỗi lượt xem có trọng số 0.5^((asOf - t) / halfLife)
+        LocalDateTime asOf = views.get(0).getCreatedAt();
+        for (ProductView view : views) {
+            if (view.getCreatedAt().isAfter(asOf)) {
+                asOf = view.getCreatedAt();
+            }
+        }
+
+        double halfLifeSeconds = halfLifeSeconds();
+        Map<Integer, double[]> productTotals = new HashMap<>();
+        Map<UserProductKey, double[]> userProductTotals = new HashMap<>();
+
+        for (ProductView view : views) {
+            double weight = Math.pow(0.5,
+                    Duration.between(view.getCreatedAt(), asOf).getSeconds() / halfLifeSeconds);
+
+            accumulate(productTotals.computeIfAbsent(view.getProductId(), id -> new double[2]), weight);
+            if (view.getUserId() != null) {
+                accumulate(userProductTotals.computeIfAbsent(
+                        new UserProductKey(view.getUserId(), view.getProductId()), key -> new double[2]), weight);
+            }
+        }
+
+        List<ProductDelta> productDeltas = new ArrayList<>(productTotals.size());
+        for (Map.Entry<Integer, double[]> entry : productTotals.entrySet()) {
+            productDeltas.add(new ProductDelta(entry.getKey(), (long) entry.getValue()[0], entry.getValue()[1], asOf));
+        }
+
+        List<UserProductDelta> userProductDeltas = new ArrayList<>(userProductTotals.size());
+        for (Map.Entry<UserProductKey, double[]> entry : userProductTotals.entrySet()) {
+            userProductDeltas.add(new UserProductDelta(entry.getKey().userId(), entry.getKey().productId(),
+                    (long) entry.getValue()[0], entry.getValue()[1], asOf));
+        }
+
+        productViewCounterRepository.applyProductDeltas(productDeltas, halfLifeSeconds);
+        productViewCounterRepository.applyUserProductDeltas(userProductDeltas, halfLifeSeconds);
+    }
+
+    private static void accumulate(double[] totals, double weight) {
+        totals[0] += 1;
+        totals[1] += weight;
+    }
+
+    @Override
+    public List<Object[]> getTopViewedProducts(Integer userId, int limit) {
+        double halfLifeSeconds = halfLifeSeconds();
+
+        if (userId != null) {
+            return productViewCounterRepository.findTopProductsByUser(userId, LocalDateTime.now(), halfLifeSeconds,
+                    limit);
+        }
+
+        if (limit > counterProperties.getGlobalTopSize()) {
+            return productViewCounterRepository.findTopProducts(LocalDateTime.now(), halfLifeSeconds, limit);
+        }
+
+        GlobalTop current = globalTop;
+        long now = System.currentTimeMillis();
+        if (current == null || now - current.loadedAt() > counterProperties.getGlobalTopTtlMs()) {
+            current = new GlobalTop(productViewCounterRepository.findTopProducts(LocalDateTime.now(),
+                    halfLifeSeconds, counterProperties.getGlobalTopSize()), now);
+            globalTop = current;
+        }
+
+        List<Object[]> rows = current.rows();
+        return rows.subList(0, Math.min(limit, rows.size()));
+    }
+
+    @Override
+    @Scheduled(cron = "${product-view-counter.prune-cron:0 30 3 * * *}")
+    public void pruneUserCounters() {
+        int deleted = productViewCounterRepository.pruneUserRows(LocalDateTime.now(), halfLifeSeconds(),
+                counterProperties.getPruneScoreThreshold());
+        log.info("Pruned {} decayed user product view counters", deleted);
+    }
+
+    private double halfLifeSeconds() {
+        return counterProperties.getHalfLifeHours() * 3600;
+    }
+}
@@ -1,41 +1,139 @@
 package com.storemanagement.service.impl;
 
+import com.storemanagement.config.ProductViewIngestProperties;
+import com.storemanagement.dto.product.ProductViewIngestStatsDTO;
 import com.storemanagement.model.ProductView;
-import com.storemanagement.repository.ProductViewRepository;
+import com.storemanagement.repository.ProductViewBatchRepository;
+import com.storemanagement.service.ProductViewCounterService;
 import com.storemanagement.service.ProductViewService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Ghi nhận lượt xem sản phẩm bất đồng bộ.
+ * Request chỉ đưa lượt xem vào hàng đợi có giới hạn rồi trả về ngay; writer nền định kỳ xả hàng đợi
+ * xuống product_view theo lô (INSERT nhiều dòng). Khi hàng đợi đầy, lượt xem bị bỏ và được đếm
+ * thay vì làm chậm request hoặc tranh connection với checkout. Sau mỗi lô, bộ đếm lượt xem tổng hợp
+ * (ProductViewCounterService) được cộng dồn tương ứng.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ProductViewServiceImpl implements ProductViewService {
 
-    private final ProductViewRepository productViewRepository;
+    private static final String ACTION_VIEW = "VIEW";
+
+    private final ProductViewBatchRepository productViewBatchRepository;
+    private final ProductViewIngestProperties ingestProperties;
+    private final ProductViewCounterService productViewCounterService;
+
+    private BlockingQueue<ProductView> queue;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    @PostConstruct
+    void initQueue() {
+        queue = new ArrayBlockingQueue<>(ingestProperties.getQueueCapacity());
+    }
 
     @Override
-    @Transactional
     public void logView(Integer userId, String sessionId, Integer productId) {
+        ProductView productView = ProductView.builder()
+                .userId(userId)
+                .sessionId(sessionId)
+                .productId(productId)
+                .actionType(ACTION_VIEW)
+                .build();
+        productView.setCreatedAt(LocalDateTime.now());
+
+        if (offer(productView)) {
+            accepted.incrementAndGet();
+        } else {
+            long droppedCount = dropped.incrementAndGet();
+            // Chỉ log thưa để tránh log tràn khi hàng đợi đầy kéo dài
+            if (droppedCount == 1 || droppedCount % 1000 == 0) {
+                log.warn("Product view queue full (capacity {}), {} views dropped so far",
+                        ingestProperties.getQueueCapacity(), droppedCount);
+            }
+        }
+    }
+
+    private boolean offer(ProductView productView) {
+        long timeoutMs = ingestProperties.getOfferTimeoutMs();
+        if (timeoutMs <= 0) {
+            return queue.offer(productView);
+        }
+
         try {
-            ProductView productView = ProductView.builder()
-                    .userId(userId)
-                    .sessionId(sessionId)
-                    .productId(productId)
-                    .actionType("VIEW")
-                    .build();
-
-            ProductView saved = productViewRepository.save(productView);
-            log.info("Successfully logged product view: id={}, userId={}, sessionId={}, productId={}",
-                    saved.getId(), userId, sessionId, productId);
-        } catch (Exception e) {
-            log.error("Failed to log product view: userId={}, sessionId={}, productId={}, error: {}",
-                    userId, sessionId, productId, e.getMessage(), e);
-            throw e;
+            return queue.offer(productView, timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
-}
 
+    @Override
+    @Scheduled(fixedDelayString = "${product-view-ingest.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        int batchSize = ingestProperties.getBatchSize();
+        List<ProductView> batch = new ArrayList<>(batchSize);
+
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                productViewBatchRepository.insertViews(batch);
+                written.addAndGet(batch.size());
+                batches.incrementAndGet();
+            } catch (Exception e) {
+                // Lượt xem chỉ phục vụ thống kê/gợi ý: bỏ lô lỗi thay vì giữ lại làm đầy hàng đợi
+                failed.addAndGet(batch.size());
+                log.error("Failed to write {} product views: {}", batch.size(), e.getMessage(), e);
+                batch.clear();
+                continue;
+            }
+
+            try {
+                productViewCounterService.recordViews(batch);
+            } catch (Exception e) {
+                log.error("Failed to update view counters for {} product views: {}", batch.size(),
+                        e.getMessage(), e);
+            }
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+        log.info("Product view queue flushed on shutdown: written={}, dropped={}, failed={}",
+                written.get(), dropped.get(), failed.get());
+    }
+
+    @Override
+    public ProductViewIngestStatsDTO getIngestStats() {
+        return ProductViewIngestStatsDTO.builder()
+                .queueSize(queue.size())
+                .queueCapacity(ingestProperties.getQueueCapacity())
+                .accepted(accepted.get())
+                .dropped(dropped.get())
+                .written(written.get())
+                .failed(failed.get())
+                .batches(batches.get())
+                .build();
+    }
+}
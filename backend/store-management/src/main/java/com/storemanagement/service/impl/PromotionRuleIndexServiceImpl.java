@@ -0,0 +1,146 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.model.PromotionRule;
+import com.storemanagement.repository.PromotionRuleRepository;
+import com.storemanagement.service.PromotionRuleIndexService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Index trong bộ nhớ các PromotionRule đang active, thay cho findApplicableRules / findApplicableShippingRules
+ * ở mỗi lần xem giỏ hàng và checkout. Rule được nhóm theo (scope, customerType), mỗi nhóm sắp sẵn theo
+ * priority giảm dần; tra cứu chỉ duyệt nhóm của khách và nhóm ALL tới rule đầu tiên thỏa ngưỡng
+ * minOrderAmount và thời gian hiệu lực. Snapshot là bất biến và được thay nguyên khối khi nạp lại.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PromotionRuleIndexServiceImpl implements PromotionRuleIndexService {
+
+    private static final String CUSTOMER_TYPE_ALL = "ALL";
+
+    private static final Comparator<ActiveRule> PRIORITY_ORDER = Comparator
+            .comparingInt(ActiveRule::priority).reversed()
+            .thenComparing(ActiveRule::idRule);
+
+    private final PromotionRuleRepository promotionRuleRepository;
+
+    private volatile Map<PromotionRule.PromotionScope, Map<String, ActiveRule[]>> snapshot =
+            new EnumMap<>(PromotionRule.PromotionScope.class);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${promotion-rule-index.refresh-interval-ms:300000}",
+            initialDelayString = "${promotion-rule-index.refresh-interval-ms:300000}")
+    public void scheduledReload() {
+        reload();
+    }
+
+    @Override
+    public synchronized void reload() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<PromotionRule.PromotionScope, Map<String, List<ActiveRule>>> grouped =
+                new EnumMap<>(PromotionRule.PromotionScope.class);
+
+        int ruleCount = 0;
+        for (PromotionRule rule : promotionRuleRepository.findByIsActiveTrue()) {
+            // Rule thiếu dữ liệu không bao giờ khớp điều kiện của truy vấn cũ; rule đã hết hạn thì bỏ luôn
+            if (rule.getScope() == null || rule.getCustomerType() == null || rule.getMinOrderAmount() == null
+                    || rule.getStartDate() == null || rule.getEndDate() == null || rule.getEndDate().isBefore(now)) {
+                continue;
+            }
+
+            ActiveRule activeRule = new ActiveRule(rule.getIdRule(), rule.getRuleName(), rule.getDiscountType(),
+                    rule.getDiscountValue(), rule.getMinOrderAmount(), rule.getCustomerType(),
+                    rule.getStartDate(), rule.getEndDate(), rule.getPriority() != null ? rule.getPriority() : 0);
+
+            grouped.computeIfAbsent(rule.getScope(), scope -> new HashMap<>())
+                    .computeIfAbsent(rule.getCustomerType(), type -> new ArrayList<>())
+                    .add(activeRule);
+            ruleCount++;
+        }
+
+        Map<PromotionRule.PromotionScope, Map<String, ActiveRule[]>> compiled =
+                new EnumMap<>(PromotionRule.PromotionScope.class);
+        grouped.forEach((scope, byCustomerType) -> {
+            Map<String, ActiveRule[]> buckets = new HashMap<>();
+            byCustomerType.forEach((customerType, rules) -> {
+                ActiveRule[] sorted = rules.toArray(new ActiveRule[0]);
+                Arrays.sort(sorted, PRIORITY_ORDER);
+                buckets.put(customerType, sorted);
+            });
+            compiled.put(scope, Map.copyOf(buckets));
+        });
+
+        snapshot = compiled;
+        log.info("Promotion rule index reloaded: {} active rules", ruleCount);
+    }
+
+    @Override
+    public void reloadAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload();
+                }
+            });
+        } else {
+            reload();
+        }
+    }
+
+    @Override
+    public Optional<ActiveRule> findBestRule(PromotionRule.PromotionScope scope, BigDecimal totalAmount,
+                                             String customerType, LocalDateTime now) {
+        Map<String, ActiveRule[]> buckets = snapshot.get(scope);
+        if (buckets == null || totalAmount == null) {
+            return Optional.empty();
+        }
+
+        ActiveRule[] own = CUSTOMER_TYPE_ALL.equals(customerType) ? null : buckets.get(customerType);
+        ActiveRule[] shared = buckets.get(CUSTOMER_TYPE_ALL);
+
+        // Duyệt song song hai mảng đã sắp theo priority, trả về rule khớp đầu tiên
+        int i = 0;
+        int j = 0;
+        int ownLength = own != null ? own.length : 0;
+        int sharedLength = shared != null ? shared.length : 0;
+        while (i < ownLength || j < sharedLength) {
+            ActiveRule candidate;
+            if (j >= sharedLength || (i < ownLength && PRIORITY_ORDER.compare(own[i], shared[j]) <= 0)) {
+                candidate = own[i++];
+            } else {
+                candidate = shared[j++];
+            }
+
+            if (candidate.minOrderAmount().compareTo(totalAmount) <= 0
+                    && !now.isBefore(candidate.startDate())
+                    && !now.isAfter(candidate.endDate())) {
+                return Optional.of(candidate);
+            }
+        }
+
+        return Optional.empty();
+    }
+}
@@ -7,21 +7,30 @@ import com.storemanagement.mapper.PromotionMapper;
 import com.storemanagement.mapper.PromotionRuleMapper;
 import com.storemanagement.model.*;
 import com.storemanagement.repository.*;
+import com.storemanagement.service.PromotionRuleIndexService;
+import com.storemanagement.service.PromotionRuleIndexService.ActiveRule;
 import com.storemanagement.service.PromotionService;
 import com.storemanagement.utils.PageUtils;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -29,14 +38,19 @@ import java.util.ArrayList;
 @Slf4j
 public class PromotionServiceImpl implements PromotionService {
 
+    private static final int ON_SALE_LIMIT = 20;
+
     private final PromotionRepository promotionRepository;
     private final PromotionUsageRepository promotionUsageRepository;
     private final PromotionRuleRepository promotionRuleRepository;
     private final ProductRepository productRepository;
+    private final ProductImageRepository productImageRepository;
     private final CustomerRepository customerRepository;
     private final OrderRepository orderRepository;
     private final PromotionMapper promotionMapper;
     private final PromotionRuleMapper promotionRuleMapper;
+    private final PromotionRuleIndexService promotionRuleIndexService;
+    private final PromotionUsageCounterRepository promotionUsageCounterRepository;
 
     @Override
     @Transactional(readOnly = true)
@@ -103,36 +117,36 @@ public class PromotionServiceImpl implements PromotionService {
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public CalculateDiscountResponseDTO calculateAutomaticDiscount(CalculateDiscountRequestDTO request,
             String customerType) {
-        log.info("Calculating automatic discount for total amount: {}, customer type: {}", request.getTotalAmount(),
+        log.debug("Calculating automatic discount for total amount: {}, customer type: {}", request.getTotalAmount(),
                 customerType);
 
-        LocalDateTime now = LocalDateTime.now();
-
-        List<PromotionRule> rules = promotionRuleRepository.findApplicableRules(
-                now,
+        // Tra cứu trong index bộ nhớ, không truy vấn DB
+        Optional<ActiveRule> bestRule = promotionRuleIndexService.findBestRule(
+                PromotionRule.PromotionScope.ORDER,
                 request.getTotalAmount(),
-                customerType != null ? customerType : "REGULAR");
+                customerType != null ? customerType : "REGULAR",
+                LocalDateTime.now());
 
-        if (rules.isEmpty()) {
+        if (bestRule.isEmpty()) {
             return CalculateDiscountResponseDTO.builder()
                     .applicable(false)
                     .discount(BigDecimal.ZERO)
                     .build();
         }
 
-        PromotionRule rule = rules.get(0);
+        ActiveRule rule = bestRule.get();
 
         BigDecimal discount = calculateDiscountFromRule(rule, request.getTotalAmount());
 
         return CalculateDiscountResponseDTO.builder()
                 .applicable(true)
                 .discount(discount)
-                .discountType(rule.getDiscountType())
-                .ruleName(rule.getRuleName())
-                .ruleId(rule.getIdRule())
+                .discountType(rule.discountType())
+                .ruleName(rule.ruleName())
+                .ruleId(rule.idRule())
                 .build();
     }
 
@@ -195,7 +209,7 @@ public class PromotionServiceImpl implements PromotionService {
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public CalculateDiscountResponseDTO calculateAutoShippingDiscount(BigDecimal shippingFee, BigDecimal orderTotal,
             String customerType) {
         if (shippingFee == null || shippingFee.compareTo(BigDecimal.ZERO) <= 0) {
@@ -205,30 +219,29 @@ public class PromotionServiceImpl implements PromotionService {
                     .build();
         }
 
-        LocalDateTime now = LocalDateTime.now();
-
-        List<PromotionRule> shippingRules = promotionRuleRepository.findApplicableShippingRules(
-                now,
+        Optional<ActiveRule> bestRule = promotionRuleIndexService.findBestRule(
+                PromotionRule.PromotionScope.SHIPPING,
                 orderTotal != null ? orderTotal : BigDecimal.ZERO,
-                customerType != null ? customerType : "REGULAR");
+                customerType != null ? customerType : "REGULAR",
+                LocalDateTime.now());
 
-        if (shippingRules.isEmpty()) {
+        if (bestRule.isEmpty()) {
             return CalculateDiscountResponseDTO.builder()
                     .applicable(false)
                     .discount(BigDecimal.ZERO)
                     .build();
         }
 
-        PromotionRule rule = shippingRules.get(0);
+        ActiveRule rule = bestRule.get();
         BigDecimal discount = calculateDiscountFromRule(rule, shippingFee);
         discount = discount.min(shippingFee);
 
         return CalculateDiscountResponseDTO.builder()
                 .applicable(true)
                 .discount(discount)
-                .discountType(rule.getDiscountType())
-                .ruleName(rule.getRuleName())
-                .ruleId(rule.getIdRule())
+                .discountType(rule.discountType())
+                .ruleName(rule.ruleName())
+                .ruleId(rule.idRule())
                 .build();
     }
 
@@ -243,12 +256,21 @@ public class PromotionServiceImpl implements PromotionService {
     }
 
     private BigDecimal calculateDiscountFromRule(PromotionRule rule, BigDecimal totalAmount) {
-        if (rule.getDiscountType() == PromotionRule.DiscountType.PERCENTAGE) {
-            BigDecimal discount = totalAmount.multiply(rule.getDiscountValue())
+        return calculateDiscountFromRule(rule.getDiscountType(), rule.getDiscountValue(), totalAmount);
+    }
+
+    private BigDecimal calculateDiscountFromRule(ActiveRule rule, BigDecimal totalAmount) {
+        return calculateDiscountFromRule(rule.discountType(), rule.discountValue(), totalAmount);
+    }
+
+    private BigDecimal calculateDiscountFromRule(PromotionRule.DiscountType discountType, BigDecimal discountValue,
+            BigDecimal totalAmount) {
+        if (discountType == PromotionRule.DiscountType.PERCENTAGE) {
+            BigDecimal discount = totalAmount.multiply(discountValue)
                     .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
             return discount.min(totalAmount);
         } else {
-            return rule.getDiscountValue().min(totalAmount);
+            return discountValue.min(totalAmount);
         }
     }
 
@@ -326,6 +348,7 @@ public class PromotionServiceImpl implements PromotionService {
     public PromotionRuleDTO createPromotionRule(PromotionRuleDTO ruleDTO) {
         PromotionRule rule = promotionRuleMapper.toEntity(ruleDTO);
         rule = promotionRuleRepository.save(rule);
+        promotionRuleIndexService.reloadAfterCommit();
         return promotionRuleMapper.toDTO(rule);
     }
 
@@ -363,6 +386,7 @@ public class PromotionServiceImpl implements PromotionService {
         }
 
         rule = promotionRuleRepository.save(rule);
+        promotionRuleIndexService.reloadAfterCommit();
         return promotionRuleMapper.toDTO(rule);
     }
 
@@ -371,11 +395,55 @@ public class PromotionServiceImpl implements PromotionService {
         PromotionRule rule = promotionRuleRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Không tìm thấy quy tắc giảm giá"));
         promotionRuleRepository.delete(rule);
+        promotionRuleIndexService.reloadAfterCommit();
     }
 
+    /**
+     * Giữ một lượt dùng mã cho đơn hàng. Câu UPDATE có điều kiện trên dòng promotions được dời tới ngay trước
+     * commit của transaction checkout, nên khóa dòng (điểm nóng khi chạy chiến dịch) chỉ bị giữ trong lúc commit
+     * thay vì suốt quá trình tạo đơn. Hết lượt thì ném exception và cả đơn hàng bị rollback.
+     */
     @Override
     public void recordPromotionUsage(Integer promotionId, Integer orderId, Integer customerId) {
-        // No-op
+        runBeforeCommit(() -> {
+            if (!promotionUsageCounterRepository.tryAcquire(promotionId)) {
+                throw new RuntimeException("Mã giảm giá đã hết lượt sử dụng");
+            }
+            promotionUsageCounterRepository.insertUsage(promotionId, orderId, customerId);
+            log.info("Promotion usage recorded for order ID: {}, promotion ID: {}", orderId, promotionId);
+        });
+    }
+
+    /**
+     * Hoàn lại lượt dùng mã khi đơn bị hủy hoặc thanh toán PayOS thất bại. Gọi nhiều lần cho cùng một đơn
+     * chỉ hoàn một lần vì chỉ lời gọi xóa được dòng promotion_usage mới giảm usage_count.
+     */
+    @Override
+    public void releasePromotionUsage(Integer orderId) {
+        if (orderId == null) {
+            return;
+        }
+
+        List<PromotionUsageCounterRepository.UsageRow> usages = promotionUsageCounterRepository.findUsagesByOrder(orderId);
+        for (PromotionUsageCounterRepository.UsageRow usage : usages) {
+            if (promotionUsageCounterRepository.deleteUsage(usage.idUsage())) {
+                runBeforeCommit(() -> promotionUsageCounterRepository.release(usage.idPromotion()));
+                log.info("Promotion usage released for order ID: {}, promotion ID: {}", orderId, usage.idPromotion());
+            }
+        }
+    }
+
+    private void runBeforeCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 
     @Override
@@ -407,11 +475,10 @@ public class PromotionServiceImpl implements PromotionService {
 
         BigDecimal minPrice = bestRule.getMinOrderAmount() != null ? bestRule.getMinOrderAmount() : BigDecimal.ZERO;
 
-        List<Product> eligibleProducts = productRepository.findAllByIsDeleteFalse().stream()
-                .filter(p -> p.getStockQuantity() != null && p.getStockQuantity() > 0)
-                .filter(p -> p.getPrice() != null && p.getPrice().compareTo(minPrice) >= 0)
-                .limit(20)
-                .toList();
+        // Lọc và giới hạn ngay trong DB; ảnh của các sản phẩm thiếu imageUrl được lấy bằng một truy vấn
+        List<Product> eligibleProducts = productRepository.findOnSaleCandidates(minPrice,
+                PageRequest.of(0, ON_SALE_LIMIT));
+        Map<Integer, String> fallbackImages = findFallbackImages(eligibleProducts);
 
         List<ProductOnSaleDTO> productsOnSale = new ArrayList<>();
 
@@ -430,13 +497,8 @@ public class PromotionServiceImpl implements PromotionService {
             }
 
             String imageUrl = product.getImageUrl();
-            if ((imageUrl == null || imageUrl.isEmpty()) && product.getImages() != null
-                    && !product.getImages().isEmpty()) {
-                imageUrl = product.getImages().stream()
-                        .filter(img -> img.getIsPrimary() != null && img.getIsPrimary())
-                        .findFirst()
-                        .map(ProductImage::getImageUrl)
-                        .orElseGet(() -> product.getImages().get(0).getImageUrl());
+            if (imageUrl == null || imageUrl.isEmpty()) {
+                imageUrl = fallbackImages.get(product.getIdProduct());
             }
 
             productsOnSale.add(ProductOnSaleDTO.builder()
@@ -465,6 +527,31 @@ public class PromotionServiceImpl implements PromotionService {
         return productsOnSale;
     }
 
+    /**
+     * Ảnh đại diện (ảnh primary, nếu không có thì ảnh đầu tiên) cho các sản phẩm chưa có imageUrl.
+     */
+    private Map<Integer, String> findFallbackImages(List<Product> products) {
+        List<Integer> productIds = products.stream()
+                .filter(p -> p.getImageUrl() == null || p.getImageUrl().isEmpty())
+                .map(Product::getIdProduct)
+                .toList();
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Integer, String> firstImages = new HashMap<>();
+        Map<Integer, String> primaryImages = new HashMap<>();
+        for (Object[] row : productImageRepository.findImageUrlsByProductIds(productIds)) {
+            Integer productId = (Integer) row[0];
+            firstImages.putIfAbsent(productId, (String) row[1]);
+            if (Boolean.TRUE.equals(row[2])) {
+                primaryImages.putIfAbsent(productId, (String) row[1]);
+            }
+        }
+        firstImages.putAll(primaryImages);
+        return firstImages;
+    }
+
     private String formatCurrency(BigDecimal amount) {
         if (amount == null)
             return "0đ";
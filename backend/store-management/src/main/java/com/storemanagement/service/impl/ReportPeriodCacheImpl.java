@@ -0,0 +1,158 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.dto.report.DailyRevenueDTO;
+import com.storemanagement.model.Order;
+import com.storemanagement.service.ReportPeriodCache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mỗi ngày đã qua được lưu một lần (kể cả ngày không có đơn) nên lần mở lại báo cáo chỉ còn truy vấn các ngày
+ * chưa có trong cache và hôm nay. Bộ đếm invalidation ngăn kết quả của truy vấn chạy song song với một lần
+ * invalidate bị đưa lại vào cache.
+ */
+@Service
+@Transactional(readOnly = true)
+@Slf4j
+public class ReportPeriodCacheImpl implements ReportPeriodCache {
+
+    private static final DailyRevenueDTO NO_ORDERS = DailyRevenueDTO.builder()
+            .productRevenue(BigDecimal.ZERO)
+            .totalDiscount(BigDecimal.ZERO)
+            .orderCount(0L)
+            .build();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Map<LocalDate, DailyRevenueDTO> closedDays = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Override
+    public List<DailyRevenueDTO> getDailyRevenue(LocalDate fromDate, LocalDate toDate) {
+        LocalDate today = LocalDate.now();
+        long generation = invalidations.get();
+
+        Map<LocalDate, DailyRevenueDTO> days = new TreeMap<>();
+
+        // Ngày đã đóng: lấy từ cache, tính một lần cho khoảng bao các ngày còn thiếu
+        LocalDate lastClosed = toDate.isBefore(today) ? toDate : today.minusDays(1);
+        LocalDate firstMissing = null;
+        LocalDate lastMissing = null;
+        for (LocalDate day = fromDate; !day.isAfter(lastClosed); day = day.plusDays(1)) {
+            DailyRevenueDTO cached = closedDays.get(day);
+            if (cached != null) {
+                days.put(day, cached);
+            } else {
+                if (firstMissing == null) {
+                    firstMissing = day;
+                }
+                lastMissing = day;
+            }
+        }
+
+        if (firstMissing != null) {
+            Map<LocalDate, DailyRevenueDTO> computed = queryDailyRevenue(firstMissing, lastMissing);
+            boolean cacheable = invalidations.get() == generation;
+            for (LocalDate day = firstMissing; !day.isAfter(lastMissing); day = day.plusDays(1)) {
+                DailyRevenueDTO value = computed.getOrDefault(day, NO_ORDERS);
+                if (cacheable) {
+                    closedDays.put(day, value);
+                }
+                days.put(day, value);
+            }
+            log.debug("Report period cache: computed {} - {} (cached={})", firstMissing, lastMissing, cacheable);
+        }
+
+        // Ngày đang mở (hôm nay trở đi): luôn tính lại
+        LocalDate firstOpen = fromDate.isAfter(today) ? fromDate : today;
+        if (!firstOpen.isAfter(toDate)) {
+            days.putAll(queryDailyRevenue(firstOpen, toDate));
+        }
+
+        List<DailyRevenueDTO> result = new ArrayList<>();
+        days.forEach((day, value) -> {
+            if (value.getOrderCount() > 0) {
+                result.add(DailyRevenueDTO.builder()
+                        .salesDate(day)
+                        .productRevenue(value.getProductRevenue())
+                        .totalDiscount(value.getTotalDiscount())
+                        .orderCount(value.getOrderCount())
+                        .build());
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void invalidate(Order order) {
+        if (order == null || order.getOrderDate() == null) {
+            return;
+        }
+
+        LocalDate day = order.getOrderDate().toLocalDate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(day);
+                }
+            });
+        } else {
+            evict(day);
+        }
+    }
+
+    private void evict(LocalDate day) {
+        invalidations.incrementAndGet();
+        closedDays.remove(day);
+    }
+
+    private Map<LocalDate, DailyRevenueDTO> queryDailyRevenue(LocalDate fromDate, LocalDate toDate) {
+        String nativeQuery = """
+                SELECT DATE(o.order_date) as sales_date,
+                       COALESCE(SUM(od.quantity * od.price), 0) as product_revenue,
+                       COALESCE(SUM(o.discount), 0) as total_discount,
+                       COUNT(DISTINCT o.id_order) as order_count
+                FROM orders o
+                JOIN order_details od ON o.id_order = od.id_order
+                WHERE o.status = 'COMPLETED'
+                  AND o.order_date BETWEEN :startDate AND :endDate
+                GROUP BY DATE(o.order_date)
+                """;
+
+        Query query = entityManager.createNativeQuery(nativeQuery);
+        query.setParameter("startDate", fromDate.atStartOfDay());
+        query.setParameter("endDate", toDate.atTime(23, 59, 59));
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+
+        Map<LocalDate, DailyRevenueDTO> days = new TreeMap<>();
+        for (Object[] row : rows) {
+            LocalDate day = row[0] instanceof java.sql.Date sqlDate ? sqlDate.toLocalDate() : (LocalDate) row[0];
+            days.put(day, DailyRevenueDTO.builder()
+                    .salesDate(day)
+                    .productRevenue(row[1] != null ? new BigDecimal(row[1].toString()) : BigDecimal.ZERO)
+                    .totalDiscount(row[2] != null ? new BigDecimal(row[2].toString()) : BigDecimal.ZERO)
+                    .orderCount(row[3] != null ? ((Number) row[3]).longValue() : 0L)
+                    .build());
+        }
+        return days;
+    }
+}
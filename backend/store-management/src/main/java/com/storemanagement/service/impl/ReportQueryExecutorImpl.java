@@ -0,0 +1,249 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.config.ReportExecutionProperties;
+import com.storemanagement.dto.report.ReportSubqueryStatsDTO;
+import com.storemanagement.service.ReportQueryExecutor;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Pool cố định maxConcurrency thread: số connection báo cáo chiếm cùng lúc không vượt quá giới hạn này,
+ * các truy vấn dư xếp hàng thay vì lấy thêm connection của luồng OLTP.
+ * Mỗi truy vấn song song chạy trong transaction read-only riêng; snapshot REPEATABLE READ (mặc định của InnoDB)
+ * được tạo ở lần đọc đầu tiên của truy vấn đó, tức là khi task bắt đầu chạy chứ không phải khi batch bắt đầu.
+ * Các truy vấn của một batch vì vậy có thể thấy dữ liệu ở các thời điểm lệch nhau (càng lệch khi phải xếp hàng
+ * chờ thread); MySQL không cho chia sẻ một snapshot giữa các connection. Cần số liệu khớp tuyệt đối giữa các
+ * truy vấn thì tắt report-execution.parallel để chạy trên một snapshot duy nhất.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReportQueryExecutorImpl implements ReportQueryExecutor {
+
+    private static final String TOTAL = "total";
+
+    private final PlatformTransactionManager transactionManager;
+    private final ReportExecutionProperties properties;
+
+    private final Map<String, SubqueryMetrics> metrics = new ConcurrentHashMap<>();
+    private final AtomicInteger threadCounter = new AtomicInteger();
+    private volatile ExecutorService executor;
+
+    @Override
+    public Batch newBatch(String report) {
+        return new QueryBatch(report);
+    }
+
+    @Override
+    public List<ReportSubqueryStatsDTO> getStatistics() {
+        List<ReportSubqueryStatsDTO> statistics = new ArrayList<>();
+        for (SubqueryMetrics subqueryMetrics : metrics.values()) {
+            statistics.add(subqueryMetrics.toDTO());
+        }
+        statistics.sort(Comparator.comparing(ReportSubqueryStatsDTO::getReport)
+                .thenComparing(ReportSubqueryStatsDTO::getSubquery));
+        return statistics;
+    }
+
+    @PreDestroy
+    public void onShutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        template.setTimeout((int) Math.max(TimeUnit.MILLISECONDS.toSeconds(properties.getTimeoutMs()), 1));
+        return template;
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    executor = Executors.newFixedThreadPool(Math.max(properties.getMaxConcurrency(), 1), runnable -> {
+                        Thread thread = new Thread(runnable, "report-query-" + threadCounter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return executor;
+    }
+
+    private SubqueryMetrics metricsFor(String report, String subquery) {
+        return metrics.computeIfAbsent(report + " " + subquery, key -> new SubqueryMetrics(report, subquery));
+    }
+
+    private class QueryBatch implements Batch {
+
+        private final String report;
+        private final List<Task<?>> tasks = new ArrayList<>();
+
+        QueryBatch(String report) {
+            this.report = report;
+        }
+
+        @Override
+        public <T> CompletableFuture<T> add(String subquery, Supplier<T> query) {
+            Task<T> task = new Task<>(metricsFor(report, subquery), query);
+            tasks.add(task);
+            return task.result;
+        }
+
+        @Override
+        public void execute() {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                if (properties.isParallel() && properties.getMaxConcurrency() > 1 && tasks.size() > 1) {
+                    executeParallel();
+                } else {
+                    readOnlyTransaction().executeWithoutResult(status -> tasks.forEach(Task::run));
+                }
+                success = true;
+            } finally {
+                metricsFor(report, TOTAL).record(System.nanoTime() - start, success);
+            }
+
+            for (Task<?> task : tasks) {
+                if (task.result.isCompletedExceptionally()) {
+                    rethrow(task.result);
+                }
+            }
+        }
+
+        private void executeParallel() {
+            TransactionTemplate template = readOnlyTransaction();
+            ExecutorService pool = executor();
+
+            List<CompletableFuture<?>> futures = new ArrayList<>(tasks.size());
+            for (Task<?> task : tasks) {
+                futures.add(task.result);
+                pool.execute(() -> {
+                    // Batch đã hết thời gian (future bị hủy) khi task còn nằm trong hàng đợi: không chạy nữa
+                    if (task.result.isDone()) {
+                        return;
+                    }
+                    try {
+                        template.executeWithoutResult(status -> task.run());
+                    } catch (RuntimeException e) {
+                        // Lỗi khi mở/commit transaction (task.run tự ghi nhận lỗi của truy vấn)
+                        task.result.completeExceptionally(e);
+                    }
+                });
+            }
+
+            try {
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                        .get(properties.getTimeoutMs(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                futures.forEach(future -> future.cancel(true));
+                throw new RuntimeException("Báo cáo " + report + " vượt quá thời gian cho phép");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Báo cáo " + report + " bị gián đoạn");
+            } catch (ExecutionException e) {
+                // Lỗi của từng truy vấn được ném lại ở execute()
+            }
+        }
+
+        private void rethrow(CompletableFuture<?> result) {
+            try {
+                result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static class Task<T> {
+        private final SubqueryMetrics metrics;
+        private final Supplier<T> query;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Task(SubqueryMetrics metrics, Supplier<T> query) {
+            this.metrics = metrics;
+            this.query = query;
+        }
+
+        void run() {
+            long start = System.nanoTime();
+            try {
+                T value = query.get();
+                metrics.record(System.nanoTime() - start, true);
+                result.complete(value);
+            } catch (RuntimeException e) {
+                metrics.record(System.nanoTime() - start, false);
+                result.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    private static class SubqueryMetrics {
+        private final String report;
+        private final String subquery;
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalMs = new LongAdder();
+        private final AtomicLong maxMs = new AtomicLong();
+        private volatile long lastMs;
+
+        SubqueryMetrics(String report, String subquery) {
+            this.report = report;
+            this.subquery = subquery;
+        }
+
+        void record(long elapsedNanos, boolean success) {
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            executions.increment();
+            if (!success) {
+                failures.increment();
+            }
+            totalMs.add(elapsedMs);
+            maxMs.accumulateAndGet(elapsedMs, Math::max);
+            lastMs = elapsedMs;
+        }
+
+        ReportSubqueryStatsDTO toDTO() {
+            long count = executions.sum();
+            return ReportSubqueryStatsDTO.builder()
+                    .report(report)
+                    .subquery(subquery)
+                    .executions(count)
+                    .failures(failures.sum())
+                    .averageMs(count > 0 ? (double) totalMs.sum() / count : 0.0)
+                    .maxMs(maxMs.get())
+                    .lastMs(lastMs)
+                    .build();
+        }
+    }
+}
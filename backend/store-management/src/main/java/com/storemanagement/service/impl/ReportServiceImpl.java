@@ -1,9 +1,13 @@
 package com.storemanagement.service.impl;
 
+import com.storemanagement.dto.report.DailyRevenueDTO;
+import com.storemanagement.dto.report.ReportSubqueryStatsDTO;
 import com.storemanagement.dto.report.RevenueByProductDTO;
 import com.storemanagement.dto.report.RevenueByTimeDTO;
 import com.storemanagement.dto.report.RevenueSummaryDTO;
 import com.storemanagement.model.Order;
+import com.storemanagement.service.ReportPeriodCache;
+import com.storemanagement.service.ReportQueryExecutor;
 import com.storemanagement.service.ReportService;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
@@ -11,6 +15,7 @@ import jakarta.persistence.Query;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
@@ -20,6 +25,9 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -27,49 +35,40 @@ import java.util.List;
 @Slf4j
 public class ReportServiceImpl implements ReportService {
 
+    private final ReportQueryExecutor reportQueryExecutor;
+    private final ReportPeriodCache reportPeriodCache;
+
     @PersistenceContext
     private EntityManager entityManager;
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public RevenueSummaryDTO getRevenueSummary(LocalDate fromDate, LocalDate toDate) {
         log.info("Generating revenue summary from {} to {}", fromDate, toDate);
 
         LocalDateTime startDateTime = fromDate.atStartOfDay();
         LocalDateTime endDateTime = toDate.atTime(23, 59, 59);
 
-        String productRevenueQuery = """
-                SELECT COALESCE(SUM(od.quantity * od.price), 0) as productRevenue
-                FROM Order o
-                JOIN o.orderDetails od
-                WHERE o.status = :completedStatus
-                  AND o.orderDate BETWEEN :startDate AND :endDate
-                """;
-
-        Query prodQuery = entityManager.createQuery(productRevenueQuery);
-        prodQuery.setParameter("completedStatus", Order.OrderStatus.COMPLETED);
-        prodQuery.setParameter("startDate", startDateTime);
-        prodQuery.setParameter("endDate", endDateTime);
-
-        BigDecimal productRevenue = (BigDecimal) prodQuery.getSingleResult();
+        // Các truy vấn con độc lập, chạy song song (nếu bật) qua ReportQueryExecutor
+        ReportQueryExecutor.Batch batch = reportQueryExecutor.newBatch("revenueSummary");
+        CompletableFuture<BigDecimal> productRevenueResult = batch.add("productRevenue",
+                () -> queryProductRevenue(startDateTime, endDateTime));
+        CompletableFuture<Object[]> orderStatsResult = batch.add("orderStats",
+                () -> queryCompletedOrderStats(startDateTime, endDateTime));
+        CompletableFuture<BigDecimal> importCostResult = batch.add("importCost",
+                () -> calculateImportCost(startDateTime, endDateTime));
+        CompletableFuture<List<Object[]>> statusCountsResult = batch.add("statusCounts",
+                () -> queryStatusCounts(startDateTime, endDateTime));
+        CompletableFuture<Object[]> returnsResult = batch.add("returns",
+                () -> queryApprovedReturns(startDateTime, endDateTime));
+        batch.execute();
+
+        BigDecimal productRevenue = productRevenueResult.join();
         if (productRevenue == null) {
             productRevenue = BigDecimal.ZERO;
         }
 
-        String orderStatsQuery = """
-                SELECT COALESCE(SUM(o.discount), 0) as totalDiscount,
-                       COALESCE(SUM(o.shippingFee), 0) as shippingFeeTotal,
-                       COUNT(o.idOrder) as completedOrders
-                FROM Order o
-                WHERE o.status = :completedStatus
-                  AND o.orderDate BETWEEN :startDate AND :endDate
-                """;
-
-        Query statsQuery = entityManager.createQuery(orderStatsQuery);
-        statsQuery.setParameter("completedStatus", Order.OrderStatus.COMPLETED);
-        statsQuery.setParameter("startDate", startDateTime);
-        statsQuery.setParameter("endDate", endDateTime);
-
-        Object[] stats = (Object[]) statsQuery.getSingleResult();
+        Object[] stats = orderStatsResult.join();
         BigDecimal totalDiscount = stats[0] != null ? (BigDecimal) stats[0] : BigDecimal.ZERO;
         BigDecimal shippingFeeTotal = stats[1] != null ? (BigDecimal) stats[1] : BigDecimal.ZERO;
         Long completedOrders = stats[2] != null ? (Long) stats[2] : 0L;
@@ -79,31 +78,17 @@ public class ReportServiceImpl implements ReportService {
             netRevenue = BigDecimal.ZERO;
         }
 
-        BigDecimal importCost = calculateImportCost(startDateTime, endDateTime);
+        BigDecimal importCost = importCostResult.join();
 
         BigDecimal grossProfit = netRevenue.subtract(importCost);
 
-        String countQuery = """
-                SELECT o.status, COUNT(o)
-                FROM Order o
-                WHERE o.orderDate BETWEEN :startDate AND :endDate
-                GROUP BY o.status
-                """;
-
-        Query countQueryObj = entityManager.createQuery(countQuery);
-        countQueryObj.setParameter("startDate", startDateTime);
-        countQueryObj.setParameter("endDate", endDateTime);
-
-        @SuppressWarnings("unchecked")
-        List<Object[]> statusCounts = countQueryObj.getResultList();
-
         long totalOrders = 0;
         long countedCompletedOrders = 0;
         long canceledOrders = 0;
         long pendingOrders = 0;
         long confirmedOrders = 0;
 
-        for (Object[] row : statusCounts) {
+        for (Object[] row : statusCountsResult.join()) {
             Order.OrderStatus status = (Order.OrderStatus) row[0];
             Long count = (Long) row[1];
             totalOrders += count;
@@ -118,19 +103,7 @@ public class ReportServiceImpl implements ReportService {
 
         final long finalCompletedOrders = countedCompletedOrders > 0 ? countedCompletedOrders : completedOrders;
 
-        String returnQuery = """
-                SELECT COUNT(r), COALESCE(SUM(r.refundAmount), 0)
-                FROM OrderReturn r
-                WHERE r.status = :approvedStatus
-                  AND r.createdAt BETWEEN :startDate AND :endDate
-                """;
-
-        Query returnQueryObj = entityManager.createQuery(returnQuery);
-        returnQueryObj.setParameter("approvedStatus", com.storemanagement.model.OrderReturn.ReturnStatus.APPROVED);
-        returnQueryObj.setParameter("startDate", startDateTime);
-        returnQueryObj.setParameter("endDate", endDateTime);
-
-        Object[] returnResult = (Object[]) returnQueryObj.getSingleResult();
+        Object[] returnResult = returnsResult.join();
         Long returnedOrders = (Long) returnResult[0];
         BigDecimal refundAmount = (BigDecimal) returnResult[1];
 
@@ -153,107 +126,131 @@ public class ReportServiceImpl implements ReportService {
                 .build();
     }
 
-    private BigDecimal calculateImportCost(LocalDateTime startDate, LocalDateTime endDate) {
+    @Override
+    public List<ReportSubqueryStatsDTO> getExecutionStatistics() {
+        return reportQueryExecutor.getStatistics();
+    }
 
-        String soldProductsQuery = """
-                SELECT od.product.idProduct as productId,
-                       SUM(od.quantity) as quantitySold
+    private BigDecimal queryProductRevenue(LocalDateTime startDate, LocalDateTime endDate) {
+        String productRevenueQuery = """
+                SELECT COALESCE(SUM(od.quantity * od.price), 0) as productRevenue
                 FROM Order o
                 JOIN o.orderDetails od
                 WHERE o.status = :completedStatus
                   AND o.orderDate BETWEEN :startDate AND :endDate
-                GROUP BY od.product.idProduct
                 """;
 
-        Query query = entityManager.createQuery(soldProductsQuery);
-        query.setParameter("completedStatus", Order.OrderStatus.COMPLETED);
-        query.setParameter("startDate", startDate);
-        query.setParameter("endDate", endDate);
+        Query prodQuery = entityManager.createQuery(productRevenueQuery);
+        prodQuery.setParameter("completedStatus", Order.OrderStatus.COMPLETED);
+        prodQuery.setParameter("startDate", startDate);
+        prodQuery.setParameter("endDate", endDate);
 
-        @SuppressWarnings("unchecked")
-        List<Object[]> soldProducts = query.getResultList();
+        return (BigDecimal) prodQuery.getSingleResult();
+    }
 
-        if (soldProducts.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
+    private Object[] queryCompletedOrderStats(LocalDateTime startDate, LocalDateTime endDate) {
+        String orderStatsQuery = """
+                SELECT COALESCE(SUM(o.discount), 0) as totalDiscount,
+                       COALESCE(SUM(o.shippingFee), 0) as shippingFeeTotal,
+                       COUNT(o.idOrder) as completedOrders
+                FROM Order o
+                WHERE o.status = :completedStatus
+                  AND o.orderDate BETWEEN :startDate AND :endDate
+                """;
 
-        BigDecimal totalImportCost = BigDecimal.ZERO;
+        Query statsQuery = entityManager.createQuery(orderStatsQuery);
+        statsQuery.setParameter("completedStatus", Order.OrderStatus.COMPLETED);
+        statsQuery.setParameter("startDate", startDate);
+        statsQuery.setParameter("endDate", endDate);
 
-        for (Object[] row : soldProducts) {
-            Integer productId = (Integer) row[0];
-            Long quantitySold = (Long) row[1];
+        return (Object[]) statsQuery.getSingleResult();
+    }
 
-            BigDecimal avgImportPrice = getAverageImportPrice(productId);
+    private List<Object[]> queryStatusCounts(LocalDateTime startDate, LocalDateTime endDate) {
+        String countQuery = """
+                SELECT o.status, COUNT(o)
+                FROM Order o
+                WHERE o.orderDate BETWEEN :startDate AND :endDate
+                GROUP BY o.status
+                """;
 
-            if (avgImportPrice != null && avgImportPrice.compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal productCost = avgImportPrice.multiply(BigDecimal.valueOf(quantitySold));
-                totalImportCost = totalImportCost.add(productCost);
-            }
-        }
+        Query countQueryObj = entityManager.createQuery(countQuery);
+        countQueryObj.setParameter("startDate", startDate);
+        countQueryObj.setParameter("endDate", endDate);
 
-        return totalImportCost;
+        @SuppressWarnings("unchecked")
+        List<Object[]> statusCounts = countQueryObj.getResultList();
+        return statusCounts;
     }
 
-    private BigDecimal getAverageImportPrice(Integer productId) {
-        String avgPriceQuery = """
-                SELECT AVG(pod.importPrice)
-                FROM ImportOrderDetail pod
-                WHERE pod.product.idProduct = :productId
+    private Object[] queryApprovedReturns(LocalDateTime startDate, LocalDateTime endDate) {
+        String returnQuery = """
+                SELECT COUNT(r), COALESCE(SUM(r.refundAmount), 0)
+                FROM OrderReturn r
+                WHERE r.status = :approvedStatus
+                  AND r.createdAt BETWEEN :startDate AND :endDate
                 """;
 
-        Query query = entityManager.createQuery(avgPriceQuery);
-        query.setParameter("productId", productId);
+        Query returnQueryObj = entityManager.createQuery(returnQuery);
+        returnQueryObj.setParameter("approvedStatus", com.storemanagement.model.OrderReturn.ReturnStatus.APPROVED);
+        returnQueryObj.setParameter("startDate", startDate);
+        returnQueryObj.setParameter("endDate", endDate);
 
-        try {
-            Double avgPrice = (Double) query.getSingleResult();
-            return avgPrice != null ? BigDecimal.valueOf(avgPrice) : BigDecimal.ZERO;
-        } catch (Exception e) {
-            log.warn("Could not get average import price for product {}: {}", productId, e.getMessage());
-            return BigDecimal.ZERO;
-        }
+        return (Object[]) returnQueryObj.getSingleResult();
     }
 
-    @Override
-    public List<RevenueByTimeDTO> getRevenueByTime(LocalDate fromDate, LocalDate toDate, String groupBy) {
-        log.info("Generating revenue by time from {} to {}, groupBy={}", fromDate, toDate, groupBy);
-
-        LocalDateTime startDateTime = fromDate.atStartOfDay();
-        LocalDateTime endDateTime = toDate.atTime(23, 59, 59);
-
-        String dateFormat = switch (groupBy.toUpperCase()) {
-            case "DAY" -> "%Y-%m-%d";
-            case "YEAR" -> "%Y";
-            default -> "%Y-%m";
-        };
+    /**
+     * Giá vốn hàng bán của các đơn COMPLETED trong kỳ, theo giá bình quân di động được chốt vào
+     * order_details.unit_cost lúc trừ kho. Dòng chưa có giá vốn (sản phẩm chưa từng nhập hàng) không được tính.
+     */
+    private BigDecimal calculateImportCost(LocalDateTime startDate, LocalDateTime endDate) {
 
-        String nativeQuery = """
-                SELECT DATE_FORMAT(o.order_date, :dateFormat) as time_period,
-                       COALESCE(SUM(od.quantity * od.price), 0) as product_revenue,
-                       COALESCE(SUM(o.discount), 0) as total_discount,
-                       COUNT(DISTINCT o.id_order) as order_count
+        String costOfGoodsSoldQuery = """
+                SELECT COALESCE(SUM(od.quantity * od.unit_cost), 0)
                 FROM orders o
-                JOIN order_details od ON o.id_order = od.id_order
+                JOIN order_details od ON od.id_order = o.id_order
                 WHERE o.status = 'COMPLETED'
                   AND o.order_date BETWEEN :startDate AND :endDate
-                GROUP BY DATE_FORMAT(o.order_date, :dateFormat)
-                ORDER BY time_period ASC
                 """;
 
-        Query query = entityManager.createNativeQuery(nativeQuery);
-        query.setParameter("dateFormat", dateFormat);
-        query.setParameter("startDate", startDateTime);
-        query.setParameter("endDate", endDateTime);
+        Query query = entityManager.createNativeQuery(costOfGoodsSoldQuery);
+        query.setParameter("startDate", startDate);
+        query.setParameter("endDate", endDate);
+
+        Object result = query.getSingleResult();
+        return result != null ? new BigDecimal(result.toString()) : BigDecimal.ZERO;
+    }
 
-        @SuppressWarnings("unchecked")
-        List<Object[]> results = query.getResultList();
+    @Override
+    public List<RevenueByTimeDTO> getRevenueByTime(LocalDate fromDate, LocalDate toDate, String groupBy) {
+        log.info("Generating revenue by time from {} to {}, groupBy={}", fromDate, toDate, groupBy);
+
+        // Tổng hợp theo ngày (ngày đã qua lấy từ ReportPeriodCache) rồi gộp theo kỳ
+        DateTimeFormatter periodFormat = switch (groupBy.toUpperCase()) {
+            case "DAY" -> DateTimeFormatter.ofPattern("yyyy-MM-dd");
+            case "YEAR" -> DateTimeFormatter.ofPattern("yyyy");
+            default -> DateTimeFormatter.ofPattern("yyyy-MM");
+        };
+
+        Map<String, RevenueByTimeDTO> periods = new TreeMap<>();
+        for (DailyRevenueDTO day : reportPeriodCache.getDailyRevenue(fromDate, toDate)) {
+            RevenueByTimeDTO period = periods.computeIfAbsent(day.getSalesDate().format(periodFormat),
+                    time -> RevenueByTimeDTO.builder()
+                            .time(time)
+                            .productRevenue(BigDecimal.ZERO)
+                            .totalDiscount(BigDecimal.ZERO)
+                            .orderCount(0L)
+                            .build());
+            period.setProductRevenue(period.getProductRevenue().add(day.getProductRevenue()));
+            period.setTotalDiscount(period.getTotalDiscount().add(day.getTotalDiscount()));
+            period.setOrderCount(period.getOrderCount() + day.getOrderCount());
+        }
 
         List<RevenueByTimeDTO> response = new ArrayList<>();
 
-        for (Object[] row : results) {
-            String timePeriod = (String) row[0];
-            BigDecimal productRevenue = row[1] != null ? new BigDecimal(row[1].toString()) : BigDecimal.ZERO;
-            BigDecimal totalDiscount = row[2] != null ? new BigDecimal(row[2].toString()) : BigDecimal.ZERO;
-            Long orderCount = row[3] != null ? ((Number) row[3]).longValue() : 0L;
+        for (RevenueByTimeDTO period : periods.values()) {
+            BigDecimal productRevenue = period.getProductRevenue();
+            BigDecimal totalDiscount = period.getTotalDiscount();
 
             BigDecimal netRevenue = productRevenue.subtract(totalDiscount);
             if (netRevenue.compareTo(BigDecimal.ZERO) < 0) {
@@ -261,11 +258,11 @@ public class ReportServiceImpl implements ReportService {
             }
 
             response.add(RevenueByTimeDTO.builder()
-                    .time(timePeriod)
+                    .time(period.getTime())
                     .productRevenue(productRevenue.setScale(2, RoundingMode.HALF_UP))
                     .totalDiscount(totalDiscount.setScale(2, RoundingMode.HALF_UP))
                     .netRevenue(netRevenue.setScale(2, RoundingMode.HALF_UP))
-                    .orderCount(orderCount)
+                    .orderCount(period.getOrderCount())
                     .build());
         }
 
@@ -273,40 +270,21 @@ public class ReportServiceImpl implements ReportService {
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<RevenueByProductDTO> getRevenueByProduct(LocalDate fromDate, LocalDate toDate, Integer limit) {
         log.info("Generating revenue by product from {} to {}, limit={}", fromDate, toDate, limit);
 
         LocalDateTime startDateTime = fromDate.atStartOfDay();
         LocalDateTime endDateTime = toDate.atTime(23, 59, 59);
 
-        String jpqlQuery = """
-                SELECT p.idProduct as productId,
-                       p.productCode as productCode,
-                       p.productName as productName,
-                       c.categoryName as categoryName,
-                       SUM(od.quantity) as quantitySold,
-                       SUM(od.quantity * od.price) as productRevenue
-                FROM Order o
-                JOIN o.orderDetails od
-                JOIN od.product p
-                LEFT JOIN p.category c
-                WHERE o.status = :completedStatus
-                  AND o.orderDate BETWEEN :startDate AND :endDate
-                GROUP BY p.idProduct, p.productCode, p.productName, c.categoryName
-                ORDER BY SUM(od.quantity * od.price) DESC
-                """;
-
-        Query query = entityManager.createQuery(jpqlQuery);
-        query.setParameter("completedStatus", Order.OrderStatus.COMPLETED);
-        query.setParameter("startDate", startDateTime);
-        query.setParameter("endDate", endDateTime);
+        ReportQueryExecutor.Batch batch = reportQueryExecutor.newBatch("revenueByProduct");
+        CompletableFuture<List<Object[]>> productRowsResult = batch.add("productRevenue",
+                () -> queryProductRevenueRows(startDateTime, endDateTime, limit));
+        CompletableFuture<BigDecimal> totalDiscountResult = batch.add("totalDiscount",
+                () -> getTotalDiscountForPeriod(startDateTime, endDateTime));
+        batch.execute();
 
-        if (limit != null && limit > 0) {
-            query.setMaxResults(limit);
-        }
-
-        @SuppressWarnings("unchecked")
-        List<Object[]> results = query.getResultList();
+        List<Object[]> results = productRowsResult.join();
 
         BigDecimal totalProductRevenue = BigDecimal.ZERO;
         for (Object[] row : results) {
@@ -314,7 +292,7 @@ public class ReportServiceImpl implements ReportService {
             totalProductRevenue = totalProductRevenue.add(revenue);
         }
 
-        BigDecimal totalDiscount = getTotalDiscountForPeriod(startDateTime, endDateTime);
+        BigDecimal totalDiscount = totalDiscountResult.join();
 
         List<RevenueByProductDTO> response = new ArrayList<>();
 
@@ -357,6 +335,38 @@ public class ReportServiceImpl implements ReportService {
         return response;
     }
 
+    private List<Object[]> queryProductRevenueRows(LocalDateTime startDate, LocalDateTime endDate, Integer limit) {
+        String jpqlQuery = """
+                SELECT p.idProduct as productId,
+                       p.productCode as productCode,
+                       p.productName as productName,
+                       c.categoryName as categoryName,
+                       SUM(od.quantity) as quantitySold,
+                       SUM(od.quantity * od.price) as productRevenue
+                FROM Order o
+                JOIN o.orderDetails od
+                JOIN od.product p
+                LEFT JOIN p.category c
+                WHERE o.status = :completedStatus
+                  AND o.orderDate BETWEEN :startDate AND :endDate
+                GROUP BY p.idProduct, p.productCode, p.productName, c.categoryName
+                ORDER BY SUM(od.quantity * od.price) DESC
+                """;
+
+        Query query = entityManager.createQuery(jpqlQuery);
+        query.setParameter("completedStatus", Order.OrderStatus.COMPLETED);
+        query.setParameter("startDate", startDate);
+        query.setParameter("endDate", endDate);
+
+        if (limit != null && limit > 0) {
+            query.setMaxResults(limit);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> results = query.getResultList();
+        return results;
+    }
+
     private BigDecimal getTotalDiscountForPeriod(LocalDateTime startDate, LocalDateTime endDate) {
         String query = """
                 SELECT COALESCE(SUM(o.discount), 0)
@@ -0,0 +1,823 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.config.SalesCubeProperties;
+import com.storemanagement.dto.report.SalesCubeQueryDTO;
+import com.storemanagement.dto.report.SalesCubeResultDTO;
+import com.storemanagement.dto.report.SalesCubeRowDTO;
+import com.storemanagement.dto.report.SalesCubeStatsDTO;
+import com.storemanagement.model.Order;
+import com.storemanagement.model.OrderDetail;
+import com.storemanagement.model.Product;
+import com.storemanagement.repository.SalesCubeRepository;
+import com.storemanagement.service.SalesCubeService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Kho dữ liệu dạng cột trong bộ nhớ cho các dòng đơn COMPLETED, dùng để cắt lát doanh số theo thời gian,
+ * sản phẩm, danh mục, thương hiệu và loại khách hàng với tổ hợp group-by/lọc bất kỳ.
+ * Mỗi dòng là một vị trí trong các mảng nguyên thủy; các chiều không phải thời gian được mã hóa từ điển
+ * thành số nguyên liên tiếp. Truy vấn quét song song (fork/join) trên một snapshot bất biến và gộp kết quả
+ * trong bảng băm khóa long.
+ * Ghi (nạp lại, thêm/loại đơn) được tuần tự hóa bởi lock của service; đọc không khóa.
+ * Thuộc tính sản phẩm được chụp lúc dòng vào cube, nạp lại định kỳ để cập nhật.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SalesCubeServiceImpl implements SalesCubeService {
+
+    private static final String GUEST = "GUEST";
+    private static final int NO_ID = -1;
+
+    // Không gian khóa nhóm nhỏ hơn ngưỡng này được cộng dồn thẳng vào mảng theo khóa thay vì bảng băm
+    private static final int DENSE_GROUP_LIMIT = 1 << 16;
+
+    private enum Dimension {
+        DAY, MONTH, YEAR, PRODUCT, CATEGORY, BRAND, CUSTOMER_TYPE
+    }
+
+    private final SalesCubeRepository salesCubeRepository;
+    private final SalesCubeProperties properties;
+
+    private final Object rebuildLock = new Object();
+    private final Object writeLock = new Object();
+    private volatile FactTable factTable = new FactTable();
+
+    // Thay đổi đến trong lúc nạp lại, được áp dụng lại lên bảng mới trước khi đổi bảng
+    private List<OrderLines> pendingChanges;
+
+    private volatile ForkJoinPool scanPool;
+    private volatile LocalDateTime lastRebuildAt;
+    private volatile long lastRebuildMs;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (properties.isEnabled()) {
+            rebuild();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sales-cube.rebuild-interval-ms:21600000}",
+            initialDelayString = "${sales-cube.rebuild-interval-ms:21600000}")
+    public void scheduledRebuild() {
+        if (properties.isEnabled()) {
+            rebuild();
+        }
+    }
+
+    @PreDestroy
+    public void onShutdown() {
+        if (scanPool != null) {
+            scanPool.shutdownNow();
+        }
+    }
+
+    @Override
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            long start = System.currentTimeMillis();
+
+            synchronized (writeLock) {
+                pendingChanges = new ArrayList<>();
+            }
+
+            FactTable freshTable = new FactTable();
+            try {
+                salesCubeRepository.streamCompletedLines(rs -> {
+                    Timestamp orderDate = rs.getTimestamp(2);
+                    freshTable.append(new Line(
+                            rs.getInt(1),
+                            orderDate.toLocalDateTime().toLocalDate(),
+                            (Integer) rs.getObject(3),
+                            rs.getString(4),
+                            rs.getString(5),
+                            (Integer) rs.getObject(6),
+                            rs.getString(7),
+                            rs.getString(8),
+                            rs.getString(9),
+                            rs.getInt(10),
+                            toCents(rs.getBigDecimal(11), rs.getInt(10))));
+                });
+            } catch (RuntimeException e) {
+                synchronized (writeLock) {
+                    pendingChanges = null;
+                }
+                throw e;
+            }
+
+            synchronized (writeLock) {
+                // Thay đổi là "thay toàn bộ dòng của đơn" nên áp dụng lại là an toàn dù bảng mới đã có chúng hay chưa
+                for (OrderLines change : pendingChanges) {
+                    freshTable.replaceOrder(change);
+                }
+                pendingChanges = null;
+                freshTable.publish();
+                factTable = freshTable;
+            }
+
+            lastRebuildAt = LocalDateTime.now();
+            lastRebuildMs = System.currentTimeMillis() - start;
+            log.info("Sales cube rebuilt: {} lines in {} ms", freshTable.snapshot.size, lastRebuildMs);
+        }
+    }
+
+    @Override
+    public void index(Order order) {
+        if (!properties.isEnabled() || order == null || order.getIdOrder() == null) {
+            return;
+        }
+
+        // Chụp dòng trong transaction (entity còn truy cập được), áp dụng sau khi commit
+        OrderLines change = new OrderLines(order.getIdOrder(), linesOf(order));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private void apply(OrderLines change) {
+        synchronized (writeLock) {
+            FactTable table = factTable;
+            table.replaceOrder(change);
+            table.publish();
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        }
+    }
+
+    private List<Line> linesOf(Order order) {
+        if (order.getStatus() != Order.OrderStatus.COMPLETED || order.getOrderDate() == null
+                || order.getOrderDetails() == null) {
+            return List.of();
+        }
+
+        LocalDate orderDay = order.getOrderDate().toLocalDate();
+        String customerType = order.getCustomer() != null && order.getCustomer().getCustomerType() != null
+                ? order.getCustomer().getCustomerType().name()
+                : null;
+
+        List<Line> lines = new ArrayList<>(order.getOrderDetails().size());
+        for (OrderDetail detail : order.getOrderDetails()) {
+            Product product = detail.getProduct();
+            int quantity = detail.getQuantity() != null ? detail.getQuantity() : 0;
+            lines.add(new Line(
+                    order.getIdOrder(),
+                    orderDay,
+                    product != null ? product.getIdProduct() : null,
+                    product != null ? product.getProductCode() : detail.getProductCodeSnapshot(),
+                    product != null ? product.getProductName() : detail.getProductNameSnapshot(),
+                    product != null && product.getCategory() != null ? product.getCategory().getIdCategory() : null,
+                    product != null && product.getCategory() != null ? product.getCategory().getCategoryName() : null,
+                    product != null ? product.getBrand() : null,
+                    customerType,
+                    quantity,
+                    toCents(detail.getPrice(), quantity)));
+        }
+        return lines;
+    }
+
+    @Override
+    public SalesCubeResultDTO query(SalesCubeQueryDTO query) {
+        if (!properties.isEnabled()) {
+            throw new RuntimeException("Sales cube đang tắt");
+        }
+
+        long start = System.nanoTime();
+        FactTable table = factTable;
+        Snapshot snapshot = table.snapshot;
+
+        List<Dimension> dimensions = parseDimensions(query.getGroupBy());
+        List<String> groupBy = dimensions.stream().map(Dimension::name).toList();
+
+        if (snapshot.size == 0) {
+            return SalesCubeResultDTO.builder()
+                    .groupBy(groupBy)
+                    .rows(List.of())
+                    .totalGroups(0)
+                    .scannedLines(0L)
+                    .elapsedMs((System.nanoTime() - start) / 1_000_000.0)
+                    .build();
+        }
+
+        QueryPlan plan = new QueryPlan(table, snapshot, dimensions, query);
+        GroupTable groups = plan.isEmpty()
+                ? new GroupTable(1)
+                : scanPool().invoke(new ScanTask(snapshot, plan, 0, snapshot.size,
+                        Math.max(properties.getScanChunkSize(), 1024)));
+
+        int limit = query.getLimit() != null && query.getLimit() > 0
+                ? Math.min(query.getLimit(), properties.getMaxResultRows())
+                : properties.getMaxResultRows();
+
+        List<SalesCubeRowDTO> rows = new ArrayList<>(Math.min(groups.size, limit));
+        for (int slot : groups.slotsByRevenueDesc(limit)) {
+            rows.add(SalesCubeRowDTO.builder()
+                    .dimensions(plan.labels(groups.keys[slot]))
+                    .quantity(groups.quantity[slot])
+                    .revenue(BigDecimal.valueOf(groups.revenue[slot], 2))
+                    .lines(groups.lines[slot])
+                    .build());
+        }
+
+        return SalesCubeResultDTO.builder()
+                .groupBy(groupBy)
+                .rows(rows)
+                .totalGroups(groups.size)
+                .scannedLines((long) snapshot.size)
+                .elapsedMs((System.nanoTime() - start) / 1_000_000.0)
+                .build();
+    }
+
+    @Override
+    public SalesCubeStatsDTO getStatistics() {
+        FactTable table = factTable;
+        Snapshot snapshot = table.snapshot;
+        return SalesCubeStatsDTO.builder()
+                .lines((long) snapshot.size)
+                .deletedLines(snapshot.deletedCount)
+                .products(table.products.size)
+                .categories(table.categories.size)
+                .brands(table.brands.size)
+                .lastRebuildAt(lastRebuildAt)
+                .lastRebuildMs(lastRebuildMs)
+                .build();
+    }
+
+    private List<Dimension> parseDimensions(List<String> groupBy) {
+        List<Dimension> dimensions = new ArrayList<>();
+        if (groupBy == null) {
+            return dimensions;
+        }
+        for (String name : groupBy) {
+            Dimension dimension;
+            try {
+                dimension = Dimension.valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Chiều groupBy không hợp lệ: " + name
+                        + ". Chấp nhận: " + Arrays.toString(Dimension.values()));
+            }
+            if (!dimensions.contains(dimension)) {
+                dimensions.add(dimension);
+            }
+        }
+        return dimensions;
+    }
+
+    private ForkJoinPool scanPool() {
+        if (scanPool == null) {
+            synchronized (this) {
+                if (scanPool == null) {
+                    int parallelism = properties.getParallelism() > 0
+                            ? properties.getParallelism()
+                            : Runtime.getRuntime().availableProcessors();
+                    scanPool = new ForkJoinPool(parallelism);
+                }
+            }
+        }
+        return scanPool;
+    }
+
+    private static long toCents(BigDecimal price, int quantity) {
+        if (price == null) {
+            return 0;
+        }
+        return price.multiply(BigDecimal.valueOf(quantity)).movePointRight(2)
+                .setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private record Line(int orderId, LocalDate orderDay, Integer productId, String productCode, String productName,
+                        Integer categoryId, String categoryName, String brand, String customerType,
+                        int quantity, long revenueCents) {
+    }
+
+    private record OrderLines(int orderId, List<Line> lines) {
+    }
+
+    /**
+     * Các cột và số dòng đã công bố. Mảng chỉ được ghi ở vị trí >= size nên snapshot cũ vẫn đọc an toàn;
+     * mảng deleted được sao chép khi thay đổi.
+     */
+    private record Snapshot(Columns columns, int size, long[] deleted, long deletedCount, int minDay, int maxDay) {
+    }
+
+    private static final class Columns {
+        final int[] orderId;
+        final int[] day;
+        final int[] month;
+        final int[] year;
+        final int[] product;
+        final int[] category;
+        final int[] brand;
+        final byte[] customerType;
+        final int[] quantity;
+        final long[] revenue;
+
+        Columns(int capacity) {
+            orderId = new int[capacity];
+            day = new int[capacity];
+            month = new int[capacity];
+            year = new int[capacity];
+            product = new int[capacity];
+            category = new int[capacity];
+            brand = new int[capacity];
+            customerType = new byte[capacity];
+            quantity = new int[capacity];
+            revenue = new long[capacity];
+        }
+
+        Columns(Columns source, int capacity) {
+            orderId = Arrays.copyOf(source.orderId, capacity);
+            day = Arrays.copyOf(source.day, capacity);
+            month = Arrays.copyOf(source.month, capacity);
+            year = Arrays.copyOf(source.year, capacity);
+            product = Arrays.copyOf(source.product, capacity);
+            category = Arrays.copyOf(source.category, capacity);
+            brand = Arrays.copyOf(source.brand, capacity);
+            customerType = Arrays.copyOf(source.customerType, capacity);
+            quantity = Arrays.copyOf(source.quantity, capacity);
+            revenue = Arrays.copyOf(source.revenue, capacity);
+        }
+
+        int capacity() {
+            return day.length;
+        }
+    }
+
+    /**
+     * Mã hóa từ điển: khóa nguồn -> mã liên tiếp từ 0. Phần tử được ghi trước khi tăng size (volatile)
+     * nên người đọc thấy đủ nhãn cho mọi mã nhỏ hơn size đã đọc.
+     */
+    private static final class Dictionary {
+        private final Map<Object, Integer> codes = new ConcurrentHashMap<>();
+        private volatile String[] labels = new String[64];
+        private volatile int size;
+
+        int encode(Object key, String label) {
+            Integer code = codes.get(key);
+            if (code != null) {
+                return code;
+            }
+
+            int next = size;
+            if (next == labels.length) {
+                labels = Arrays.copyOf(labels, next * 2);
+            }
+            labels[next] = label;
+            codes.put(key, next);
+            size = next + 1;
+            return next;
+        }
+
+        Integer lookup(Object key) {
+            return codes.get(key);
+        }
+
+        String label(int code) {
+            return labels[code];
+        }
+    }
+
+    private static final class FactTable {
+        final Dictionary products = new Dictionary();
+        final Dictionary categories = new Dictionary();
+        final Dictionary brands = new Dictionary();
+        final Dictionary customerTypes = new Dictionary();
+
+        // Các trường dưới đây chỉ do người ghi (giữ lock) truy cập
+        private final BitSet presentOrders = new BitSet();
+        private Columns columns = new Columns(1024);
+        private long[] deleted = new long[16];
+        private long deletedCount;
+        private int size;
+        private int minDay = Integer.MAX_VALUE;
+        private int maxDay = Integer.MIN_VALUE;
+
+        volatile Snapshot snapshot = new Snapshot(columns, 0, deleted, 0, 0, 0);
+
+        void append(Line line) {
+            if (size == columns.capacity()) {
+                int capacity = size + (size >> 1);
+                columns = new Columns(columns, capacity);
+                deleted = Arrays.copyOf(deleted, (capacity >>> 6) + 1);
+            }
+
+            int row = size;
+            int epochDay = (int) line.orderDay().toEpochDay();
+            columns.orderId[row] = line.orderId();
+            columns.day[row] = epochDay;
+            columns.month[row] = line.orderDay().getYear() * 12 + line.orderDay().getMonthValue() - 1;
+            columns.year[row] = line.orderDay().getYear();
+            columns.product[row] = products.encode(line.productId() != null ? line.productId() : NO_ID,
+                    line.productCode() != null
+                            ? line.productCode() + " - " + line.productName()
+                            : (line.productName() != null ? line.productName() : "(Không xác định)"));
+            columns.category[row] = categories.encode(line.categoryId() != null ? line.categoryId() : NO_ID,
+                    line.categoryName() != null ? line.categoryName() : "(Không có danh mục)");
+            String brand = line.brand() != null && !line.brand().isBlank() ? line.brand().trim() : "";
+            columns.brand[row] = brands.encode(brand, brand.isEmpty() ? "(Không có thương hiệu)" : brand);
+            String customerType = line.customerType() != null ? line.customerType() : GUEST;
+            columns.customerType[row] = (byte) customerTypes.encode(customerType, customerType);
+            columns.quantity[row] = line.quantity();
+            columns.revenue[row] = line.revenueCents();
+
+            presentOrders.set(line.orderId());
+            minDay = Math.min(minDay, epochDay);
+            maxDay = Math.max(maxDay, epochDay);
+            size = row + 1;
+        }
+
+        void replaceOrder(OrderLines change) {
+            if (presentOrders.get(change.orderId())) {
+                long[] copy = null;
+                int[] orderIds = columns.orderId;
+                for (int row = 0; row < size; row++) {
+                    if (orderIds[row] == change.orderId()) {
+                        if (copy == null) {
+                            copy = Arrays.copyOf(deleted, deleted.length);
+                        }
+                        if ((copy[row >>> 6] & (1L << row)) == 0) {
+                            copy[row >>> 6] |= 1L << row;
+                            deletedCount++;
+                        }
+                    }
+                }
+                if (copy != null) {
+                    deleted = copy;
+                }
+                presentOrders.clear(change.orderId());
+            }
+
+            for (Line line : change.lines()) {
+                append(line);
+            }
+        }
+
+        void publish() {
+            snapshot = new Snapshot(columns, size, deleted, deletedCount,
+                    size > 0 ? minDay : 0, size > 0 ? maxDay : 0);
+        }
+    }
+
+    /**
+     * Bộ lọc và cách tính khóa nhóm: khóa = tổng mã của từng chiều nhân hệ số (hệ cơ số hỗn hợp theo
+     * số giá trị của chiều), nên giải mã lại được từng chiều từ khóa.
+     */
+    private static final class QueryPlan {
+        final FactTable table;
+        final int fromDay;
+        final int toDay;
+        final int fromMonth;
+        final int fromYear;
+        final boolean[] productFilter;
+        final boolean[] categoryFilter;
+        final boolean[] brandFilter;
+        final boolean[] customerTypeFilter;
+        final Dimension[] dimensions;
+        final long[] multipliers;
+        final int[] cardinalities;
+        // Cột nguồn và độ lệch của từng chiều group-by (null = cột customerType kiểu byte)
+        final int[][] keyColumns;
+        final int[] keyOffsets;
+        final long groupSpace;
+
+        QueryPlan(FactTable table, Snapshot snapshot, List<Dimension> dimensions, SalesCubeQueryDTO query) {
+            this.table = table;
+            this.fromDay = query.getFromDate() != null ? (int) query.getFromDate().toEpochDay() : snapshot.minDay();
+            this.toDay = query.getToDate() != null ? (int) query.getToDate().toEpochDay() : snapshot.maxDay();
+
+            LocalDate firstDay = LocalDate.ofEpochDay(fromDay);
+            LocalDate lastDay = LocalDate.ofEpochDay(Math.max(fromDay, toDay));
+            this.fromMonth = firstDay.getYear() * 12 + firstDay.getMonthValue() - 1;
+            this.fromYear = firstDay.getYear();
+            int toMonth = lastDay.getYear() * 12 + lastDay.getMonthValue() - 1;
+
+            this.productFilter = filter(table.products, query.getProductIds());
+            this.categoryFilter = filter(table.categories, query.getCategoryIds());
+            this.brandFilter = filter(table.brands, query.getBrands() != null
+                    ? query.getBrands().stream().map(brand -> brand == null ? "" : brand.trim()).toList()
+                    : null);
+            this.customerTypeFilter = filter(table.customerTypes, query.getCustomerTypes() != null
+                    ? query.getCustomerTypes().stream().map(type -> type.trim().toUpperCase(Locale.ROOT)).toList()
+                    : null);
+
+            this.dimensions = dimensions.toArray(new Dimension[0]);
+            this.multipliers = new long[this.dimensions.length];
+            this.cardinalities = new int[this.dimensions.length];
+            this.keyColumns = new int[this.dimensions.length][];
+            this.keyOffsets = new int[this.dimensions.length];
+
+            Columns columns = snapshot.columns();
+
+            long multiplier = 1;
+            for (int i = 0; i < this.dimensions.length; i++) {
+                int cardinality = switch (this.dimensions[i]) {
+                    case DAY -> Math.max(toDay - fromDay + 1, 1);
+                    case MONTH -> Math.max(toMonth - fromMonth + 1, 1);
+                    case YEAR -> Math.max(lastDay.getYear() - fromYear + 1, 1);
+                    case PRODUCT -> Math.max(table.products.size, 1);
+                    case CATEGORY -> Math.max(table.categories.size, 1);
+                    case BRAND -> Math.max(table.brands.size, 1);
+                    case CUSTOMER_TYPE -> Math.max(table.customerTypes.size, 1);
+                };
+                keyColumns[i] = switch (this.dimensions[i]) {
+                    case DAY -> columns.day;
+                    case MONTH -> columns.month;
+                    case YEAR -> columns.year;
+                    case PRODUCT -> columns.product;
+                    case CATEGORY -> columns.category;
+                    case BRAND -> columns.brand;
+                    case CUSTOMER_TYPE -> null;
+                };
+                keyOffsets[i] = switch (this.dimensions[i]) {
+                    case DAY -> fromDay;
+                    case MONTH -> fromMonth;
+                    case YEAR -> fromYear;
+                    default -> 0;
+                };
+                multipliers[i] = multiplier;
+                cardinalities[i] = cardinality;
+                try {
+                    multiplier = Math.multiplyExact(multiplier, cardinality);
+                } catch (ArithmeticException e) {
+                    throw new RuntimeException("Tổ hợp groupBy có quá nhiều nhóm, hãy thu hẹp khoảng thời gian");
+                }
+            }
+            this.groupSpace = multiplier;
+        }
+
+        boolean isEmpty() {
+            return toDay < fromDay;
+        }
+
+        private static boolean[] filter(Dictionary dictionary, List<?> keys) {
+            if (keys == null || keys.isEmpty()) {
+                return null;
+            }
+            boolean[] allowed = new boolean[dictionary.size];
+            for (Object key : keys) {
+                Integer code = dictionary.lookup(key);
+                if (code != null && code < allowed.length) {
+                    allowed[code] = true;
+                }
+            }
+            return allowed;
+        }
+
+        Map<String, String> labels(long key) {
+            Map<String, String> labels = new LinkedHashMap<>();
+            for (int i = 0; i < dimensions.length; i++) {
+                int code = (int) ((key / multipliers[i]) % cardinalities[i]);
+                String label = switch (dimensions[i]) {
+                    case DAY -> LocalDate.ofEpochDay(fromDay + code).toString();
+                    case MONTH -> YearMonth.of((fromMonth + code) / 12, (fromMonth + code) % 12 + 1).toString();
+                    case YEAR -> String.valueOf(fromYear + code);
+                    case PRODUCT -> table.products.label(code);
+                    case CATEGORY -> table.categories.label(code);
+                    case BRAND -> table.brands.label(code);
+                    case CUSTOMER_TYPE -> table.customerTypes.label(code);
+                };
+                labels.put(dimensions[i].name(), label);
+            }
+            return labels;
+        }
+    }
+
+    private static final class ScanTask extends RecursiveTask<GroupTable> {
+        private final Snapshot snapshot;
+        private final QueryPlan plan;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        ScanTask(Snapshot snapshot, QueryPlan plan, int from, int to, int chunkSize) {
+            this.snapshot = snapshot;
+            this.plan = plan;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected GroupTable compute() {
+            if (to - from <= chunkSize) {
+                return scan();
+            }
+
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(snapshot, plan, from, middle, chunkSize);
+            ScanTask right = new ScanTask(snapshot, plan, middle, to, chunkSize);
+            left.fork();
+            GroupTable result = right.compute();
+            return result.merge(left.join());
+        }
+
+        private GroupTable scan() {
+            Columns columns = snapshot.columns();
+            long[] deleted = snapshot.deleted();
+            boolean hasDeleted = snapshot.deletedCount() > 0;
+            int fromDay = plan.fromDay;
+            int toDay = plan.toDay;
+            boolean[] productFilter = plan.productFilter;
+            boolean[] categoryFilter = plan.categoryFilter;
+            boolean[] brandFilter = plan.brandFilter;
+            boolean[] customerTypeFilter = plan.customerTypeFilter;
+            long[] multipliers = plan.multipliers;
+            int[][] keyColumns = plan.keyColumns;
+            int[] keyOffsets = plan.keyOffsets;
+            int[] days = columns.day;
+            int[] products = columns.product;
+            int[] categories = columns.category;
+            int[] brands = columns.brand;
+            byte[] customerTypes = columns.customerType;
+            int[] quantities = columns.quantity;
+            long[] revenues = columns.revenue;
+            int dimensionCount = multipliers.length;
+
+            boolean dense = plan.groupSpace <= DENSE_GROUP_LIMIT;
+            long[] denseQuantity = dense ? new long[(int) plan.groupSpace] : null;
+            long[] denseRevenue = dense ? new long[(int) plan.groupSpace] : null;
+            long[] denseLines = dense ? new long[(int) plan.groupSpace] : null;
+
+            GroupTable groups = new GroupTable(64);
+            for (int row = from; row < to; row++) {
+                int day = days[row];
+                if (day < fromDay || day > toDay) {
+                    continue;
+                }
+                if (hasDeleted && (deleted[row >>> 6] & (1L << row)) != 0) {
+                    continue;
+                }
+                if (productFilter != null && !productFilter[products[row]]) {
+                    continue;
+                }
+                if (categoryFilter != null && !categoryFilter[categories[row]]) {
+                    continue;
+                }
+                if (brandFilter != null && !brandFilter[brands[row]]) {
+                    continue;
+                }
+                if (customerTypeFilter != null && !customerTypeFilter[customerTypes[row]]) {
+                    continue;
+                }
+
+                long key = 0;
+                for (int i = 0; i < dimensionCount; i++) {
+                    int[] keyColumn = keyColumns[i];
+                    int code = keyColumn != null ? keyColumn[row] - keyOffsets[i] : customerTypes[row];
+                    key += code * multipliers[i];
+                }
+                if (dense) {
+                    denseQuantity[(int) key] += quantities[row];
+                    denseRevenue[(int) key] += revenues[row];
+                    denseLines[(int) key]++;
+                } else {
+                    groups.add(key, quantities[row], revenues[row], 1);
+                }
+            }
+
+            if (dense) {
+                for (int key = 0; key < denseLines.length; key++) {
+                    if (denseLines[key] > 0) {
+                        groups.add(key, denseQuantity[key], denseRevenue[key], denseLines[key]);
+                    }
+                }
+            }
+            return groups;
+        }
+    }
+
+    /**
+     * Bảng băm địa chỉ mở khóa long (khóa luôn >= 0), các tổng được giữ trong mảng song song.
+     */
+    private static final class GroupTable {
+        private static final long EMPTY = -1L;
+
+        long[] keys;
+        long[] quantity;
+        long[] revenue;
+        long[] lines;
+        int size;
+
+        GroupTable(int capacity) {
+            int tableSize = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1);
+            keys = new long[tableSize];
+            Arrays.fill(keys, EMPTY);
+            quantity = new long[tableSize];
+            revenue = new long[tableSize];
+            lines = new long[tableSize];
+        }
+
+        void add(long key, long quantityValue, long revenueValue, long lineCount) {
+            int slot = slot(key);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                size++;
+                if (size * 2 > keys.length) {
+                    grow();
+                    slot = slot(key);
+                }
+            }
+            quantity[slot] += quantityValue;
+            revenue[slot] += revenueValue;
+            lines[slot] += lineCount;
+        }
+
+        GroupTable merge(GroupTable other) {
+            if (other.size > size) {
+                return other.merge(this);
+            }
+            for (int slot = 0; slot < other.keys.length; slot++) {
+                if (other.keys[slot] != EMPTY) {
+                    add(other.keys[slot], other.quantity[slot], other.revenue[slot], other.lines[slot]);
+                }
+            }
+            return this;
+        }
+
+        int[] slotsByRevenueDesc(int limit) {
+            Integer[] slots = new Integer[size];
+            int count = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != EMPTY) {
+                    slots[count++] = slot;
+                }
+            }
+            Arrays.sort(slots, (a, b) -> {
+                int byRevenue = Long.compare(revenue[b], revenue[a]);
+                return byRevenue != 0 ? byRevenue : Long.compare(keys[a], keys[b]);
+            });
+
+            int[] result = new int[Math.min(limit, count)];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = slots[i];
+            }
+            return result;
+        }
+
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            long hash = key * 0x9E3779B97F4A7C15L;
+            int slot = (int) (hash ^ (hash >>> 32)) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldQuantity = quantity;
+            long[] oldRevenue = revenue;
+            long[] oldLines = lines;
+
+            keys = new long[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            quantity = new long[keys.length];
+            revenue = new long[keys.length];
+            lines = new long[keys.length];
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = slot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    quantity[slot] = oldQuantity[i];
+                    revenue[slot] = oldRevenue[i];
+                    lines[slot] = oldLines[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.model.Order;
+import com.storemanagement.repository.SalesRollupRepository;
+import com.storemanagement.service.ReportPeriodCache;
+import com.storemanagement.service.SalesCubeService;
+import com.storemanagement.service.SalesRollupService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Duy trì bảng tổng hợp doanh số theo ngày cho dashboard.
+ * Được gọi trong cùng transaction với thao tác tạo/đổi trạng thái đơn hàng: đơn được trừ khỏi
+ * dòng của trạng thái cũ và cộng vào dòng của trạng thái mới. Doanh số theo sản phẩm chỉ tính đơn COMPLETED.
+ * Đồng thời bỏ tổng hợp của ngày đặt hàng trong ReportPeriodCache và cập nhật SalesCube (đơn vào/ra
+ * trạng thái COMPLETED) sau khi commit.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+@Slf4j
+public class SalesRollupServiceImpl implements SalesRollupService {
+
+    private final SalesRollupRepository salesRollupRepository;
+    private final ReportPeriodCache reportPeriodCache;
+    private final SalesCubeService salesCubeService;
+
+    @Override
+    public void recordOrderCreated(Order order) {
+        apply(order.getIdOrder(), order.getStatus(), 1);
+        reportPeriodCache.invalidate(order);
+        if (order.getStatus() == Order.OrderStatus.COMPLETED) {
+            salesCubeService.index(order);
+        }
+    }
+
+    @Override
+    public void recordStatusChange(Order order, Order.OrderStatus previousStatus) {
+        Order.OrderStatus newStatus = order.getStatus();
+        if (previousStatus == newStatus) {
+            return;
+        }
+
+        apply(order.getIdOrder(), previousStatus, -1);
+        apply(order.getIdOrder(), newStatus, 1);
+        reportPeriodCache.invalidate(order);
+        if (previousStatus == Order.OrderStatus.COMPLETED || newStatus == Order.OrderStatus.COMPLETED) {
+            salesCubeService.index(order);
+        }
+        log.debug("Sales rollup updated for order ID: {} ({} -> {})", order.getIdOrder(), previousStatus, newStatus);
+    }
+
+    private void apply(Integer orderId, Order.OrderStatus status, int sign) {
+        if (orderId == null || status == null) {
+            return;
+        }
+
+        salesRollupRepository.applyOrder(orderId, status.name(), sign);
+        if (status == Order.OrderStatus.COMPLETED) {
+            salesRollupRepository.applyOrderProducts(orderId, sign);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.config.GHNConfig;
+import com.storemanagement.dto.ghn.GHNShipmentOutboxDTO;
+import com.storemanagement.model.Order;
+import com.storemanagement.model.Shipment;
+import com.storemanagement.model.ShipmentOutbox;
+import com.storemanagement.model.ShippingAddress;
+import com.storemanagement.repository.OrderRepository;
+import com.storemanagement.repository.ShipmentOutboxRepository;
+import com.storemanagement.repository.ShipmentRepository;
+import com.storemanagement.service.GHNService;
+import com.storemanagement.service.ShipmentOutboxService;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Transactional outbox cho việc tạo vận đơn GHN.
+ * Checkout chỉ ghi một dòng ghn_shipment_outbox trong cùng transaction với đơn hàng; dispatcher chạy nền
+ * gọi GHN sau khi transaction đã commit, không giữ connection/khóa DB trong lúc chờ HTTP.
+ * Mỗi đơn có tối đa một dòng outbox (unique id_order) và GHN nhận client_order_code = ORDER_{id},
+ * nên việc retry không tạo trùng vận đơn. Khi lần gọi tạo thất bại (timeout sau khi GHN đã tạo, hoặc GHN báo
+ * trùng client_order_code ở lần retry), dispatcher tra vận đơn theo client_order_code và hoàn tất bằng mã đó.
+ * Đơn đã bị hủy khi tới lượt dispatch thì dòng outbox chuyển SKIPPED, không gọi GHN.
+ * Dòng FAILED được xem và chạy lại qua /api/v1/admin/integrations/ghn-outbox.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ShipmentOutboxServiceImpl implements ShipmentOutboxService {
+
+    private static final List<ShipmentOutbox.OutboxStatus> DISPATCHABLE_STATUSES = List.of(
+            ShipmentOutbox.OutboxStatus.PENDING,
+            ShipmentOutbox.OutboxStatus.PROCESSING);
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final ShipmentOutboxRepository shipmentOutboxRepository;
+    private final ShipmentRepository shipmentRepository;
+    private final OrderRepository orderRepository;
+    private final GHNService ghnService;
+    private final GHNConfig ghnConfig;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    @Transactional
+    public void enqueue(Order order) {
+        ShipmentOutbox outbox = ShipmentOutbox.builder()
+                .order(order)
+                .status(ShipmentOutbox.OutboxStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+
+        shipmentOutboxRepository.save(outbox);
+        log.info("GHN shipment queued for order ID: {}", order.getIdOrder());
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${ghn.outbox.poll-interval-ms:5000}",
+            initialDelayString = "${ghn.outbox.poll-interval-ms:5000}")
+    public void dispatchDue() {
+        if (!ghnService.isEnabled()) {
+            return;
+        }
+
+        List<Integer> dueIds = shipmentOutboxRepository.findDueIds(DISPATCHABLE_STATUSES, LocalDateTime.now(),
+                PageRequest.of(0, ghnConfig.getOutbox().getBatchSize()));
+
+        for (Integer outboxId : dueIds) {
+            try {
+                dispatch(outboxId);
+            } catch (Exception e) {
+                log.error("Unexpected error dispatching GHN outbox ID: {}", outboxId, e);
+            }
+        }
+    }
+
+    private void dispatch(Integer outboxId) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseUntil = now.plusSeconds(ghnConfig.getOutbox().getLeaseSeconds());
+
+        Integer claimed = transactionTemplate.execute(status ->
+                shipmentOutboxRepository.claim(outboxId, DISPATCHABLE_STATUSES, now, leaseUntil));
+        if (claimed == null || claimed == 0) {
+            return;
+        }
+
+        PendingShipment pending = transactionTemplate.execute(status -> loadPendingShipment(outboxId));
+        if (pending == null) {
+            return;
+        }
+
+        if (pending.existingOrderCode() != null) {
+            log.info("Order ID: {} already has GHN order code {}. Marking outbox as done.",
+                    pending.order().getIdOrder(), pending.existingOrderCode());
+            transactionTemplate.executeWithoutResult(status -> markDone(outboxId, pending.existingOrderCode()));
+            return;
+        }
+
+        String ghnOrderCode;
+        try {
+            // Gọi GHN ngoài transaction
+            ghnOrderCode = ghnService.createGHNOrder(pending.order(), pending.shippingAddress());
+            if (ghnOrderCode == null) {
+                throw new IllegalStateException("GHN không trả về order_code");
+            }
+        } catch (Exception e) {
+            String createdOrderCode = findCreatedOrderCode(pending.order());
+            if (createdOrderCode != null) {
+                log.info("GHN already has order {} for order ID: {} (create call failed: {}). Marking outbox as done.",
+                        createdOrderCode, pending.order().getIdOrder(), e.getMessage());
+                transactionTemplate.executeWithoutResult(status -> markDone(outboxId, createdOrderCode));
+                return;
+            }
+
+            log.warn("Failed to create GHN order for order ID: {} (outbox ID: {}): {}",
+                    pending.order().getIdOrder(), outboxId, e.getMessage());
+            transactionTemplate.executeWithoutResult(status -> markRetry(outboxId, e));
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> markDone(outboxId, ghnOrderCode));
+        log.info("GHN order created successfully: {} for order ID: {}", ghnOrderCode, pending.order().getIdOrder());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<GHNShipmentOutboxDTO> getRecentEntries(ShipmentOutbox.OutboxStatus status, int limit) {
+        return shipmentOutboxRepository.findRecent(status, PageRequest.of(0, Math.min(Math.max(limit, 1), 500)))
+                .stream()
+                .map(this::toDTO)
+                .toList();
+    }
+
+    @Override
+    @Transactional
+    public GHNShipmentOutboxDTO replay(Integer outboxId) {
+        ShipmentOutbox outbox = shipmentOutboxRepository.findById(outboxId)
+                .orElseThrow(() -> new EntityNotFoundException("GHN outbox không tồn tại với ID: " + outboxId));
+
+        if (outbox.getStatus() == ShipmentOutbox.OutboxStatus.DONE) {
+            throw new RuntimeException("Vận đơn GHN đã được tạo, không thể chạy lại");
+        }
+        if (outbox.getStatus() == ShipmentOutbox.OutboxStatus.SKIPPED) {
+            throw new RuntimeException("Đơn hàng đã bị hủy, không thể chạy lại");
+        }
+        if (outbox.getStatus() == ShipmentOutbox.OutboxStatus.PROCESSING
+                && outbox.getNextAttemptAt().isAfter(LocalDateTime.now())) {
+            throw new RuntimeException("GHN outbox đang được xử lý, không thể chạy lại");
+        }
+
+        outbox.setStatus(ShipmentOutbox.OutboxStatus.PENDING);
+        outbox.setAttempts(0);
+        outbox.setNextAttemptAt(LocalDateTime.now());
+        outbox.setLastError(null);
+        shipmentOutboxRepository.save(outbox);
+
+        log.info("GHN outbox ID: {} for order ID: {} queued for replay", outboxId, outbox.getOrder().getIdOrder());
+        return toDTO(outbox);
+    }
+
+    /**
+     * Vận đơn đã tồn tại trên GHN cho đơn này (nếu có). Lỗi khi tra cứu coi như chưa có để lần sau thử lại.
+     */
+    private String findCreatedOrderCode(Order order) {
+        try {
+            return ghnService.findGHNOrderCode(order);
+        } catch (Exception e) {
+            log.warn("Failed to look up GHN order by client code for order ID: {}: {}",
+                    order.getIdOrder(), e.getMessage());
+            return null;
+        }
+    }
+
+    private PendingShipment loadPendingShipment(Integer outboxId) {
+        ShipmentOutbox outbox = shipmentOutboxRepository.findById(outboxId).orElse(null);
+        if (outbox == null) {
+            return null;
+        }
+
+        Integer orderId = outbox.getOrder().getIdOrder();
+        Order order = orderRepository.findByIdWithDetails(orderId).orElse(null);
+        if (order == null || order.getShippingAddress() == null) {
+            outbox.setStatus(ShipmentOutbox.OutboxStatus.FAILED);
+            outbox.setLastError("Đơn hàng không tồn tại hoặc không có địa chỉ giao hàng");
+            shipmentOutboxRepository.save(outbox);
+            return null;
+        }
+        if (order.getStatus() == Order.OrderStatus.CANCELED) {
+            // Đơn bị hủy (khách/admin hủy, hết hạn thanh toán) trước khi tới lượt: không tạo vận đơn GHN
+            log.info("Order ID: {} was canceled before dispatch. Skipping GHN outbox ID: {}", orderId, outboxId);
+            outbox.setStatus(ShipmentOutbox.OutboxStatus.SKIPPED);
+            outbox.setLastError("Đơn hàng đã bị hủy trước khi tạo vận đơn GHN");
+            shipmentOutboxRepository.save(outbox);
+            return null;
+        }
+
+        ShippingAddress shippingAddress = (ShippingAddress) Hibernate.unproxy(order.getShippingAddress());
+        String existingOrderCode = shipmentRepository.findByOrder_IdOrder(orderId)
+                .map(Shipment::getTrackingNumber)
+                .orElse(null);
+
+        return new PendingShipment(order, shippingAddress, existingOrderCode);
+    }
+
+    private void markDone(Integer outboxId, String ghnOrderCode) {
+        ShipmentOutbox outbox = shipmentOutboxRepository.findById(outboxId).orElseThrow();
+        Integer orderId = outbox.getOrder().getIdOrder();
+
+        shipmentRepository.findByOrder_IdOrder(orderId).ifPresent(shipment -> {
+            shipment.setTrackingNumber(ghnOrderCode);
+            shipment.setGhnOrderCode(ghnOrderCode);
+            if (shipment.getShippingStatus() == Shipment.ShippingStatus.PREPARING) {
+                shipment.setShippingStatus(Shipment.ShippingStatus.PICKING_UP);
+            }
+            shipmentRepository.save(shipment);
+        });
+
+        outbox.setStatus(ShipmentOutbox.OutboxStatus.DONE);
+        outbox.setGhnOrderCode(ghnOrderCode);
+        outbox.setLastError(null);
+        shipmentOutboxRepository.save(outbox);
+    }
+
+    private void markRetry(Integer outboxId, Exception error) {
+        GHNConfig.Outbox settings = ghnConfig.getOutbox();
+        ShipmentOutbox outbox = shipmentOutboxRepository.findById(outboxId).orElseThrow();
+
+        String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+        outbox.setLastError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+
+        int attempts = outbox.getAttempts();
+        if (attempts >= settings.getMaxAttempts()) {
+            outbox.setStatus(ShipmentOutbox.OutboxStatus.FAILED);
+            log.error("GHN outbox ID: {} for order ID: {} FAILED after {} attempts",
+                    outboxId, outbox.getOrder().getIdOrder(), attempts);
+        } else {
+            // Exponential backoff: base * 2^(attempts - 1), giới hạn bởi maxBackoffSeconds
+            long backoff = settings.getBaseBackoffSeconds() << Math.min(attempts - 1, 20);
+            outbox.setStatus(ShipmentOutbox.OutboxStatus.PENDING);
+            outbox.setNextAttemptAt(LocalDateTime.now().plusSeconds(Math.min(backoff, settings.getMaxBackoffSeconds())));
+        }
+
+        shipmentOutboxRepository.save(outbox);
+    }
+
+    private GHNShipmentOutboxDTO toDTO(ShipmentOutbox outbox) {
+        return GHNShipmentOutboxDTO.builder()
+                .idOutbox(outbox.getIdOutbox())
+                .orderId(outbox.getOrder().getIdOrder())
+                .status(outbox.getStatus().name())
+                .attempts(outbox.getAttempts())
+                .nextAttemptAt(outbox.getNextAttemptAt())
+                .ghnOrderCode(outbox.getGhnOrderCode())
+                .lastError(outbox.getLastError())
+                .createdAt(outbox.getCreatedAt())
+                .updatedAt(outbox.getUpdatedAt())
+                .build();
+    }
+
+    private record PendingShipment(Order order, ShippingAddress shippingAddress, String existingOrderCode) {
+    }
+}
@@ -17,7 +17,11 @@ import com.storemanagement.model.ShippingAddress;
 import com.storemanagement.repository.OrderRepository;
 import com.storemanagement.repository.ShipmentRepository;
 import com.storemanagement.service.GHNService;
+import com.storemanagement.service.PaymentSettlementService;
+import com.storemanagement.service.PromotionService;
+import com.storemanagement.service.SalesRollupService;
 import com.storemanagement.service.ShipmentService;
+import com.storemanagement.service.StockReservationService;
 import com.storemanagement.service.SystemSettingService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
@@ -30,6 +34,8 @@ import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
@@ -43,6 +49,10 @@ public class ShipmentServiceImpl implements ShipmentService {
     private final GHNService ghnService;
     private final GHNConfig ghnConfig;
     private final SystemSettingService systemSettingService;
+    private final SalesRollupService salesRollupService;
+    private final PromotionService promotionService;
+    private final StockReservationService stockReservationService;
+    private final PaymentSettlementService paymentSettlementService;
 
     @Override
     @Transactional(readOnly = true)
@@ -85,21 +95,9 @@ public class ShipmentServiceImpl implements ShipmentService {
         try {
             var orderInfo = ghnService.getOrderInfo(shipment.getGhnOrderCode());
 
-            shipment.setGhnStatus(orderInfo.getStatus());
-            shipment.setGhnUpdatedAt(LocalDateTime.now());
-
-            if (orderInfo.getNote() != null && !orderInfo.getNote().isEmpty()) {
-                shipment.setGhnNote(orderInfo.getNote());
-            }
-
-            syncShippingStatus(shipment, orderInfo.getStatus());
-
+            applyOrderInfo(shipment, orderInfo, LocalDateTime.now());
             shipmentRepository.save(shipment);
 
-            if (shipment.getOrder() != null) {
-                syncOrderStatus(shipment.getOrder(), orderInfo.getStatus());
-            }
-
             log.info("Successfully synced shipment with GHN: shipmentId={}, newStatus={}",
                 shipmentId, orderInfo.getStatus());
 
@@ -314,6 +312,46 @@ public class ShipmentServiceImpl implements ShipmentService {
         return shipmentMapper.toDTO(savedShipment);
     }
 
+    @Override
+    public int applyGHNOrderInfos(Map<Integer, GHNOrderInfoDTO> orderInfosByShipmentId) {
+        if (orderInfosByShipmentId.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Shipment> shipments = shipmentRepository.findAllWithOrderByIdIn(orderInfosByShipmentId.keySet());
+
+        int changed = 0;
+        for (Shipment shipment : shipments) {
+            GHNOrderInfoDTO orderInfo = orderInfosByShipmentId.get(shipment.getIdShipment());
+            if (orderInfo == null) {
+                continue;
+            }
+            if (!Objects.equals(shipment.getGhnStatus(), orderInfo.getStatus())) {
+                changed++;
+            }
+            applyOrderInfo(shipment, orderInfo, now);
+        }
+
+        shipmentRepository.saveAll(shipments);
+        return changed;
+    }
+
+    private void applyOrderInfo(Shipment shipment, GHNOrderInfoDTO orderInfo, LocalDateTime now) {
+        shipment.setGhnStatus(orderInfo.getStatus());
+        shipment.setGhnUpdatedAt(now);
+
+        if (orderInfo.getNote() != null && !orderInfo.getNote().isEmpty()) {
+            shipment.setGhnNote(orderInfo.getNote());
+        }
+
+        syncShippingStatus(shipment, orderInfo.getStatus());
+
+        if (shipment.getOrder() != null) {
+            syncOrderStatus(shipment.getOrder(), orderInfo.getStatus());
+        }
+    }
+
     private void syncShippingStatus(Shipment shipment, String ghnStatus) {
         if (ghnStatus == null || ghnStatus.isEmpty()) {
             return;
@@ -359,6 +397,7 @@ public class ShipmentServiceImpl implements ShipmentService {
 
         if ("delivered".equals(ghnStatus)) {
             if (order.getStatus() != Order.OrderStatus.COMPLETED) {
+                Order.OrderStatus previousStatus = order.getStatus();
                 LocalDateTime now = LocalDateTime.now();
                 log.info("Updating order status to COMPLETED. Order ID: {}", order.getIdOrder());
                 order.setStatus(Order.OrderStatus.COMPLETED);
@@ -369,13 +408,27 @@ public class ShipmentServiceImpl implements ShipmentService {
                 order.setReturnWindowDays(returnWindowDays);
                 log.info("Order COMPLETED: completedAt={}, returnWindowDays={} for order: {}", now, returnWindowDays, order.getIdOrder());
                 orderRepository.save(order);
+                salesRollupService.recordStatusChange(order, previousStatus);
+
+                if (order.getPaymentMethod() == Order.PaymentMethod.PAYOS) {
+                    // Đơn PAYOS chưa chốt thanh toán đã được giao: chốt phần giữ chỗ thành phiếu xuất kho
+                    stockReservationService.commitReservation(order, "GHN giao hàng thành công");
+                }
             }
         } else if ("cancel".equals(ghnStatus)) {
-            if (order.getStatus() == Order.OrderStatus.PENDING ||
+            if (order.getPaymentMethod() == Order.PaymentMethod.PAYOS
+                && order.getStatus() == Order.OrderStatus.PENDING) {
+                // Như thanh toán thất bại: khóa đơn, nhả giữ chỗ và lượt dùng mã giảm giá
+                paymentSettlementService.settleCanceled(order.getIdOrder(), "GHN hủy vận đơn");
+            } else if (order.getStatus() == Order.OrderStatus.PENDING ||
                 order.getStatus() == Order.OrderStatus.CONFIRMED) {
+                Order.OrderStatus previousStatus = order.getStatus();
                 log.info("Updating order status to CANCELED. Order ID: {}", order.getIdOrder());
                 order.setStatus(Order.OrderStatus.CANCELED);
                 orderRepository.save(order);
+                salesRollupService.recordStatusChange(order, previousStatus);
+                promotionService.releasePromotionUsage(order.getIdOrder());
+                stockReservationService.restoreCanceledOrder(order, "GHN hủy vận đơn - hoàn trả hàng vào kho");
             }
         }
     }
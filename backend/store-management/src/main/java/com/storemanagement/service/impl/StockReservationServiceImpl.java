@@ -0,0 +1,229 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.model.InventoryTransaction;
+import com.storemanagement.model.Order;
+import com.storemanagement.model.OrderDetail;
+import com.storemanagement.model.Product;
+import com.storemanagement.model.StockReservation;
+import com.storemanagement.repository.OrderBatchRepository;
+import com.storemanagement.repository.ProductCostLedgerRepository;
+import com.storemanagement.repository.ProductRepository;
+import com.storemanagement.repository.StockReservationRepository;
+import com.storemanagement.service.CatalogCacheService;
+import com.storemanagement.service.StockReservationService;
+import com.storemanagement.utils.ReferenceType;
+import com.storemanagement.utils.TransactionType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mọi thay đổi tồn kho do bán hàng đều đi qua service này.
+ * Trừ kho dùng UPDATE có điều kiện (stock_quantity >= quantity) nên hai checkout song song
+ * không thể bán vượt tồn kho. Đơn PAYOS giữ hàng (RESERVED) khi đặt, chốt (COMMITTED) khi
+ * thanh toán thành công và trả lại kho (RELEASED) khi hủy/thanh toán thất bại.
+ * Mỗi thay đổi tồn kho cũng được ghi vào sổ giá vốn (product_cost_ledger) trong cùng transaction.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+@Slf4j
+public class StockReservationServiceImpl implements StockReservationService {
+
+    private final ProductRepository productRepository;
+    private final StockReservationRepository stockReservationRepository;
+    private final OrderBatchRepository orderBatchRepository;
+    private final CatalogCacheService catalogCacheService;
+    private final ProductCostLedgerRepository productCostLedgerRepository;
+
+    @Override
+    public void deductStock(Order order) {
+        Map<Integer, Integer> quantities = aggregateByProduct(order);
+
+        int updated = orderBatchRepository.decrementStock(quantities);
+        if (updated != quantities.size()) {
+            // Có sản phẩm không đủ hàng: ném lỗi để rollback các dòng đã trừ trong cùng câu UPDATE
+            throw new RuntimeException("Một số sản phẩm trong đơn hàng không đủ số lượng, vui lòng thử lại");
+        }
+        productCostLedgerRepository.applyMovements(negate(quantities));
+        productCostLedgerRepository.recordSaleCosts(order.getIdOrder());
+        catalogCacheService.evictProducts(quantities.keySet());
+        log.debug("Stock deducted for order ID: {} ({} products)", order.getIdOrder(), quantities.size());
+    }
+
+    @Override
+    public void deductStock(Product product, int quantity) {
+        int updated = productRepository.decrementStock(product.getIdProduct(), quantity);
+        if (updated == 0) {
+            throw new RuntimeException("Sản phẩm " + product.getProductName() + " không đủ số lượng");
+        }
+        productCostLedgerRepository.applyMovements(Map.of(product.getIdProduct(), -quantity));
+        catalogCacheService.evictProduct(product.getIdProduct());
+        log.debug("Stock deducted for product ID: {}, quantity: {}", product.getIdProduct(), quantity);
+    }
+
+    @Override
+    public void addStock(Product product, int quantity) {
+        productRepository.incrementStock(product.getIdProduct(), quantity);
+        productCostLedgerRepository.applyMovements(Map.of(product.getIdProduct(), quantity));
+        catalogCacheService.evictProduct(product.getIdProduct());
+        log.debug("Stock added for product ID: {}, quantity: {}", product.getIdProduct(), quantity);
+    }
+
+    @Override
+    public void receiveStock(Product product, int quantity, BigDecimal unitCost) {
+        // Khóa dòng products trước rồi mới tới sổ giá vốn, giống trừ kho/hoàn kho, để không deadlock
+        productRepository.incrementStock(product.getIdProduct(), quantity);
+        productCostLedgerRepository.applyReceipt(product.getIdProduct(), quantity, unitCost);
+        catalogCacheService.evictProduct(product.getIdProduct());
+        log.debug("Stock received for product ID: {}, quantity: {}, unit cost: {}", product.getIdProduct(),
+                quantity, unitCost);
+    }
+
+    @Override
+    public void reserveStock(Order order) {
+        deductStock(order);
+
+        Map<Integer, Integer> quantities = aggregateByProduct(order);
+        Map<Integer, Product> products = productsById(order);
+
+        List<StockReservation> reservations = new ArrayList<>();
+        quantities.forEach((productId, quantity) -> reservations.add(StockReservation.builder()
+                .order(order)
+                .product(products.get(productId))
+                .quantity(quantity)
+                .status(StockReservation.ReservationStatus.RESERVED)
+                .build()));
+        orderBatchRepository.insertStockReservations(reservations);
+
+        log.info("Stock reserved for PAYOS order ID: {} ({} products)", order.getIdOrder(), quantities.size());
+    }
+
+    @Override
+    public void commitReservation(Order order, String note) {
+        // Cả đơn chuyển trạng thái cùng lúc; UPDATE khóa các dòng nên commit/release song song chỉ một bên thắng
+        int updated = stockReservationRepository.transitionOrderStatus(order.getIdOrder(),
+                StockReservation.ReservationStatus.RESERVED, StockReservation.ReservationStatus.COMMITTED);
+
+        if (updated == 0) {
+            if (stockReservationRepository.existsByOrder_IdOrder(order.getIdOrder())) {
+                log.warn("Stock reservation for order ID: {} is no longer RESERVED. Skipping commit.",
+                        order.getIdOrder());
+                return;
+            }
+            // Đơn PAYOS tạo trước khi có stock_reservations: chưa giữ hàng, trừ kho tại thời điểm thanh toán
+            log.warn("No stock reservation found for order ID: {}. Deducting stock at payment time.",
+                    order.getIdOrder());
+            deductStock(order);
+            List<InventoryTransaction> transactions = new ArrayList<>();
+            for (OrderDetail detail : order.getOrderDetails()) {
+                transactions.add(buildOutTransaction(order, detail.getProduct(), detail.getQuantity(), note));
+            }
+            orderBatchRepository.insertInventoryTransactions(transactions);
+            return;
+        }
+
+        List<InventoryTransaction> transactions = new ArrayList<>();
+        for (StockReservation reservation : stockReservationRepository.findByOrderIdWithProduct(order.getIdOrder())) {
+            transactions.add(buildOutTransaction(order, reservation.getProduct(), reservation.getQuantity(), note));
+        }
+        orderBatchRepository.insertInventoryTransactions(transactions);
+
+        log.info("Stock reservation committed for order ID: {}", order.getIdOrder());
+    }
+
+    @Override
+    public void releaseReservation(Order order) {
+        int updated = stockReservationRepository.transitionOrderStatus(order.getIdOrder(),
+                StockReservation.ReservationStatus.RESERVED, StockReservation.ReservationStatus.RELEASED);
+        if (updated == 0) {
+            return;
+        }
+
+        Map<Integer, Integer> quantities = new TreeMap<>();
+        for (StockReservation reservation : stockReservationRepository.findByOrderIdWithProduct(order.getIdOrder())) {
+            quantities.merge(reservation.getProduct().getIdProduct(), reservation.getQuantity(), Integer::sum);
+        }
+        orderBatchRepository.incrementStock(quantities);
+        productCostLedgerRepository.applyMovements(quantities);
+        catalogCacheService.evictProducts(quantities.keySet());
+
+        log.info("Stock reservation released for order ID: {}", order.getIdOrder());
+    }
+
+    @Override
+    public void restoreCanceledOrder(Order order, String note) {
+        if (order.getPaymentMethod() == Order.PaymentMethod.PAYOS) {
+            // Đơn PAYOS chưa thanh toán chỉ giữ hàng, chưa có phiếu xuất kho
+            releaseReservation(order);
+            return;
+        }
+
+        addStock(order, note);
+    }
+
+    @Override
+    public void addStock(Order order, String note) {
+        Map<Integer, Integer> quantities = aggregateByProduct(order);
+        orderBatchRepository.incrementStock(quantities);
+        productCostLedgerRepository.applyMovements(quantities);
+        catalogCacheService.evictProducts(quantities.keySet());
+
+        List<InventoryTransaction> transactions = new ArrayList<>();
+        for (OrderDetail detail : order.getOrderDetails()) {
+            transactions.add(InventoryTransaction.builder()
+                    .product(detail.getProduct())
+                    .transactionType(TransactionType.IN)
+                    .quantity(detail.getQuantity())
+                    .referenceType(ReferenceType.SALE_ORDER)
+                    .referenceId(order.getIdOrder())
+                    .notes(note)
+                    .transactionDate(LocalDateTime.now())
+                    .build());
+        }
+        orderBatchRepository.insertInventoryTransactions(transactions);
+    }
+
+    private InventoryTransaction buildOutTransaction(Order order, Product product, Integer quantity, String note) {
+        return InventoryTransaction.builder()
+                .product(product)
+                .transactionType(TransactionType.OUT)
+                .quantity(quantity)
+                .referenceType(ReferenceType.SALE_ORDER)
+                .referenceId(order.getIdOrder())
+                .notes(note)
+                .transactionDate(LocalDateTime.now())
+                .build();
+    }
+
+    // TreeMap: luôn khóa các dòng products theo thứ tự id tăng dần để tránh deadlock giữa các đơn nhiều sản phẩm
+    private Map<Integer, Integer> aggregateByProduct(Order order) {
+        Map<Integer, Integer> quantities = new TreeMap<>();
+        for (OrderDetail detail : order.getOrderDetails()) {
+            quantities.merge(detail.getProduct().getIdProduct(), detail.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    private Map<Integer, Integer> negate(Map<Integer, Integer> quantities) {
+        Map<Integer, Integer> deltas = new TreeMap<>();
+        quantities.forEach((productId, quantity) -> deltas.put(productId, -quantity));
+        return deltas;
+    }
+
+    private Map<Integer, Product> productsById(Order order) {
+        Map<Integer, Product> products = new TreeMap<>();
+        for (OrderDetail detail : order.getOrderDetails()) {
+            products.putIfAbsent(detail.getProduct().getIdProduct(), detail.getProduct());
+        }
+        return products;
+    }
+}
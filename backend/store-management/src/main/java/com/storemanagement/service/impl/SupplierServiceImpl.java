@@ -1,5 +1,6 @@
 package com.storemanagement.service.impl;
 
+import com.storemanagement.config.CacheConfig;
 import com.storemanagement.dto.PageResponse;
 import com.storemanagement.dto.supplier.SupplierDTO;
 import com.storemanagement.mapper.SupplierMapper;
@@ -10,6 +11,9 @@ import com.storemanagement.utils.PageUtils;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -28,6 +32,7 @@ public class SupplierServiceImpl implements SupplierService {
     private final SupplierMapper supplierMapper;
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.SUPPLIERS, allEntries = true)
     public SupplierDTO createSupplier(SupplierDTO supplierDTO) {
         log.info("Creating supplier: {}", supplierDTO.getSupplierName());
 
@@ -47,6 +52,11 @@ public class SupplierServiceImpl implements SupplierService {
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.SUPPLIERS, allEntries = true),
+            // ProductDTO chứa tên nhà cung cấp
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_DETAILS, allEntries = true)
+    })
     public SupplierDTO updateSupplier(Integer id, SupplierDTO supplierDTO) {
         log.info("Updating supplier ID: {}", id);
 
@@ -77,6 +87,11 @@ public class SupplierServiceImpl implements SupplierService {
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.SUPPLIERS, allEntries = true),
+            // ProductDTO chứa tên nhà cung cấp
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_DETAILS, allEntries = true)
+    })
     public void deleteSupplier(Integer id) {
         log.info("Deleting supplier ID: {}", id);
 
@@ -88,6 +103,7 @@ public class SupplierServiceImpl implements SupplierService {
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.SUPPLIERS, key = "#id")
     public SupplierDTO getSupplierById(Integer id) {
         Supplier supplier = supplierRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Nhà cung cấp không tồn tại với ID: " + id));
@@ -95,6 +111,7 @@ public class SupplierServiceImpl implements SupplierService {
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.SUPPLIERS, key = "'all'")
     public List<SupplierDTO> getAllSuppliers() {
         List<Supplier> suppliers = supplierRepository.findAll();
         return supplierMapper.toDTOList(suppliers);
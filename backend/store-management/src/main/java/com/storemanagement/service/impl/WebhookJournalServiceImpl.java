@@ -0,0 +1,227 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.config.WebhookJournalProperties;
+import com.storemanagement.dto.webhook.WebhookEventDTO;
+import com.storemanagement.model.WebhookEvent;
+import com.storemanagement.repository.WebhookEventRepository;
+import com.storemanagement.service.WebhookEventHandler;
+import com.storemanagement.service.WebhookJournalService;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Journal webhook đầu vào: controller chỉ lưu payload gốc (chống trùng bằng unique (source, dedup_key))
+ * rồi trả lời ngay; dispatcher nền nhận các sự kiện đến hạn và giao cho các luồng xử lý.
+ * Mỗi luồng là một executor đơn luồng, sự kiện được chia theo partition key nên các sự kiện của cùng
+ * một đơn/vận đơn được xử lý tuần tự theo thứ tự id. Lỗi được retry với exponential backoff; trong lúc chờ retry,
+ * các sự kiện sau cùng partition key không được giao (xem WebhookEventRepository.findDueIds).
+ */
+@Service
+@Slf4j
+public class WebhookJournalServiceImpl implements WebhookJournalService {
+
+    private static final List<WebhookEvent.EventStatus> DISPATCHABLE_STATUSES = List.of(
+            WebhookEvent.EventStatus.PENDING,
+            WebhookEvent.EventStatus.PROCESSING);
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final WebhookEventRepository webhookEventRepository;
+    private final WebhookJournalProperties webhookJournalProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<WebhookEvent.Source, WebhookEventHandler> handlers = new EnumMap<>(WebhookEvent.Source.class);
+
+    private final ExecutorService[] lanes;
+    // Sự kiện đã giao cho luồng nhưng chưa xử lý xong, để không giao lại khi hết hạn thuê
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    public WebhookJournalServiceImpl(WebhookEventRepository webhookEventRepository,
+            WebhookJournalProperties webhookJournalProperties,
+            TransactionTemplate transactionTemplate,
+            List<WebhookEventHandler> eventHandlers) {
+        this.webhookEventRepository = webhookEventRepository;
+        this.webhookJournalProperties = webhookJournalProperties;
+        this.transactionTemplate = transactionTemplate;
+        for (WebhookEventHandler handler : eventHandlers) {
+            handlers.put(handler.source(), handler);
+        }
+
+        this.lanes = new ExecutorService[Math.max(webhookJournalProperties.getWorkerLanes(), 1)];
+        for (int i = 0; i < lanes.length; i++) {
+            String threadName = "webhook-worker-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @Override
+    @Transactional
+    public boolean record(WebhookEvent.Source source, String dedupKey, String partitionKey, String payload) {
+        int inserted = webhookEventRepository.insertIgnore(source.name(), dedupKey, partitionKey, payload,
+                LocalDateTime.now());
+        if (inserted == 0) {
+            log.info("Duplicate {} webhook ignored. Dedup key: {}", source, dedupKey);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${webhook-journal.poll-interval-ms:500}",
+            initialDelayString = "${webhook-journal.poll-interval-ms:500}")
+    public void dispatchDue() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> dueIds = webhookEventRepository.findDueIds(DISPATCHABLE_STATUSES, now,
+                PageRequest.of(0, webhookJournalProperties.getBatchSize()));
+        if (dueIds.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime leaseUntil = now.plusSeconds(webhookJournalProperties.getLeaseSeconds());
+        for (Long eventId : dueIds) {
+            if (inFlight.contains(eventId)) {
+                continue;
+            }
+
+            try {
+                Integer claimed = transactionTemplate.execute(status ->
+                        webhookEventRepository.claim(eventId, DISPATCHABLE_STATUSES, now, leaseUntil));
+                if (claimed == null || claimed == 0) {
+                    continue;
+                }
+
+                WebhookEvent event = webhookEventRepository.findById(eventId).orElse(null);
+                if (event == null) {
+                    continue;
+                }
+
+                inFlight.add(eventId);
+                lanes[Math.floorMod(event.getPartitionKey().hashCode(), lanes.length)].execute(() -> process(event));
+            } catch (Exception e) {
+                inFlight.remove(eventId);
+                log.error("Unexpected error dispatching webhook event ID: {}", eventId, e);
+            }
+        }
+    }
+
+    private void process(WebhookEvent event) {
+        try {
+            WebhookEventHandler handler = handlers.get(event.getSource());
+            if (handler == null) {
+                throw new IllegalStateException("Không có handler cho webhook " + event.getSource());
+            }
+
+            handler.handle(event.getPayload());
+            transactionTemplate.executeWithoutResult(status -> markDone(event.getIdEvent()));
+        } catch (Exception e) {
+            log.warn("Failed to process {} webhook event ID: {} (attempt {}): {}",
+                    event.getSource(), event.getIdEvent(), event.getAttempts(), e.getMessage());
+            try {
+                transactionTemplate.executeWithoutResult(status -> markRetry(event.getIdEvent(), e));
+            } catch (Exception markError) {
+                log.error("Cannot record failure of webhook event ID: {}", event.getIdEvent(), markError);
+            }
+        } finally {
+            inFlight.remove(event.getIdEvent());
+        }
+    }
+
+    private void markDone(Long eventId) {
+        WebhookEvent event = webhookEventRepository.findById(eventId).orElseThrow();
+        event.setStatus(WebhookEvent.EventStatus.DONE);
+        event.setProcessedAt(LocalDateTime.now());
+        event.setLastError(null);
+        webhookEventRepository.save(event);
+    }
+
+    private void markRetry(Long eventId, Exception error) {
+        WebhookEvent event = webhookEventRepository.findById(eventId).orElseThrow();
+
+        String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+        event.setLastError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+
+        int attempts = event.getAttempts();
+        if (attempts >= webhookJournalProperties.getMaxAttempts()) {
+            event.setStatus(WebhookEvent.EventStatus.FAILED);
+            log.error("{} webhook event ID: {} FAILED after {} attempts", event.getSource(), eventId, attempts);
+        } else {
+            long backoff = webhookJournalProperties.getBaseBackoffSeconds() << Math.min(attempts - 1, 20);
+            event.setStatus(WebhookEvent.EventStatus.PENDING);
+            event.setNextAttemptAt(LocalDateTime.now()
+                    .plusSeconds(Math.min(backoff, webhookJournalProperties.getMaxBackoffSeconds())));
+        }
+
+        webhookEventRepository.save(event);
+    }
+
+    @Override
+    @Transactional
+    public WebhookEventDTO replay(Long eventId) {
+        WebhookEvent event = webhookEventRepository.findById(eventId)
+                .orElseThrow(() -> new EntityNotFoundException("Webhook event không tồn tại với ID: " + eventId));
+
+        if (event.getStatus() == WebhookEvent.EventStatus.PROCESSING || inFlight.contains(eventId)) {
+            throw new RuntimeException("Webhook event đang được xử lý, không thể chạy lại");
+        }
+
+        event.setStatus(WebhookEvent.EventStatus.PENDING);
+        event.setAttempts(0);
+        event.setNextAttemptAt(LocalDateTime.now());
+        event.setLastError(null);
+        webhookEventRepository.save(event);
+
+        log.info("{} webhook event ID: {} queued for replay", event.getSource(), eventId);
+        return toDTO(event);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<WebhookEventDTO> getRecentEvents(WebhookEvent.Source source, WebhookEvent.EventStatus status,
+            int limit) {
+        return webhookEventRepository.findRecent(source, status, PageRequest.of(0, Math.min(Math.max(limit, 1), 500)))
+                .stream()
+                .map(this::toDTO)
+                .toList();
+    }
+
+    @PreDestroy
+    public void onShutdown() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    private WebhookEventDTO toDTO(WebhookEvent event) {
+        return WebhookEventDTO.builder()
+                .idEvent(event.getIdEvent())
+                .source(event.getSource().name())
+                .dedupKey(event.getDedupKey())
+                .partitionKey(event.getPartitionKey())
+                .status(event.getStatus().name())
+                .attempts(event.getAttempts())
+                .nextAttemptAt(event.getNextAttemptAt())
+                .processedAt(event.getProcessedAt())
+                .lastError(event.getLastError())
+                .createdAt(event.getCreatedAt())
+                .payload(event.getPayload())
+                .build();
+    }
+}
@@ -4,6 +4,7 @@ import com.storemanagement.dto.PageResponse;
 import org.springframework.data.domain.Page;
 
 import java.util.List;
+import java.util.function.Function;
 
 public class PageUtils {
     /**
@@ -43,5 +44,37 @@ public class PageUtils {
                 .isEmpty(page.isEmpty())
                 .build();
     }
-}
 
+    /**
+     * Build PageResponse cho phân trang cursor (keyset).
+     * rows được truy vấn với limit = pageSize + 1: phần tử dư chỉ dùng để biết còn trang sau hay không.
+     * totalElements chỉ có khi client yêu cầu đếm (withCount), nếu không sẽ bị bỏ khỏi JSON.
+     */
+    public static <E, T> PageResponse<T> toCursorPageResponse(List<E> rows, int pageSize,
+                                                              Function<List<E>, List<T>> mapper,
+                                                              Function<E, String> cursorExtractor,
+                                                              Long totalElements) {
+        validateCursorPageSize(pageSize);
+        boolean hasNext = rows.size() > pageSize;
+        List<E> pageRows = hasNext ? rows.subList(0, pageSize) : rows;
+        List<T> content = mapper.apply(pageRows);
+
+        return PageResponse.<T>builder()
+                .content(content)
+                .pageSize(pageSize)
+                .totalElements(totalElements)
+                .hasNext(hasNext)
+                .isEmpty(content.isEmpty())
+                .nextCursor(hasNext ? cursorExtractor.apply(pageRows.get(pageSize - 1)) : null)
+                .build();
+    }
+
+    /**
+     * Phân trang cursor truy vấn pageSize + 1 dòng và lấy cursor từ dòng thứ pageSize, nên pageSize phải >= 1.
+     */
+    public static void validateCursorPageSize(Integer pageSize) {
+        if (pageSize == null || pageSize < 1) {
+            throw new IllegalArgumentException("Kích thước trang phải lớn hơn hoặc bằng 1");
+        }
+    }
+}
@@ -0,0 +1,14 @@
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    id_reservation INT AUTO_INCREMENT PRIMARY KEY,
+    id_order INT NOT NULL,
+    id_product INT NOT NULL,
+    quantity INT NOT NULL,
+    status ENUM('RESERVED', 'COMMITTED', 'RELEASED') NOT NULL DEFAULT 'RESERVED',
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    CONSTRAINT fk_stock_reservation_order FOREIGN KEY (id_order) REFERENCES orders(id_order) ON DELETE CASCADE,
+    CONSTRAINT fk_stock_reservation_product FOREIGN KEY (id_product) REFERENCES products(id_product),
+    UNIQUE KEY uq_stock_reservation_order_product (id_order, id_product),
+    INDEX idx_stock_reservation_status_created (status, created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
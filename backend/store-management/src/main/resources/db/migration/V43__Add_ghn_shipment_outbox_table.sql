@@ -0,0 +1,15 @@
+CREATE TABLE IF NOT EXISTS ghn_shipment_outbox (
+    id_outbox INT AUTO_INCREMENT PRIMARY KEY,
+    id_order INT NOT NULL,
+    status ENUM('PENDING', 'PROCESSING', 'DONE', 'FAILED') NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    ghn_order_code VARCHAR(50) NULL,
+    last_error TEXT NULL,
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    CONSTRAINT fk_ghn_outbox_order FOREIGN KEY (id_order) REFERENCES orders(id_order) ON DELETE CASCADE,
+    UNIQUE KEY uq_ghn_outbox_order (id_order),
+    INDEX idx_ghn_outbox_status_next_attempt (status, next_attempt_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,56 @@
+-- Bảng tổng hợp doanh số theo ngày (theo ngày đặt hàng) cho dashboard.
+-- Được cập nhật tăng dần mỗi khi đơn hàng được tạo hoặc đổi trạng thái (SalesRollupService).
+CREATE TABLE IF NOT EXISTS daily_sales_rollup (
+    sales_date DATE NOT NULL,
+    status ENUM('PENDING', 'CONFIRMED', 'COMPLETED', 'CANCELED') NOT NULL,
+    order_count INT NOT NULL DEFAULT 0,
+    gross_revenue DECIMAL(17, 2) NOT NULL DEFAULT 0,
+    discount DECIMAL(17, 2) NOT NULL DEFAULT 0,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (sales_date, status)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Số lượng bán/doanh thu theo sản phẩm, chỉ tính đơn COMPLETED
+CREATE TABLE IF NOT EXISTS daily_product_sales_rollup (
+    sales_date DATE NOT NULL,
+    id_product INT NOT NULL,
+    units_sold INT NOT NULL DEFAULT 0,
+    revenue DECIMAL(17, 2) NOT NULL DEFAULT 0,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (sales_date, id_product),
+    INDEX idx_daily_product_sales_product (id_product)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Phần "hôm nay" của dashboard vẫn đọc trực tiếp từ orders theo khoảng order_date
+CREATE INDEX idx_orders_order_date_status ON orders (order_date, status);
+
+-- Backfill từ dữ liệu hiện có
+INSERT INTO daily_sales_rollup (sales_date, status, order_count, gross_revenue, discount)
+SELECT DATE(o.order_date),
+       o.status,
+       COUNT(*),
+       COALESCE(SUM(d.gross_revenue), 0),
+       COALESCE(SUM(o.discount), 0)
+FROM orders o
+LEFT JOIN (
+    SELECT od.id_order, SUM(od.quantity * od.price) AS gross_revenue
+    FROM order_details od
+    GROUP BY od.id_order
+) d ON d.id_order = o.id_order
+WHERE o.order_date IS NOT NULL
+  AND o.status IS NOT NULL
+GROUP BY DATE(o.order_date), o.status;
+
+INSERT INTO daily_product_sales_rollup (sales_date, id_product, units_sold, revenue)
+SELECT DATE(o.order_date),
+       od.id_product,
+       SUM(od.quantity),
+       SUM(od.quantity * od.price)
+FROM orders o
+JOIN order_details od ON od.id_order = o.id_order
+WHERE o.status = 'COMPLETED'
+  AND o.order_date IS NOT NULL
+  AND od.id_product IS NOT NULL
+GROUP BY DATE(o.order_date), od.id_product;
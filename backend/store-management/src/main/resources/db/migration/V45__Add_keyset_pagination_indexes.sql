@@ -0,0 +1,7 @@
+-- Index cho phân trang cursor (keyset) theo (ngày, id) giảm dần.
+-- chat_messages đã có idx_chat_messages_created (id_conversation, created_at) - InnoDB tự thêm id_message vào cuối.
+CREATE INDEX idx_orders_order_date_id ON orders (order_date, id_order);
+
+CREATE INDEX idx_inv_transaction_date_id ON inventory_transactions (transaction_date, id_transaction);
+
+CREATE INDEX idx_inv_product_transaction_date_id ON inventory_transactions (id_product, transaction_date, id_transaction);
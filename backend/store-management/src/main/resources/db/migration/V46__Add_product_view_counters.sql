@@ -0,0 +1,40 @@
+-- Bộ đếm lượt xem tổng hợp sẵn cho phần "sản phẩm xem nhiều" của gợi ý (thay cho GROUP BY trên product_view).
+-- score là điểm suy giảm theo thời gian (half-life), quy về thời điểm score_updated_at;
+-- khi đọc được quy tiếp về hiện tại: score * POW(0.5, (now - score_updated_at) / half_life).
+CREATE TABLE IF NOT EXISTS product_view_stats (
+    id_product INT NOT NULL,
+    view_count BIGINT NOT NULL DEFAULT 0,
+    score DOUBLE NOT NULL DEFAULT 0,
+    score_updated_at DATETIME NOT NULL,
+
+    PRIMARY KEY (id_product)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS user_product_view_stats (
+    user_id INT NOT NULL,
+    id_product INT NOT NULL,
+    view_count BIGINT NOT NULL DEFAULT 0,
+    score DOUBLE NOT NULL DEFAULT 0,
+    score_updated_at DATETIME NOT NULL,
+
+    PRIMARY KEY (user_id, id_product)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Backfill từ lịch sử hiện có với half-life mặc định 7 ngày (604800 giây, khớp product-view-counter.half-life-hours)
+INSERT INTO product_view_stats (id_product, view_count, score, score_updated_at)
+SELECT product_id,
+       COUNT(*),
+       SUM(POW(0.5, GREATEST(TIMESTAMPDIFF(SECOND, created_at, NOW()), 0) / 604800)),
+       NOW()
+FROM product_view
+GROUP BY product_id;
+
+INSERT INTO user_product_view_stats (user_id, id_product, view_count, score, score_updated_at)
+SELECT user_id,
+       product_id,
+       COUNT(*),
+       SUM(POW(0.5, GREATEST(TIMESTAMPDIFF(SECOND, created_at, NOW()), 0) / 604800)),
+       NOW()
+FROM product_view
+WHERE user_id IS NOT NULL
+GROUP BY user_id, product_id;
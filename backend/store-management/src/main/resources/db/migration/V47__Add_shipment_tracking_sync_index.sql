@@ -0,0 +1,2 @@
+-- Job đồng bộ trạng thái GHN chỉ quét các vận đơn chưa giao (PREPARING/PICKING_UP/SHIPPED) theo id tăng dần.
+CREATE INDEX idx_shipments_status_id ON shipments (shipping_status, id_shipment);
@@ -0,0 +1,19 @@
+-- Nhật ký webhook đầu vào (GHN, PayOS): lưu payload gốc trước khi xử lý, chống trùng theo (source, dedup_key)
+CREATE TABLE IF NOT EXISTS webhook_events (
+    id_event BIGINT AUTO_INCREMENT PRIMARY KEY,
+    source ENUM('GHN', 'PAYOS') NOT NULL,
+    dedup_key VARCHAR(191) NOT NULL,
+    partition_key VARCHAR(100) NOT NULL,
+    payload MEDIUMTEXT NOT NULL,
+    status ENUM('PENDING', 'PROCESSING', 'DONE', 'FAILED') NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at DATETIME NULL,
+    last_error TEXT NULL,
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    UNIQUE KEY uq_webhook_events_dedup (source, dedup_key),
+    INDEX idx_webhook_events_status_id (status, id_event),
+    INDEX idx_webhook_events_partition (partition_key, id_event)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,2 @@
+-- Job đối soát PayOS quét các đơn (status = PENDING, payment_method = PAYOS) theo id tăng dần.
+CREATE INDEX idx_orders_status_payment_method_id ON orders (status, payment_method, id_order);
@@ -0,0 +1,27 @@
+-- Sổ giá vốn theo sản phẩm: giá vốn bình quân gia quyền di động và giá trị tồn kho.
+-- Nhập hàng tính lại giá bình quân; bán/trả/hoàn kho chỉ đổi số lượng và giá trị theo giá bình quân hiện tại
+-- (StockReservationService). Báo cáo lợi nhuận tính giá vốn hàng bán bằng một phép JOIN với bảng này.
+CREATE TABLE IF NOT EXISTS product_cost_ledger (
+    id_product INT NOT NULL PRIMARY KEY,
+    avg_unit_cost DECIMAL(16, 4) NOT NULL DEFAULT 0,
+    on_hand_quantity INT NOT NULL DEFAULT 0,
+    on_hand_value DECIMAL(19, 4) NOT NULL DEFAULT 0,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    CONSTRAINT fk_product_cost_ledger_product FOREIGN KEY (id_product) REFERENCES products(id_product)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Khởi tạo từ lịch sử nhập hàng (bình quân gia quyền theo số lượng) và tồn kho hiện tại.
+-- Sản phẩm chưa từng nhập hàng không có dòng; lần nhập đầu tiên sẽ tạo dòng.
+INSERT INTO product_cost_ledger (id_product, avg_unit_cost, on_hand_quantity, on_hand_value)
+SELECT p.id_product,
+       h.avg_cost,
+       GREATEST(COALESCE(p.stock_quantity, 0), 0),
+       GREATEST(COALESCE(p.stock_quantity, 0), 0) * h.avg_cost
+FROM products p
+JOIN (
+    SELECT pod.id_product, SUM(pod.quantity * pod.import_price) / SUM(pod.quantity) AS avg_cost
+    FROM purchase_order_details pod
+    WHERE pod.quantity > 0
+    GROUP BY pod.id_product
+) h ON h.id_product = p.id_product;
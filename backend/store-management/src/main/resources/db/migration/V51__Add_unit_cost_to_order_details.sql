@@ -0,0 +1,22 @@
+-- Giá vốn đơn vị tại thời điểm bán (giá bình quân di động trong product_cost_ledger lúc trừ kho).
+-- Báo cáo lợi nhuận cộng quantity * unit_cost thay vì định giá lại các đơn cũ theo giá bình quân hiện tại.
+ALTER TABLE order_details
+  ADD COLUMN unit_cost DECIMAL(16, 4) DEFAULT NULL COMMENT 'Giá vốn bình quân tại thời điểm bán';
+
+-- Đơn cũ: bình quân gia quyền của các lần nhập hàng tính đến ngày đặt đơn (gần nhất với giá bình quân di động
+-- lúc đó mà lịch sử còn lại cho phép); bán trước lần nhập đầu tiên thì lấy giá bình quân hiện tại trong sổ.
+UPDATE order_details od
+JOIN orders o ON o.id_order = od.id_order
+LEFT JOIN product_cost_ledger l ON l.id_product = od.id_product
+SET od.unit_cost = COALESCE(
+    (
+        SELECT SUM(pod.quantity * pod.import_price) / SUM(pod.quantity)
+        FROM purchase_order_details pod
+        JOIN purchase_orders po ON po.id_purchase_order = pod.id_purchase_order
+        WHERE pod.id_product = od.id_product
+          AND pod.quantity > 0
+          AND po.order_date <= o.order_date
+    ),
+    l.avg_unit_cost
+)
+WHERE od.unit_cost IS NULL;
@@ -0,0 +1,3 @@
+-- SKIPPED: đơn đã bị hủy trước khi dispatcher tạo vận đơn GHN
+ALTER TABLE ghn_shipment_outbox
+MODIFY COLUMN status ENUM('PENDING', 'PROCESSING', 'DONE', 'FAILED', 'SKIPPED') NOT NULL DEFAULT 'PENDING';
@@ -0,0 +1,104 @@
+package com.storemanagement.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.storemanagement.config.PaymentReconciliationProperties;
+import com.storemanagement.dto.ghn.GHNWebhookDTO;
+import com.storemanagement.dto.payos.PayOSWebhookDTO;
+import com.storemanagement.model.WebhookEvent;
+import com.storemanagement.repository.OrderRepository;
+import com.storemanagement.service.PayOSService;
+import com.storemanagement.service.PaymentSettlementService;
+import com.storemanagement.service.WebhookJournalService;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Khóa chống trùng được suy ra từ nội dung webhook: bản gửi lại phải trùng khóa, sự kiện mới phải khác khóa.
+ * Không ghi được vào journal thì controller trả 5xx để bên gửi retry.
+ */
+class WebhookDedupKeyTest {
+
+    private static final String GHN_PAYLOAD = """
+            {"order_code":"GHN123","status":"delivering","updated_at":"2025-03-01T10:15:00Z","client_order_code":"ORDER_42"}
+            """;
+    private static final String PAYOS_PAYLOAD = """
+            {"code":"00","desc":"success","data":{"paymentLinkId":"link-1","orderCode":1001,"code":"00"},"signature":"sig"}
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void ghnRedeliveryHasTheSameKey() throws Exception {
+        GHNWebhookDTO first = objectMapper.readValue(GHN_PAYLOAD, GHNWebhookDTO.class);
+        GHNWebhookDTO redelivered = objectMapper.readValue(GHN_PAYLOAD, GHNWebhookDTO.class);
+
+        assertEquals(GHNWebhookController.dedupKey(first), GHNWebhookController.dedupKey(redelivered));
+    }
+
+    @Test
+    void ghnNewStatusOrUpdateTimeHasADifferentKey() throws Exception {
+        GHNWebhookDTO original = objectMapper.readValue(GHN_PAYLOAD, GHNWebhookDTO.class);
+        GHNWebhookDTO nextStatus = objectMapper.readValue(GHN_PAYLOAD, GHNWebhookDTO.class);
+        nextStatus.setStatus("delivered");
+        GHNWebhookDTO laterUpdate = objectMapper.readValue(GHN_PAYLOAD, GHNWebhookDTO.class);
+        laterUpdate.setUpdatedAt("2025-03-01T11:40:00Z");
+
+        String originalKey = GHNWebhookController.dedupKey(original);
+        assertNotEquals(originalKey, GHNWebhookController.dedupKey(nextStatus));
+        assertNotEquals(originalKey, GHNWebhookController.dedupKey(laterUpdate));
+    }
+
+    @Test
+    void payOSRedeliveryHasTheSameKeyAndNewResultADifferentOne() throws Exception {
+        PayOSWebhookDTO first = objectMapper.readValue(PAYOS_PAYLOAD, PayOSWebhookDTO.class);
+        PayOSWebhookDTO redelivered = objectMapper.readValue(PAYOS_PAYLOAD, PayOSWebhookDTO.class);
+        PayOSWebhookDTO failed = objectMapper.readValue(PAYOS_PAYLOAD, PayOSWebhookDTO.class);
+        failed.setCode("01");
+
+        assertEquals(PaymentController.dedupKey(first), PaymentController.dedupKey(redelivered));
+        assertNotEquals(PaymentController.dedupKey(first), PaymentController.dedupKey(failed));
+    }
+
+    @Test
+    void ghnWebhookReturns5xxWhenJournalWriteFails() {
+        WebhookJournalService journal = mock(WebhookJournalService.class);
+        when(journal.record(any(), anyString(), anyString(), anyString()))
+                .thenThrow(new QueryTimeoutException("Lock wait timeout exceeded"));
+        GHNWebhookController controller = new GHNWebhookController(journal, objectMapper);
+
+        ResponseEntity<Map<String, String>> response = controller.webhook(GHN_PAYLOAD);
+
+        assertTrue(response.getStatusCode().is5xxServerError());
+        verify(journal).record(eq(WebhookEvent.Source.GHN), eq("GHN123:delivering:2025-03-01T10:15:00Z"),
+                eq("GHN123"), eq(GHN_PAYLOAD));
+    }
+
+    @Test
+    void payOSWebhookReturns5xxWhenJournalWriteFails() {
+        PayOSService payOSService = mock(PayOSService.class);
+        when(payOSService.verifyWebhookSignature(anyString(), eq("sig"))).thenReturn(true);
+        WebhookJournalService journal = mock(WebhookJournalService.class);
+        when(journal.record(any(), anyString(), anyString(), anyString()))
+                .thenThrow(new QueryTimeoutException("Lock wait timeout exceeded"));
+        PaymentController controller = new PaymentController(payOSService, mock(OrderRepository.class),
+                objectMapper, journal, mock(PaymentSettlementService.class), new PaymentReconciliationProperties());
+
+        ResponseEntity<Map<String, String>> response = controller.webhook(PAYOS_PAYLOAD);
+
+        assertTrue(response.getStatusCode().is5xxServerError());
+        verify(journal).record(eq(WebhookEvent.Source.PAYOS), eq("link-1:00"), eq("link-1"), eq(PAYOS_PAYLOAD));
+    }
+}
@@ -0,0 +1,117 @@
+package com.storemanagement.repository;
+
+import com.storemanagement.model.InventoryTransaction;
+import com.storemanagement.model.Order;
+import com.storemanagement.model.OrderDetail;
+import com.storemanagement.model.Product;
+import com.storemanagement.utils.ReferenceType;
+import com.storemanagement.utils.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Số câu lệnh JDBC cho một đơn không phụ thuộc số dòng: mỗi phương thức ghi chỉ tốn một lần gọi JdbcTemplate.
+ */
+class OrderBatchRepositoryTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final OrderBatchRepository repository = new OrderBatchRepository(jdbcTemplate);
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 50 })
+    void checkoutWritesUseOneStatementPerTableRegardlessOfLineCount(int lineCount) {
+        Order order = Order.builder().idOrder(1).build();
+        List<OrderDetail> details = details(order, lineCount);
+        stubGeneratedKeys(lineCount);
+
+        repository.insertOrderDetails(details);
+        repository.insertInventoryTransactions(outTransactions(order, details));
+        repository.decrementStock(quantities(details));
+
+        verify(jdbcTemplate, times(1)).batchUpdate(any(PreparedStatementCreator.class),
+                any(BatchPreparedStatementSetter.class), any(KeyHolder.class));
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+        verify(jdbcTemplate, times(1)).update(anyString(), any(Object[].class));
+        for (int i = 0; i < lineCount; i++) {
+            assertEquals(1000 + i, details.get(i).getIdOrderDetail());
+        }
+    }
+
+    @Test
+    void missingGeneratedKeysAreRejected() {
+        Order order = Order.builder().idOrder(1).build();
+        List<OrderDetail> details = details(order, 3);
+        stubGeneratedKeys(2);
+
+        assertThrows(IncorrectResultSizeDataAccessException.class, () -> repository.insertOrderDetails(details));
+    }
+
+    private void stubGeneratedKeys(int keyCount) {
+        when(jdbcTemplate.batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class),
+                any(KeyHolder.class))).thenAnswer(invocation -> {
+                    KeyHolder keyHolder = invocation.getArgument(2);
+                    for (int i = 0; i < keyCount; i++) {
+                        keyHolder.getKeyList().add(Map.of("GENERATED_KEY", 1000L + i));
+                    }
+                    return new int[keyCount];
+                });
+    }
+
+    private static List<OrderDetail> details(Order order, int lineCount) {
+        List<OrderDetail> details = new ArrayList<>();
+        for (int i = 0; i < lineCount; i++) {
+            details.add(OrderDetail.builder()
+                    .order(order)
+                    .product(Product.builder().idProduct(i + 1).build())
+                    .quantity(1)
+                    .price(BigDecimal.TEN)
+                    .build());
+        }
+        return details;
+    }
+
+    private static List<InventoryTransaction> outTransactions(Order order, List<OrderDetail> details) {
+        List<InventoryTransaction> transactions = new ArrayList<>();
+        for (OrderDetail detail : details) {
+            transactions.add(InventoryTransaction.builder()
+                    .product(detail.getProduct())
+                    .transactionType(TransactionType.OUT)
+                    .quantity(detail.getQuantity())
+                    .referenceType(ReferenceType.SALE_ORDER)
+                    .referenceId(order.getIdOrder())
+                    .transactionDate(LocalDateTime.now())
+                    .build());
+        }
+        return transactions;
+    }
+
+    private static Map<Integer, Integer> quantities(List<OrderDetail> details) {
+        Map<Integer, Integer> quantities = new TreeMap<>();
+        for (OrderDetail detail : details) {
+            quantities.put(detail.getProduct().getIdProduct(), detail.getQuantity());
+        }
+        return quantities;
+    }
+}
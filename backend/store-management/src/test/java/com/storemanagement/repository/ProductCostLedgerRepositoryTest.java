@@ -0,0 +1,43 @@
+package com.storemanagement.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Nhập hàng với số lượng không dương không được chạy câu lệnh tính lại giá vốn (mẫu số tồn + quantity có thể bằng 0).
+ */
+class ProductCostLedgerRepositoryTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ProductCostLedgerRepository repository = new ProductCostLedgerRepository(jdbcTemplate);
+
+    @ParameterizedTest
+    @ValueSource(ints = { 0, -5 })
+    void receiptWithoutPositiveQuantityIsSkipped(int quantity) {
+        repository.applyReceipt(7, quantity, new BigDecimal("120000"));
+
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    void positiveReceiptRecalculatesAverageCost() {
+        BigDecimal unitCost = new BigDecimal("120000");
+
+        repository.applyReceipt(7, 10, unitCost);
+
+        verify(jdbcTemplate).update(contains("product_cost_ledger"),
+                eq(unitCost), eq(unitCost), eq(7), eq(10), eq(unitCost), eq(10), eq(10));
+    }
+}
@@ -0,0 +1,81 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.config.CacheConfig;
+import com.storemanagement.dto.cache.CacheStatsDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Evict theo id chỉ bỏ đúng sản phẩm đó, và trong transaction chỉ có hiệu lực sau khi commit
+ * (TransactionAwareCacheManagerProxy của CacheConfig).
+ */
+class CatalogCacheEvictionTest {
+
+    private final CacheManager cacheManager = new CacheConfig().cacheManager();
+    private final CatalogCacheServiceImpl catalogCacheService = new CatalogCacheServiceImpl(cacheManager);
+    private final Cache productDetails = cacheManager.getCache(CacheConfig.PRODUCT_DETAILS);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void evictProductRemovesOnlyThatProduct() {
+        productDetails.put(1, "product 1");
+        productDetails.put(2, "product 2");
+
+        catalogCacheService.evictProduct(1);
+
+        assertNull(productDetails.get(1));
+        assertNotNull(productDetails.get(2));
+    }
+
+    @Test
+    void evictionInsideTransactionIsAppliedAfterCommit() {
+        productDetails.put(1, "product 1");
+        productDetails.put(2, "product 2");
+        productDetails.put(3, "product 3");
+
+        TransactionSynchronizationManager.initSynchronization();
+        catalogCacheService.evictProducts(List.of(1, 2));
+
+        // Request đọc song song trước khi commit vẫn thấy dữ liệu đã được commit trước đó
+        assertNotNull(productDetails.get(1));
+        assertNotNull(productDetails.get(2));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertNull(productDetails.get(1));
+        assertNull(productDetails.get(2));
+        assertNotNull(productDetails.get(3));
+    }
+
+    @Test
+    void statisticsCountHitsAndMissesPerCache() {
+        productDetails.put(1, "product 1");
+        productDetails.get(1);
+        productDetails.get(2);
+
+        CacheStatsDTO stats = catalogCacheService.getStatistics().stream()
+                .filter(cache -> cache.getCacheName().equals(CacheConfig.PRODUCT_DETAILS))
+                .findFirst()
+                .orElseThrow();
+
+        assertEquals(1L, stats.getSize());
+        assertEquals(1L, stats.getHitCount());
+        assertEquals(1L, stats.getMissCount());
+    }
+}
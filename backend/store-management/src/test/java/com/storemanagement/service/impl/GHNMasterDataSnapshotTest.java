@@ -0,0 +1,129 @@
+package com.storemanagement.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.storemanagement.config.GHNConfig;
+import com.storemanagement.dto.ghn.GHNDistrictDTO;
+import com.storemanagement.dto.ghn.GHNMasterDataSnapshotDTO;
+import com.storemanagement.dto.ghn.GHNProvinceDTO;
+import com.storemanagement.dto.ghn.GHNWardDTO;
+import com.storemanagement.exception.OutboundCallRejectedException;
+import com.storemanagement.service.GHNService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * GHN lỗi hoàn toàn (circuit breaker mở): tỉnh/quận/phường vẫn được phục vụ từ snapshot,
+ * làm mới nền không xóa dữ liệu cũ và không chạy trên thread của scheduler.
+ */
+class GHNMasterDataSnapshotTest {
+
+    private static final int PROVINCE_ID = 202;
+    private static final int DISTRICT_ID = 1442;
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final GHNService ghnService = mock(GHNService.class);
+    private final GHNConfig ghnConfig = new GHNConfig();
+
+    private GHNMasterDataServiceImpl masterDataService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path snapshotPath = tempDir.resolve("ghn-master-data.json");
+        ghnConfig.getMasterData().setSnapshotPath(snapshotPath.toString());
+        ghnConfig.getMasterData().setRefreshCallDelayMs(0);
+
+        objectMapper.writeValue(snapshotPath.toFile(), GHNMasterDataSnapshotDTO.builder()
+                .refreshedAt(LocalDateTime.now().minusDays(2))
+                .provinces(List.of(new GHNProvinceDTO(PROVINCE_ID, "Hồ Chí Minh", "8")))
+                .districtsByProvince(Map.of(PROVINCE_ID,
+                        List.of(new GHNDistrictDTO(DISTRICT_ID, PROVINCE_ID, "Quận 1", "0201"))))
+                .wardsByDistrict(Map.of(DISTRICT_ID,
+                        List.of(new GHNWardDTO("20101", DISTRICT_ID, "Phường Bến Nghé"))))
+                .build());
+
+        OutboundCallRejectedException ghnDown =
+                new OutboundCallRejectedException("Dịch vụ ghn tạm thời không khả dụng, vui lòng thử lại sau");
+        when(ghnService.isEnabled()).thenReturn(true);
+        when(ghnService.getProvinces()).thenThrow(ghnDown);
+        when(ghnService.getDistricts(anyInt())).thenThrow(ghnDown);
+        when(ghnService.getWards(anyInt())).thenThrow(ghnDown);
+
+        masterDataService = new GHNMasterDataServiceImpl(ghnService, ghnConfig, objectMapper);
+        masterDataService.onApplicationReady();
+    }
+
+    @AfterEach
+    void tearDown() {
+        masterDataService.onShutdown();
+    }
+
+    @Test
+    void lookupsAreServedFromSnapshotWhileGHNIsDown() {
+        assertEquals("Hồ Chí Minh", masterDataService.getProvinces().get(0).getProvinceName());
+        assertEquals("Quận 1", masterDataService.getDistricts(PROVINCE_ID).get(0).getDistrictName());
+        assertEquals("Phường Bến Nghé", masterDataService.getWards(DISTRICT_ID).get(0).getWardName());
+
+        verify(ghnService, never()).getProvinces();
+        verify(ghnService, never()).getDistricts(anyInt());
+        verify(ghnService, never()).getWards(anyInt());
+    }
+
+    @Test
+    void missingEntryStillSurfacesTheOutage() {
+        assertThrows(OutboundCallRejectedException.class, () -> masterDataService.getWards(9999));
+    }
+
+    @Test
+    void failedRefreshKeepsCachedDataAndSnapshot() throws IOException {
+        masterDataService.refresh();
+
+        assertEquals(1, masterDataService.getProvinces().size());
+        assertEquals(1, masterDataService.getDistricts(PROVINCE_ID).size());
+        assertEquals(1, masterDataService.getWards(DISTRICT_ID).size());
+
+        GHNMasterDataSnapshotDTO written = objectMapper.readValue(
+                Path.of(ghnConfig.getMasterData().getSnapshotPath()).toFile(), GHNMasterDataSnapshotDTO.class);
+        assertEquals(1, written.getProvinces().size());
+        assertEquals(1, written.getDistrictsByProvince().get(PROVINCE_ID).size());
+        assertEquals(1, written.getWardsByDistrict().get(DISTRICT_ID).size());
+    }
+
+    @Test
+    void scheduledRefreshRunsOffTheSchedulerThread() throws InterruptedException {
+        AtomicReference<String> refreshThread = new AtomicReference<>();
+        CountDownLatch refreshed = new CountDownLatch(1);
+        when(ghnService.getProvinces()).thenAnswer(invocation -> {
+            refreshThread.set(Thread.currentThread().getName());
+            refreshed.countDown();
+            throw new OutboundCallRejectedException("Dịch vụ ghn tạm thời không khả dụng, vui lòng thử lại sau");
+        });
+
+        masterDataService.scheduledRefresh();
+
+        assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+        assertEquals("ghn-master-data-refresh", refreshThread.get());
+    }
+}
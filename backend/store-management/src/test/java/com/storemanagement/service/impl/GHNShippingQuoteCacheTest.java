@@ -0,0 +1,134 @@
+package com.storemanagement.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.storemanagement.config.CacheConfig;
+import com.storemanagement.config.GHNConfig;
+import com.storemanagement.dto.ghn.GHNBaseResponseDTO;
+import com.storemanagement.dto.ghn.GHNCalculateFeeRequestDTO;
+import com.storemanagement.dto.ghn.GHNCalculateFeeResponseDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Báo giá phí ship qua cache: khối lượng làm tròn lên theo bậc trước khi gọi GHN, các request cùng khóa
+ * đồng thời chỉ tạo một lời gọi, lỗi không được cache.
+ */
+class GHNShippingQuoteCacheTest {
+
+    private final RestTemplate ghnRestTemplate = mock(RestTemplate.class);
+    private final GHNServiceImpl ghnService = new GHNServiceImpl(new GHNConfig(), ghnRestTemplate,
+            new ObjectMapper(), new CacheConfig().cacheManager());
+
+    // Khối lượng GHN thực sự được hỏi giá, theo thứ tự gọi
+    private final List<Integer> quotedWeights = new CopyOnWriteArrayList<>();
+
+    @Test
+    void weightsInSameBucketShareOneRoundedUpQuote() {
+        stubFee(null);
+
+        GHNCalculateFeeResponseDTO first = ghnService.calculateShippingFee(request(1200));
+        GHNCalculateFeeResponseDTO second = ghnService.calculateShippingFee(request(1400));
+        ghnService.calculateShippingFee(request(1600));
+
+        assertEquals(first, second);
+        assertEquals(List.of(1500, 2000), quotedWeights);
+    }
+
+    @Test
+    void concurrentIdenticalQuotesShareOneCall() throws Exception {
+        CountDownLatch releaseFirstCall = new CountDownLatch(1);
+        stubFee(releaseFirstCall);
+
+        CompletableFuture<GHNCalculateFeeResponseDTO> first =
+                CompletableFuture.supplyAsync(() -> ghnService.calculateShippingFee(request(1200)));
+        waitForCalls(1);
+        CompletableFuture<GHNCalculateFeeResponseDTO> second =
+                CompletableFuture.supplyAsync(() -> ghnService.calculateShippingFee(request(1300)));
+        // Request thứ hai chờ lời gọi đang chạy thay vì gọi GHN lần nữa
+        Thread.sleep(100);
+        releaseFirstCall.countDown();
+
+        assertEquals(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1500), quotedWeights);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedQuoteIsNotCached() {
+        when(ghnRestTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class),
+                any(ParameterizedTypeReference.class)))
+                .thenThrow(new IllegalStateException("GHN 500"))
+                .thenAnswer(invocation -> feeResponse(invocation.getArgument(2)));
+
+        assertThrows(RuntimeException.class, () -> ghnService.calculateShippingFee(request(1200)));
+        ghnService.calculateShippingFee(request(1200));
+
+        assertEquals(List.of(1500), quotedWeights);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubFee(CountDownLatch release) {
+        when(ghnRestTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class),
+                any(ParameterizedTypeReference.class)))
+                .thenAnswer(invocation -> {
+                    ResponseEntity<?> response = feeResponse(invocation.getArgument(2));
+                    if (release != null) {
+                        release.await(5, TimeUnit.SECONDS);
+                    }
+                    return response;
+                });
+    }
+
+    private ResponseEntity<?> feeResponse(HttpEntity<GHNCalculateFeeRequestDTO> entity) {
+        Integer weight = entity.getBody().getWeight();
+        quotedWeights.add(weight);
+        GHNCalculateFeeResponseDTO fee = GHNCalculateFeeResponseDTO.builder()
+                .total(BigDecimal.valueOf(20000 + weight * 10L))
+                .build();
+        return ResponseEntity.ok(GHNBaseResponseDTO.<GHNCalculateFeeResponseDTO>builder()
+                .code(200)
+                .data(fee)
+                .build());
+    }
+
+    private void waitForCalls(int calls) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (quotedWeights.size() < calls && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(quotedWeights.size() >= calls);
+    }
+
+    private static GHNCalculateFeeRequestDTO request(int weight) {
+        return GHNCalculateFeeRequestDTO.builder()
+                .fromDistrictId(1442)
+                .toDistrictId(1443)
+                .toWardCode("20308")
+                .serviceId(53320)
+                .weight(weight)
+                .length(20)
+                .width(20)
+                .height(10)
+                .build();
+    }
+}
@@ -0,0 +1,66 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.config.GHNConfig;
+import com.storemanagement.dto.ghn.GHNTrackingSyncStatsDTO;
+import com.storemanagement.repository.ShipmentRepository;
+import com.storemanagement.service.GHNService;
+import com.storemanagement.service.ShipmentService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Lượt đồng bộ gọi chồng lên lượt đang chạy phải trả về ngay thay vì xếp hàng chờ,
+ * và getStatistics không bị chặn bởi lượt đang chạy.
+ */
+class GHNTrackingSyncOverlapTest {
+
+    @Test
+    void overlappingSyncReturnsImmediatelyWhileARunIsInProgress() throws Exception {
+        ShipmentRepository shipmentRepository = mock(ShipmentRepository.class);
+        GHNService ghnService = mock(GHNService.class);
+        when(ghnService.isEnabled()).thenReturn(true);
+
+        CountDownLatch runStarted = new CountDownLatch(1);
+        CountDownLatch releaseRun = new CountDownLatch(1);
+        when(shipmentRepository.findTrackingSyncCandidates(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            runStarted.countDown();
+            releaseRun.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        GHNTrackingSyncServiceImpl syncService = new GHNTrackingSyncServiceImpl(shipmentRepository,
+                mock(ShipmentService.class), ghnService, new GHNConfig());
+        try {
+            CompletableFuture<GHNTrackingSyncStatsDTO> firstRun = CompletableFuture.supplyAsync(syncService::syncNow);
+            assertTrue(runStarted.await(5, TimeUnit.SECONDS));
+
+            GHNTrackingSyncStatsDTO overlapping = CompletableFuture.supplyAsync(syncService::syncNow)
+                    .get(1, TimeUnit.SECONDS);
+            assertTrue(overlapping.getRunning());
+            assertEquals(0L, overlapping.getRuns());
+            assertTrue(syncService.getStatistics().getRunning());
+
+            releaseRun.countDown();
+            GHNTrackingSyncStatsDTO finished = firstRun.get(5, TimeUnit.SECONDS);
+            assertFalse(finished.getRunning());
+            assertEquals(1L, finished.getRuns());
+            verify(shipmentRepository, times(1)).findTrackingSyncCandidates(any(), any(), any(), any(), any());
+        } finally {
+            releaseRun.countDown();
+            syncService.onShutdown();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.storemanagement.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.storemanagement.model.Order;
+import com.storemanagement.model.Shipment;
+import com.storemanagement.repository.OrderRepository;
+import com.storemanagement.repository.ShipmentRepository;
+import com.storemanagement.service.PaymentSettlementService;
+import com.storemanagement.service.PromotionService;
+import com.storemanagement.service.SalesRollupService;
+import com.storemanagement.service.StockReservationService;
+import com.storemanagement.service.SystemSettingService;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * GHN hủy/giao vận đơn phải đi qua đúng đường tồn kho: đơn PAYOS chưa thanh toán đang giữ hàng,
+ * hủy thì nhả giữ chỗ, giao thì chốt thành phiếu xuất kho.
+ */
+class GHNWebhookOrderSyncTest {
+
+    private final ShipmentRepository shipmentRepository = mock(ShipmentRepository.class);
+    private final StockReservationService stockReservationService = mock(StockReservationService.class);
+    private final PaymentSettlementService paymentSettlementService = mock(PaymentSettlementService.class);
+
+    private final GHNWebhookHandler handler = new GHNWebhookHandler(new ObjectMapper().findAndRegisterModules(),
+            shipmentRepository, mock(OrderRepository.class), mock(SystemSettingService.class),
+            mock(SalesRollupService.class), mock(PromotionService.class), stockReservationService,
+            paymentSettlementService);
+
+    @Test
+    void cancelOfUnpaidPayOSOrderIsSettledAsCanceled() throws Exception {
+        Order order = order(Order.PaymentMethod.PAYOS, Order.OrderStatus.PENDING);
+
+        handler.handle(payload("cancel"));
+
+        verify(paymentSettlementService).settleCanceled(eq(order.getIdOrder()), anyString());
+        verify(stockReservationService, never()).restoreCanceledOrder(any(), anyString());
+    }
+
+    @Test
+    void cancelOfCashOrderReturnsStock() throws Exception {
+        Order order = order(Order.PaymentMethod.CASH, Order.OrderStatus.CONFIRMED);
+
+        handler.handle(payload("cancel"));
+
+        assertEquals(Order.OrderStatus.CANCELED, order.getStatus());
+        verify(stockReservationService).restoreCanceledOrder(eq(order), anyString());
+        verify(paymentSettlementService, never()).settleCanceled(any(), anyString());
+    }
+
+    @Test
+    void deliveryOfUnpaidPayOSOrderCommitsReservation() throws Exception {
+        Order order = order(Order.PaymentMethod.PAYOS, Order.OrderStatus.PENDING);
+
+        handler.handle(payload("delivered"));
+
+        assertEquals(Order.OrderStatus.COMPLETED, order.getStatus());
+        verify(stockReservationService).commitReservation(eq(order), anyString());
+    }
+
+    private Order order(Order.PaymentMethod paymentMethod, Order.OrderStatus status) {
+        Order order = Order.builder().idOrder(7).paymentMethod(paymentMethod).status(status).build();
+        Shipment shipment = Shipment.builder().idShipment(3).order(order).ghnOrderCode("GHN123").build();
+        when(shipmentRepository.findByGhnOrderCode("GHN123")).thenReturn(Optional.of(shipment));
+        return order;
+    }
+
+    private static String payload(String status) {
+        return """
+                {"order_code":"GHN123","status":"%s","updated_at":"2025-03-01T10:15:00Z"}
+                """.formatted(status);
+    }
+}
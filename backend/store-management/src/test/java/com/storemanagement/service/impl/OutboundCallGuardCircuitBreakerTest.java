@@ -0,0 +1,84 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.config.OutboundHttpProperties;
+import com.storemanagement.exception.OutboundCallRejectedException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lời gọi được cho qua lúc CLOSED nhưng kết thúc sau khi breaker đã OPEN -> HALF_OPEN không được tính
+ * là lời gọi thử.
+ */
+class OutboundCallGuardCircuitBreakerTest {
+
+    private static final String INTEGRATION = "ghn";
+
+    @Test
+    void resultOfCallAdmittedBeforeOpeningIsNotCountedAsHalfOpenTrial() throws Exception {
+        OutboundHttpProperties.Integration config = new OutboundHttpProperties.Integration();
+        config.setSlidingWindowSize(4);
+        config.setMinimumCalls(2);
+        config.setFailureRateThreshold(50);
+        // Hết thời gian OPEN ngay: lời gọi kế tiếp chuyển breaker sang HALF_OPEN
+        config.setOpenStateDurationMs(0);
+        config.setHalfOpenPermittedCalls(1);
+        OutboundHttpProperties properties = new OutboundHttpProperties();
+        properties.getIntegrations().put(INTEGRATION, config);
+        OutboundCallGuardImpl guard = new OutboundCallGuardImpl(properties);
+
+        // Lời gọi chậm được cho qua khi breaker còn CLOSED
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch releaseSlow = new CountDownLatch(1);
+        CompletableFuture<String> slowCall = CompletableFuture.supplyAsync(() -> guard.execute(INTEGRATION, "slow",
+                () -> blockUntilReleased(slowStarted, releaseSlow)));
+        assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+
+        // Hai lỗi liên tiếp mở breaker
+        for (int i = 0; i < 2; i++) {
+            assertThrows(IllegalStateException.class, () -> guard.execute(INTEGRATION, "fail", () -> {
+                throw new IllegalStateException("GHN 500");
+            }));
+        }
+        assertEquals("OPEN", circuitState(guard));
+
+        // Lời gọi thử duy nhất của HALF_OPEN đang chạy
+        CountDownLatch trialStarted = new CountDownLatch(1);
+        CountDownLatch releaseTrial = new CountDownLatch(1);
+        CompletableFuture<String> trialCall = CompletableFuture.supplyAsync(() -> guard.execute(INTEGRATION, "trial",
+                () -> blockUntilReleased(trialStarted, releaseTrial)));
+        assertTrue(trialStarted.await(5, TimeUnit.SECONDS));
+        assertEquals("HALF_OPEN", circuitState(guard));
+
+        // Lời gọi cũ thành công sau khi breaker đã HALF_OPEN: không được đóng breaker
+        releaseSlow.countDown();
+        assertEquals("ok", slowCall.get(5, TimeUnit.SECONDS));
+        assertEquals("HALF_OPEN", circuitState(guard));
+        assertThrows(OutboundCallRejectedException.class, () -> guard.execute(INTEGRATION, "extra", () -> "ok"));
+
+        // Chỉ lời gọi thử thực sự mới đóng breaker
+        releaseTrial.countDown();
+        assertEquals("ok", trialCall.get(5, TimeUnit.SECONDS));
+        assertEquals("CLOSED", circuitState(guard));
+    }
+
+    private static String blockUntilReleased(CountDownLatch started, CountDownLatch release) {
+        started.countDown();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "ok";
+    }
+
+    private static String circuitState(OutboundCallGuardImpl guard) {
+        return guard.getStatistics().get(0).getCircuitState();
+    }
+}
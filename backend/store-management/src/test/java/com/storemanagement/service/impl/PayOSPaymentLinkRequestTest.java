@@ -0,0 +1,89 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.model.Order;
+import com.storemanagement.model.OrderDetail;
+import org.junit.jupiter.api.Test;
+import vn.payos.model.v2.paymentRequests.CreatePaymentLinkRequest;
+import vn.payos.model.v2.paymentRequests.PaymentLinkItem;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Dựng request tạo link thanh toán bằng builder của SDK (không reflection): đo chi phí mỗi đơn với 1-50 mặt hàng
+ * và kiểm tra các item khớp chi tiết đơn.
+ */
+class PayOSPaymentLinkRequestTest {
+
+    private static final int WARMUP_ORDERS = 20_000;
+    private static final int MEASURED_ORDERS = 20_000;
+
+    @Test
+    void itemsMirrorOrderDetailsAndConstructionCostIsReportedPerOrder() {
+        for (int itemCount : new int[]{1, 10, 50}) {
+            Order order = order(itemCount, BigDecimal.ZERO);
+            long amount = order.getFinalAmount().longValue();
+
+            CreatePaymentLinkRequest request = build(order);
+            assertEquals(itemCount, request.getItems().size());
+            long itemsTotal = 0;
+            for (PaymentLinkItem item : request.getItems()) {
+                itemsTotal += item.getPrice() * item.getQuantity();
+            }
+            assertEquals(amount, itemsTotal);
+
+            for (int i = 0; i < WARMUP_ORDERS; i++) {
+                build(order);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURED_ORDERS; i++) {
+                build(order);
+            }
+            System.out.printf("PayOS payment link request, %d items: %.2f us/order%n", itemCount,
+                    (System.nanoTime() - start) / 1_000.0 / MEASURED_ORDERS);
+        }
+    }
+
+    @Test
+    void discountedOrderCollapsesIntoOneItemMatchingTheAmount() {
+        Order order = order(5, BigDecimal.valueOf(20_000));
+
+        CreatePaymentLinkRequest request = build(order);
+
+        assertEquals(1, request.getItems().size());
+        assertEquals(order.getFinalAmount().longValue(), request.getItems().get(0).getPrice());
+    }
+
+    private static CreatePaymentLinkRequest build(Order order) {
+        return PayOSServiceImpl.buildPaymentLinkRequest(order, 1L, order.getFinalAmount().longValue(),
+                "Thanh toan don hang #" + order.getIdOrder(), "http://localhost/return", "http://localhost/cancel");
+    }
+
+    private static Order order(int itemCount, BigDecimal discount) {
+        List<OrderDetail> orderDetails = new ArrayList<>(itemCount);
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 1; i <= itemCount; i++) {
+            BigDecimal price = BigDecimal.valueOf(10_000L * i);
+            int quantity = 1 + i % 3;
+            orderDetails.add(OrderDetail.builder()
+                    .productNameSnapshot("Sản phẩm " + i)
+                    .price(price)
+                    .quantity(quantity)
+                    .build());
+            total = total.add(price.multiply(BigDecimal.valueOf(quantity)));
+        }
+
+        return Order.builder()
+                .idOrder(42)
+                .paymentMethod(Order.PaymentMethod.PAYOS)
+                .status(Order.OrderStatus.PENDING)
+                .totalAmount(total)
+                .discount(discount)
+                .finalAmount(total.subtract(discount))
+                .orderDetails(orderDetails)
+                .build();
+    }
+}
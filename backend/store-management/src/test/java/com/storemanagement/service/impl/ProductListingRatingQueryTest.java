@@ -0,0 +1,83 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.config.ProductSearchProperties;
+import com.storemanagement.dto.PageResponse;
+import com.storemanagement.dto.product.ProductDTO;
+import com.storemanagement.mapper.ProductMapper;
+import com.storemanagement.model.Product;
+import com.storemanagement.repository.CategoryRepository;
+import com.storemanagement.repository.ProductRepository;
+import com.storemanagement.repository.ProductReviewRepository;
+import com.storemanagement.repository.SupplierRepository;
+import com.storemanagement.service.FileStorageService;
+import com.storemanagement.service.ProductSearchService;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Điểm đánh giá của trang danh sách sản phẩm được lấy bằng một truy vấn GROUP BY, không phụ thuộc kích thước trang.
+ */
+class ProductListingRatingQueryTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductMapper productMapper = mock(ProductMapper.class);
+    private final ProductReviewRepository productReviewRepository = mock(ProductReviewRepository.class);
+
+    private final ProductServiceImpl productService = new ProductServiceImpl(productRepository,
+            mock(CategoryRepository.class), mock(SupplierRepository.class), productMapper,
+            mock(FileStorageService.class), productReviewRepository, mock(ProductSearchService.class),
+            new ProductSearchProperties());
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 20, 100 })
+    void ratingsForAPageUseOneGroupedQuery(int pageSize) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 1; i <= pageSize; i++) {
+            products.add(Product.builder().idProduct(i).isDelete(false).build());
+        }
+        when(productRepository.searchProducts(any(), any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(new PageImpl<>(products, PageRequest.of(0, pageSize), pageSize));
+        when(productMapper.toDTOList(anyList())).thenAnswer(invocation -> {
+            List<Product> entities = invocation.getArgument(0);
+            return entities.stream().map(p -> ProductDTO.builder().idProduct(p.getIdProduct()).build()).toList();
+        });
+        // Chỉ sản phẩm id lẻ có đánh giá: [productId, AVG(rating), COUNT(r)]
+        when(productReviewRepository.getRatingSummariesByProductIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Integer> ids = invocation.getArgument(0);
+            return ids.stream()
+                    .filter(id -> id % 2 == 1)
+                    .map(id -> new Object[] { id, 4.5, 2L })
+                    .toList();
+        });
+
+        PageResponse<ProductDTO> page = productService.getAllProductsPaginated(PageRequest.of(0, pageSize), false);
+
+        verify(productReviewRepository, times(1)).getRatingSummariesByProductIds(anyCollection());
+        verify(productReviewRepository, never()).getAverageRatingByProductId(anyInt());
+        verify(productReviewRepository, never()).countByProductIdProduct(anyInt());
+
+        assertEquals(pageSize, page.getContent().size());
+        for (ProductDTO dto : page.getContent()) {
+            boolean reviewed = dto.getIdProduct() % 2 == 1;
+            assertEquals(reviewed ? 4.5 : 0.0, dto.getAverageRating());
+            assertEquals(reviewed ? 2 : 0, dto.getReviewCount());
+        }
+    }
+}
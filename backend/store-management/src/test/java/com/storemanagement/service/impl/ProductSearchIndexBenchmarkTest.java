@@ -0,0 +1,153 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.repository.ProductRepository;
+import com.storemanagement.utils.VietnameseTextNormalizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Đo thời gian một lần tìm kiếm trên inverted index so với quét LOWER(col) LIKE '%kw%' cũ ở 10k và 100k sản phẩm.
+ * Phía LIKE được mô phỏng trong bộ nhớ (LOWER + contains trên mã, tên, SKU cho từng dòng), tức là chưa tính I/O
+ * của MySQL, nên đây là cận dưới chi phí của truy vấn cũ.
+ * Chi phí của index tỉ lệ với số sản phẩm khớp (chấm điểm + xếp hạng toàn bộ kết quả), nên từ khóa chọn lọc
+ * (mã, SKU) và từ khóa rộng (một từ phổ biến khớp hàng nghìn sản phẩm) được đo riêng.
+ */
+class ProductSearchIndexBenchmarkTest {
+
+    private static final String[] ITEMS = {"Áo thun", "Áo sơ mi", "Quần jean", "Quần short", "Giày thể thao",
+            "Túi xách", "Đồng hồ", "Mũ lưỡi trai", "Váy đầm", "Thắt lưng"};
+    private static final String[] COLORS = {"đen", "trắng", "xanh dương", "đỏ", "vàng", "xám", "nâu", "hồng"};
+    private static final String[] BRANDS = {"Biti's", "Yame", "Routine", "Owen", "Canifa", "Coolmate"};
+    private static final String[] SIZES = {"S", "M", "L", "XL", "XXL"};
+
+    private static final String[] SELECTIVE_KEYWORDS = {"sp001234", "01234", "4321"};
+    // Mỗi từ khóa khớp khoảng 1-30% danh mục; "ao", "xl", "ho" là token 1-2 ký tự
+    private static final String[] BROAD_KEYWORDS = {"áo thun", "giày", "dong ho", "coolmate xl", "quan jean xanh"};
+
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int MEASURE_ROUNDS = 3;
+    private static final int BATCHES = 3;
+
+    @Test
+    void indexSearchIsCheaperThanLikeScanAt10kAnd100kProducts() {
+        for (int catalogSize : new int[]{10_000, 100_000}) {
+            List<Object[]> catalog = catalog(catalogSize);
+
+            ProductRepository productRepository = mock(ProductRepository.class);
+            when(productRepository.findAllSearchFields()).thenReturn(catalog);
+            ProductSearchServiceImpl searchService = new ProductSearchServiceImpl(productRepository);
+            searchService.rebuild();
+
+            List<List<String>> foldedCatalog = foldedTokens(catalog);
+            for (String[] keywords : List.of(SELECTIVE_KEYWORDS, BROAD_KEYWORDS)) {
+                for (String keyword : keywords) {
+                    assertEquals(tokenScan(catalog, foldedCatalog, keyword),
+                            new HashSet<>(searchService.search(keyword)), keyword);
+                }
+            }
+
+            double selectiveIndex = microsPerSearch(SELECTIVE_KEYWORDS, searchService::search);
+            double selectiveLike = microsPerSearch(SELECTIVE_KEYWORDS, keyword -> likeScan(catalog, keyword));
+            double broadIndex = microsPerSearch(BROAD_KEYWORDS, searchService::search);
+            double broadLike = microsPerSearch(BROAD_KEYWORDS, keyword -> likeScan(catalog, keyword));
+
+            System.out.printf("Product search, %d products: selective keywords index %.1f us vs LIKE scan %.1f us;"
+                            + " broad keywords index %.1f us vs LIKE scan %.1f us%n",
+                    catalogSize, selectiveIndex, selectiveLike, broadIndex, broadLike);
+            // Từ khóa rộng không được assert: độ nhiễu đo đạc lớn hơn chênh lệch giữa hai cách ở 10k sản phẩm
+            assertTrue(selectiveIndex * 10 < selectiveLike,
+                    catalogSize + " products: index " + selectiveIndex + " us vs LIKE " + selectiveLike + " us");
+        }
+    }
+
+    private interface Search {
+        Object run(String keyword);
+    }
+
+    /**
+     * Lấy lô nhanh nhất trong BATCHES lô để giảm nhiễu do GC và các tiến trình khác trên máy.
+     */
+    private static double microsPerSearch(String[] keywords, Search search) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            for (String keyword : keywords) {
+                search.run(keyword);
+            }
+        }
+
+        double best = Double.MAX_VALUE;
+        for (int batch = 0; batch < BATCHES; batch++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURE_ROUNDS; i++) {
+                for (String keyword : keywords) {
+                    search.run(keyword);
+                }
+            }
+            best = Math.min(best, (System.nanoTime() - start) / 1_000.0 / MEASURE_ROUNDS / keywords.length);
+        }
+        return best;
+    }
+
+    private static int likeScan(List<Object[]> catalog, String keyword) {
+        String pattern = keyword.toLowerCase(Locale.ROOT);
+        int matches = 0;
+        for (Object[] row : catalog) {
+            if (likeMatches(row[1], pattern) || likeMatches(row[2], pattern) || likeMatches(row[3], pattern)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static boolean likeMatches(Object column, String pattern) {
+        return column != null && ((String) column).toLowerCase(Locale.ROOT).contains(pattern);
+    }
+
+    /**
+     * Kết quả mong đợi của index: mọi token của từ khóa (đã bỏ dấu) là chuỗi con của một token nào đó của sản phẩm.
+     */
+    private static Set<Integer> tokenScan(List<Object[]> catalog, List<List<String>> foldedCatalog, String keyword) {
+        List<String> queryTokens = VietnameseTextNormalizer.tokenize(VietnameseTextNormalizer.fold(keyword));
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < catalog.size(); i++) {
+            List<String> tokens = foldedCatalog.get(i);
+            if (queryTokens.stream().allMatch(q -> tokens.stream().anyMatch(t -> t.contains(q)))) {
+                expected.add((Integer) catalog.get(i)[0]);
+            }
+        }
+        return expected;
+    }
+
+    private static List<List<String>> foldedTokens(List<Object[]> catalog) {
+        List<List<String>> folded = new ArrayList<>(catalog.size());
+        for (Object[] row : catalog) {
+            List<String> tokens = new ArrayList<>();
+            for (int column = 1; column <= 3; column++) {
+                tokens.addAll(VietnameseTextNormalizer.tokenize(VietnameseTextNormalizer.fold((String) row[column])));
+            }
+            folded.add(tokens);
+        }
+        return folded;
+    }
+
+    private static List<Object[]> catalog(int size) {
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            String name = ITEMS[random.nextInt(ITEMS.length)] + " " + BRANDS[random.nextInt(BRANDS.length)] + " "
+                    + COLORS[random.nextInt(COLORS.length)] + " size " + SIZES[random.nextInt(SIZES.length)];
+            rows.add(new Object[]{id, "SP%06d".formatted(id), name, "SKU-%06d".formatted(id)});
+        }
+        return rows;
+    }
+}
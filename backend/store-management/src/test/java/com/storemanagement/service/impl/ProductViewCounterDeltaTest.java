@@ -0,0 +1,93 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.config.ProductViewCounterProperties;
+import com.storemanagement.model.ProductView;
+import com.storemanagement.repository.ProductViewCounterRepository;
+import com.storemanagement.repository.ProductViewCounterRepository.ProductDelta;
+import com.storemanagement.repository.ProductViewCounterRepository.UserProductDelta;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Một lô lượt xem được gộp thành một delta cho mỗi sản phẩm và mỗi cặp user + sản phẩm, với trọng số
+ * suy giảm về lượt xem mới nhất của lô.
+ */
+class ProductViewCounterDeltaTest {
+
+    private static final LocalDateTime LATEST = LocalDateTime.of(2025, 3, 1, 12, 0);
+    private static final double HALF_LIFE_SECONDS = 3600;
+
+    private final ProductViewCounterRepository productViewCounterRepository =
+            mock(ProductViewCounterRepository.class);
+    private final ProductViewCounterProperties counterProperties = new ProductViewCounterProperties();
+    private final ProductViewCounterServiceImpl counterService =
+            new ProductViewCounterServiceImpl(productViewCounterRepository, counterProperties);
+
+    @Test
+    void batchIsCollapsedIntoDecayedDeltasPerKey() {
+        counterProperties.setHalfLifeHours(1);
+
+        counterService.recordViews(List.of(
+                view(5, 10, LATEST.minusHours(1)),
+                view(5, 10, LATEST),
+                view(null, 10, LATEST.minusHours(2)),
+                view(6, 11, LATEST)));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ProductDelta>> productDeltas = ArgumentCaptor.forClass(List.class);
+        verify(productViewCounterRepository).applyProductDeltas(productDeltas.capture(), eq(HALF_LIFE_SECONDS));
+        List<ProductDelta> products = productDeltas.getValue().stream()
+                .sorted(Comparator.comparing(ProductDelta::productId))
+                .toList();
+        assertEquals(2, products.size());
+        // 1 + 0.5 + 0.25: lượt xem cũ hơn 1 và 2 half-life
+        assertEquals(new ProductDelta(10, 3, 1.75, LATEST), products.get(0));
+        assertEquals(new ProductDelta(11, 1, 1.0, LATEST), products.get(1));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UserProductDelta>> userDeltas = ArgumentCaptor.forClass(List.class);
+        verify(productViewCounterRepository).applyUserProductDeltas(userDeltas.capture(), eq(HALF_LIFE_SECONDS));
+        List<UserProductDelta> users = userDeltas.getValue().stream()
+                .sorted(Comparator.comparing(UserProductDelta::userId))
+                .toList();
+        // Lượt xem ẩn danh chỉ được tính vào bộ đếm theo sản phẩm
+        assertEquals(List.of(new UserProductDelta(5, 10, 2, 1.5, LATEST),
+                new UserProductDelta(6, 11, 1, 1.0, LATEST)), users);
+    }
+
+    @Test
+    void globalTopIsLoadedOnceWithinTtlAndTrimmedToLimit() {
+        List<Object[]> top = List.of(new Object[]{10, 3L}, new Object[]{11, 2L}, new Object[]{12, 1L});
+        when(productViewCounterRepository.findTopProducts(any(), anyDouble(), anyInt())).thenReturn(top);
+
+        assertEquals(2, counterService.getTopViewedProducts(null, 2).size());
+        assertEquals(3, counterService.getTopViewedProducts(null, 5).size());
+
+        verify(productViewCounterRepository, times(1)).findTopProducts(any(), anyDouble(),
+                eq(counterProperties.getGlobalTopSize()));
+    }
+
+    private static ProductView view(Integer userId, Integer productId, LocalDateTime createdAt) {
+        ProductView view = ProductView.builder()
+                .userId(userId)
+                .productId(productId)
+                .actionType("VIEW")
+                .build();
+        view.setCreatedAt(createdAt);
+        return view;
+    }
+}
@@ -0,0 +1,164 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.config.ProductViewIngestProperties;
+import com.storemanagement.dto.product.ProductViewIngestStatsDTO;
+import com.storemanagement.model.ProductView;
+import com.storemanagement.repository.ProductViewBatchRepository;
+import com.storemanagement.service.ProductViewCounterService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tải liên tục nhiều luồng lên logView + flush, so sánh số lượt xem ghi xuống DB mỗi giây với cách cũ
+ * (mỗi lượt xem một INSERT trong transaction riêng trên luồng request).
+ * DB được mô phỏng: mỗi lệnh tốn một round trip cố định cộng chi phí theo số dòng, và số lệnh chạy đồng thời
+ * bị giới hạn bởi pool connection.
+ */
+class ProductViewIngestLoadTest {
+
+    private static final int REQUEST_THREADS = 16;
+    // Kích thước mặc định của HikariCP
+    private static final int CONNECTION_POOL_SIZE = 10;
+    private static final long ROUND_TRIP_NANOS = 1_000_000;
+    private static final long PER_ROW_NANOS = 5_000;
+    // Dài hơn một chu kỳ flush mặc định để writer nền đã vào trạng thái ổn định
+    private static final long WARMUP_MILLIS = 1_500;
+    private static final long MEASURE_MILLIS = 1_500;
+
+    @Test
+    void bufferedIngestSustainsMoreViewsPerSecondThanPerViewInserts() throws Exception {
+        double perViewRate = perViewInsertRate();
+        double bufferedRate = bufferedIngestRate();
+
+        System.out.printf("Product view ingest: per-view insert %.0f views/s, buffered %.0f views/s (x%.1f)%n",
+                perViewRate, bufferedRate, bufferedRate / perViewRate);
+        assertTrue(bufferedRate > 3 * perViewRate,
+                "buffered " + bufferedRate + " views/s vs per-view " + perViewRate + " views/s");
+    }
+
+    /**
+     * Cách cũ: luồng request tự ghi từng lượt xem.
+     */
+    private double perViewInsertRate() throws Exception {
+        SimulatedDatabase database = new SimulatedDatabase();
+        return sustainedRate(database, new AtomicLong(),
+                productId -> database.insertViews(List.of(view(productId))), null);
+    }
+
+    /**
+     * Cách mới: luồng request chỉ đưa vào hàng đợi; writer nền chạy flush theo chu kỳ như @Scheduled.
+     */
+    private double bufferedIngestRate() throws Exception {
+        SimulatedDatabase database = new SimulatedDatabase();
+        ProductViewIngestProperties properties = new ProductViewIngestProperties();
+        ProductViewServiceImpl viewService = new ProductViewServiceImpl(database, properties,
+                mock(ProductViewCounterService.class));
+        viewService.initQueue();
+
+        AtomicLong offered = new AtomicLong();
+        double rate = sustainedRate(database, offered,
+                productId -> viewService.logView(null, "load-test", productId), running -> {
+                    while (running.get()) {
+                        viewService.flush();
+                        LockSupport.parkNanos(properties.getFlushIntervalMs() * 1_000_000);
+                    }
+                });
+        viewService.flush();
+
+        // Mọi lượt xem hoặc được ghi, hoặc bị bỏ và được đếm, không mất âm thầm
+        ProductViewIngestStatsDTO stats = viewService.getIngestStats();
+        assertEquals(offered.get(), stats.getAccepted() + stats.getDropped());
+        assertEquals(stats.getAccepted(), stats.getWritten());
+        assertEquals(stats.getWritten(), database.rowsWritten.get());
+        return rate;
+    }
+
+    /**
+     * Chạy tải liên tục, bỏ qua giai đoạn khởi động (lần flush đầu tiên cách một chu kỳ) rồi đo số dòng
+     * ghi xuống DB mỗi giây trong cửa sổ đo.
+     */
+    private double sustainedRate(SimulatedDatabase database, AtomicLong requests, ViewRequest request,
+                                 Consumer<AtomicBoolean> writerLoop) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> threads = new ArrayList<>(REQUEST_THREADS + 1);
+        for (int t = 0; t < REQUEST_THREADS; t++) {
+            int productId = t + 1;
+            threads.add(new Thread(() -> {
+                while (running.get()) {
+                    request.handle(productId);
+                    requests.incrementAndGet();
+                }
+            }));
+        }
+        Thread writer = writerLoop != null ? new Thread(() -> writerLoop.accept(running)) : null;
+        if (writer != null) {
+            threads.add(writer);
+        }
+        threads.forEach(Thread::start);
+
+        Thread.sleep(WARMUP_MILLIS);
+        long rowsBefore = database.rowsWritten.get();
+        long start = System.nanoTime();
+        Thread.sleep(MEASURE_MILLIS);
+        long rows = database.rowsWritten.get() - rowsBefore;
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        running.set(false);
+        if (writer != null) {
+            LockSupport.unpark(writer);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return rows / seconds;
+    }
+
+    private static ProductView view(Integer productId) {
+        ProductView view = ProductView.builder()
+                .sessionId("load-test")
+                .productId(productId)
+                .actionType("VIEW")
+                .build();
+        view.setCreatedAt(LocalDateTime.now());
+        return view;
+    }
+
+    private interface ViewRequest {
+        void handle(int productId);
+    }
+
+    private static class SimulatedDatabase extends ProductViewBatchRepository {
+        private final Semaphore connections = new Semaphore(CONNECTION_POOL_SIZE);
+        private final AtomicLong rowsWritten = new AtomicLong();
+
+        SimulatedDatabase() {
+            super(null);
+        }
+
+        @Override
+        public void insertViews(List<ProductView> views) {
+            if (views.isEmpty()) {
+                return;
+            }
+            connections.acquireUninterruptibly();
+            try {
+                LockSupport.parkNanos(ROUND_TRIP_NANOS + PER_ROW_NANOS * views.size());
+                rowsWritten.addAndGet(views.size());
+            } finally {
+                connections.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.dto.product.ProductOnSaleDTO;
+import com.storemanagement.mapper.PromotionMapper;
+import com.storemanagement.mapper.PromotionRuleMapper;
+import com.storemanagement.model.Product;
+import com.storemanagement.model.PromotionRule;
+import com.storemanagement.repository.CustomerRepository;
+import com.storemanagement.repository.OrderRepository;
+import com.storemanagement.repository.ProductImageRepository;
+import com.storemanagement.repository.ProductRepository;
+import com.storemanagement.repository.PromotionRepository;
+import com.storemanagement.repository.PromotionRuleRepository;
+import com.storemanagement.repository.PromotionUsageCounterRepository;
+import com.storemanagement.repository.PromotionUsageRepository;
+import com.storemanagement.service.PromotionRuleIndexService;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Widget sản phẩm đang giảm giá: lọc và giới hạn trong một truy vấn, ảnh dự phòng của các sản phẩm thiếu imageUrl
+ * lấy bằng một truy vấn (ảnh primary trước, nếu không có thì ảnh đầu tiên theo displayOrder).
+ */
+class PromotionOnSaleProductsTest {
+
+    private final PromotionRuleRepository promotionRuleRepository = mock(PromotionRuleRepository.class);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductImageRepository productImageRepository = mock(ProductImageRepository.class);
+
+    private final PromotionServiceImpl promotionService = new PromotionServiceImpl(mock(PromotionRepository.class),
+            mock(PromotionUsageRepository.class), promotionRuleRepository, productRepository, productImageRepository,
+            mock(CustomerRepository.class), mock(OrderRepository.class), mock(PromotionMapper.class),
+            mock(PromotionRuleMapper.class), mock(PromotionRuleIndexService.class),
+            mock(PromotionUsageCounterRepository.class));
+
+    @Test
+    void candidatesAreBoundedInQueryAndFallbackImagesLoadedInOneBatch() {
+        BigDecimal minPrice = new BigDecimal("500000");
+        when(promotionRuleRepository.findByIsActiveTrue()).thenReturn(List.of(PromotionRule.builder()
+                .idRule(1)
+                .ruleName("Giảm 10%")
+                .discountType(PromotionRule.DiscountType.PERCENTAGE)
+                .discountValue(BigDecimal.TEN)
+                .minOrderAmount(minPrice)
+                .startDate(LocalDateTime.now().minusDays(1))
+                .endDate(LocalDateTime.now().plusDays(1))
+                .priority(1)
+                .scope(PromotionRule.PromotionScope.ORDER)
+                .build()));
+        when(productRepository.findOnSaleCandidates(any(), any())).thenReturn(List.of(
+                product(1, "own.jpg"),
+                product(2, null),
+                product(3, "")));
+        when(productImageRepository.findImageUrlsByProductIds(List.of(2, 3))).thenReturn(List.of(
+                new Object[]{2, "first.jpg", false},
+                new Object[]{2, "primary.jpg", true},
+                new Object[]{3, "only.jpg", false}));
+
+        List<ProductOnSaleDTO> productsOnSale = promotionService.getProductsOnSale();
+
+        verify(productRepository).findOnSaleCandidates(minPrice, PageRequest.of(0, 20));
+        verify(productImageRepository).findImageUrlsByProductIds(List.of(2, 3));
+        Map<Integer, String> images = productsOnSale.stream()
+                .collect(Collectors.toMap(ProductOnSaleDTO::getProductId, ProductOnSaleDTO::getImage));
+        assertEquals(Map.of(1, "own.jpg", 2, "primary.jpg", 3, "only.jpg"), images);
+        assertEquals(0, new BigDecimal("540000").compareTo(productsOnSale.get(0).getDiscountedPrice()));
+    }
+
+    private static Product product(int id, String imageUrl) {
+        return Product.builder()
+                .idProduct(id)
+                .productName("Sản phẩm " + id)
+                .price(new BigDecimal("600000"))
+                .stockQuantity(5)
+                .imageUrl(imageUrl)
+                .build();
+    }
+}
@@ -0,0 +1,143 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.model.PromotionRule;
+import com.storemanagement.repository.PromotionRuleRepository;
+import com.storemanagement.service.PromotionRuleIndexService.ActiveRule;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Chi phí tính giảm giá tự động cho một giỏ hàng (tra rule ORDER + rule SHIPPING) trên index so với duyệt tuần tự
+ * toàn bộ rule với cùng điều kiện của findApplicableRules cũ. Truy vấn cũ còn tốn thêm một round trip MySQL mỗi
+ * lần xem giỏ, phần này không được đo ở đây.
+ */
+class PromotionRuleIndexBenchmarkTest {
+
+    private static final String[] CUSTOMER_TYPES = {"ALL", "VIP", "REGULAR"};
+    // reload() bỏ các rule đã hết hạn theo giờ thực, nên mốc thời gian của bài đo phải là hiện tại
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    private static final int CARTS = 2_000;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int BATCHES = 5;
+
+    @Test
+    void indexPicksTheSameRuleAsTheOldQueryAndIsCheaperPerCart() {
+        Random random = new Random(7);
+        List<Cart> carts = carts(random);
+
+        for (int ruleCount : new int[]{10, 100, 1_000}) {
+            List<PromotionRule> rules = rules(random, ruleCount);
+            PromotionRuleRepository promotionRuleRepository = mock(PromotionRuleRepository.class);
+            when(promotionRuleRepository.findByIsActiveTrue()).thenReturn(rules);
+            PromotionRuleIndexServiceImpl index = new PromotionRuleIndexServiceImpl(promotionRuleRepository);
+            index.reload();
+
+            for (Cart cart : carts) {
+                for (PromotionRule.PromotionScope scope : List.of(PromotionRule.PromotionScope.ORDER,
+                        PromotionRule.PromotionScope.SHIPPING)) {
+                    assertEquals(linearScan(rules, scope, cart), index.findBestRule(scope, cart.total(),
+                            cart.customerType(), NOW).map(ActiveRule::idRule), cart + " " + scope);
+                }
+            }
+
+            double indexNanos = nanosPerCart(carts, cart -> {
+                index.findBestRule(PromotionRule.PromotionScope.ORDER, cart.total(), cart.customerType(), NOW);
+                return index.findBestRule(PromotionRule.PromotionScope.SHIPPING, cart.total(), cart.customerType(),
+                        NOW);
+            });
+            double scanNanos = nanosPerCart(carts, cart -> {
+                linearScan(rules, PromotionRule.PromotionScope.ORDER, cart);
+                return linearScan(rules, PromotionRule.PromotionScope.SHIPPING, cart);
+            });
+
+            System.out.printf("Promotion rules, %d active rules: index %.0f ns/cart, linear scan %.0f ns/cart%n",
+                    ruleCount, indexNanos, scanNanos);
+            if (ruleCount >= 1_000) {
+                assertTrue(indexNanos < scanNanos,
+                        ruleCount + " rules: index " + indexNanos + " ns vs scan " + scanNanos + " ns");
+            }
+        }
+    }
+
+    private interface Evaluation {
+        Object run(Cart cart);
+    }
+
+    private record Cart(BigDecimal total, String customerType) {
+    }
+
+    private static double nanosPerCart(List<Cart> carts, Evaluation evaluation) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            carts.forEach(evaluation::run);
+        }
+
+        double best = Double.MAX_VALUE;
+        for (int batch = 0; batch < BATCHES; batch++) {
+            long start = System.nanoTime();
+            carts.forEach(evaluation::run);
+            best = Math.min(best, (double) (System.nanoTime() - start) / carts.size());
+        }
+        return best;
+    }
+
+    /**
+     * Cùng điều kiện với findApplicableRules / findApplicableShippingRules cũ, lấy phần tử đầu của
+     * ORDER BY priority DESC (cùng priority thì id nhỏ trước như index).
+     */
+    private static Optional<Integer> linearScan(List<PromotionRule> rules, PromotionRule.PromotionScope scope,
+                                                Cart cart) {
+        return rules.stream()
+                .filter(rule -> rule.getIsActive() && rule.getScope() == scope)
+                .filter(rule -> !rule.getStartDate().isAfter(NOW) && !rule.getEndDate().isBefore(NOW))
+                .filter(rule -> rule.getMinOrderAmount().compareTo(cart.total()) <= 0)
+                .filter(rule -> rule.getCustomerType().equals(cart.customerType())
+                        || rule.getCustomerType().equals("ALL"))
+                .min(Comparator.comparing(PromotionRule::getPriority, Comparator.reverseOrder())
+                        .thenComparing(PromotionRule::getIdRule))
+                .map(PromotionRule::getIdRule);
+    }
+
+    private static List<PromotionRule> rules(Random random, int count) {
+        List<PromotionRule> rules = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            // Khoảng 1/4 rule chưa bắt đầu hoặc đã hết hạn
+            LocalDateTime start = NOW.minusDays(random.nextInt(60) - 10);
+            rules.add(PromotionRule.builder()
+                    .idRule(id)
+                    .ruleName("Rule " + id)
+                    .discountType(PromotionRule.DiscountType.PERCENTAGE)
+                    .discountValue(BigDecimal.valueOf(5 + random.nextInt(20)))
+                    .minOrderAmount(BigDecimal.valueOf(random.nextInt(50) * 100_000L))
+                    .customerType(CUSTOMER_TYPES[random.nextInt(CUSTOMER_TYPES.length)])
+                    .startDate(start)
+                    .endDate(start.plusDays(5 + random.nextInt(40)))
+                    .priority(random.nextInt(20))
+                    .scope(random.nextBoolean() ? PromotionRule.PromotionScope.ORDER
+                            : PromotionRule.PromotionScope.SHIPPING)
+                    .build());
+        }
+        return rules;
+    }
+
+    private static List<Cart> carts(Random random) {
+        List<Cart> carts = new ArrayList<>(CARTS);
+        for (int i = 0; i < CARTS; i++) {
+            String customerType = random.nextBoolean() ? "VIP" : "REGULAR";
+            carts.add(new Cart(BigDecimal.valueOf(random.nextInt(6_000_000)), customerType));
+        }
+        return carts;
+    }
+}
@@ -0,0 +1,116 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.mapper.PromotionMapper;
+import com.storemanagement.mapper.PromotionRuleMapper;
+import com.storemanagement.repository.CustomerRepository;
+import com.storemanagement.repository.OrderRepository;
+import com.storemanagement.repository.ProductImageRepository;
+import com.storemanagement.repository.ProductRepository;
+import com.storemanagement.repository.PromotionRepository;
+import com.storemanagement.repository.PromotionRuleRepository;
+import com.storemanagement.repository.PromotionUsageCounterRepository;
+import com.storemanagement.repository.PromotionUsageRepository;
+import com.storemanagement.service.PromotionRuleIndexService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Service phản ứng với số dòng mà các câu UPDATE/DELETE có điều kiện báo về: lượt dùng chỉ được lấy trong
+ * beforeCommit, 0 dòng cập nhật làm transaction tạo đơn thất bại, và chỉ lần xóa được dòng promotion_usage
+ * mới hoàn lượt. Điều kiện usage_count < usage_limit nằm trong SQL và không được kiểm tra ở đây.
+ */
+class PromotionUsageCounterTest {
+
+    private static final int PROMOTION_ID = 3;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private final PromotionServiceImpl promotionService = new PromotionServiceImpl(mock(PromotionRepository.class),
+            mock(PromotionUsageRepository.class), mock(PromotionRuleRepository.class), mock(ProductRepository.class),
+            mock(ProductImageRepository.class), mock(CustomerRepository.class), mock(OrderRepository.class),
+            mock(PromotionMapper.class), mock(PromotionRuleMapper.class), mock(PromotionRuleIndexService.class),
+            new PromotionUsageCounterRepository(jdbcTemplate));
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void usageIsAcquiredOnlyWhenTheOrderTransactionCommits() {
+        acquireUpdates(1);
+        TransactionSynchronizationManager.initSynchronization();
+        promotionService.recordPromotionUsage(PROMOTION_ID, 1, 10);
+
+        // Chưa commit: chưa chạm vào dòng promotions
+        verify(jdbcTemplate, never()).update(contains("< usage_limit"), any(Object[].class));
+
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+
+        verify(jdbcTemplate).update(contains("< usage_limit"), eq(PROMOTION_ID));
+        verify(jdbcTemplate).update(startsWith("INSERT INTO promotion_usage"), eq(PROMOTION_ID), eq(1), eq(10));
+    }
+
+    @Test
+    void rolledBackOrderDoesNotConsumeUsage() {
+        acquireUpdates(1);
+        TransactionSynchronizationManager.initSynchronization();
+        promotionService.recordPromotionUsage(PROMOTION_ID, 1, 10);
+
+        // Transaction tạo đơn lỗi và rollback: beforeCommit không bao giờ chạy
+        TransactionSynchronizationManager.clearSynchronization();
+
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    void noUpdatedRowFailsTheCommit() {
+        // Mã đã hết lượt: UPDATE có điều kiện không cập nhật dòng nào
+        acquireUpdates(0);
+        TransactionSynchronizationManager.initSynchronization();
+        promotionService.recordPromotionUsage(PROMOTION_ID, 2, 10);
+
+        // Ngoại lệ trong beforeCommit khiến transaction rollback thay vì commit đơn dùng mã đã hết lượt
+        assertThrows(RuntimeException.class, () -> TransactionSynchronizationUtils.triggerBeforeCommit(false));
+        verify(jdbcTemplate, never()).update(startsWith("INSERT INTO promotion_usage"), any(Object[].class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void usageIsReleasedOnlyByTheCallThatDeletesTheUsageRow() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(5)))
+                .thenReturn(List.of(new PromotionUsageCounterRepository.UsageRow(11, PROMOTION_ID)));
+        // Hủy đơn và webhook thanh toán thất bại cùng hoàn lượt: chỉ lần DELETE đầu tiên xóa được dòng
+        when(jdbcTemplate.update(startsWith("DELETE FROM promotion_usage"), eq(11))).thenReturn(1, 0);
+
+        promotionService.releasePromotionUsage(5);
+        promotionService.releasePromotionUsage(5);
+
+        verify(jdbcTemplate, times(2)).update(startsWith("DELETE FROM promotion_usage"), eq(11));
+        verify(jdbcTemplate, times(1)).update(contains("usage_count - 1"), eq(PROMOTION_ID));
+    }
+
+    private void acquireUpdates(int rows) {
+        when(jdbcTemplate.update(contains("< usage_limit"), eq(PROMOTION_ID))).thenReturn(rows);
+    }
+}
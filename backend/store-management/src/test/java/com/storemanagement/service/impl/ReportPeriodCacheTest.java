@@ -0,0 +1,133 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.dto.report.DailyRevenueDTO;
+import com.storemanagement.model.Order;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ngày đã qua chỉ được truy vấn một lần, hôm nay luôn tính lại, và invalidate chỉ bỏ đúng ngày đặt hàng
+ * (sau commit; kết quả của truy vấn chạy song song với invalidate không được cache).
+ */
+class ReportPeriodCacheTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final ReportPeriodCacheImpl reportPeriodCache = new ReportPeriodCacheImpl();
+
+    // Các khoảng [from, to] đã truy vấn xuống DB, theo thứ tự
+    private final List<String> queriedRanges = new ArrayList<>();
+    private Consumer<String> onQuery = range -> { };
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reportPeriodCache, "entityManager", entityManager);
+
+        Query query = mock(Query.class);
+        Map<String, Object> parameters = new HashMap<>();
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenAnswer(invocation -> {
+            parameters.put(invocation.getArgument(0), invocation.getArgument(1));
+            return query;
+        });
+        when(query.getResultList()).thenAnswer(invocation -> {
+            LocalDate from = ((LocalDateTime) parameters.get("startDate")).toLocalDate();
+            LocalDate to = ((LocalDateTime) parameters.get("endDate")).toLocalDate();
+            String range = from + ".." + to;
+            queriedRanges.add(range);
+            onQuery.accept(range);
+
+            // Mỗi ngày có một đơn COMPLETED, trừ ngày chẵn
+            List<Object[]> rows = new ArrayList<>();
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                if (day.getDayOfMonth() % 2 == 1) {
+                    rows.add(new Object[]{java.sql.Date.valueOf(day), new BigDecimal("100000"), BigDecimal.ZERO, 1L});
+                }
+            }
+            return rows;
+        });
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void closedDaysAreQueriedOnceIncludingDaysWithoutOrders() {
+        List<DailyRevenueDTO> first = reportPeriodCache.getDailyRevenue(TODAY.minusDays(10), TODAY.minusDays(1));
+        List<DailyRevenueDTO> second = reportPeriodCache.getDailyRevenue(TODAY.minusDays(10), TODAY.minusDays(1));
+
+        assertEquals(List.of(TODAY.minusDays(10) + ".." + TODAY.minusDays(1)), queriedRanges);
+        assertEquals(salesDates(first), salesDates(second));
+    }
+
+    @Test
+    void todayIsRecomputedOnEveryReport() {
+        reportPeriodCache.getDailyRevenue(TODAY.minusDays(3), TODAY);
+        reportPeriodCache.getDailyRevenue(TODAY.minusDays(3), TODAY);
+
+        assertEquals(List.of(TODAY.minusDays(3) + ".." + TODAY.minusDays(1), TODAY + ".." + TODAY,
+                TODAY + ".." + TODAY), queriedRanges);
+    }
+
+    @Test
+    void invalidateEvictsOnlyTheOrderDayAfterCommit() {
+        reportPeriodCache.getDailyRevenue(TODAY.minusDays(5), TODAY.minusDays(1));
+        queriedRanges.clear();
+
+        TransactionSynchronizationManager.initSynchronization();
+        reportPeriodCache.invalidate(order(TODAY.minusDays(3)));
+        reportPeriodCache.getDailyRevenue(TODAY.minusDays(5), TODAY.minusDays(1));
+        assertEquals(List.of(), queriedRanges);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        reportPeriodCache.getDailyRevenue(TODAY.minusDays(5), TODAY.minusDays(1));
+        assertEquals(List.of(TODAY.minusDays(3) + ".." + TODAY.minusDays(3)), queriedRanges);
+    }
+
+    @Test
+    void resultRacingAnInvalidationIsNotCached() {
+        // Đơn của một ngày trong khoảng đổi trạng thái trong lúc truy vấn đang chạy
+        onQuery = range -> reportPeriodCache.invalidate(order(TODAY.minusDays(2)));
+        reportPeriodCache.getDailyRevenue(TODAY.minusDays(4), TODAY.minusDays(1));
+        onQuery = range -> { };
+
+        reportPeriodCache.getDailyRevenue(TODAY.minusDays(4), TODAY.minusDays(1));
+
+        String closedRange = TODAY.minusDays(4) + ".." + TODAY.minusDays(1);
+        assertEquals(List.of(closedRange, closedRange), queriedRanges);
+    }
+
+    private static List<LocalDate> salesDates(List<DailyRevenueDTO> days) {
+        return days.stream().map(DailyRevenueDTO::getSalesDate).toList();
+    }
+
+    private static Order order(LocalDate orderDay) {
+        return Order.builder().idOrder(1).orderDate(orderDay.atTime(10, 0)).build();
+    }
+}
@@ -0,0 +1,115 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.config.ReportExecutionProperties;
+import com.storemanagement.service.ReportQueryExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Truy vấn con của báo cáo: song song không vượt quá maxConcurrency (mỗi truy vấn một transaction),
+ * quá timeout thì báo lỗi và bỏ các truy vấn còn xếp hàng, chế độ tuần tự dùng một transaction.
+ */
+class ReportQueryExecutorTest {
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final ReportExecutionProperties properties = new ReportExecutionProperties();
+    private final ReportQueryExecutorImpl executor = new ReportQueryExecutorImpl(transactionManager, properties);
+
+    @AfterEach
+    void shutdown() {
+        executor.onShutdown();
+    }
+
+    @Test
+    void parallelSubqueriesNeverExceedMaxConcurrency() {
+        properties.setMaxConcurrency(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        ReportQueryExecutor.Batch batch = executor.newBatch("revenue-summary");
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            int value = i;
+            results.add(batch.add("subquery-" + i, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(50);
+                running.decrementAndGet();
+                return value;
+            }));
+        }
+        batch.execute();
+
+        assertEquals(2, maxRunning.get());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).join());
+        }
+        verify(transactionManager, times(6)).getTransaction(any());
+    }
+
+    @Test
+    void timeoutFailsBatchAndSkipsQueuedSubqueries() {
+        properties.setMaxConcurrency(2);
+        properties.setTimeoutMs(200);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger queuedRuns = new AtomicInteger();
+
+        ReportQueryExecutor.Batch batch = executor.newBatch("revenue-by-product");
+        batch.add("slow-1", () -> await(release));
+        batch.add("slow-2", () -> await(release));
+        batch.add("queued", queuedRuns::incrementAndGet);
+
+        RuntimeException error = assertThrows(RuntimeException.class, batch::execute);
+        assertTrue(error.getMessage().contains("vượt quá thời gian"));
+
+        release.countDown();
+        sleep(200);
+        assertEquals(0, queuedRuns.get());
+    }
+
+    @Test
+    void sequentialModeRunsAllSubqueriesInOneTransaction() {
+        properties.setParallel(false);
+
+        ReportQueryExecutor.Batch batch = executor.newBatch("revenue-summary");
+        CompletableFuture<Integer> orders = batch.add("orders", () -> 3);
+        CompletableFuture<Integer> customers = batch.add("customers", () -> 2);
+        batch.execute();
+
+        assertEquals(3, orders.join());
+        assertEquals(2, customers.join());
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    private static int await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.config.SalesCubeProperties;
+import com.storemanagement.dto.report.SalesCubeQueryDTO;
+import com.storemanagement.dto.report.SalesCubeResultDTO;
+import com.storemanagement.dto.report.SalesCubeRowDTO;
+import com.storemanagement.model.Category;
+import com.storemanagement.model.Customer;
+import com.storemanagement.model.Order;
+import com.storemanagement.model.OrderDetail;
+import com.storemanagement.model.Product;
+import com.storemanagement.repository.SalesCubeRepository;
+import com.storemanagement.utils.CustomerType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * So kết quả của sales cube với phép cộng dồn ngây thơ trên cùng dữ liệu ngẫu nhiên: mọi tổ hợp group-by/lọc
+ * phải ra đúng từng nhóm (số lượng, doanh thu, số dòng), kể cả sau khi đơn bị loại (tombstone), bị thay dòng,
+ * và khi index() chạy xen giữa một lần nạp lại.
+ * SalesCubeRepository được giả lập bằng bản "database" trong bộ nhớ.
+ */
+class SalesCubeBruteForceTest {
+
+    private static final List<String> DIMENSIONS =
+            List.of("DAY", "MONTH", "YEAR", "PRODUCT", "CATEGORY", "BRAND", "CUSTOMER_TYPE");
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 1);
+    private static final int DAY_SPAN = 900;
+    private static final int PRODUCT_COUNT = 60;
+    private static final int CATEGORY_COUNT = 8;
+
+    private final Random random = new Random(20250301);
+    private final List<Product> catalog = new ArrayList<>();
+
+    // id đơn -> dòng của đơn COMPLETED; đơn không COMPLETED không có mặt
+    private final Map<Integer, List<NaiveLine>> completedOrders = new TreeMap<>();
+    private int nextOrderId = 1;
+
+    private final SalesCubeRepository salesCubeRepository = mock(SalesCubeRepository.class);
+    private final SalesCubeProperties properties = new SalesCubeProperties();
+    private final SalesCubeServiceImpl salesCube;
+
+    // Gọi trong lúc stream đã đi được nửa số dòng (null = không chặn)
+    private volatile Runnable midStreamHook;
+
+    private record NaiveLine(int orderId, LocalDate day, Product product, String customerType, int quantity,
+                             BigDecimal price) {
+    }
+
+    SalesCubeBruteForceTest() {
+        properties.setParallelism(4);
+        properties.setScanChunkSize(1024);
+        properties.setMaxResultRows(Integer.MAX_VALUE);
+        salesCube = new SalesCubeServiceImpl(salesCubeRepository, properties);
+
+        for (int i = 1; i <= PRODUCT_COUNT; i++) {
+            Category category = i % 10 == 0 ? null : Category.builder()
+                    .idCategory(i % CATEGORY_COUNT + 1)
+                    .categoryName("Danh mục " + (i % CATEGORY_COUNT + 1))
+                    .build();
+            String brand = switch (i % 6) {
+                case 0 -> null;
+                case 1 -> "  ";
+                case 2 -> " Thương hiệu " + (i % 5) + " ";
+                default -> "Thương hiệu " + (i % 5);
+            };
+            catalog.add(Product.builder()
+                    .idProduct(i)
+                    .productCode("SP" + i)
+                    .productName("Sản phẩm " + i)
+                    .category(category)
+                    .brand(brand)
+                    .build());
+        }
+
+        // Stream đọc một bản chụp lúc bắt đầu (như consistent read): thay đổi đến giữa chừng không được thấy
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(0);
+            List<NaiveLine> lines = new ArrayList<>();
+            synchronized (completedOrders) {
+                completedOrders.values().forEach(lines::addAll);
+            }
+
+            AtomicReference<Object[]> current = new AtomicReference<>();
+            ResultSet rs = resultSet(current);
+            for (int i = 0; i < lines.size(); i++) {
+                if (i == lines.size() / 2 && midStreamHook != null) {
+                    midStreamHook.run();
+                }
+                current.set(columns(lines.get(i)));
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(salesCubeRepository).streamCompletedLines(any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        salesCube.onShutdown();
+    }
+
+    @Test
+    void randomQueriesMatchNaiveAggregation() {
+        seedOrders(2000);
+        salesCube.rebuild();
+
+        assertRandomQueriesMatch(300);
+    }
+
+    @Test
+    void tombstonedAndReplacedOrdersMatchNaiveAggregation() {
+        seedOrders(2000);
+        salesCube.rebuild();
+
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 150; i++) {
+                applyRandomChange();
+            }
+            assertRandomQueriesMatch(60);
+        }
+        assertTrue(salesCube.getStatistics().getDeletedLines() > 0);
+
+        // Nạp lại dọn tombstone, kết quả không đổi
+        salesCube.rebuild();
+        assertEquals(0L, salesCube.getStatistics().getDeletedLines());
+        assertRandomQueriesMatch(60);
+    }
+
+    @Test
+    void indexRacingRebuildIsNotLost() throws Exception {
+        seedOrders(2000);
+        salesCube.rebuild();
+
+        CountDownLatch halfway = new CountDownLatch(1);
+        CountDownLatch indexed = new CountDownLatch(1);
+        midStreamHook = () -> {
+            halfway.countDown();
+            try {
+                assertTrue(indexed.await(30, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        CompletableFuture<Void> rebuild = CompletableFuture.runAsync(salesCube::rebuild);
+        assertTrue(halfway.await(30, TimeUnit.SECONDS));
+
+        // Đơn ở cả nửa đã stream và nửa chưa stream, cùng đơn mới, thay đổi sau khi bản chụp đã được đọc
+        for (int i = 0; i < 200; i++) {
+            applyRandomChange();
+        }
+        // Trong lúc nạp lại, truy vấn vẫn đọc bảng cũ đã nhận các thay đổi
+        assertRandomQueriesMatch(20);
+
+        midStreamHook = null;
+        indexed.countDown();
+        rebuild.get(30, TimeUnit.SECONDS);
+
+        assertRandomQueriesMatch(100);
+    }
+
+    private void applyRandomChange() {
+        List<Integer> orderIds;
+        synchronized (completedOrders) {
+            orderIds = new ArrayList<>(completedOrders.keySet());
+        }
+        int choice = random.nextInt(3);
+        if (choice == 0 && !orderIds.isEmpty()) {
+            // Đơn rời trạng thái COMPLETED (trả hàng/hủy): các dòng cũ thành tombstone
+            int orderId = orderIds.get(random.nextInt(orderIds.size()));
+            List<NaiveLine> lines;
+            synchronized (completedOrders) {
+                lines = completedOrders.remove(orderId);
+            }
+            salesCube.index(toOrder(orderId, Order.OrderStatus.CANCELED, lines));
+        } else if (choice == 1 && !orderIds.isEmpty()) {
+            // Cùng đơn được index lại với dòng khác
+            int orderId = orderIds.get(random.nextInt(orderIds.size()));
+            List<NaiveLine> lines = randomLines(orderId);
+            putOrder(orderId, lines);
+            salesCube.index(toOrder(orderId, Order.OrderStatus.COMPLETED, lines));
+        } else {
+            int orderId = nextOrderId++;
+            List<NaiveLine> lines = randomLines(orderId);
+            putOrder(orderId, lines);
+            salesCube.index(toOrder(orderId, Order.OrderStatus.COMPLETED, lines));
+            if (random.nextInt(4) == 0) {
+                // Index trùng lần nữa (retry) không được cộng hai lần
+                salesCube.index(toOrder(orderId, Order.OrderStatus.COMPLETED, lines));
+            }
+        }
+    }
+
+    private void assertRandomQueriesMatch(int count) {
+        for (int i = 0; i < count; i++) {
+            SalesCubeQueryDTO query = randomQuery();
+            Map<List<String>, long[]> expected = naiveAggregate(query);
+            SalesCubeResultDTO result = salesCube.query(query);
+
+            Map<List<String>, long[]> actual = new HashMap<>();
+            for (SalesCubeRowDTO row : result.getRows()) {
+                actual.put(new ArrayList<>(row.getDimensions().values()), new long[]{
+                        row.getQuantity(), row.getRevenue().movePointRight(2).longValueExact(), row.getLines()});
+            }
+
+            assertEquals(expected.size(), result.getTotalGroups(), () -> "totalGroups của " + query);
+            assertEquals(expected.keySet(), actual.keySet(), () -> "các nhóm của " + query);
+            for (Map.Entry<List<String>, long[]> entry : expected.entrySet()) {
+                assertArrayEquals(entry.getValue(), actual.get(entry.getKey()),
+                        () -> "nhóm " + entry.getKey() + " của " + query);
+            }
+        }
+    }
+
+    private SalesCubeQueryDTO randomQuery() {
+        SalesCubeQueryDTO.SalesCubeQueryDTOBuilder query = SalesCubeQueryDTO.builder();
+
+        List<String> groupBy = new ArrayList<>();
+        int dimensionCount = random.nextInt(4);
+        for (int i = 0; i < dimensionCount; i++) {
+            String dimension = DIMENSIONS.get(random.nextInt(DIMENSIONS.size()));
+            groupBy.add(random.nextBoolean() ? dimension : dimension.toLowerCase(Locale.ROOT));
+        }
+        query.groupBy(groupBy);
+
+        if (random.nextInt(3) > 0) {
+            LocalDate from = FIRST_DAY.plusDays(random.nextInt(DAY_SPAN) - 30);
+            query.fromDate(from).toDate(from.plusDays(random.nextInt(DAY_SPAN / 2) - 10));
+        } else if (random.nextBoolean()) {
+            query.toDate(FIRST_DAY.plusDays(random.nextInt(DAY_SPAN)));
+        }
+        if (random.nextInt(4) == 0) {
+            List<Integer> productIds = new ArrayList<>();
+            for (int i = 0; i <= random.nextInt(10); i++) {
+                productIds.add(random.nextInt(PRODUCT_COUNT + 5) + 1);
+            }
+            query.productIds(productIds);
+        }
+        if (random.nextInt(4) == 0) {
+            query.categoryIds(List.of(random.nextInt(CATEGORY_COUNT) + 1, random.nextInt(CATEGORY_COUNT + 2) + 1));
+        }
+        if (random.nextInt(4) == 0) {
+            query.brands(List.of("Thương hiệu " + random.nextInt(5), random.nextBoolean() ? "" : " Thương hiệu 2 "));
+        }
+        if (random.nextInt(4) == 0) {
+            query.customerTypes(random.nextBoolean() ? List.of("vip", "GUEST") : List.of(" regular "));
+        }
+        return query.build();
+    }
+
+    /**
+     * Cộng dồn trực tiếp từng dòng còn COMPLETED, nhãn theo cách hiển thị của cube.
+     */
+    private Map<List<String>, long[]> naiveAggregate(SalesCubeQueryDTO query) {
+        List<String> dimensions = new ArrayList<>();
+        for (String name : query.getGroupBy()) {
+            String dimension = name.trim().toUpperCase(Locale.ROOT);
+            if (!dimensions.contains(dimension)) {
+                dimensions.add(dimension);
+            }
+        }
+        List<String> brands = query.getBrands() != null
+                ? query.getBrands().stream().map(String::trim).toList()
+                : null;
+        List<String> customerTypes = query.getCustomerTypes() != null
+                ? query.getCustomerTypes().stream().map(type -> type.trim().toUpperCase(Locale.ROOT)).toList()
+                : null;
+
+        Map<List<String>, long[]> groups = new HashMap<>();
+        synchronized (completedOrders) {
+            for (List<NaiveLine> lines : completedOrders.values()) {
+                for (NaiveLine line : lines) {
+                    Product product = line.product();
+                    Integer categoryId = product != null && product.getCategory() != null
+                            ? product.getCategory().getIdCategory() : null;
+                    String brand = product != null && product.getBrand() != null ? product.getBrand().trim() : "";
+                    String customerType = line.customerType() != null ? line.customerType() : "GUEST";
+
+                    if (query.getFromDate() != null && line.day().isBefore(query.getFromDate())
+                            || query.getToDate() != null && line.day().isAfter(query.getToDate())
+                            || query.getProductIds() != null
+                            && (product == null || !query.getProductIds().contains(product.getIdProduct()))
+                            || query.getCategoryIds() != null
+                            && (categoryId == null || !query.getCategoryIds().contains(categoryId))
+                            || brands != null && !brands.contains(brand)
+                            || customerTypes != null && !customerTypes.contains(customerType)) {
+                        continue;
+                    }
+
+                    List<String> key = new ArrayList<>();
+                    for (String dimension : dimensions) {
+                        key.add(switch (dimension) {
+                            case "DAY" -> line.day().toString();
+                            case "MONTH" -> YearMonth.from(line.day()).toString();
+                            case "YEAR" -> String.valueOf(line.day().getYear());
+                            case "PRODUCT" -> product != null
+                                    ? product.getProductCode() + " - " + product.getProductName()
+                                    : "(Không xác định)";
+                            case "CATEGORY" -> categoryId != null
+                                    ? product.getCategory().getCategoryName()
+                                    : "(Không có danh mục)";
+                            case "BRAND" -> brand.isEmpty() ? "(Không có thương hiệu)" : brand;
+                            default -> customerType;
+                        });
+                    }
+
+                    long[] totals = groups.computeIfAbsent(key, k -> new long[3]);
+                    totals[0] += line.quantity();
+                    totals[1] += line.price().multiply(BigDecimal.valueOf(line.quantity()))
+                            .movePointRight(2).longValueExact();
+                    totals[2]++;
+                }
+            }
+        }
+        return groups;
+    }
+
+    private void seedOrders(int count) {
+        for (int i = 0; i < count; i++) {
+            int orderId = nextOrderId++;
+            putOrder(orderId, randomLines(orderId));
+        }
+    }
+
+    private List<NaiveLine> randomLines(int orderId) {
+        LocalDate day = FIRST_DAY.plusDays(random.nextInt(DAY_SPAN));
+        String customerType = switch (random.nextInt(3)) {
+            case 0 -> "VIP";
+            case 1 -> "REGULAR";
+            default -> null;
+        };
+
+        List<NaiveLine> lines = new ArrayList<>();
+        int lineCount = random.nextInt(5) + 1;
+        for (int i = 0; i < lineCount; i++) {
+            // Thỉnh thoảng sản phẩm đã bị xóa khỏi bảng products (LEFT JOIN trả null)
+            Product product = random.nextInt(50) == 0 ? null : catalog.get(random.nextInt(PRODUCT_COUNT));
+            BigDecimal price = BigDecimal.valueOf(random.nextInt(5_000_000) + 1, 2);
+            lines.add(new NaiveLine(orderId, day, product, customerType, random.nextInt(10) + 1, price));
+        }
+        return lines;
+    }
+
+    private void putOrder(int orderId, List<NaiveLine> lines) {
+        synchronized (completedOrders) {
+            completedOrders.put(orderId, lines);
+        }
+    }
+
+    private static Order toOrder(int orderId, Order.OrderStatus status, List<NaiveLine> lines) {
+        NaiveLine first = lines.get(0);
+        List<OrderDetail> details = new ArrayList<>();
+        for (NaiveLine line : lines) {
+            details.add(OrderDetail.builder()
+                    .product(line.product())
+                    .quantity(line.quantity())
+                    .price(line.price())
+                    .build());
+        }
+        return Order.builder()
+                .idOrder(orderId)
+                .status(status)
+                .orderDate(first.day().atTime(10, 30))
+                .customer(first.customerType() != null
+                        ? Customer.builder().customerType(CustomerType.valueOf(first.customerType())).build()
+                        : null)
+                .orderDetails(details)
+                .build();
+    }
+
+    private static Object[] columns(NaiveLine line) {
+        Product product = line.product();
+        Category category = product != null ? product.getCategory() : null;
+        return new Object[]{
+                line.orderId(),
+                Timestamp.valueOf(line.day().atTime(10, 30)),
+                product != null ? product.getIdProduct() : null,
+                product != null ? product.getProductCode() : null,
+                product != null ? product.getProductName() : null,
+                category != null ? category.getIdCategory() : null,
+                category != null ? category.getCategoryName() : null,
+                product != null ? product.getBrand() : null,
+                line.customerType(),
+                line.quantity(),
+                line.price()
+        };
+    }
+
+    private static ResultSet resultSet(AtomicReference<Object[]> current) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getInt(anyInt())).thenAnswer(invocation -> current.get()[(int) invocation.getArgument(0) - 1]);
+        when(rs.getObject(anyInt())).thenAnswer(invocation -> current.get()[(int) invocation.getArgument(0) - 1]);
+        when(rs.getString(anyInt())).thenAnswer(invocation -> current.get()[(int) invocation.getArgument(0) - 1]);
+        when(rs.getTimestamp(anyInt())).thenAnswer(invocation -> current.get()[(int) invocation.getArgument(0) - 1]);
+        when(rs.getBigDecimal(anyInt()))
+                .thenAnswer(invocation -> current.get()[(int) invocation.getArgument(0) - 1]);
+        return rs;
+    }
+}
@@ -0,0 +1,79 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.model.Order;
+import com.storemanagement.repository.SalesRollupRepository;
+import com.storemanagement.service.ReportPeriodCache;
+import com.storemanagement.service.SalesCubeService;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Đổi trạng thái đơn: trừ khỏi dòng tổng hợp của trạng thái cũ, cộng vào trạng thái mới; doanh số theo sản phẩm
+ * chỉ đổi khi đơn vào hoặc ra khỏi COMPLETED.
+ */
+class SalesRollupDeltaTest {
+
+    private final SalesRollupRepository salesRollupRepository = mock(SalesRollupRepository.class);
+    private final ReportPeriodCache reportPeriodCache = mock(ReportPeriodCache.class);
+    private final SalesCubeService salesCubeService = mock(SalesCubeService.class);
+
+    private final SalesRollupServiceImpl salesRollupService = new SalesRollupServiceImpl(salesRollupRepository,
+            reportPeriodCache, salesCubeService);
+
+    @Test
+    void createdOrderIsAddedToItsStatusOnly() {
+        Order order = order(Order.OrderStatus.PENDING);
+
+        salesRollupService.recordOrderCreated(order);
+
+        verify(salesRollupRepository).applyOrder(7, "PENDING", 1);
+        verify(salesRollupRepository, never()).applyOrderProducts(anyInt(), anyInt());
+        verify(reportPeriodCache).invalidate(order);
+        verifyNoInteractions(salesCubeService);
+    }
+
+    @Test
+    void completingOrderMovesItAndAddsProductSales() {
+        Order order = order(Order.OrderStatus.COMPLETED);
+
+        salesRollupService.recordStatusChange(order, Order.OrderStatus.CONFIRMED);
+
+        verify(salesRollupRepository).applyOrder(7, "CONFIRMED", -1);
+        verify(salesRollupRepository).applyOrder(7, "COMPLETED", 1);
+        verify(salesRollupRepository).applyOrderProducts(7, 1);
+        verify(salesCubeService).index(order);
+    }
+
+    @Test
+    void leavingCompletedRemovesProductSales() {
+        Order order = order(Order.OrderStatus.CANCELED);
+
+        salesRollupService.recordStatusChange(order, Order.OrderStatus.COMPLETED);
+
+        verify(salesRollupRepository).applyOrder(7, "COMPLETED", -1);
+        verify(salesRollupRepository).applyOrder(7, "CANCELED", 1);
+        verify(salesRollupRepository).applyOrderProducts(7, -1);
+        verify(salesCubeService).index(order);
+    }
+
+    @Test
+    void unchangedStatusIsIgnored() {
+        Order order = order(Order.OrderStatus.CONFIRMED);
+
+        salesRollupService.recordStatusChange(order, Order.OrderStatus.CONFIRMED);
+
+        verify(salesRollupRepository, never()).applyOrder(anyInt(), anyString(), anyInt());
+        verifyNoInteractions(reportPeriodCache);
+        verifyNoInteractions(salesCubeService);
+    }
+
+    private static Order order(Order.OrderStatus status) {
+        return Order.builder().idOrder(7).status(status).build();
+    }
+}
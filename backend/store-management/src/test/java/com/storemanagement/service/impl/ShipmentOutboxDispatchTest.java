@@ -0,0 +1,272 @@
+package com.storemanagement.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.storemanagement.config.GHNConfig;
+import com.storemanagement.model.Order;
+import com.storemanagement.model.OrderDetail;
+import com.storemanagement.model.Product;
+import com.storemanagement.model.Shipment;
+import com.storemanagement.model.ShipmentOutbox;
+import com.storemanagement.model.ShippingAddress;
+import com.storemanagement.repository.OrderRepository;
+import com.storemanagement.repository.ShipmentOutboxRepository;
+import com.storemanagement.repository.ShipmentRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Dispatcher outbox gọi một GHN giả lập (HTTP server cục bộ) qua GHNServiceImpl thật.
+ * Mô phỏng các lỗi khiến retry không idempotent: timeout sau khi GHN đã tạo vận đơn và lỗi trùng client_order_code.
+ */
+class ShipmentOutboxDispatchTest {
+
+    private static final int ORDER_ID = 42;
+    private static final String CLIENT_ORDER_CODE = "ORDER_" + ORDER_ID;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, String> ghnOrders = new ConcurrentHashMap<>();
+    private final AtomicInteger createCalls = new AtomicInteger();
+    private volatile long createResponseDelayMs;
+    private volatile boolean rejectCreate;
+
+    private HttpServer ghnServer;
+    private ExecutorService ghnExecutor;
+
+    private ShipmentOutbox outbox;
+    private Shipment shipment;
+    private ShipmentOutboxServiceImpl outboxService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ghnExecutor = Executors.newCachedThreadPool();
+        ghnServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        ghnServer.createContext("/shiip/public-api/v2/shipping-order/create", this::handleCreate);
+        ghnServer.createContext("/shiip/public-api/v2/shipping-order/detail-by-client-code", this::handleDetail);
+        ghnServer.setExecutor(ghnExecutor);
+        ghnServer.start();
+
+        GHNConfig ghnConfig = new GHNConfig();
+        ghnConfig.setBaseUrl("http://localhost:" + ghnServer.getAddress().getPort());
+        ghnConfig.setToken("test-token");
+        ghnConfig.setShopId(1);
+        ghnConfig.setFromDistrictId(1442);
+        ghnConfig.setEnabled(true);
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(1000);
+        requestFactory.setReadTimeout(500);
+        GHNServiceImpl ghnService = new GHNServiceImpl(ghnConfig, new RestTemplate(requestFactory), objectMapper,
+                mock(CacheManager.class));
+
+        Order order = order();
+        outbox = ShipmentOutbox.builder()
+                .idOutbox(1)
+                .order(order)
+                .status(ShipmentOutbox.OutboxStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(LocalDateTime.now().minusSeconds(1))
+                .build();
+        shipment = Shipment.builder()
+                .order(order)
+                .shippingStatus(Shipment.ShippingStatus.PREPARING)
+                .build();
+
+        ShipmentOutboxRepository outboxRepository = mock(ShipmentOutboxRepository.class);
+        when(outboxRepository.findDueIds(anyCollection(), any(), any())).thenReturn(List.of(1));
+        when(outboxRepository.claim(eq(1), anyCollection(), any(), any())).thenAnswer(invocation -> {
+            if (outbox.getStatus() != ShipmentOutbox.OutboxStatus.PENDING
+                    && outbox.getStatus() != ShipmentOutbox.OutboxStatus.PROCESSING) {
+                return 0;
+            }
+            outbox.setStatus(ShipmentOutbox.OutboxStatus.PROCESSING);
+            outbox.setAttempts(outbox.getAttempts() + 1);
+            outbox.setNextAttemptAt(invocation.getArgument(3));
+            return 1;
+        });
+        when(outboxRepository.findById(1)).thenReturn(Optional.of(outbox));
+        when(outboxRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.findByIdWithDetails(ORDER_ID)).thenReturn(Optional.of(order));
+
+        ShipmentRepository shipmentRepository = mock(ShipmentRepository.class);
+        when(shipmentRepository.findByOrder_IdOrder(ORDER_ID)).thenReturn(Optional.of(shipment));
+        when(shipmentRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        outboxService = new ShipmentOutboxServiceImpl(outboxRepository, shipmentRepository, orderRepository,
+                ghnService, ghnConfig, new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ghnServer.stop(0);
+        ghnExecutor.shutdownNow();
+    }
+
+    @Test
+    void timeoutAfterGHNCreatedTheOrderCompletesWithExistingCode() {
+        // GHN tạo xong vận đơn nhưng trả lời sau read timeout của client
+        createResponseDelayMs = 1500;
+
+        outboxService.dispatchDue();
+
+        assertEquals(1, createCalls.get());
+        assertEquals(ShipmentOutbox.OutboxStatus.DONE, outbox.getStatus());
+        assertEquals(ghnOrders.get(CLIENT_ORDER_CODE), outbox.getGhnOrderCode());
+        assertEquals(ghnOrders.get(CLIENT_ORDER_CODE), shipment.getTrackingNumber());
+        assertEquals(Shipment.ShippingStatus.PICKING_UP, shipment.getShippingStatus());
+    }
+
+    @Test
+    void duplicateClientOrderCodeOnRetryCompletesWithExistingCode() {
+        // Lần thử trước đã tạo vận đơn trên GHN nhưng worker dừng trước khi ghi nhận kết quả
+        ghnOrders.put(CLIENT_ORDER_CODE, "GHN-EXISTING");
+        outbox.setAttempts(1);
+
+        outboxService.dispatchDue();
+
+        assertEquals(1, createCalls.get());
+        assertEquals(ShipmentOutbox.OutboxStatus.DONE, outbox.getStatus());
+        assertEquals("GHN-EXISTING", outbox.getGhnOrderCode());
+        assertEquals("GHN-EXISTING", shipment.getTrackingNumber());
+    }
+
+    @Test
+    void rejectedCreateIsRetriedWithBackoff() {
+        rejectCreate = true;
+
+        outboxService.dispatchDue();
+
+        assertEquals(ShipmentOutbox.OutboxStatus.PENDING, outbox.getStatus());
+        assertEquals(1, outbox.getAttempts());
+        assertNotNull(outbox.getLastError());
+        assertTrue(outbox.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        assertTrue(ghnOrders.isEmpty());
+    }
+
+    @Test
+    void orderCanceledBeforeDispatchIsSkippedWithoutCallingGHN() {
+        // Khách hủy / hết hạn thanh toán sau khi outbox được ghi nhưng trước khi dispatcher chạy
+        outbox.getOrder().setStatus(Order.OrderStatus.CANCELED);
+
+        outboxService.dispatchDue();
+
+        assertEquals(0, createCalls.get());
+        assertEquals(ShipmentOutbox.OutboxStatus.SKIPPED, outbox.getStatus());
+        assertNull(outbox.getGhnOrderCode());
+        assertNull(shipment.getTrackingNumber());
+        assertTrue(ghnOrders.isEmpty());
+    }
+
+    private void handleCreate(HttpExchange exchange) throws IOException {
+        createCalls.incrementAndGet();
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        String clientOrderCode = request.path("client_order_code").asText();
+
+        if (rejectCreate) {
+            respond(exchange, 400, "{\"code\":400,\"message\":\"Phường/xã không hợp lệ\",\"data\":null}");
+            return;
+        }
+        if (ghnOrders.containsKey(clientOrderCode)) {
+            respond(exchange, 400,
+                    "{\"code\":400,\"message\":\"Mã đơn hàng của shop đã tồn tại (client_order_code)\",\"data\":null}");
+            return;
+        }
+
+        String orderCode = "GHN" + createCalls.get();
+        ghnOrders.put(clientOrderCode, orderCode);
+        if (createResponseDelayMs > 0) {
+            try {
+                Thread.sleep(createResponseDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        respond(exchange, 200, "{\"code\":200,\"message\":\"Success\",\"data\":{\"order_code\":\"" + orderCode + "\"}}");
+    }
+
+    private void handleDetail(HttpExchange exchange) throws IOException {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        String orderCode = ghnOrders.get(request.path("client_order_code").asText());
+
+        if (orderCode == null) {
+            respond(exchange, 400, "{\"code\":400,\"message\":\"Không tìm thấy đơn hàng\",\"data\":null}");
+            return;
+        }
+        respond(exchange, 200, "{\"code\":200,\"message\":\"Success\",\"data\":{\"order_code\":\"" + orderCode
+                + "\",\"status\":\"ready_to_pick\"}}");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        try {
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(bytes);
+            }
+        } catch (IOException e) {
+            // Client đã đóng kết nối (timeout)
+        }
+    }
+
+    private static Order order() {
+        ShippingAddress address = ShippingAddress.builder()
+                .recipientName("Nguyễn Văn A")
+                .phoneNumber("0900000000")
+                .address("1 Lê Lợi")
+                .districtId(1443)
+                .wardCode("20308")
+                .build();
+        Order order = Order.builder()
+                .idOrder(ORDER_ID)
+                .status(Order.OrderStatus.CONFIRMED)
+                .paymentMethod(Order.PaymentMethod.CASH)
+                .totalAmount(new BigDecimal("200000"))
+                .finalAmount(new BigDecimal("230000"))
+                .shippingAddress(address)
+                .build();
+        order.setOrderDetails(List.of(OrderDetail.builder()
+                .order(order)
+                .product(Product.builder().idProduct(1).build())
+                .productNameSnapshot("Áo thun")
+                .productCodeSnapshot("SP001")
+                .quantity(2)
+                .price(new BigDecimal("100000"))
+                .build()));
+        return order;
+    }
+}
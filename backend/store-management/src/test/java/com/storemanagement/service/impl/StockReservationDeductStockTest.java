@@ -0,0 +1,112 @@
+package com.storemanagement.service.impl;
+
+import com.storemanagement.model.Order;
+import com.storemanagement.model.OrderDetail;
+import com.storemanagement.model.Product;
+import com.storemanagement.repository.OrderBatchRepository;
+import com.storemanagement.repository.ProductCostLedgerRepository;
+import com.storemanagement.repository.ProductRepository;
+import com.storemanagement.repository.StockReservationRepository;
+import com.storemanagement.service.CatalogCacheService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Phản ứng của service với số dòng mà câu UPDATE trừ kho có điều kiện báo về. Bản thân điều kiện
+ * stock_quantity >= quantity nằm trong SQL của OrderBatchRepository, không được kiểm tra ở đây.
+ */
+class StockReservationDeductStockTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final OrderBatchRepository orderBatchRepository = mock(OrderBatchRepository.class);
+    private final ProductCostLedgerRepository productCostLedgerRepository = mock(ProductCostLedgerRepository.class);
+    private final CatalogCacheService catalogCacheService = mock(CatalogCacheService.class);
+
+    private final StockReservationServiceImpl service = new StockReservationServiceImpl(
+            productRepository, mock(StockReservationRepository.class), orderBatchRepository,
+            catalogCacheService, productCostLedgerRepository);
+
+    @Test
+    void everyProductUpdatedRecordsLedgerAndSaleCosts() {
+        when(orderBatchRepository.decrementStock(anyMap())).thenReturn(2);
+
+        service.deductStock(order(1, 9, 2, 3, 1, 9, 1));
+
+        // Gộp theo sản phẩm và theo thứ tự id tăng dần (thứ tự khóa dòng products)
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<Integer, Integer>> quantities = ArgumentCaptor.forClass(Map.class);
+        verify(orderBatchRepository).decrementStock(quantities.capture());
+        assertEquals(List.of(3, 9), new ArrayList<>(quantities.getValue().keySet()));
+        assertEquals(Map.of(3, 1, 9, 3), quantities.getValue());
+
+        verify(productCostLedgerRepository).applyMovements(Map.of(3, -1, 9, -3));
+        verify(productCostLedgerRepository).recordSaleCosts(1);
+        verify(catalogCacheService).evictProducts(Set.of(3, 9));
+    }
+
+    @Test
+    void fewerUpdatedRowsThanProductsRejectsTheOrder() {
+        // Một sản phẩm không đủ hàng: UPDATE chỉ trừ được một trong hai dòng
+        when(orderBatchRepository.decrementStock(anyMap())).thenReturn(1);
+
+        assertThrows(RuntimeException.class, () -> service.deductStock(order(2, 1, 2, 2, 1)));
+
+        // Caller rollback dòng đã bị trừ; service không được ghi sổ giá vốn hay xóa cache
+        verify(productCostLedgerRepository, never()).applyMovements(any());
+        verify(productCostLedgerRepository, never()).recordSaleCosts(any());
+        verify(catalogCacheService, never()).evictProducts(any());
+    }
+
+    @Test
+    void shortReservationInsertsNoReservationRows() {
+        when(orderBatchRepository.decrementStock(anyMap())).thenReturn(0);
+
+        assertThrows(RuntimeException.class, () -> service.reserveStock(order(3, 5, 1)));
+
+        verify(orderBatchRepository, never()).insertStockReservations(any());
+    }
+
+    @Test
+    void singleProductWithNoUpdatedRowIsRejected() {
+        when(productRepository.decrementStock(anyInt(), anyInt())).thenReturn(0);
+
+        assertThrows(RuntimeException.class,
+                () -> service.deductStock(Product.builder().idProduct(4).productName("SP4").build(), 2));
+
+        verify(productCostLedgerRepository, never()).applyMovements(any());
+        verify(catalogCacheService, never()).evictProduct(any());
+    }
+
+    /**
+     * @param productAndQuantity cặp (id sản phẩm, số lượng) theo thứ tự dòng trong đơn
+     */
+    private static Order order(int orderId, int... productAndQuantity) {
+        Order order = Order.builder().idOrder(orderId).status(Order.OrderStatus.PENDING).build();
+        List<OrderDetail> details = new ArrayList<>();
+        for (int i = 0; i < productAndQuantity.length; i += 2) {
+            int productId = productAndQuantity[i];
+            details.add(OrderDetail.builder()
+                    .order(order)
+                    .product(Product.builder().idProduct(productId).productName("SP" + productId).build())
+                    .quantity(productAndQuantity[i + 1])
+                    .build());
+        }
+        order.setOrderDetails(details);
+        return order;
+    }
+}
@@ -0,0 +1,52 @@
+package com.storemanagement.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.storemanagement.config.PaymentReconciliationProperties;
+import com.storemanagement.model.Order;
+import com.storemanagement.repository.OrderRepository;
+import com.storemanagement.service.PromotionService;
+import com.storemanagement.service.SalesRollupService;
+import com.storemanagement.service.StockReservationService;
+import com.storemanagement.service.SystemSettingService;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebhookDuplicateDeliveryTest {
+
+    private static final String PAYMENT_SUCCESS_PAYLOAD = """
+            {"code":"00","desc":"success","data":{"paymentLinkId":"link-1","orderCode":1001,"code":"00"},"signature":"sig"}
+            """;
+
+    @Test
+    void replayedPaymentWebhookDoesNotDeductStockTwice() throws Exception {
+        Order order = Order.builder().idOrder(1).status(Order.OrderStatus.PENDING).build();
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.findByPaymentLinkId("link-1")).thenReturn(Optional.of(order));
+        when(orderRepository.findByIdForUpdate(1)).thenReturn(Optional.of(order));
+        StockReservationService stockReservationService = mock(StockReservationService.class);
+
+        PaymentSettlementServiceImpl settlementService = new PaymentSettlementServiceImpl(orderRepository,
+                mock(SystemSettingService.class), stockReservationService, mock(SalesRollupService.class),
+                mock(PromotionService.class), new PaymentReconciliationProperties());
+        PayOSWebhookHandler handler = new PayOSWebhookHandler(new ObjectMapper().findAndRegisterModules(),
+                orderRepository, settlementService);
+
+        handler.handle(PAYMENT_SUCCESS_PAYLOAD);
+        handler.handle(PAYMENT_SUCCESS_PAYLOAD);
+
+        assertEquals(Order.OrderStatus.COMPLETED, order.getStatus());
+        verify(stockReservationService, times(1)).commitReservation(eq(order), anyString());
+        verify(stockReservationService, never()).releaseReservation(any());
+    }
+}
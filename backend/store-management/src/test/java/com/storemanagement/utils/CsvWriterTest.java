@@ -0,0 +1,51 @@
+package com.storemanagement.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Định dạng ô CSV: BOM, escape theo RFC 4180, chặn công thức Excel, số và ngày giờ.
+ */
+class CsvWriterTest {
+
+    private static final String BOM = "\uFEFF";
+
+    @Test
+    void startsWithBomAndEndsRowsWithCrLf() {
+        assertEquals(BOM + "a,b\r\n1,2\r\n", write(new Object[]{"a", "b"}, new Object[]{1, 2}));
+    }
+
+    @Test
+    void quotesCellsContainingSeparatorsQuotesOrLineBreaks() {
+        assertEquals(BOM + "\"Hà Nội, Việt Nam\",\"Áo \"\"thun\"\"\",\"dòng 1\ndòng 2\",\"a\rb\"\r\n",
+                write(new Object[]{"Hà Nội, Việt Nam", "Áo \"thun\"", "dòng 1\ndòng 2", "a\rb"}));
+    }
+
+    @Test
+    void prefixesTextThatExcelWouldTreatAsFormula() {
+        assertEquals(BOM + "'=SUM(A1:A2),'+84901234567,'-1,'@cmd,\"'=HYPERLINK(\"\"x\"\",\"\"y\"\")\"\r\n",
+                write(new Object[]{"=SUM(A1:A2)", "+84901234567", "-1", "@cmd", "=HYPERLINK(\"x\",\"y\")"}));
+    }
+
+    @Test
+    void writesNumbersAsIsNullsAsEmptyAndDateTimesWithSeconds() {
+        assertEquals(BOM + "-150000.50,,true,2025-03-01 08:05:09\r\n",
+                write(new Object[]{new BigDecimal("-150000.50"), null, true, LocalDateTime.of(2025, 3, 1, 8, 5, 9)}));
+    }
+
+    private static String write(Object[]... rows) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CsvWriter csvWriter = new CsvWriter(output);
+        for (Object[] row : rows) {
+            csvWriter.writeRow(row);
+        }
+        csvWriter.flush();
+        return output.toString(StandardCharsets.UTF_8);
+    }
+}